@@ -0,0 +1,16 @@
+-- Replaces the (event_id, name) primary key of guest_list_entry with a numeric id, keeping the existing guests.
+-- Run once against a PostgreSQL database made by an earlier version, before starting this version, as
+-- ddl-auto=update cannot change a primary key:
+--   docker exec -i dev-postgres psql -U dev_user -d dev_party_db < db/migrations/001_guest_list_entry_surrogate_key.sql
+BEGIN;
+
+-- The existing guests are numbered as the column is added
+ALTER TABLE guest_list_entry ADD COLUMN id BIGINT GENERATED BY DEFAULT AS IDENTITY;
+
+ALTER TABLE guest_list_entry DROP CONSTRAINT guest_list_entry_pkey;
+ALTER TABLE guest_list_entry ADD CONSTRAINT guest_list_entry_pkey PRIMARY KEY (id);
+
+-- Names stay unique within an event, and looking a guest up by name still uses an index
+ALTER TABLE guest_list_entry ADD CONSTRAINT uk_guest_list_entry_event_name UNIQUE (event_id, name);
+
+COMMIT;
@@ -0,0 +1,119 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.TaskDecorator;
+import uk.co.imperatives.exercise.dto.GuestListEntryDto;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.service.GuestStore;
+import uk.co.imperatives.exercise.service.PartyEventExecutor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares holding a large guest list as {@link GuestListEntry} entities with holding it in the columns of the
+ * {@link GuestStore}, for writing the guest list as JSON and for counting the guests present.
+ * <p>
+ * The heap each takes per guest is printed when each trial starts, measured as the growth in the heap used after
+ * garbage collection, so it is approximate. Entities read through JPA also carry the persistence context's copy of
+ * their state, which is not counted here. Half the guests have arrived and a tenth have left, so that both set and
+ * unset times are held.
+ * <p>
+ * Run with {@code ./mvnw -Pjmh test-compile exec:exec -Djmh.args="GuestStoreBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GuestStoreBenchmark {
+
+    @Param({"10000", "100000"})
+    public int guestCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private PartyEventExecutor partyEventExecutor;
+    private List<GuestListEntry> guests;
+    private GuestStore guestStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        guests = retained("entities", () -> guests(guestCount));
+
+        var guestListEntryRepository = new InMemoryGuestListEntryRepository();
+        guestListEntryRepository.saveAll(guests);
+        partyEventExecutor = new PartyEventExecutor(new StaticListableBeanFactory().getBeanProvider(TaskDecorator.class), Duration.ofMinutes(1), Duration.ofMinutes(30), 10);
+        guestStore = retained("guest store", () -> {
+            var store = new GuestStore(guestListEntryRepository, partyEventExecutor);
+            store.allGuests(PartyData.EVENT_ID);
+            return store;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        partyEventExecutor.destroy();
+    }
+
+    @Benchmark
+    public byte[] guestListFromEntities() throws IOException {
+        return objectMapper.writeValueAsBytes(guests.stream().map(GuestListEntryDto::toDto).toList());
+    }
+
+    @Benchmark
+    public byte[] guestListFromStore() throws IOException {
+        return objectMapper.writeValueAsBytes(guestStore.allGuests(PartyData.EVENT_ID));
+    }
+
+    @Benchmark
+    public long presentGuestsFromEntities() {
+        return guests.stream()
+                .filter(guest -> guest.hasArrived() && !guest.hasLeft())
+                .mapToLong(GuestListEntry::noOfGuests)
+                .sum();
+    }
+
+    @Benchmark
+    public long presentGuestsFromStore() {
+        return guestStore.presentGuests(PartyData.EVENT_ID);
+    }
+
+    private static List<GuestListEntry> guests(int guestCount) {
+        List<GuestListEntry> guests = new PartyData(Math.max(1, guestCount / 10), guestCount).guests;
+        for (int i = 0; i < guests.size(); i += 2) {
+            guests.get(i).recordTimeArrived();
+            if (i % 10 == 0) {
+                guests.get(i).recordTimeLeft();
+            }
+        }
+        return guests;
+    }
+
+    /**
+     * Makes the object and prints how much more heap is used once it has been made, per guest.
+     */
+    private <T> T retained(String what, Supplier<T> make) {
+        long before = heapUsedAfterGc();
+        T made = make.get();
+        long after = heapUsedAfterGc();
+        Reference.reachabilityFence(made);
+        System.out.printf("%n%s for %,d guests: %,d bytes, %d bytes per guest%n",
+                what, guestCount, after - before, (after - before) / guestCount);
+        return made;
+    }
+
+    private static long heapUsedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
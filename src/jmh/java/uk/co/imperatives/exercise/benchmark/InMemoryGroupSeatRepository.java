@@ -0,0 +1,40 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import uk.co.imperatives.exercise.model.GroupSeat;
+import uk.co.imperatives.exercise.repository.GroupSeatRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A list backed {@link GroupSeatRepository}, used to benchmark the services without any database cost. Group seats
+ * are compared by identity, as they are only given an id by the database.
+ */
+public class InMemoryGroupSeatRepository implements GroupSeatRepository {
+    private final List<GroupSeat> groupSeats = new ArrayList<>();
+
+    @Override
+    public List<GroupSeat> findAllByGuestIdOrderByTableNumber(Long guestId) {
+        return groupSeats.stream()
+                .filter(seat -> Objects.equals(seat.getGuestId(), guestId))
+                .sorted(Comparator.comparingInt(GroupSeat::getTableNumber))
+                .toList();
+    }
+
+    @Override
+    public <S extends GroupSeat> Iterable<S> saveAll(Iterable<S> seats) {
+        seats.forEach(seat -> {
+            if (groupSeats.stream().noneMatch(saved -> saved == seat)) {
+                groupSeats.add(seat);
+            }
+        });
+        return seats;
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends GroupSeat> seats) {
+        seats.forEach(seat -> groupSeats.removeIf(saved -> saved == seat));
+    }
+}
@@ -0,0 +1,149 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.GuestView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A map backed {@link GuestListEntryRepository}, used to benchmark the services without any database cost.
+ * <p>
+ * Guests are kept by event and name rather than by id, which is only given out by the database. The name each
+ * guest was saved under is remembered, so that saving a renamed guest moves them rather than adding a copy.
+ */
+public class InMemoryGuestListEntryRepository implements GuestListEntryRepository {
+    private final Map<Key, GuestListEntry> guests = new LinkedHashMap<>();
+    private final Map<GuestListEntry, Key> savedUnder = new IdentityHashMap<>();
+
+    @Override
+    public Optional<GuestListEntry> findByEventIdAndName(String eventId, String name) {
+        return Optional.ofNullable(guests.get(new Key(eventId, name)));
+    }
+
+    @Override
+    public boolean existsByEventIdAndName(String eventId, String name) {
+        return guests.containsKey(new Key(eventId, name));
+    }
+
+    @Override
+    public boolean existsByEventId(String eventId) {
+        return guests.keySet().stream().anyMatch(key -> key.eventId().equals(eventId));
+    }
+
+    @Override
+    public List<GuestListEntry> findAllByEventId(String eventId) {
+        return guests.values().stream()
+                .filter(guest -> guest.getEventId().equals(eventId))
+                .toList();
+    }
+
+    @Override
+    public List<GuestListEntry> findAllByEventIdAndNameIn(String eventId, Collection<String> names) {
+        return names.stream()
+                .map(name -> guests.get(new Key(eventId, name)))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<GuestView> findGuestViewsByEventId(String eventId) {
+        return findAllByEventId(eventId).stream().map(GuestView::of).toList();
+    }
+
+    @Override
+    public long countPresentGuests() {
+        return guests.values().stream()
+                .filter(guest -> guest.hasArrived() && !guest.hasLeft())
+                .mapToLong(GuestListEntry::noOfGuests)
+                .sum();
+    }
+
+    @Override
+    public <S extends GuestListEntry> S save(S entity) {
+        Key key = keyOf(entity);
+        Key previousKey = savedUnder.put(entity, key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            guests.remove(previousKey);
+        }
+        GuestListEntry replaced = guests.put(key, entity);
+        if (replaced != null && replaced != entity) {
+            savedUnder.remove(replaced);
+        }
+        return entity;
+    }
+
+    @Override
+    public <S extends GuestListEntry> Iterable<S> saveAll(Iterable<S> entities) {
+        entities.forEach(this::save);
+        return entities;
+    }
+
+    @Override
+    public Optional<GuestListEntry> findById(Long id) {
+        return guests.values().stream().filter(guest -> id.equals(guest.getId())).findFirst();
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public Iterable<GuestListEntry> findAll() {
+        return new ArrayList<>(guests.values());
+    }
+
+    @Override
+    public Iterable<GuestListEntry> findAllById(Iterable<Long> ids) {
+        List<GuestListEntry> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return guests.size();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        findById(id).ifPresent(this::delete);
+    }
+
+    @Override
+    public void delete(GuestListEntry entity) {
+        Key key = savedUnder.remove(entity);
+        guests.remove(key != null ? key : keyOf(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends GuestListEntry> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        guests.clear();
+        savedUnder.clear();
+    }
+
+    private static Key keyOf(GuestListEntry guest) {
+        return new Key(guest.getEventId(), guest.getName());
+    }
+
+    private record Key(String eventId, String name) {
+    }
+}
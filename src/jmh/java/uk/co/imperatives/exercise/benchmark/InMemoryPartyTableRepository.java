@@ -0,0 +1,156 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.model.PartyTableId;
+import uk.co.imperatives.exercise.repository.OccupancyDiscrepancy;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.repository.PartyTableView;
+import uk.co.imperatives.exercise.repository.SeatTotals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * A map backed {@link PartyTableRepository}, used to benchmark the services without any database cost.
+ * Tables are kept in event and table number order, which is the order the database returns them in.
+ */
+public class InMemoryPartyTableRepository implements PartyTableRepository {
+    private final Map<PartyTableId, PartyTable> tables =
+            new TreeMap<>(Comparator.comparing(PartyTableId::getEventId).thenComparing(PartyTableId::getNumber));
+
+    @Override
+    public List<PartyTable> findAllByEventId(String eventId) {
+        return tables.values().stream()
+                .filter(table -> table.getEventId().equals(eventId))
+                .toList();
+    }
+
+    @Override
+    public boolean existsByEventId(String eventId) {
+        return tables.keySet().stream().anyMatch(id -> id.getEventId().equals(eventId));
+    }
+
+    @Override
+    public List<PartyTable> findAllByEventIdAndNumberIn(String eventId, Collection<Integer> numbers) {
+        return numbers.stream()
+                .map(number -> tables.get(new PartyTableId(eventId, number)))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<PartyTableView> findTableViewsByEventId(String eventId) {
+        return findAllByEventId(eventId).stream()
+                .map(table -> new PartyTableView(table.getNumber(), table.getNoOfSeats(),
+                        table.getNoOfSeatsAllocated(), table.getNoOfSeatsHeld()))
+                .toList();
+    }
+
+    @Override
+    public long countUnAllocatedSeats(String eventId) {
+        return findAllByEventId(eventId).stream().mapToLong(PartyTable::getUnAllocatedSeats).sum();
+    }
+
+    @Override
+    public int releaseAllHeldSeats() {
+        int released = 0;
+        for (PartyTable table : tables.values()) {
+            if (table.getNoOfSeatsHeld() != 0) {
+                table.setNoOfSeatsHeld(0);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    @Override
+    public SeatTotals getSeatTotals() {
+        long noOfSeats = 0;
+        long noOfSeatsAllocated = 0;
+        for (PartyTable table : tables.values()) {
+            noOfSeats += table.getNoOfSeats();
+            noOfSeatsAllocated += table.getNoOfSeatsAllocated();
+        }
+        return new SeatTotals(noOfSeats, noOfSeatsAllocated);
+    }
+
+    @Override
+    public List<OccupancyDiscrepancy> findOccupancyDiscrepancies() {
+        // The tables are not checked against the guests, which are kept in another repository
+        return List.of();
+    }
+
+    @Override
+    public <S extends PartyTable> S save(S entity) {
+        tables.put(idOf(entity), entity);
+        return entity;
+    }
+
+    @Override
+    public <S extends PartyTable> Iterable<S> saveAll(Iterable<S> entities) {
+        entities.forEach(this::save);
+        return entities;
+    }
+
+    @Override
+    public Optional<PartyTable> findById(PartyTableId id) {
+        return Optional.ofNullable(tables.get(id));
+    }
+
+    @Override
+    public boolean existsById(PartyTableId id) {
+        return tables.containsKey(id);
+    }
+
+    @Override
+    public Iterable<PartyTable> findAll() {
+        return new ArrayList<>(tables.values());
+    }
+
+    @Override
+    public Iterable<PartyTable> findAllById(Iterable<PartyTableId> ids) {
+        List<PartyTable> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return tables.size();
+    }
+
+    @Override
+    public void deleteById(PartyTableId id) {
+        tables.remove(id);
+    }
+
+    @Override
+    public void delete(PartyTable entity) {
+        tables.remove(idOf(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends PartyTableId> ids) {
+        ids.forEach(tables::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends PartyTable> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        tables.clear();
+    }
+
+    private static PartyTableId idOf(PartyTable table) {
+        return new PartyTableId(table.getEventId(), table.getNumber());
+    }
+}
@@ -0,0 +1,50 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.model.PartyTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a party with the given number of tables and guests.
+ * <p>
+ * The guests are spread evenly over the tables and every table is full, apart from one spare table
+ * numbered after all the others.  Looking for a table with availability therefore has to pass over
+ * every other table first, which is the worst case for the seating search.
+ */
+public class PartyData {
+    static final String EVENT_ID = PartyEvent.DEFAULT_ID;
+
+    final List<PartyTable> tables = new ArrayList<>();
+    final List<GuestListEntry> guests = new ArrayList<>();
+    final int spareTableNumber;
+
+    public PartyData(int tableCount, int guestCount) {
+        for (int tableNo = 1; tableNo <= tableCount; tableNo++) {
+            int guestsAtTable = guestCount / tableCount + (tableNo <= guestCount % tableCount ? 1 : 0);
+            int noOfSeats = Math.max(1, guestsAtTable);
+            tables.add(PartyTable.builder().eventId(EVENT_ID).number(tableNo).noOfSeats(noOfSeats).noOfSeatsAllocated(noOfSeats).build());
+
+            for (int i = 0; i < guestsAtTable; i++) {
+                guests.add(GuestListEntry.builder().eventId(EVENT_ID).name(guestName(guests.size())).tableNumber(tableNo).accompanyingGuests(0).build());
+            }
+        }
+
+        spareTableNumber = tableCount + 1;
+        tables.add(PartyTable.builder().eventId(EVENT_ID).number(spareTableNumber).noOfSeats(Integer.MAX_VALUE / 2).noOfSeatsAllocated(0).build());
+    }
+
+    /**
+     * Guest names may only contain letters, so the sequence number is written using the letters a to z.
+     */
+    static String guestName(int sequence) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append((char) ('a' + sequence % 26));
+            sequence /= 26;
+        } while (sequence > 0);
+        return "Guest " + name;
+    }
+}
@@ -0,0 +1,78 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import uk.co.imperatives.exercise.dto.GuestsAtTable;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.service.AddGuestRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of the guest list and party table services as the number of tables and
+ * guests grows.
+ * <p>
+ * Run with {@code ./mvnw -Pjmh test-compile exec:exec}, passing JMH options through {@code jmh.args},
+ * for example {@code -Djmh.args="-p backend=in-memory -p tableCount=10,10000"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartyServicesBenchmark {
+
+    @Benchmark
+    public int getTableWithAvailableSeating(PartyState party) {
+        return party.partyTableService.getTableWithAvailableSeating(PartyData.EVENT_ID, 1);
+    }
+
+    @Benchmark
+    public int getTotalEmptySeats(PartyState party) {
+        return party.partyTableService.getTotalEmptySeats(PartyData.EVENT_ID);
+    }
+
+    // What GET /party_tables/guests_at_table returns for CBOR, the JSON being ready written
+    @Benchmark
+    public List<GuestsAtTable> getSeatingChart(PartyState party) {
+        return party.seatingChart.snapshot(PartyData.EVENT_ID).guestsAtTables();
+    }
+
+    @Benchmark
+    public byte[] getSeatingChartJson(PartyState party) {
+        return party.seatingChart.snapshot(PartyData.EVENT_ID).json();
+    }
+
+    @Benchmark
+    public GuestListEntry recordGuestArrival(PartyState party) {
+        return party.guestListService.recordGuestArrival(PartyData.EVENT_ID, party.nextArrivingGuest(), 0);
+    }
+
+    @Benchmark
+    public GuestListEntry addGuest(PartyState party, WalkIn walkIn) {
+        return party.guestListService.addGuest(PartyData.EVENT_ID, walkIn.request);
+    }
+
+    /**
+     * A new guest without a table number, so the service has to search for a table.  The guest is
+     * removed again after each invocation to keep the size of the party constant.
+     */
+    @State(Scope.Thread)
+    public static class WalkIn {
+        private int sequence;
+        AddGuestRequest request;
+
+        @Setup(Level.Invocation)
+        public void arrive(PartyState party) {
+            request = AddGuestRequest.builder()
+                    .name("Walk In " + PartyData.guestName(sequence++).substring("Guest ".length()))
+                    .accompanyingGuests(1)
+                    .build();
+        }
+
+        @TearDown(Level.Invocation)
+        public void leave(PartyState party) {
+            party.guestListService.delete(PartyData.EVENT_ID, request.getName());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.co.imperatives.exercise.ExerciseApplication;
+import uk.co.imperatives.exercise.service.DataVersions;
+import uk.co.imperatives.exercise.service.GuestAnalytics;
+import uk.co.imperatives.exercise.service.GuestListService;
+import uk.co.imperatives.exercise.service.GuestListServiceInterface;
+import uk.co.imperatives.exercise.service.PartyEventExecutor;
+import uk.co.imperatives.exercise.service.PartyTableService;
+import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+import uk.co.imperatives.exercise.service.SeatHoldRegistry;
+import uk.co.imperatives.exercise.service.GuestStore;
+import uk.co.imperatives.exercise.service.SeatingChart;
+
+import java.time.Duration;
+
+/**
+ * A populated party, backed either by the in-memory repositories or by the application running
+ * against an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+public class PartyState {
+    public static final String IN_MEMORY = "in-memory";
+    public static final String H2 = "h2";
+
+    @Param({IN_MEMORY, H2})
+    public String backend;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int tableCount;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int guestCount;
+
+    PartyTableServiceInterface partyTableService;
+    GuestListServiceInterface guestListService;
+    SeatingChart seatingChart;
+    PartyData partyData;
+
+    private ConfigurableApplicationContext context;
+    private SeatHoldRegistry seatHolds;
+    private PartyEventExecutor partyEventExecutor;
+    private int nextArrival;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        partyData = new PartyData(tableCount, guestCount);
+
+        if (IN_MEMORY.equals(backend)) {
+            var partyTableRepository = new InMemoryPartyTableRepository();
+            var guestListEntryRepository = new InMemoryGuestListEntryRepository();
+            partyTableRepository.saveAll(partyData.tables);
+            guestListEntryRepository.saveAll(partyData.guests);
+
+            seatHolds = new SeatHoldRegistry(event -> { }, Duration.ofMinutes(5), Duration.ofSeconds(1));
+            partyEventExecutor = new PartyEventExecutor(new StaticListableBeanFactory().getBeanProvider(TaskDecorator.class), Duration.ofMinutes(1), Duration.ofMinutes(30), 10);
+            seatingChart = new SeatingChart(partyTableRepository, guestListEntryRepository, partyEventExecutor, new ObjectMapper());
+            var dataVersions = new DataVersions();
+            partyTableService = new PartyTableService(partyTableRepository, seatHolds, event -> { }, dataVersions, seatingChart);
+            var guestStore = new GuestStore(guestListEntryRepository, partyEventExecutor);
+            guestListService = new GuestListService(guestListEntryRepository, partyTableService, dataVersions, seatingChart,
+                    guestStore, new GuestAnalytics(guestStore, partyEventExecutor), new InMemoryGroupSeatRepository());
+        } else if (H2.equals(backend)) {
+            context = startApplication();
+            insert(context.getBean(JdbcTemplate.class), partyData);
+
+            partyTableService = context.getBean(PartyTableServiceInterface.class);
+            guestListService = context.getBean(GuestListServiceInterface.class);
+            seatingChart = context.getBean(SeatingChart.class);
+        } else {
+            throw new IllegalArgumentException("Unknown backend " + backend);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (context != null) {
+            context.close();
+        }
+        if (seatHolds != null) {
+            seatHolds.destroy();
+        }
+        if (partyEventExecutor != null) {
+            partyEventExecutor.destroy();
+        }
+    }
+
+    /**
+     * Each call returns the next guest on the guest list, so arrivals are spread over all the guests.
+     */
+    String nextArrivingGuest() {
+        var guest = partyData.guests.get(nextArrival);
+        nextArrival = (nextArrival + 1) % partyData.guests.size();
+        return guest.getName();
+    }
+
+    static ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(ExerciseApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.web=WARN");
+    }
+
+    // Bulk insert through JDBC, saving 100k entities through JPA would take longer than the benchmark
+    static void insert(JdbcTemplate jdbcTemplate, PartyData partyData) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO party_table (event_id, number, no_of_seats, no_of_seats_allocated, no_of_seats_held, version) VALUES (?, ?, ?, ?, 0, 0)",
+                partyData.tables, 1000, (statement, table) -> {
+                    statement.setString(1, table.getEventId());
+                    statement.setInt(2, table.getNumber());
+                    statement.setInt(3, table.getNoOfSeats());
+                    statement.setInt(4, table.getNoOfSeatsAllocated());
+                });
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO guest_list_entry (event_id, name, table_number, accompanying_guests, version) VALUES (?, ?, ?, ?, 0)",
+                partyData.guests, 1000, (statement, guest) -> {
+                    statement.setString(1, guest.getEventId());
+                    statement.setString(2, guest.getName());
+                    statement.setInt(3, guest.getTableNumber());
+                    statement.setInt(4, guest.getAccompanyingGuests());
+                });
+    }
+}
@@ -0,0 +1,111 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.dto.GuestListEntryDto;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares reading the guest list of a large event from an embedded H2 database as {@link GuestListEntryDto}s through
+ * entities, in a read-write and in a read-only transaction, with reading it through the guest view projection.
+ * <p>
+ * Entities are kept in the persistence context, with a copy of their state for dirty checking, until the transaction
+ * ends, and a read-write transaction checks every one of them for changes when it commits. The heap held per guest
+ * while each read's transaction is open is printed when each trial starts, measured as the growth in the heap used
+ * after garbage collection, so it is approximate.
+ * <p>
+ * Run with {@code ./mvnw -Pjmh test-compile exec:exec -Djmh.args="ReadProjectionBenchmark -prof gc"} to also see the
+ * bytes allocated by each read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadProjectionBenchmark {
+
+    @Param({"50000"})
+    public int guestCount;
+
+    private ConfigurableApplicationContext context;
+    private GuestListEntryRepository guestListEntryRepository;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = PartyState.startApplication();
+        PartyState.insert(context.getBean(JdbcTemplate.class), new PartyData(Math.max(1, guestCount / 10), guestCount));
+
+        guestListEntryRepository = context.getBean(GuestListEntryRepository.class);
+        var transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        heldInTransaction("entities, read-write", readWrite, this::entities);
+        heldInTransaction("entities, read-only", readOnly, this::entities);
+        heldInTransaction("projections, read-only", readOnly, this::projections);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<GuestListEntryDto> entitiesReadWrite() {
+        return readWrite.execute(status -> entities());
+    }
+
+    @Benchmark
+    public List<GuestListEntryDto> entitiesReadOnly() {
+        return readOnly.execute(status -> entities());
+    }
+
+    @Benchmark
+    public List<GuestListEntryDto> projectionsReadOnly() {
+        return readOnly.execute(status -> projections());
+    }
+
+    private List<GuestListEntryDto> entities() {
+        return guestListEntryRepository.findAllByEventId(PartyData.EVENT_ID).stream().map(GuestListEntryDto::toDto).toList();
+    }
+
+    private List<GuestListEntryDto> projections() {
+        return guestListEntryRepository.findGuestViewsByEventId(PartyData.EVENT_ID).stream().map(GuestListEntryDto::toDto).toList();
+    }
+
+    /**
+     * Reads the guest list in a transaction and prints how much more heap is used, per guest, before it ends.
+     */
+    private void heldInTransaction(String what, TransactionTemplate transactionTemplate, Supplier<List<GuestListEntryDto>> read) {
+        long before = heapUsedAfterGc();
+        long held = transactionTemplate.execute(status -> {
+            List<GuestListEntryDto> guests = read.get();
+            long after = heapUsedAfterGc();
+            if (guests.size() != guestCount) {
+                throw new IllegalStateException("Read " + guests.size() + " guests, expected " + guestCount);
+            }
+            return after - before;
+        });
+        System.out.printf("%n%s for %,d guests: %,d bytes held in the transaction, %d bytes per guest%n",
+                what, guestCount, held, held / guestCount);
+    }
+
+    private static long heapUsedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
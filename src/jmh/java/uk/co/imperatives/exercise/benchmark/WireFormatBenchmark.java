@@ -0,0 +1,108 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.co.imperatives.exercise.dto.GuestListEntryDto;
+import uk.co.imperatives.exercise.dto.GuestsAtTable;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares JSON and CBOR, with and without gzip, for the guest list and seating chart responses.
+ * <p>
+ * The time is the CPU cost of writing a response. The number of bytes each response takes on the wire is printed
+ * when each trial starts. Half the guests have arrived, so that both set and unset times are written.
+ * <p>
+ * Run with {@code ./mvnw -Pjmh test-compile exec:exec -Djmh.args="WireFormatBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+    private static final String JSON = "json";
+    private static final String CBOR = "cbor";
+
+    @Param({"100", "10000"})
+    public int guestCount;
+
+    @Param({JSON, CBOR})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private ObjectMapper objectMapper;
+    private List<GuestListEntryDto> guestList;
+    private List<GuestsAtTable> seatingChart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = mapperFor(format);
+
+        List<GuestListEntry> guests = new PartyData(Math.max(1, guestCount / 10), guestCount).guests;
+        for (int i = 0; i < guests.size(); i += 2) {
+            guests.get(i).recordTimeArrived();
+        }
+
+        guestList = guests.stream().map(GuestListEntryDto::toDto).toList();
+
+        Map<Integer, List<GuestListEntryDto>> guestsByTable = guestList.stream()
+                .collect(Collectors.groupingBy(GuestListEntryDto::getTableNumber, TreeMap::new, Collectors.toList()));
+        seatingChart = guestsByTable.entrySet().stream()
+                .map(entry -> GuestsAtTable.builder().tableNumber(entry.getKey()).guests(entry.getValue()).build())
+                .toList();
+
+        System.out.printf("%n%s%s bytes on the wire for %d guests: guest list %,d, seating chart %,d%n",
+                format, gzip ? " + gzip" : "", guestCount, write(guestList).length, write(seatingChart).length);
+    }
+
+    @Benchmark
+    public byte[] guestList() throws IOException {
+        return write(guestList);
+    }
+
+    @Benchmark
+    public byte[] seatingChart() throws IOException {
+        return write(seatingChart);
+    }
+
+    private byte[] write(Object response) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            objectMapper.writeValue(out, response);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Mappers set up as the application sets up its message converters.
+     */
+    private static ObjectMapper mapperFor(String format) {
+        return switch (format) {
+            case JSON -> Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            case CBOR -> Jackson2ObjectMapperBuilder.json()
+                    .factory(new CBORFactory())
+                    .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .featuresToDisable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+}
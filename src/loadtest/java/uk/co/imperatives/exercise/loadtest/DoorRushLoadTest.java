@@ -0,0 +1,335 @@
+package uk.co.imperatives.exercise.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.co.imperatives.exercise.ExerciseApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Simulates the rush at the door when a party opens: guests on the guest list arriving, walk-ins being
+ * added to the guest list, and the lobby screens polling for the number of empty seats.
+ * <p>
+ * The load is open-loop: each kind of call is started on a Poisson schedule, whether or not earlier calls
+ * have finished, and latency is measured from when a call was scheduled to start.  A slow server therefore
+ * shows up as higher latency, rather than as fewer calls being made.
+ * <p>
+ * Run with {@code ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="--duration=2m --max-p99=200ms"}.
+ * When no {@code --target} URL is given the application is started on an in-memory H2 database.
+ * The process exits with status 1 when a {@code --max-...} threshold is exceeded.
+ */
+public class DoorRushLoadTest {
+    private static final int SETUP_CONCURRENCY = 16;
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final EndpointStats arrivals = new EndpointStats("PUT /guest_list/arrive");
+    private final EndpointStats walkIns = new EndpointStats("POST /guest_list");
+    private final EndpointStats polls = new EndpointStats("GET /party_tables/seats_empty");
+
+    private final List<Guest> guestList = new ArrayList<>();
+    private final AtomicInteger nextArrival = new AtomicInteger();
+    private final AtomicInteger nextWalkIn = new AtomicInteger();
+
+    private volatile long recordFrom;
+
+    DoorRushLoadTest(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .executor(requestExecutor)
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext application = null;
+        String baseUrl = options.target();
+
+        if (baseUrl == null) {
+            application = startApplication();
+            baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+
+        boolean passed;
+        try {
+            var loadTest = new DoorRushLoadTest(options, baseUrl);
+            loadTest.setUpParty();
+            loadTest.run();
+            passed = loadTest.report();
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(ExerciseApplication.class)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:doorrush;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.web=WARN");
+    }
+
+    /**
+     * Adds enough tables for everyone expected to arrive plus the walk-ins, and puts everyone expected to
+     * arrive on the guest list.  Guests are seated by this method, so the set up does not depend on the
+     * speed of the server's search for a free table.
+     */
+    void setUpParty() throws InterruptedException {
+        double seconds = options.warmup().plus(options.duration()).toMillis() / 1000.0;
+        int expectedArrivals = (int) Math.ceil(options.arrivalsPerSecond() * seconds);
+        int expectedWalkIns = (int) Math.ceil(options.walkInsPerSecond() * seconds);
+        Random random = new Random(42);
+
+        int tableNumber = 1;
+        int freeSeats = options.seatsPerTable();
+        for (int i = 0; i < expectedArrivals; i++) {
+            int accompanyingGuests = random.nextInt(Math.min(4, options.seatsPerTable()));
+            if (accompanyingGuests + 1 > freeSeats) {
+                tableNumber++;
+                freeSeats = options.seatsPerTable();
+            }
+            guestList.add(new Guest(guestName("Guest", i), tableNumber, accompanyingGuests));
+            freeSeats -= accompanyingGuests + 1;
+        }
+
+        // Room for the walk-ins, who are at most four people each
+        int tableCount = tableNumber + (int) Math.ceil(expectedWalkIns * 4.0 / options.seatsPerTable()) + 1;
+        System.out.printf("Setting up %d tables and %d guests at %s%n", tableCount, guestList.size(), baseUrl);
+
+        runInParallel(tableCount, table -> post("/party_tables",
+                "{\"tableNumber\":" + (table + 1) + ",\"noOfSeats\":" + options.seatsPerTable() + "}"));
+
+        // Each worker seats guests at its own tables, so the workers never update the same table
+        runInParallel(SETUP_CONCURRENCY, worker -> {
+            for (Guest guest : guestList) {
+                if (guest.tableNumber() % SETUP_CONCURRENCY == worker) {
+                    post("/guest_list", guest.toJson());
+                }
+            }
+        });
+
+        Collections.shuffle(guestList, random);
+    }
+
+    void run() throws InterruptedException {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long end = start + options.warmup().plus(options.duration()).toNanos();
+        recordFrom = start + options.warmup().toNanos();
+
+        System.out.printf("Running for %s after a %s warm up: %.1f arrivals/s, %.1f walk-ins/s, %.1f polls/s%n",
+                options.duration(), options.warmup(),
+                options.arrivalsPerSecond(), options.walkInsPerSecond(), options.pollsPerSecond());
+
+        List<Thread> schedulers = List.of(
+                schedule(options.arrivalsPerSecond(), start, end, arrivals, this::arrive),
+                schedule(options.walkInsPerSecond(), start, end, walkIns, this::walkIn),
+                schedule(options.pollsPerSecond(), start, end, polls, this::pollEmptySeats));
+
+        for (Thread scheduler : schedulers) {
+            scheduler.join();
+        }
+        requestExecutor.shutdown();
+        requestExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Starts calls at exponentially distributed intervals, so that calls arrive as a Poisson process with
+     * the given mean rate.
+     */
+    private Thread schedule(double perSecond, long start, long end, EndpointStats stats, Supplier<HttpRequest> call) {
+        return Thread.ofPlatform().name("schedule " + stats.name).start(() -> {
+            if (perSecond <= 0) {
+                return;
+            }
+            double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / perSecond;
+            long scheduledAt = start;
+
+            while (true) {
+                scheduledAt += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos);
+                if (scheduledAt >= end) {
+                    return;
+                }
+                long now;
+                while ((now = System.nanoTime()) < scheduledAt) {
+                    LockSupport.parkNanos(scheduledAt - now);
+                }
+                long intendedStart = scheduledAt;
+                requestExecutor.execute(() -> send(call.get(), intendedStart, stats));
+            }
+        });
+    }
+
+    private void send(HttpRequest request, long intendedStart, EndpointStats stats) {
+        String outcome;
+        boolean error;
+        try {
+            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            outcome = Integer.toString(status);
+            error = status >= 400;
+        } catch (Exception e) {
+            outcome = e.getClass().getSimpleName();
+            error = true;
+        }
+
+        if (intendedStart >= recordFrom) {
+            stats.record(System.nanoTime() - intendedStart, outcome, error);
+        }
+    }
+
+    private HttpRequest arrive() {
+        Guest guest = guestList.get(Math.floorMod(nextArrival.getAndIncrement(), guestList.size()));
+        return request("/guest_list/arrive")
+                .PUT(json("{\"name\":\"" + guest.name() + "\",\"accompanyingGuests\":" + guest.accompanyingGuests() + "}"))
+                .build();
+    }
+
+    private HttpRequest walkIn() {
+        int accompanyingGuests = ThreadLocalRandom.current().nextInt(4);
+        return request("/guest_list")
+                .POST(json("{\"name\":\"" + guestName("Walk In", nextWalkIn.getAndIncrement()) + "\",\"accompanyingGuests\":" + accompanyingGuests + "}"))
+                .build();
+    }
+
+    private HttpRequest pollEmptySeats() {
+        return request("/party_tables/seats_empty").GET().build();
+    }
+
+    /**
+     * Prints the results and returns whether they are within the thresholds.
+     */
+    boolean report() {
+        double seconds = options.duration().toMillis() / 1000.0;
+        boolean passed = true;
+
+        System.out.println();
+        System.out.printf("%-32s %9s %9s %10s %10s %10s %10s %8s  %s%n",
+                "Endpoint", "Calls", "Calls/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "Errors", "Outcomes");
+        for (EndpointStats stats : List.of(arrivals, walkIns, polls)) {
+            System.out.printf("%-32s %9d %9.1f %10.2f %10.2f %10.2f %10.2f %7.2f%%  %s%n",
+                    stats.name, stats.count(), stats.count() / seconds,
+                    millis(stats.percentileMicros(50)), millis(stats.percentileMicros(99)),
+                    millis(stats.percentileMicros(99.9)), millis(stats.maxMicros()),
+                    stats.errorRate() * 100, stats.outcomes());
+
+            passed &= withinThreshold(stats, "p99", stats.percentileMicros(99), options.maxP99());
+            passed &= withinThreshold(stats, "p99.9", stats.percentileMicros(99.9), options.maxP999());
+            if (options.maxErrorRate() != null && stats.errorRate() > options.maxErrorRate()) {
+                System.out.printf("FAIL %s error rate %.4f is above %.4f%n", stats.name, stats.errorRate(), options.maxErrorRate());
+                passed = false;
+            }
+        }
+
+        if (options.hasThresholds()) {
+            System.out.println(passed ? "PASS all endpoints are within the thresholds" : "FAIL thresholds exceeded");
+        }
+        return passed;
+    }
+
+    private static boolean withinThreshold(EndpointStats stats, String percentile, long valueMicros, Duration threshold) {
+        if (threshold == null || valueMicros <= TimeUnit.NANOSECONDS.toMicros(threshold.toNanos())) {
+            return true;
+        }
+        System.out.printf("FAIL %s %s latency %.2f ms is above %d ms%n", stats.name, percentile, millis(valueMicros), threshold.toMillis());
+        return false;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Makes a set up call, trying again after the {@code Retry-After} delay while the server is too busy to take it.
+     */
+    private void post(String path, String body) {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    request(path).POST(json(body)).build(), HttpResponse.BodyHandlers.ofString());
+            while (response.statusCode() == 503) {
+                TimeUnit.SECONDS.sleep(response.headers().firstValueAsLong("Retry-After").orElse(1));
+                response = httpClient.send(request(path).POST(json(body)).build(), HttpResponse.BodyHandlers.ofString());
+            }
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("Set up failed, POST " + path + " " + body + " returned "
+                        + response.statusCode() + " " + response.body());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Set up failed, POST " + path, e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+    }
+
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+
+    private static void runInParallel(int tasks, IntConsumer task) throws InterruptedException {
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(SETUP_CONCURRENCY)) {
+            for (int i = 0; i < tasks; i++) {
+                int taskNo = i;
+                results.add(executor.submit(() -> task.accept(taskNo)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Guest names may only contain letters, so the sequence number is written using the letters a to z.
+     */
+    private static String guestName(String prefix, int sequence) {
+        StringBuilder name = new StringBuilder(prefix).append(' ');
+        do {
+            name.append((char) ('a' + sequence % 26));
+            sequence /= 26;
+        } while (sequence > 0);
+        return name.toString();
+    }
+
+    private record Guest(String name, int tableNumber, int accompanyingGuests) {
+        String toJson() {
+            return "{\"name\":\"" + name + "\",\"table\":" + tableNumber + ",\"accompanyingGuests\":" + accompanyingGuests + "}";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package uk.co.imperatives.exercise.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome of the calls made to one endpoint.  Latencies are recorded in microseconds.
+ */
+class EndpointStats {
+    final String name;
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(5), 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param outcome the HTTP status code, or the exception name when no response was received
+     */
+    void record(long latencyNanos, String outcome, boolean error) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), latencies.getHighestTrackableValue()));
+        outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    long count() {
+        return latencies.getTotalCount();
+    }
+
+    double errorRate() {
+        return count() == 0 ? 0 : (double) errors.sum() / count();
+    }
+
+    long percentileMicros(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    long maxMicros() {
+        return latencies.getMaxValue();
+    }
+
+    Map<String, Long> outcomes() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return counts;
+    }
+}
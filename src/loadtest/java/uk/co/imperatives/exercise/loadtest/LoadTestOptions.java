@@ -0,0 +1,90 @@
+package uk.co.imperatives.exercise.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options for the door rush load test, given on the command line as {@code --name=value}.
+ *
+ * @param target             URL of a running instance, or empty to start the application on H2
+ * @param duration           how long to drive load for, after the warm up
+ * @param warmup             how long to drive load for before recording results
+ * @param arrivalsPerSecond  mean rate of {@code PUT /guest_list/arrive} calls
+ * @param walkInsPerSecond   mean rate of {@code POST /guest_list} calls for guests who were not on the list
+ * @param pollsPerSecond     mean rate of {@code GET /party_tables/seats_empty} calls from the lobby screens
+ * @param seatsPerTable      seats at each table set up before the test
+ * @param maxP99             fail the run if any endpoint's p99 latency is above this
+ * @param maxP999            fail the run if any endpoint's p99.9 latency is above this
+ * @param maxErrorRate       fail the run if any endpoint's error rate (0 to 1) is above this
+ */
+public record LoadTestOptions(String target,
+                              Duration duration,
+                              Duration warmup,
+                              double arrivalsPerSecond,
+                              double walkInsPerSecond,
+                              double pollsPerSecond,
+                              int seatsPerTable,
+                              Duration maxP99,
+                              Duration maxP999,
+                              Double maxErrorRate) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must be given as --name=value, found " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        var loadTestOptions = new LoadTestOptions(
+                options.remove("target"),
+                duration(options.remove("duration"), "15m"),
+                duration(options.remove("warmup"), "30s"),
+                Double.parseDouble(take(options, "arrivals-per-second", "20")),
+                Double.parseDouble(take(options, "walk-ins-per-second", "1")),
+                Double.parseDouble(take(options, "polls-per-second", "10")),
+                Integer.parseInt(take(options, "seats-per-table", "10")),
+                duration(options.remove("max-p99"), null),
+                duration(options.remove("max-p999"), null),
+                options.containsKey("max-error-rate") ? Double.valueOf(options.remove("max-error-rate")) : null);
+
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + options.keySet());
+        }
+        return loadTestOptions;
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean hasThresholds() {
+        return maxP99 != null || maxP999 != null || maxErrorRate != null;
+    }
+
+    /**
+     * Durations are written as a number followed by ms, s, m or h, for example {@code 250ms} or {@code 15m}.
+     */
+    static Duration duration(String value, String defaultValue) {
+        if (value == null) {
+            value = defaultValue;
+        }
+        if (value == null) {
+            return null;
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Invalid duration " + value);
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package uk.co.imperatives.exercise.loadtest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long the application takes from the JVM being started to the first successful
+ * {@code POST /guest_list}, for the standard jar and for the ahead-of-time processed build with its class data
+ * sharing archive.
+ * <p>
+ * Each run starts a new JVM on a free port with the in-memory H2 database, adds a table as soon as the application
+ * answers and then adds a guest, timing until the guest has been added. Both builds are made by
+ * {@code ./mvnw -Paot package -DskipTests}, after which the benchmark is run with
+ * {@code ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.main=uk.co.imperatives.exercise.loadtest.StartupBenchmark -Dloadtest.args="--runs=10"}.
+ * <p>
+ * Options, given as {@code --name=value}: {@code runs} for each build (default 5), {@code jar} for the standard jar
+ * and {@code optimized} for the directory of the optimized build (defaulting to where the build puts them), and
+ * {@code timeout} for how long to wait for each start (default 2m).
+ */
+public class StartupBenchmark {
+    private static final String ARCHIVE = "application.jsa";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final String java = ProcessHandle.current().info().command().orElse("java");
+    private final Duration timeout;
+
+    StartupBenchmark(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must be given as --name=value, found " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Path jar = Path.of(options.getOrDefault("jar", "target/exercise-0.0.1-SNAPSHOT.jar"));
+        Path optimized = Path.of(options.getOrDefault("optimized", "target/aot-app"));
+        var benchmark = new StartupBenchmark(LoadTestOptions.duration(options.get("timeout"), "2m"));
+
+        if (!Files.exists(jar) || !Files.exists(optimized.resolve(ARCHIVE))) {
+            throw new IllegalStateException("Build both versions first with ./mvnw -Paot package -DskipTests, "
+                    + "looked for " + jar + " and " + optimized.resolve(ARCHIVE));
+        }
+
+        var standard = benchmark.run("standard", runs, jar.toAbsolutePath().getParent(),
+                List.of("-jar", jar.getFileName().toString()));
+        var aot = benchmark.run("optimized", runs, optimized.toAbsolutePath(),
+                List.of("-XX:SharedArchiveFile=" + ARCHIVE, "-Dspring.aot.enabled=true",
+                        "-jar", jar.getFileName().toString()));
+
+        System.out.println();
+        System.out.printf("%-10s %12s %12s%n", "build", "min ms", "median ms");
+        for (List<Long> times : List.of(standard, aot)) {
+            System.out.printf("%-10s %12d %12d%n", times == standard ? "standard" : "optimized",
+                    times.getFirst(), times.get(times.size() / 2));
+        }
+    }
+
+    /**
+     * Starts the application the given number of times, returning how long each start took in milliseconds, sorted.
+     */
+    private List<Long> run(String build, int runs, Path directory, List<String> javaArgs) throws Exception {
+        List<Long> times = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long millis = timeToFirstGuest(directory, javaArgs);
+            System.out.printf("%s run %d: first guest added after %d ms%n", build, run, millis);
+            times.add(millis);
+        }
+        times.sort(null);
+        return times;
+    }
+
+    private long timeToFirstGuest(Path directory, List<String> javaArgs) throws Exception {
+        int port = freePort();
+        String baseUrl = "http://localhost:" + port;
+
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(javaArgs);
+        command.add("--server.port=" + port);
+
+        long start = System.nanoTime();
+        Process application = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (!post(baseUrl + "/party_tables", "{\"tableNumber\":1,\"noOfSeats\":10}")) {
+                if (!application.isAlive()) {
+                    throw new IllegalStateException("The application exited with status " + application.exitValue());
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("The application did not start within " + timeout);
+                }
+                Thread.sleep(5);
+            }
+            if (!post(baseUrl + "/guest_list", "{\"name\":\"First Guest\",\"table\":1,\"accompanyingGuests\":0}")) {
+                throw new IllegalStateException("The first guest could not be added");
+            }
+            return Duration.ofNanos(System.nanoTime() - start).toMillis();
+        } finally {
+            application.destroy();
+            application.waitFor();
+        }
+    }
+
+    /**
+     * Posts the JSON, returning false if the application is not listening yet.
+     */
+    private boolean post(String url, String body) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("POST " + url + " returned " + response.statusCode() + " " + response.body());
+            }
+            return true;
+        } catch (ConnectException e) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Answers conditional GETs from the data version tags, before anything is read.
+ * <p>
+ * JSON and CBOR responses are different representations of the same data, so they are given different ETags, and
+ * responses vary by {@code Accept} so that caches keep them apart. The ETags are weak, as the server compresses
+ * larger responses and does not compress responses with a strong ETag, which would no longer match the bytes sent.
+ */
+final class ConditionalRequests {
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Returns true, having set up a 304 response, if the client already has the data the version tag stands for.
+     */
+    static boolean notModified(WebRequest request, String versionTag) {
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String tag = acceptsCbor(request) ? versionTag + "-cbor" : versionTag;
+        return request.checkNotModified("W/\"" + tag + "\"");
+    }
+
+    static boolean acceptsCbor(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(MediaType.APPLICATION_CBOR::equalsTypeAndSubtype);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
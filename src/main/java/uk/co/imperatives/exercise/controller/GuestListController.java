@@ -2,6 +2,9 @@ package uk.co.imperatives.exercise.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -9,15 +12,21 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import uk.co.imperatives.exercise.dto.AddGuestRequestDto;
+import uk.co.imperatives.exercise.dto.GuestAnalyticsDto;
 import uk.co.imperatives.exercise.dto.GuestArrivalDto;
 import uk.co.imperatives.exercise.dto.GuestListEntryDto;
 import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.PartyEvent;
 import uk.co.imperatives.exercise.service.AddGuestRequest;
+import uk.co.imperatives.exercise.service.ArrivalWriteBehind;
+import uk.co.imperatives.exercise.service.DataVersions;
 import uk.co.imperatives.exercise.service.GuestListServiceInterface;
+import uk.co.imperatives.exercise.service.GuestStore;
+import uk.co.imperatives.exercise.service.PartyEventExecutor;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/guest_list")
@@ -26,17 +35,25 @@ import java.util.stream.Collectors;
 public class GuestListController {
 
     private final GuestListServiceInterface guestListService;
+    private final PartyEventExecutor partyEventExecutor;
+    private final ArrivalWriteBehind arrivalWriteBehind;
+    private final DataVersions dataVersions;
 
     @Operation(summary = "Add a new guest", description = "Registers a new guest and assigns them to a table." +
-            " If Supplied table is 0 the system will attempt to find an available table.")
+            " If Supplied table is 0 the system will attempt to find an available table. If a holdId is supplied" +
+            " the guest takes the seats held at that table.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Guest added successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "404", description = "Seat hold not found or expired"),
             @ApiResponse(responseCode = "409", description = "Guest already exists")
     })
     @PostMapping
-    public ResponseEntity<GuestListEntryDto> addGuest(@RequestBody AddGuestRequestDto request) {
-        GuestListEntry addedGuest = guestListService.addGuest(toAddGuestRequest(request));
+    public ResponseEntity<GuestListEntryDto> addGuest(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @RequestBody AddGuestRequestDto request) {
+        AddGuestRequest addGuestRequest = toAddGuestRequest(request);
+        GuestListEntry addedGuest = partyEventExecutor.execute(eventId, () -> guestListService.addGuest(eventId, addGuestRequest));
         return new ResponseEntity<>(GuestListEntryDto.toDto(addedGuest), HttpStatus.CREATED);
     }
 
@@ -48,24 +65,29 @@ public class GuestListController {
     })
     @PutMapping("/{oldName}/name")
     public ResponseEntity<GuestListEntryDto> updateGuestName(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
             @Parameter(description = "The current name of the guest") @PathVariable String oldName,
             @Parameter(description = "The new name to update") @RequestParam String newName) {
-        GuestListEntry updatedGuest = guestListService.updateName(oldName, newName);
+        GuestListEntry updatedGuest = partyEventExecutor.execute(eventId, () -> guestListService.updateName(eventId, oldName, newName));
         return ResponseEntity.ok(GuestListEntryDto.toDto(updatedGuest));
     }
 
     @Operation(summary = "Get all guests", description = "Fetches the entire guest list.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "List of guests retrieved successfully")
+            @ApiResponse(responseCode = "200", description = "List of guests retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = GuestListEntryDto.class)))),
+            @ApiResponse(responseCode = "304", description = "Guest list has not changed since the If-None-Match ETag")
     })
     @GetMapping
-    public ResponseEntity<List<GuestListEntryDto>> getAllGuests() {
-        List<GuestListEntryDto> guestList =
-                guestListService.getAllGuests()
-                        .stream()
-                        .map(GuestListEntryDto::toDto)
-                        .collect(Collectors.toList());
-        return ResponseEntity.ok(guestList);
+    public ResponseEntity<GuestStore.Guests> getAllGuests(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            WebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, dataVersions.guestsTag(eventId))) {
+            return null;
+        }
+
+        return ResponseEntity.ok(guestListService.getAllGuests(eventId));
     }
 
     @Operation(summary = "Delete a guest", description = "Removes a guest from the guest list.")
@@ -74,8 +96,10 @@ public class GuestListController {
             @ApiResponse(responseCode = "404", description = "Guest not found")
     })
     @DeleteMapping("/{guestName}")
-    public ResponseEntity<Void> deleteGuest(@Parameter(description = "The name of the guest to be deleted") @PathVariable String guestName) {
-        guestListService.delete(guestName);
+    public ResponseEntity<Void> deleteGuest(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @Parameter(description = "The name of the guest to be deleted") @PathVariable String guestName) {
+        partyEventExecutor.execute(eventId, () -> guestListService.delete(eventId, guestName));
         return ResponseEntity.noContent().build();
     }
 
@@ -86,8 +110,10 @@ public class GuestListController {
             @ApiResponse(responseCode = "404", description = "Guest not found")
     })
     @PutMapping("/arrive")
-    public ResponseEntity<GuestListEntryDto> recordGuestArrival(@RequestBody GuestArrivalDto request) {
-        GuestListEntry updatedGuest = guestListService.recordGuestArrival(request.getName(), request.getAccompanyingGuests());
+    public ResponseEntity<GuestListEntryDto> recordGuestArrival(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @RequestBody GuestArrivalDto request) {
+        GuestListEntry updatedGuest = arrivalWriteBehind.recordGuestArrival(eventId, request.getName(), request.getAccompanyingGuests());
         return ResponseEntity.ok(GuestListEntryDto.toDto(updatedGuest));
     }
 
@@ -100,22 +126,45 @@ public class GuestListController {
     })
     @PatchMapping("/{guestName}/leave")
     public ResponseEntity<GuestListEntryDto> recordGuestLeaving(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
             @Parameter(description = "The name of the guest leaving") @PathVariable String guestName) {
-        GuestListEntry updatedGuest = guestListService.recordGuestLeft(guestName);
+        GuestListEntry updatedGuest = arrivalWriteBehind.recordGuestLeft(eventId, guestName);
         return ResponseEntity.ok(GuestListEntryDto.toDto(updatedGuest));
     }
 
     @Operation(summary = "Get guests who have arrived", description = "Retrieves a list of guests who have already arrived at the party.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "List of arrived guests retrieved successfully")
+            @ApiResponse(responseCode = "200", description = "List of arrived guests retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = GuestListEntryDto.class))))
     })
     @GetMapping("/arrived")
-    public ResponseEntity<List<GuestListEntryDto>> getArrivedGuests() {
-        List<GuestListEntry> arrivedGuests = guestListService.getArrivedGuests();
-        List<GuestListEntryDto> arrivedGuestDtos = arrivedGuests.stream()
-                .map(GuestListEntryDto::toDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(arrivedGuestDtos);
+    public ResponseEntity<GuestStore.Guests> getArrivedGuests(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId) {
+        return ResponseEntity.ok(guestListService.getArrivedGuests(eventId));
+    }
+
+    @Operation(summary = "Get guests present", description = "Retrieves the number of guests, including accompanying guests, who have arrived and not left.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of guests present retrieved successfully")
+    })
+    @GetMapping("/present")
+    public ResponseEntity<Map<String, Long>> getGuestsPresent(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId) {
+        return ResponseEntity.ok(Map.of("guests_present", guestListService.countPresentGuests(eventId)));
+    }
+
+    @Operation(summary = "Get guest analytics", description = "Retrieves the guests arriving in each of the last 60 minutes, " +
+            "the median and 95th percentile time from arrival to leaving, and the number of parties of each size on the guest list.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Guest analytics retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = GuestAnalyticsDto.class)))
+    })
+    @GetMapping("/analytics")
+    public ResponseEntity<GuestAnalyticsDto> getAnalytics(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId) {
+        return ResponseEntity.ok(guestListService.getAnalytics(eventId));
     }
 
     private AddGuestRequest toAddGuestRequest(AddGuestRequestDto dto) {
@@ -124,6 +173,7 @@ public class GuestListController {
                 .name(dto.getName())
                 .table(dto.getTable())
                 .accompanyingGuests(dto.getAccompanyingGuests())
+                .holdId(dto.getHoldId())
                 .build();
     }
 }
@@ -0,0 +1,13 @@
+package uk.co.imperatives.exercise.controller;
+
+/**
+ * The request header naming the party event a request is for. Requests without it are for the default event.
+ */
+public final class PartyEventHeader {
+    public static final String NAME = "X-Party-Event";
+
+    static final String DESCRIPTION = "The party event, the default event is used if not given";
+
+    private PartyEventHeader() {
+    }
+}
@@ -3,19 +3,31 @@ package uk.co.imperatives.exercise.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import uk.co.imperatives.exercise.dto.AddTableRequest;
 import uk.co.imperatives.exercise.dto.GuestsAtTable;
+import uk.co.imperatives.exercise.dto.HoldSeatsRequest;
 import uk.co.imperatives.exercise.dto.PartyTableDto;
+import uk.co.imperatives.exercise.dto.SeatHoldDto;
+import uk.co.imperatives.exercise.exception.TableNotFoundException;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.repository.PartyTableView;
 import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.service.DataVersions;
+import uk.co.imperatives.exercise.service.PartyEventExecutor;
 import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+import uk.co.imperatives.exercise.service.SeatHold;
+import uk.co.imperatives.exercise.service.SeatingChart;
 
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +40,9 @@ import java.util.stream.Collectors;
 public class PartyTableController {
 
     private final PartyTableServiceInterface partyTableService;
+    private final PartyEventExecutor partyEventExecutor;
+    private final DataVersions dataVersions;
+    private final SeatingChart seatingChart;
 
     @Operation(summary = "Add a new table", description = "Creates a new party table. Requires the number of seats, " +
             "and optionally the table number.  If no table number is provided the system will assign an available number.")
@@ -41,13 +56,16 @@ public class PartyTableController {
                     content = @Content)
     })
     @PostMapping
-    public ResponseEntity<PartyTableDto> addTable(@RequestBody AddTableRequest request) {
+    public ResponseEntity<PartyTableDto> addTable(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @RequestBody AddTableRequest request) {
         PartyTable createdTable;
 
         if (request.getTableNumber() != null && request.getNoOfSeats() != null) {
-            createdTable = partyTableService.addTable(request.getTableNumber(), request.getNoOfSeats());
+            createdTable = partyEventExecutor.execute(eventId,
+                    () -> partyTableService.addTable(eventId, request.getTableNumber(), request.getNoOfSeats()));
         } else if (request.getNoOfSeats() != null) {
-            createdTable = partyTableService.addTable(request.getNoOfSeats());
+            createdTable = partyEventExecutor.execute(eventId, () -> partyTableService.addTable(eventId, request.getNoOfSeats()));
         } else {
             throw new IllegalArgumentException("Required argument noOfSeats is null");
         }
@@ -65,19 +83,28 @@ public class PartyTableController {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of tables",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = PartyTableDto.class))),
+            @ApiResponse(responseCode = "304", description = "Tables have not changed since the If-None-Match ETag",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "No tables found",
                     content = @Content)
     })
     @GetMapping
-    public ResponseEntity<List<PartyTableDto>> getAllTables() {
-        List<PartyTable> tables = partyTableService.getAllTables();
+    public ResponseEntity<List<PartyTableDto>> getAllTables(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            WebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, dataVersions.tablesTag(eventId))) {
+            return null;
+        }
+
+        List<PartyTableView> tables = partyTableService.getAllTables(eventId);
 
-        // Convert PartyTable to PartyTableDto
+        // Convert PartyTableView to PartyTableDto
         List<PartyTableDto> tableDtos = tables.stream()
                 .map(table -> PartyTableDto.builder()
-                        .number(table.getNumber())
-                        .noOfSeats(table.getNoOfSeats())
-                        .noOfSeatsAllocated(table.getNoOfSeatsAllocated())
+                        .number(table.number())
+                        .noOfSeats(table.noOfSeats())
+                        .noOfSeatsAllocated(table.noOfSeatsAllocated())
+                        .noOfSeatsHeld(table.noOfSeatsHeld())
                         .build())
                 .collect(Collectors.toList());
 
@@ -95,8 +122,53 @@ public class PartyTableController {
                     content = @Content)
     })
     @DeleteMapping("/{tableNumber}")
-    public ResponseEntity<Void> removeTable(@PathVariable int tableNumber) {
-        partyTableService.removeTable(tableNumber);
+    public ResponseEntity<Void> removeTable(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @PathVariable int tableNumber) {
+        partyEventExecutor.execute(eventId, () -> partyTableService.removeTable(eventId, tableNumber));
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @Operation(summary = "Hold seats", description = "Holds seats at a table while a guest's details are taken. " +
+            "If no table number is provided the system will hold seats at a table with the required availability. " +
+            "Held seats are not available to other guests, and are released if the hold is not used to add a guest " +
+            "before it expires.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Seats successfully held",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SeatHoldDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input: Missing required field noOfSeats",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Table not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Not enough seats available",
+                    content = @Content)
+    })
+    @PostMapping("/holds")
+    public ResponseEntity<SeatHoldDto> holdSeats(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @RequestBody HoldSeatsRequest request) {
+        if (request.getNoOfSeats() == null) {
+            throw new IllegalArgumentException("Required argument noOfSeats is null");
+        }
+
+        int tableNumber = request.getTableNumber() == null ? 0 : request.getTableNumber();
+        SeatHold hold = partyEventExecutor.execute(eventId,
+                () -> partyTableService.holdSeats(eventId, tableNumber, request.getNoOfSeats()));
+        return new ResponseEntity<>(SeatHoldDto.toDto(hold), HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Release held seats", description = "Releases the seats held by a seat hold.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Successfully released the seats"),
+            @ApiResponse(responseCode = "404", description = "Seat hold not found or already expired",
+                    content = @Content)
+    })
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @Parameter(description = "The id of the seat hold") @PathVariable String holdId) {
+        partyEventExecutor.execute(eventId, () -> partyTableService.releaseHold(eventId, holdId));
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
@@ -105,32 +177,65 @@ public class PartyTableController {
             @ApiResponse(responseCode = "200", description = "Number of empty seats retrieved successfully")
     })
     @GetMapping("/seats_empty")
-    public ResponseEntity<Map<String, Integer>> getEmptySeats() {
+    public ResponseEntity<Map<String, Integer>> getEmptySeats(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId) {
         Map<String, Integer> response = new HashMap<>();
-        response.put("seats_empty", partyTableService.getTotalEmptySeats());
+        response.put("seats_empty", partyTableService.getTotalEmptySeats(eventId));
         return ResponseEntity.ok(response);
     }
 
     @Operation(summary = "Get guests at all tables", description = "Retrieves a list of all guests at their respective tables.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "List of guests at tables retrieved successfully")
+            @ApiResponse(responseCode = "200", description = "List of guests at tables retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = GuestsAtTable.class)))),
+            @ApiResponse(responseCode = "304", description = "Seating has not changed since the If-None-Match ETag")
     })
     @GetMapping("/guests_at_table")
-    public ResponseEntity<List<GuestsAtTable>> getGuestsAtAllTables() {
-        List<GuestsAtTable> guestsAtTables = partyTableService.getGuestsAtAllTables();
-        return ResponseEntity.ok(guestsAtTables);
+    public ResponseEntity<?> getGuestsAtAllTables(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            WebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, dataVersions.seatingTag(eventId))) {
+            return null;
+        }
+
+        SeatingChart.Snapshot chart = seatingChart.snapshot(eventId);
+        if (ConditionalRequests.acceptsCbor(webRequest)) {
+            return ResponseEntity.ok(chart.guestsAtTables());
+        }
+        // The seating chart keeps its JSON ready written
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(chart.json());
     }
 
     @Operation(summary = "Get guests at a specific table", description = "Retrieves the guests seated at a specific table.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Guests at table retrieved successfully"),
+            @ApiResponse(responseCode = "200", description = "Guests at table retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = GuestsAtTable.class))),
+            @ApiResponse(responseCode = "304", description = "Seating has not changed since the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "Table not found")
     })
     @GetMapping("/guests_at_table/{tableNumber}")
-    public ResponseEntity<GuestsAtTable> getGuestsAtTable(
-            @Parameter(description = "The number of the table to retrieve guests from") @PathVariable int tableNumber) {
-        GuestsAtTable guestsAtTable = partyTableService.getGuestsAtTable(tableNumber);
-        return ResponseEntity.ok(guestsAtTable);
+    public ResponseEntity<?> getGuestsAtTable(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @Parameter(description = "The number of the table to retrieve guests from") @PathVariable int tableNumber,
+            WebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, dataVersions.seatingTag(eventId))) {
+            return null;
+        }
+
+        if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
+
+        SeatingChart.Snapshot chart = seatingChart.snapshot(eventId);
+        if (ConditionalRequests.acceptsCbor(webRequest)) {
+            return ResponseEntity.ok(chart.guestsAtTable(tableNumber).orElseThrow(() -> tableNotFound(tableNumber)));
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(chart.json(tableNumber).orElseThrow(() -> tableNotFound(tableNumber)));
+    }
+
+    private static TableNotFoundException tableNotFound(int tableNumber) {
+        return new TableNotFoundException("Table with number " + tableNumber + " not found");
     }
 
 }
@@ -0,0 +1,60 @@
+package uk.co.imperatives.exercise.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.co.imperatives.exercise.dto.SeatingPlanDto;
+import uk.co.imperatives.exercise.dto.SeatingPlanRequestDto;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.service.PartyEventExecutor;
+import uk.co.imperatives.exercise.service.SeatingPlan;
+import uk.co.imperatives.exercise.service.SeatingPlanRequest;
+import uk.co.imperatives.exercise.service.SeatingPlanServiceInterface;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/seating_plan")
+@RequiredArgsConstructor
+@Tag(name = "Seating Plan", description = "APIs to rearrange guests so that groups sit together or apart")
+public class SeatingPlanController {
+
+    private final SeatingPlanServiceInterface seatingPlanService;
+    private final PartyEventExecutor partyEventExecutor;
+
+    @Operation(summary = "Rearrange the seating", description = "Searches for moves of guests between tables that seat " +
+            "each together group at one table and each apart group at different tables, without overbooking any table, " +
+            "and makes them. Guests who have arrived and parties split across tables are not moved. The search stops " +
+            "after the time limit, up to party.seating-plan.time-limit, and any groups it could not satisfy are counted.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Guests moved",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SeatingPlanDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input, or a guest is seated across tables", content = @Content),
+            @ApiResponse(responseCode = "404", description = "A guest is not on the guest list", content = @Content),
+            @ApiResponse(responseCode = "409", description = "The seating changed while the plan was worked out", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Another seating plan is being worked out", content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<SeatingPlanDto> rearrangeSeating(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @RequestBody SeatingPlanRequestDto request) {
+        SeatingPlanRequest seatingPlanRequest = SeatingPlanRequest.builder()
+                .together(request.getTogether())
+                .apart(request.getApart())
+                .timeLimit(request.getTimeLimitMillis() == null ? null : Duration.ofMillis(request.getTimeLimitMillis()))
+                .build();
+
+        // The search runs off the writer thread so that the event's other changes carry on while it does
+        SeatingPlan plan = seatingPlanService.plan(eventId, seatingPlanRequest);
+        SeatingPlan applied = partyEventExecutor.execute(eventId, () -> seatingPlanService.apply(eventId, plan));
+        return ResponseEntity.ok(SeatingPlanDto.toDto(applied));
+    }
+}
@@ -0,0 +1,90 @@
+package uk.co.imperatives.exercise.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uk.co.imperatives.exercise.dto.GuestListEntryDto;
+import uk.co.imperatives.exercise.dto.JoinWaitlistRequestDto;
+import uk.co.imperatives.exercise.dto.WaitlistEntryDto;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.service.AddGuestRequest;
+import uk.co.imperatives.exercise.service.PartyEventExecutor;
+import uk.co.imperatives.exercise.service.WaitlistJoinResult;
+import uk.co.imperatives.exercise.service.WaitlistServiceInterface;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/waitlist")
+@RequiredArgsConstructor
+@Tag(name = "Waitlist", description = "APIs to manage guests waiting for a seat at the party")
+public class WaitlistController {
+
+    private final WaitlistServiceInterface waitlistService;
+    private final PartyEventExecutor partyEventExecutor;
+
+    @Operation(summary = "Join the waitlist", description = "Seats the guest at a table with the required availability " +
+            "if there is one, otherwise adds them to the waitlist. Waiting guests are seated automatically, in the " +
+            "order they joined, as soon as a table has room for their party.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Guest seated straight away",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = GuestListEntryDto.class))),
+            @ApiResponse(responseCode = "202", description = "Guest added to the waitlist",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = WaitlistEntryDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Guest is already on the guest list or waitlist", content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<?> joinWaitlist(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @RequestBody JoinWaitlistRequestDto request) {
+        AddGuestRequest addGuestRequest = AddGuestRequest.builder()
+                .name(request.getName())
+                .accompanyingGuests(request.getAccompanyingGuests())
+                .build();
+
+        WaitlistJoinResult result = partyEventExecutor.execute(eventId, () -> waitlistService.join(eventId, addGuestRequest));
+
+        if (result.isSeated()) {
+            return new ResponseEntity<>(GuestListEntryDto.toDto(result.seatedGuest()), HttpStatus.CREATED);
+        }
+        return new ResponseEntity<>(WaitlistEntryDto.toDto(result.waitlistEntry()), HttpStatus.ACCEPTED);
+    }
+
+    @Operation(summary = "Get the waitlist", description = "Fetches the guests waiting for a seat, in the order they joined.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Waitlist retrieved successfully")
+    })
+    @GetMapping
+    public ResponseEntity<List<WaitlistEntryDto>> getWaitlist(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId) {
+        List<WaitlistEntryDto> waitlist = waitlistService.getWaitlist(eventId)
+                .stream()
+                .map(WaitlistEntryDto::toDto)
+                .toList();
+        return ResponseEntity.ok(waitlist);
+    }
+
+    @Operation(summary = "Leave the waitlist", description = "Removes a guest from the waitlist.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Guest removed from the waitlist"),
+            @ApiResponse(responseCode = "404", description = "Guest is not on the waitlist")
+    })
+    @DeleteMapping("/{guestName}")
+    public ResponseEntity<Void> leaveWaitlist(
+            @Parameter(description = PartyEventHeader.DESCRIPTION) @RequestHeader(name = PartyEventHeader.NAME, defaultValue = PartyEvent.DEFAULT_ID) String eventId,
+            @Parameter(description = "The name of the guest leaving the waitlist") @PathVariable String guestName) {
+        partyEventExecutor.execute(eventId, () -> waitlistService.leave(eventId, guestName));
+        return ResponseEntity.noContent().build();
+    }
+}
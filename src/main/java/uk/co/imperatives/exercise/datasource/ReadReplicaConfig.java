@@ -0,0 +1,90 @@
+package uk.co.imperatives.exercise.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Sends read-only transactions to a read replica and everything else to the primary, when
+ * {@code party.read-replica.url} is set.
+ * <p>
+ * The primary pool is configured by the usual {@code spring.datasource} properties and the replica pool by
+ * {@code party.read-replica.url}, {@code username} and {@code password}. The data source the application uses only
+ * takes a connection when the first statement is run, by which time the transaction is known to be read-only or not,
+ * so methods marked {@code @Transactional(readOnly = true)} read from the replica. Read-only methods called within a
+ * transaction that writes join it on the primary, and the in-memory read models are loaded outside any transaction,
+ * so from the primary too. The {@link ReplicaLagMonitor} sends reads back to the primary while the replica is more
+ * than {@code party.read-replica.max-lag} behind or cannot be reached.
+ * <p>
+ * The beans are the same whether or not a replica is set, and the replica is only looked for when the application
+ * starts, because an ahead-of-time processed build fixes which beans there are when it is built.
+ */
+@Configuration
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               Environment environment,
+                                               @Value("${party.read-replica.url:}") String url,
+                                               @Value("${party.read-replica.max-lag:PT2S}") Duration maxLag,
+                                               @Value("${party.read-replica.check-interval:PT1S}") Duration checkInterval,
+                                               MeterRegistry meterRegistry) {
+        if (!StringUtils.hasText(url)) {
+            return ReplicaLagMonitor.withoutReplica(primary);
+        }
+
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primary, replicaDataSource(url, environment), maxLag, checkInterval);
+        Gauge.builder("party.read_replica.lag", monitor, m -> m.isUsingReplica() ? m.lag().toMillis() / 1000.0 : Double.NaN)
+                .description("How far the read replica is behind the primary, not set while reads go to the primary")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaLagMonitor replicaLagMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replicaLagMonitor);
+        return dataSource;
+    }
+
+    /**
+     * The replica pool, configured by {@code party.read-replica.hikari} as the primary is by
+     * {@code spring.datasource.hikari}. It is closed by the {@link ReplicaLagMonitor}.
+     */
+    private static HikariDataSource replicaDataSource(String url, Environment environment) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(environment.getProperty("party.read-replica.username", ""))
+                .password(environment.getProperty("party.read-replica.password", ""))
+                .build();
+        Binder.get(environment).bind("party.read-replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+}
@@ -0,0 +1,162 @@
+package uk.co.imperatives.exercise.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The data source for read-only transactions: the replica while it is close enough behind the primary, otherwise the
+ * primary.
+ * <p>
+ * How far behind the replica is, is measured with a heartbeat. Every check writes the current time to a one row table
+ * on the primary and reads back the time the replica has, so the lag is how old the replica's copy is, up to the check
+ * interval. While the lag is more than the most allowed, or the replica cannot be read, read-only transactions use the
+ * primary. A connection the replica cannot give, between checks, is taken from the primary instead. Without a replica
+ * every connection is taken from the primary and nothing is checked.
+ */
+@Slf4j
+public class ReplicaLagMonitor extends AbstractDataSource implements DisposableBean {
+    static final String HEARTBEAT_TABLE = "replication_heartbeat";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final JdbcTemplate primaryJdbc;
+    private final JdbcTemplate replicaJdbc;
+    private final Duration maxLag;
+    private final ScheduledExecutorService checker;
+
+    private volatile Duration lag = Duration.ZERO;
+    private volatile boolean useReplica;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, Duration checkInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.primaryJdbc = new JdbcTemplate(primary);
+        this.replicaJdbc = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+
+        primaryJdbc.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE + " (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private ReplicaLagMonitor(DataSource primary) {
+        this.primary = primary;
+        this.replica = null;
+        this.primaryJdbc = null;
+        this.replicaJdbc = null;
+        this.maxLag = Duration.ZERO;
+        this.checker = null;
+    }
+
+    /**
+     * A monitor for when there is no replica, which always reads from the primary.
+     */
+    public static ReplicaLagMonitor withoutReplica(DataSource primary) {
+        return new ReplicaLagMonitor(primary);
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    /**
+     * Writes a heartbeat to the primary and measures how far behind it the replica is.
+     */
+    public void check() {
+        if (!hasReplica()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            if (primaryJdbc.update("UPDATE " + HEARTBEAT_TABLE + " SET beat_millis = ? WHERE id = 1", now) == 0) {
+                primaryJdbc.update("INSERT INTO " + HEARTBEAT_TABLE + " (id, beat_millis) VALUES (1, ?)", now);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not write the replication heartbeat to the primary", e);
+        }
+
+        boolean wasUsingReplica = useReplica;
+        try {
+            List<Long> beats = replicaJdbc.queryForList("SELECT beat_millis FROM " + HEARTBEAT_TABLE + " WHERE id = 1", Long.class);
+            lag = beats.isEmpty() ? Duration.ofMillis(Long.MAX_VALUE) : Duration.ofMillis(Math.max(0, now - beats.getFirst()));
+            useReplica = lag.compareTo(maxLag) <= 0;
+            if (wasUsingReplica != useReplica) {
+                log.info(useReplica ? "Reading from the replica, {} behind the primary"
+                        : "Reading from the primary, the replica is {} behind", beats.isEmpty() ? "all" : lag);
+            }
+        } catch (RuntimeException e) {
+            lag = Duration.ofMillis(Long.MAX_VALUE);
+            useReplica = false;
+            if (wasUsingReplica) {
+                log.warn("Could not read the replica, reading from the primary", e);
+            }
+        }
+    }
+
+    /**
+     * How far behind the primary the replica was at the last check.
+     */
+    public Duration lag() {
+        return lag;
+    }
+
+    public boolean isUsingReplica() {
+        return useReplica;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionSource connectionSource) throws SQLException {
+        if (useReplica) {
+            try {
+                return connectionSource.connect(replica);
+            } catch (SQLFeatureNotSupportedException e) {
+                // Such as a pool that only gives connections with its own credentials, which the primary will not either
+                throw e;
+            } catch (SQLException e) {
+                log.warn("Could not connect to the replica, reading from the primary", e);
+                useReplica = false;
+            }
+        }
+        return connectionSource.connect(primary);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        if (replica instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+}
@@ -13,4 +13,5 @@ public class AddGuestRequestDto {
     private String name;
     private int table;  // 0 by default, meaning no table provided
     private int accompanyingGuests;
+    private String holdId;  // optional, seats held for the guest with a seat hold
 }
@@ -0,0 +1,33 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GuestAnalyticsDto {
+    // Guests, including accompanying guests, arriving in each of the last minutes, oldest first
+    private List<MinuteArrivals> arrivalsPerMinute;
+    private long partiesLeft;
+    // Time from arrival to leaving of the parties who have left, null until a party has left
+    private Long medianStaySeconds;
+    private Long p95StaySeconds;
+    // Number of parties on the guest list of each size, the largest sizes counted together
+    private Map<String, Long> partySizes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MinuteArrivals {
+        private LocalDateTime minute;
+        private long guests;
+    }
+}
@@ -1,10 +1,12 @@
 package uk.co.imperatives.exercise.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GuestView;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 @Data
 @Builder
@@ -13,25 +15,34 @@ import java.time.format.DateTimeFormatter;
 public class GuestListEntryDto {
     private String name;
     private int tableNumber;
-    private String timeArrived;
-    private String timeLeft;
+    @JsonSerialize(using = PartyTimeSerializer.class, nullsUsing = PartyTimeSerializer.Unset.class)
+    private LocalDateTime timeArrived;
+    @JsonSerialize(using = PartyTimeSerializer.class, nullsUsing = PartyTimeSerializer.Unset.class)
+    private LocalDateTime timeLeft;
     private int accompanyingGuests;
+    // The last of the adjacent tables a party too large for one table is split across, left out for a single table
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int lastTableNumber;
 
     public static GuestListEntryDto toDto(GuestListEntry guestListEntry) {
         return GuestListEntryDto.builder()
                 .name(guestListEntry.getName())
                 .tableNumber(guestListEntry.getTableNumber())
-                .timeArrived(formatLocalDateTime(guestListEntry.getTimeArrived()))
-                .timeLeft(formatLocalDateTime(guestListEntry.getTimeLeft()))
+                .timeArrived(guestListEntry.getTimeArrived())
+                .timeLeft(guestListEntry.getTimeLeft())
                 .accompanyingGuests(guestListEntry.getAccompanyingGuests())
+                .lastTableNumber(guestListEntry.seatedAcrossTables() ? guestListEntry.getLastTableNumber() : 0)
                 .build();
     }
 
-    private static String formatLocalDateTime(LocalDateTime dateTime) {
-        if (dateTime != null) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            return dateTime.format(formatter);
-        }
-        return "";
+    public static GuestListEntryDto toDto(GuestView guest) {
+        return GuestListEntryDto.builder()
+                .name(guest.name())
+                .tableNumber(guest.tableNumber())
+                .timeArrived(guest.timeArrived())
+                .timeLeft(guest.timeLeft())
+                .accompanyingGuests(guest.accompanyingGuests())
+                .lastTableNumber(guest.seatedAcrossTables() ? guest.lastTableNumber() : 0)
+                .build();
     }
 }
@@ -0,0 +1,11 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldSeatsRequest {
+    private Integer tableNumber;
+    private Integer noOfSeats;
+}
@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JoinWaitlistRequestDto {
+    private String name;
+    private int accompanyingGuests;
+}
@@ -13,9 +13,10 @@ public class PartyTableDto {
     private Integer number;
     private int noOfSeats;
     private int noOfSeatsAllocated;
+    private int noOfSeatsHeld;
 
     public int getUnAllocatedSeats() {
-        return noOfSeats - noOfSeatsAllocated;
+        return noOfSeats - noOfSeatsAllocated - noOfSeatsHeld;
     }
 }
 
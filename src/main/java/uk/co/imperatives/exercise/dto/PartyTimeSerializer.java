@@ -0,0 +1,68 @@
+package uk.co.imperatives.exercise.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes party times as {@code yyyy-MM-dd HH:mm:ss} in JSON, and as milliseconds since the epoch in binary formats
+ * such as CBOR, where a number is a fraction of the size of the text and needs no parsing.
+ */
+public class PartyTimeSerializer extends StdSerializer<LocalDateTime> {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public PartyTimeSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime == null ? "" : dateTime.format(FORMATTER);
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(value, gen);
+    }
+
+    /**
+     * Writes the time as this serializer does, or as {@link Unset} does when it is null, for serializers writing
+     * party times themselves.
+     */
+    public static void write(LocalDateTime value, JsonGenerator gen) throws IOException {
+        if (value == null) {
+            Unset.write(gen);
+        } else if (gen.canWriteBinaryNatively()) {
+            gen.writeNumber(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        } else {
+            gen.writeString(format(value));
+        }
+    }
+
+    /**
+     * Writes times that are not set as {@code ""} in JSON, as clients have always received, and as null in binary
+     * formats.
+     */
+    public static class Unset extends StdSerializer<Object> {
+        public Unset() {
+            super(Object.class);
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(gen);
+        }
+
+        private static void write(JsonGenerator gen) throws IOException {
+            if (gen.canWriteBinaryNatively()) {
+                gen.writeNull();
+            } else {
+                gen.writeString("");
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import uk.co.imperatives.exercise.service.SeatHold;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldDto {
+    private String holdId;
+    private int tableNumber;
+    private int noOfSeats;
+    private Instant expiresAt;
+
+    public static SeatHoldDto toDto(SeatHold hold) {
+        return SeatHoldDto.builder()
+                .holdId(hold.id())
+                .tableNumber(hold.tableNumber())
+                .noOfSeats(hold.noOfSeats())
+                .expiresAt(hold.expiresAt())
+                .build();
+    }
+}
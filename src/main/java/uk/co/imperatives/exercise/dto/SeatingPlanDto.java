@@ -0,0 +1,38 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.*;
+import uk.co.imperatives.exercise.service.SeatingPlan;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatingPlanDto {
+    @Singular
+    private List<GuestMoveDto> moves;
+    private int unmetTogether;
+    private int unmetApart;
+    private long changesTried;
+
+    public static SeatingPlanDto toDto(SeatingPlan plan) {
+        return SeatingPlanDto.builder()
+                .moves(plan.moves().stream()
+                        .map(move -> new GuestMoveDto(move.guestName(), move.fromTable(), move.toTable()))
+                        .toList())
+                .unmetTogether(plan.unmetTogether())
+                .unmetApart(plan.unmetApart())
+                .changesTried(plan.changesTried())
+                .build();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GuestMoveDto {
+        private String name;
+        private int fromTable;
+        private int toTable;
+    }
+}
@@ -0,0 +1,18 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatingPlanRequestDto {
+    private List<List<String>> together;  // groups of guests to seat at the same table
+    private List<List<String>> apart;  // groups of guests to seat at different tables
+    private Long timeLimitMillis;  // optional, how long to search for, up to party.seating-plan.time-limit
+}
@@ -0,0 +1,35 @@
+package uk.co.imperatives.exercise.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.*;
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+import uk.co.imperatives.exercise.repository.WaitlistEntryView;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntryDto {
+    private String name;
+    private int accompanyingGuests;
+    @JsonSerialize(using = PartyTimeSerializer.class)
+    private LocalDateTime timeJoined;
+
+    public static WaitlistEntryDto toDto(WaitlistEntry waitlistEntry) {
+        return WaitlistEntryDto.builder()
+                .name(waitlistEntry.getName())
+                .accompanyingGuests(waitlistEntry.getAccompanyingGuests())
+                .timeJoined(waitlistEntry.getTimeJoined())
+                .build();
+    }
+
+    public static WaitlistEntryDto toDto(WaitlistEntryView waitlistEntry) {
+        return WaitlistEntryDto.builder()
+                .name(waitlistEntry.name())
+                .accompanyingGuests(waitlistEntry.accompanyingGuests())
+                .timeJoined(waitlistEntry.timeJoined())
+                .build();
+    }
+}
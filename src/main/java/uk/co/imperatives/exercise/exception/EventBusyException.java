@@ -0,0 +1,5 @@
+package uk.co.imperatives.exercise.exception;
+
+public class EventBusyException extends RuntimeException {
+    public EventBusyException(String message) {super(message);}
+}
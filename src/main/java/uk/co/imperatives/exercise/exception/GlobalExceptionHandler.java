@@ -1,6 +1,7 @@
 package uk.co.imperatives.exercise.exception;
 
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -45,6 +46,11 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(SeatHoldNotFoundException.class)
+    public ResponseEntity<String> handleSeatHoldNotFoundException(SeatHoldNotFoundException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
     @ExceptionHandler(GuestAlreadyExistsException.class)
     public ResponseEntity<String> handleGuestAlreadyExistsException(GuestAlreadyExistsException e) {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
@@ -55,6 +61,16 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(EventBusyException.class)
+    public ResponseEntity<String> handleEventBusyException(EventBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+    }
+
+    @ExceptionHandler(SeatingPlanBusyException.class)
+    public ResponseEntity<String> handleSeatingPlanBusyException(SeatingPlanBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<String> handleIllegalStateException(IllegalStateException e) {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
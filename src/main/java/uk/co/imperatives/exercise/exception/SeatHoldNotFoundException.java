@@ -0,0 +1,5 @@
+package uk.co.imperatives.exercise.exception;
+
+public class SeatHoldNotFoundException extends RuntimeException {
+    public SeatHoldNotFoundException(String message) {super(message);}
+}
@@ -0,0 +1,5 @@
+package uk.co.imperatives.exercise.exception;
+
+public class SeatingPlanBusyException extends RuntimeException {
+    public SeatingPlanBusyException(String message) {super(message);}
+}
@@ -0,0 +1,18 @@
+package uk.co.imperatives.exercise.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class MetricsWebConfig implements WebMvcConfigurer {
+
+    private final RepositoryCallsPerRequestInterceptor repositoryCallsPerRequestInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(repositoryCallsPerRequestInterceptor);
+    }
+}
@@ -0,0 +1,65 @@
+package uk.co.imperatives.exercise.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.repository.SeatTotals;
+
+import java.time.Duration;
+import java.util.function.ToLongFunction;
+
+/**
+ * Gauges for the live occupancy of the party.
+ * <p>
+ * The figures come from two aggregate queries, and are cached for a short time so that a scrape
+ * reading all the gauges runs the queries once rather than once per gauge.
+ */
+@Component
+public class OccupancyGauges {
+
+    private final PartyTableRepository partyTableRepository;
+    private final GuestListEntryRepository guestListEntryRepository;
+    private final long maxAgeNanos;
+
+    private Occupancy occupancy;
+    private long occupancyReadAt;
+
+    public OccupancyGauges(PartyTableRepository partyTableRepository,
+                           GuestListEntryRepository guestListEntryRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${party.metrics.occupancy-max-age:PT5S}") Duration maxAge) {
+        this.partyTableRepository = partyTableRepository;
+        this.guestListEntryRepository = guestListEntryRepository;
+        this.maxAgeNanos = maxAge.toNanos();
+
+        register(meterRegistry, "party.seats.capacity", "Seats at all tables",
+                occupancy -> occupancy.seats().noOfSeats());
+        register(meterRegistry, "party.seats.allocated", "Seats allocated to guests",
+                occupancy -> occupancy.seats().noOfSeatsAllocated());
+        register(meterRegistry, "party.seats.empty", "Seats not allocated to any guest",
+                occupancy -> occupancy.seats().getUnAllocatedSeats());
+        register(meterRegistry, "party.guests.present", "Guests, including accompanying guests, who have arrived and not left",
+                Occupancy::guestsPresent);
+    }
+
+    private void register(MeterRegistry meterRegistry, String name, String description, ToLongFunction<Occupancy> value) {
+        Gauge.builder(name, this, gauges -> value.applyAsLong(gauges.currentOccupancy()))
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    synchronized Occupancy currentOccupancy() {
+        long now = System.nanoTime();
+        if (occupancy == null || now - occupancyReadAt > maxAgeNanos) {
+            occupancy = new Occupancy(partyTableRepository.getSeatTotals(), guestListEntryRepository.countPresentGuests());
+            occupancyReadAt = now;
+        }
+        return occupancy;
+    }
+
+    record Occupancy(SeatTotals seats, long guestsPresent) {
+    }
+}
@@ -0,0 +1,45 @@
+package uk.co.imperatives.exercise.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the number of repository calls made while handling the current request.
+ * <p>
+ * The counter is an {@link AtomicInteger} so that work handed off to another thread on behalf of the
+ * request can carry on counting against the same request.
+ */
+public final class RepositoryCallCounter {
+    private static final ThreadLocal<AtomicInteger> currentRequest = new ThreadLocal<>();
+
+    private RepositoryCallCounter() {
+    }
+
+    public static AtomicInteger start() {
+        AtomicInteger counter = new AtomicInteger();
+        currentRequest.set(counter);
+        return counter;
+    }
+
+    public static AtomicInteger current() {
+        return currentRequest.get();
+    }
+
+    public static void attach(AtomicInteger counter) {
+        if (counter == null) {
+            currentRequest.remove();
+        } else {
+            currentRequest.set(counter);
+        }
+    }
+
+    public static void clear() {
+        currentRequest.remove();
+    }
+
+    static void increment() {
+        AtomicInteger counter = currentRequest.get();
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package uk.co.imperatives.exercise.metrics;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carries the current request's repository call counter over to work handed to another thread, such as an event's
+ * writer thread, so those calls are still counted against the request.
+ */
+@Component
+public class RepositoryCallCounterTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        AtomicInteger counter = RepositoryCallCounter.current();
+        return () -> {
+            RepositoryCallCounter.attach(counter);
+            try {
+                runnable.run();
+            } finally {
+                RepositoryCallCounter.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package uk.co.imperatives.exercise.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many repository calls each request made, tagged by the matched URI pattern so that
+ * {@code /guest_list/{guestName}} requests are grouped together.
+ */
+@Component
+@RequiredArgsConstructor
+public class RepositoryCallsPerRequestInterceptor implements HandlerInterceptor {
+    static final String REPOSITORY_CALLS_PER_REQUEST = "party.repository.calls.per.request";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RepositoryCallCounter.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AtomicInteger counter = RepositoryCallCounter.current();
+        RepositoryCallCounter.clear();
+
+        if (counter == null) {
+            return;
+        }
+
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(REPOSITORY_CALLS_PER_REQUEST)
+                .description("Number of repository calls made while handling a request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                .publishPercentileHistogram()
+                .maximumExpectedValue(10_000.0)
+                .register(meterRegistry)
+                .record(counter.get());
+    }
+}
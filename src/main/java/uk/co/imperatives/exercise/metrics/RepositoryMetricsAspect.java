@@ -0,0 +1,43 @@
+package uk.co.imperatives.exercise.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts calls made to the application's repositories, both in total and against the request that is
+ * currently being handled.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+    static final String REPOSITORY_CALLS = "party.repository.calls";
+
+    private final MeterRegistry meterRegistry;
+
+    @Before("target(org.springframework.data.repository.Repository)")
+    public void countRepositoryCall(JoinPoint joinPoint) {
+        RepositoryCallCounter.increment();
+
+        Counter.builder(REPOSITORY_CALLS)
+                .description("Calls made to the application's repositories")
+                .tag("repository", repositoryName(joinPoint.getTarget()))
+                .tag("method", joinPoint.getSignature().getName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String repositoryName(Object repository) {
+        for (Class<?> repositoryInterface : repository.getClass().getInterfaces()) {
+            if (repositoryInterface.getPackageName().startsWith("uk.co.imperatives.exercise")) {
+                return repositoryInterface.getSimpleName();
+            }
+        }
+        return repository.getClass().getSimpleName();
+    }
+}
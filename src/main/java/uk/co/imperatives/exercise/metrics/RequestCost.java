@@ -0,0 +1,96 @@
+package uk.co.imperatives.exercise.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What handling the current request has cost in the database: the statements run, the rows read, the entities
+ * loaded and the time spent waiting on the database.
+ * <p>
+ * Only sampled requests have a cost, so the JDBC and Hibernate hooks that add to it do nothing for the rest. The
+ * figures are atomic so that work handed off to an event's writer thread on behalf of the request can add to them.
+ */
+public final class RequestCost {
+    private static final ThreadLocal<RequestCost> currentRequest = new ThreadLocal<>();
+
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong entities = new AtomicLong();
+    private final AtomicLong databaseNanos = new AtomicLong();
+    private volatile long serializationStartedAt;
+
+    public static RequestCost start() {
+        RequestCost cost = new RequestCost();
+        currentRequest.set(cost);
+        return cost;
+    }
+
+    public static RequestCost current() {
+        return currentRequest.get();
+    }
+
+    public static void attach(RequestCost cost) {
+        if (cost == null) {
+            currentRequest.remove();
+        } else {
+            currentRequest.set(cost);
+        }
+    }
+
+    public static void clear() {
+        currentRequest.remove();
+    }
+
+    void statementRun(long nanos) {
+        statements.incrementAndGet();
+        databaseNanos.addAndGet(nanos);
+    }
+
+    void rowRead(long nanos) {
+        rows.incrementAndGet();
+        databaseNanos.addAndGet(nanos);
+    }
+
+    void databaseWaited(long nanos) {
+        databaseNanos.addAndGet(nanos);
+    }
+
+    void entityLoaded() {
+        entities.incrementAndGet();
+    }
+
+    void serializationStarted(long nanoTime) {
+        serializationStartedAt = nanoTime;
+    }
+
+    public long statements() {
+        return statements.get();
+    }
+
+    public long rows() {
+        return rows.get();
+    }
+
+    public long entities() {
+        return entities.get();
+    }
+
+    public long databaseNanos() {
+        return databaseNanos.get();
+    }
+
+    /**
+     * When the response body started to be written, or 0 if the response has no body.
+     */
+    long serializationStartedAt() {
+        return serializationStartedAt;
+    }
+
+    /**
+     * The database figures, as sent back in the {@value RequestCostFilter#REQUEST_COST} header.
+     */
+    String toHeader() {
+        return String.format(Locale.ROOT, "statements=%d; rows=%d; entities=%d; db=%.3fms",
+                statements(), rows(), entities(), databaseNanos() / 1e6);
+    }
+}
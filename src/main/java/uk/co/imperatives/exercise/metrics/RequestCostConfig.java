@@ -0,0 +1,47 @@
+package uk.co.imperatives.exercise.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Hooks the {@link RequestCost} of sampled requests into JDBC and Hibernate.
+ */
+@Configuration
+public class RequestCostConfig {
+
+    /**
+     * Wraps the data source the application uses, rather than the pools behind it, so each statement is counted once.
+     */
+    @Bean
+    public static BeanPostProcessor requestCostDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && beanName.equals("dataSource")
+                        ? new RequestCostDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityLoadCounter() {
+        Interceptor interceptor = new Interceptor() {
+            @Override
+            public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+                RequestCost cost = RequestCost.current();
+                if (cost != null) {
+                    cost.entityLoaded();
+                }
+                return false;
+            }
+        };
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR, interceptor);
+    }
+}
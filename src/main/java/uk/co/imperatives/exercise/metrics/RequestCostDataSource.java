@@ -0,0 +1,116 @@
+package uk.co.imperatives.exercise.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Adds the statements run, the rows read and the time spent waiting on the database to the current
+ * {@link RequestCost}.
+ * <p>
+ * Connections are always wrapped, since which request a pooled connection is used for is only known once a statement
+ * is made on it. Statements made while no request is being sampled are handed back unwrapped, so the rest cost no more
+ * than one extra call per connection method.
+ */
+public class RequestCostDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final Set<String> TRANSACTION_ENDS = Set.of("commit", "rollback");
+    private static final Set<String> EXECUTES = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<String> RESULT_SETS = Set.of("getResultSet", "getGeneratedKeys");
+
+    public RequestCostDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, obtainTargetDataSource().getConnection(), this::connectionCall);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, obtainTargetDataSource().getConnection(username, password), this::connectionCall);
+    }
+
+    private Object connectionCall(Object connection, Method method, Object[] args) throws Throwable {
+        RequestCost cost = RequestCost.current();
+        if (cost == null) {
+            return invoke(connection, method, args);
+        }
+
+        long start = System.nanoTime();
+        Object result = invoke(connection, method, args);
+        if (STATEMENT_FACTORIES.contains(method.getName())) {
+            cost.databaseWaited(System.nanoTime() - start);
+            return wrap(method.getReturnType(), result, (statement, statementMethod, statementArgs) ->
+                    statementCall(cost, statement, statementMethod, statementArgs));
+        }
+        if (TRANSACTION_ENDS.contains(method.getName())) {
+            cost.databaseWaited(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private static Object statementCall(RequestCost cost, Object statement, Method method, Object[] args) throws Throwable {
+        if (EXECUTES.contains(method.getName())) {
+            long start = System.nanoTime();
+            Object result = invoke(statement, method, args);
+            cost.statementRun(System.nanoTime() - start);
+            return result instanceof ResultSet resultSet ? wrapResultSet(cost, resultSet) : result;
+        }
+        Object result = invoke(statement, method, args);
+        return RESULT_SETS.contains(method.getName()) && result instanceof ResultSet resultSet
+                ? wrapResultSet(cost, resultSet) : result;
+    }
+
+    private static ResultSet wrapResultSet(RequestCost cost, ResultSet resultSet) {
+        return wrap(ResultSet.class, resultSet, (target, method, args) -> {
+            if (!method.getName().equals("next")) {
+                return invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            Object hasRow = invoke(target, method, args);
+            if ((Boolean) hasRow) {
+                cost.rowRead(System.nanoTime() - start);
+            } else {
+                cost.databaseWaited(System.nanoTime() - start);
+            }
+            return hasRow;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Class<T> type, Object target, Call call) {
+        // Unwrapping gives the driver's own object, so Hikari and Hibernate can still reach it
+        InvocationHandler handler = (proxy, method, args) -> switch (method.getName()) {
+            case "unwrap" -> ((Class<?>) args[0]).isInstance(proxy) ? proxy : invoke(target, method, args);
+            case "isWrapperFor" -> ((Class<?>) args[0]).isInstance(proxy) || (Boolean) invoke(target, method, args);
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> call.invoke(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(RequestCostDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,74 @@
+package uk.co.imperatives.exercise.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures what a sample of requests cost in the database, and how long their responses took to write.
+ * <p>
+ * A request is measured when it is picked at random at {@code party.request-cost.sample-rate}, or when it is sent
+ * with an {@value #REQUEST_COST} header. A measured request gets an {@value #REQUEST_COST} response header with the
+ * statements run, rows read, entities loaded and time spent in the database, and is logged on one line of
+ * {@code name=value} pairs that also gives the time taken to write the response body.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class RequestCostFilter extends OncePerRequestFilter {
+    public static final String REQUEST_COST = "X-Request-Cost";
+
+    @Value("${party.request-cost.sample-rate:0.01}")
+    private double sampleRate = 0.01;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (request.getHeader(REQUEST_COST) == null && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestCost cost = RequestCost.start();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long end = System.nanoTime();
+            RequestCost.clear();
+            // Responses without a body have not had the header set while it was being written
+            if (!response.isCommitted()) {
+                response.setHeader(REQUEST_COST, cost.toHeader());
+            }
+            log(request, response, cost, end - start,
+                    cost.serializationStartedAt() == 0 ? 0 : end - cost.serializationStartedAt());
+        }
+    }
+
+    private static void log(HttpServletRequest request, HttpServletResponse response, RequestCost cost,
+                            long totalNanos, long serializationNanos) {
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        log.info("request_cost method={} uri={} status={} total_ms={} db_ms={} serialization_ms={} statements={} rows={} entities={}",
+                request.getMethod(), uri == null ? request.getRequestURI() : uri, response.getStatus(),
+                millis(totalNanos), millis(cost.databaseNanos()), millis(serializationNanos),
+                cost.statements(), cost.rows(), cost.entities());
+    }
+
+    /**
+     * Milliseconds to the nearest microsecond.
+     */
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
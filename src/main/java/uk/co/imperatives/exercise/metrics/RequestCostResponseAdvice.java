@@ -0,0 +1,34 @@
+package uk.co.imperatives.exercise.metrics;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Sets the {@value RequestCostFilter#REQUEST_COST} header of a measured request just before its body is written,
+ * which is the last point the header can still be sent, and notes when writing started.
+ */
+@ControllerAdvice
+public class RequestCostResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestCost cost = RequestCost.current();
+        if (cost != null) {
+            response.getHeaders().set(RequestCostFilter.REQUEST_COST, cost.toHeader());
+            cost.serializationStarted(System.nanoTime());
+        }
+        return body;
+    }
+}
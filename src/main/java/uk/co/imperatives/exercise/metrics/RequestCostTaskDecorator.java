@@ -0,0 +1,28 @@
+package uk.co.imperatives.exercise.metrics;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carries the current request's {@link RequestCost} over to work handed to another thread, such as an event's
+ * writer thread, so the database work done there is still charged to the request.
+ */
+@Component
+public class RequestCostTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        RequestCost cost = RequestCost.current();
+        if (cost == null) {
+            return runnable;
+        }
+        return () -> {
+            RequestCost.attach(cost);
+            try {
+                runnable.run();
+            } finally {
+                RequestCost.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package uk.co.imperatives.exercise.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every call made through the guest list, party table, waitlist and seating plan service interfaces and counts
+ * the exceptions they raise.
+ * <p>
+ * The aspect runs outside the transaction interceptor so that failures raised on commit (such as
+ * optimistic lock conflicts) are included in the timings and exception counts.  Exceptions are only
+ * counted at the outermost service call, so an exception raised by the table service on behalf of the
+ * guest list service is counted once.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+    static final String SERVICE_CALLS = "party.service.calls";
+    static final String SERVICE_EXCEPTIONS = "party.service.exceptions";
+    static final String LOCK_CONFLICT = "LockConflict";
+
+    private static final ThreadLocal<int[]> callDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(public * uk.co.imperatives.exercise.service.GuestListServiceInterface+.*(..))" +
+            " || execution(public * uk.co.imperatives.exercise.service.PartyTableServiceInterface+.*(..))" +
+            " || execution(public * uk.co.imperatives.exercise.service.WaitlistServiceInterface+.*(..))" +
+            " || execution(public * uk.co.imperatives.exercise.service.SeatingPlanServiceInterface+.*(..))")
+    public Object timeServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        String service = joinPoint.getTarget().getClass().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        int[] depth = callDepth.get();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+
+        depth[0]++;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = exceptionType(e);
+            if (depth[0] == 1) {
+                exceptionCounter(service, method, outcome).increment();
+            }
+            throw e;
+        } finally {
+            depth[0]--;
+            sample.stop(serviceTimer(service, method, outcome));
+        }
+    }
+
+    private Timer serviceTimer(String service, String method, String outcome) {
+        return Timer.builder(SERVICE_CALLS)
+                .description("Time taken by guest list and party table service calls")
+                .tag("service", service)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter exceptionCounter(String service, String method, String exception) {
+        return Counter.builder(SERVICE_EXCEPTIONS)
+                .description("Exceptions raised by guest list and party table service calls")
+                .tag("service", service)
+                .tag("method", method)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    static String exceptionType(Throwable e) {
+        if (e instanceof OptimisticLockingFailureException) {
+            return LOCK_CONFLICT;
+        }
+        return e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,36 @@
+package uk.co.imperatives.exercise.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The seats a guest's party takes at one of the adjacent tables it is split across, when it is too large for any
+ * one table. A party at a single table has no group seats.
+ */
+@Entity
+@Table(name = "group_seat", indexes = @Index(name = "ix_group_seat_guest", columnList = "guest_id"))
+@Getter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class GroupSeat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The id of the guest list entry rather than a reference to it, as the guest's entry is all that is ever loaded
+    @Column(name = "guest_id", nullable = false)
+    private Long guestId;
+
+    @Column(name = "event_id", length = PartyEvent.MAX_ID_LENGTH, nullable = false)
+    private String eventId;
+
+    @Column(name = "table_number", nullable = false)
+    private int tableNumber;
+
+    @Setter
+    @Column(name = "no_of_seats", nullable = false)
+    private int noOfSeats;
+}
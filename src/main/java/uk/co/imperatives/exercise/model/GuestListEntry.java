@@ -1,9 +1,6 @@
 package uk.co.imperatives.exercise.model;
 
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
+import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.data.annotation.Version;
 
@@ -11,21 +8,37 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "guest_list_entry")
+@Table(name = "guest_list_entry", uniqueConstraints = @UniqueConstraint(name = "uk_guest_list_entry_event_name",
+        columnNames = {"event_id", "name"}))
 @Getter
 @ToString
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(of = "name")
+@EqualsAndHashCode(of = {"eventId", "name"})
 public class GuestListEntry {
+    // Held as a short in the GuestStore
+    public static final int MAX_ACCOMPANYING_GUESTS = Short.MAX_VALUE;
+
+    // A numeric key, so that renaming a guest updates their row rather than replacing it
     @Id
-    @Column(name = "name") // Assuming name is your primary key
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", length = PartyEvent.MAX_ID_LENGTH, nullable = false)
+    private String eventId;
+
+    @Column(name = "name", nullable = false)
     private String name;
 
     @Column(name = "table_number") // Renamed to avoid keyword conflict
     private int tableNumber;
 
+    // The last of the adjacent tables a party too large for one table is split across, null for a single table
+    @Setter
+    @Column(name = "last_table_number")
+    private Integer lastTableNumber;
+
     @Column(name = "time_arrived")
     private LocalDateTime timeArrived;
 
@@ -43,12 +56,39 @@ public class GuestListEntry {
         return accompanyingGuests + 1;
     }
 
+    /**
+     * The last table the guest's party is seated at, which is their table unless the party is split across tables.
+     */
+    public int getLastTableNumber() {
+        return lastTableNumber != null ? lastTableNumber : tableNumber;
+    }
+
+    public boolean seatedAcrossTables() {
+        return lastTableNumber != null;
+    }
+
+    public void moveToTable(int tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
+    public void rename(String newName) {
+        this.name = newName;
+    }
+
     public void recordTimeArrived() {
-        this.timeArrived = LocalDateTime.now();
+        recordTimeArrived(LocalDateTime.now());
+    }
+
+    public void recordTimeArrived(LocalDateTime timeArrived) {
+        this.timeArrived = timeArrived;
     }
 
     public void recordTimeLeft() {
-        this.timeLeft = LocalDateTime.now();
+        recordTimeLeft(LocalDateTime.now());
+    }
+
+    public void recordTimeLeft(LocalDateTime timeLeft) {
+        this.timeLeft = timeLeft;
     }
 
     public boolean hasArrived() {
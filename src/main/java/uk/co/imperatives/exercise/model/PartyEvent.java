@@ -0,0 +1,16 @@
+package uk.co.imperatives.exercise.model;
+
+/**
+ * Tables and guests belong to a party event, identified by a short id.
+ */
+public final class PartyEvent {
+    /**
+     * The event used when none is given, so that a service organising a single party does not need to name it.
+     */
+    public static final String DEFAULT_ID = "default";
+
+    public static final int MAX_ID_LENGTH = 50;
+
+    private PartyEvent() {
+    }
+}
@@ -12,18 +12,26 @@ import org.springframework.data.annotation.Version;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(of = "number")
+@IdClass(PartyTableId.class)
+@EqualsAndHashCode(of = {"eventId", "number"})
 public class PartyTable {
+    @Id
+    @Column(name = "event_id", length = PartyEvent.MAX_ID_LENGTH)
+    private String eventId;
+
     @Id
     private Integer number;
     private int noOfSeats;
     private int noOfSeatsAllocated;
 
+    // Seats held for guests who have not been added yet, see SeatHoldRegistry
+    private int noOfSeatsHeld;
+
     @Builder.Default
     @Version
     private Long version = 0L;
 
     public int getUnAllocatedSeats() {
-        return noOfSeats - noOfSeatsAllocated;
+        return noOfSeats - noOfSeatsAllocated - noOfSeatsHeld;
     }
 }
\ No newline at end of file
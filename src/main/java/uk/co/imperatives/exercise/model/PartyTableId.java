@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PartyTableId implements Serializable {
+    private String eventId;
+    private Integer number;
+}
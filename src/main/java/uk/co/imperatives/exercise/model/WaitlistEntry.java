@@ -0,0 +1,37 @@
+package uk.co.imperatives.exercise.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "waitlist_entry", uniqueConstraints = @UniqueConstraint(columnNames = {"event_id", "name"}))
+@Getter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class WaitlistEntry {
+    // Generated in increasing order, so also gives the order guests joined the waitlist in
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", length = PartyEvent.MAX_ID_LENGTH, nullable = false)
+    private String eventId;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "accompanying_guests")
+    private int accompanyingGuests;
+
+    @Column(name = "time_joined")
+    private LocalDateTime timeJoined;
+
+    public int noOfGuests() {
+        return accompanyingGuests + 1;
+    }
+}
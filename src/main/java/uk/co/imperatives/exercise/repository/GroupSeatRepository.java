@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.repository;
+
+import org.springframework.data.repository.Repository;
+import uk.co.imperatives.exercise.model.GroupSeat;
+
+import java.util.List;
+
+public interface GroupSeatRepository extends Repository<GroupSeat, Long> {
+
+    List<GroupSeat> findAllByGuestIdOrderByTableNumber(Long guestId);
+
+    <S extends GroupSeat> Iterable<S> saveAll(Iterable<S> groupSeats);
+
+    void deleteAll(Iterable<? extends GroupSeat> groupSeats);
+}
@@ -1,7 +1,33 @@
 package uk.co.imperatives.exercise.repository;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import uk.co.imperatives.exercise.model.GuestListEntry;
 
-public interface GuestListEntryRepository extends CrudRepository<GuestListEntry, String> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface GuestListEntryRepository extends CrudRepository<GuestListEntry, Long> {
+
+    Optional<GuestListEntry> findByEventIdAndName(String eventId, String name);
+
+    boolean existsByEventIdAndName(String eventId, String name);
+
+    boolean existsByEventId(String eventId);
+
+    List<GuestListEntry> findAllByEventId(String eventId);
+
+    List<GuestListEntry> findAllByEventIdAndNameIn(String eventId, Collection<String> names);
+
+    // The guests to show, read as rows rather than entities, so nothing is kept in the persistence context
+    @Query("select new uk.co.imperatives.exercise.repository.GuestView(g.name, g.tableNumber, " +
+            "coalesce(g.lastTableNumber, g.tableNumber), g.accompanyingGuests, g.timeArrived, g.timeLeft) " +
+            "from GuestListEntry g where g.eventId = :eventId")
+    List<GuestView> findGuestViewsByEventId(String eventId);
+
+    // Guests who have arrived and not yet left, including their accompanying guests
+    @Query("select coalesce(sum(g.accompanyingGuests + 1), 0) from GuestListEntry g " +
+            "where g.timeArrived is not null and g.timeLeft is null")
+    long countPresentGuests();
 }
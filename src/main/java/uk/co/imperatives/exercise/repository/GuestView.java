@@ -0,0 +1,26 @@
+package uk.co.imperatives.exercise.repository;
+
+import uk.co.imperatives.exercise.model.GuestListEntry;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a guest list entry needed to show it, read without loading the entity. {@code lastTableNumber} is
+ * the guest's table when their party is at a single table.
+ */
+public record GuestView(String name, int tableNumber, int lastTableNumber, int accompanyingGuests,
+                        LocalDateTime timeArrived, LocalDateTime timeLeft) {
+
+    public static GuestView of(GuestListEntry guest) {
+        return new GuestView(guest.getName(), guest.getTableNumber(), guest.getLastTableNumber(),
+                guest.getAccompanyingGuests(), guest.getTimeArrived(), guest.getTimeLeft());
+    }
+
+    public boolean seatedAcrossTables() {
+        return lastTableNumber != tableNumber;
+    }
+
+    public boolean hasLeft() {
+        return timeLeft != null;
+    }
+}
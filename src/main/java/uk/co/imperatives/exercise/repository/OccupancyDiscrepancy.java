@@ -0,0 +1,11 @@
+package uk.co.imperatives.exercise.repository;
+
+/**
+ * A table whose allocated seats are not the seats taken by the guests seated at it.
+ */
+public record OccupancyDiscrepancy(String eventId, int tableNumber, int noOfSeatsAllocated, long seatsTaken) {
+
+    public long getDrift() {
+        return noOfSeatsAllocated - seatsTaken;
+    }
+}
@@ -1,7 +1,56 @@
 package uk.co.imperatives.exercise.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.repository.CrudRepository;
 import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.model.PartyTableId;
 
-public interface PartyTableRepository extends CrudRepository<PartyTable, Integer> {
+import java.util.Collection;
+import java.util.List;
+
+public interface PartyTableRepository extends CrudRepository<PartyTable, PartyTableId> {
+
+    List<PartyTable> findAllByEventId(String eventId);
+
+    List<PartyTable> findAllByEventIdAndNumberIn(String eventId, Collection<Integer> numbers);
+
+    boolean existsByEventId(String eventId);
+
+    // The tables to show, read as rows rather than entities, so nothing is kept in the persistence context
+    @Query("select new uk.co.imperatives.exercise.repository.PartyTableView(" +
+            "t.number, t.noOfSeats, t.noOfSeatsAllocated, t.noOfSeatsHeld) " +
+            "from PartyTable t where t.eventId = :eventId order by t.number")
+    List<PartyTableView> findTableViewsByEventId(String eventId);
+
+    @Query("select coalesce(sum(t.noOfSeats - t.noOfSeatsAllocated - t.noOfSeatsHeld), 0) from PartyTable t " +
+            "where t.eventId = :eventId")
+    long countUnAllocatedSeats(String eventId);
+
+    @Transactional
+    @Modifying
+    @Query("update PartyTable t set t.noOfSeatsHeld = 0 where t.noOfSeatsHeld <> 0")
+    int releaseAllHeldSeats();
+
+    @Query("select new uk.co.imperatives.exercise.repository.SeatTotals(" +
+            "coalesce(sum(t.noOfSeats), 0), coalesce(sum(t.noOfSeatsAllocated), 0)) from PartyTable t")
+    SeatTotals getSeatTotals();
+
+    // The tables whose allocated seats differ from the seats taken by the guests who have not left, counting a party
+    // at a single table at its table and a party split across tables by its group seats, from one pass over each
+    @Query("select new uk.co.imperatives.exercise.repository.OccupancyDiscrepancy(" +
+            "t.eventId, t.number, t.noOfSeatsAllocated, coalesce(seated.seats, 0) + coalesce(split.seats, 0)) " +
+            "from PartyTable t " +
+            "left join (select g.eventId as eventId, g.tableNumber as tableNumber, sum(g.accompanyingGuests + 1) as seats " +
+            "    from GuestListEntry g where g.timeLeft is null and g.lastTableNumber is null " +
+            "    group by g.eventId, g.tableNumber) seated " +
+            "    on seated.eventId = t.eventId and seated.tableNumber = t.number " +
+            "left join (select s.eventId as eventId, s.tableNumber as tableNumber, sum(s.noOfSeats) as seats " +
+            "    from GroupSeat s join GuestListEntry g on g.id = s.guestId where g.timeLeft is null " +
+            "    group by s.eventId, s.tableNumber) split " +
+            "    on split.eventId = t.eventId and split.tableNumber = t.number " +
+            "where t.noOfSeatsAllocated <> coalesce(seated.seats, 0) + coalesce(split.seats, 0) " +
+            "order by t.eventId, t.number")
+    List<OccupancyDiscrepancy> findOccupancyDiscrepancies();
 }
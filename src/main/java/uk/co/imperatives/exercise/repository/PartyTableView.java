@@ -0,0 +1,11 @@
+package uk.co.imperatives.exercise.repository;
+
+/**
+ * The seats at a party table, read without loading the entity.
+ */
+public record PartyTableView(int number, int noOfSeats, int noOfSeatsAllocated, int noOfSeatsHeld) {
+
+    public int getUnAllocatedSeats() {
+        return noOfSeats - noOfSeatsAllocated - noOfSeatsHeld;
+    }
+}
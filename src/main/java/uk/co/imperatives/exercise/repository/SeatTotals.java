@@ -0,0 +1,8 @@
+package uk.co.imperatives.exercise.repository;
+
+public record SeatTotals(long noOfSeats, long noOfSeatsAllocated) {
+
+    public long getUnAllocatedSeats() {
+        return noOfSeats - noOfSeatsAllocated;
+    }
+}
@@ -0,0 +1,22 @@
+package uk.co.imperatives.exercise.repository;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WaitlistEntryRepository extends CrudRepository<WaitlistEntry, Long> {
+
+    List<WaitlistEntry> findAllByEventIdOrderById(String eventId);
+
+    // The waitlist to show, read as rows rather than entities, so nothing is kept in the persistence context
+    @Query("select new uk.co.imperatives.exercise.repository.WaitlistEntryView(w.name, w.accompanyingGuests, w.timeJoined) " +
+            "from WaitlistEntry w where w.eventId = :eventId order by w.id")
+    List<WaitlistEntryView> findViewsByEventIdOrderById(String eventId);
+
+    Optional<WaitlistEntry> findByEventIdAndName(String eventId, String name);
+
+    boolean existsByEventIdAndName(String eventId, String name);
+}
@@ -0,0 +1,9 @@
+package uk.co.imperatives.exercise.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A guest waiting for a seat, read without loading the entity.
+ */
+public record WaitlistEntryView(String name, int accompanyingGuests, LocalDateTime timeJoined) {
+}
@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
 import uk.co.imperatives.exercise.exception.NameValidationError;
+import uk.co.imperatives.exercise.model.GuestListEntry;
 import uk.co.imperatives.exercise.validation.NameValidator;
 
 @ToString
@@ -12,9 +13,10 @@ public class AddGuestRequest {
     private final String name;
     private int table;  // 0 by default, meaning no table provided
     private int accompanyingGuests;
+    private final String holdId;  // null by default, meaning no seats were held for the guest
 
     @Builder
-    public AddGuestRequest(String name, int table, int accompanyingGuests) {
+    public AddGuestRequest(String name, int table, int accompanyingGuests, String holdId) {
         if (name == null || name.isBlank()) {
             throw new NameValidationError("Name cannot be null or empty");
         }
@@ -31,9 +33,14 @@ public class AddGuestRequest {
             throw new IllegalArgumentException("accompanying guests cannot be negative");
         }
 
+        if (accompanyingGuests > GuestListEntry.MAX_ACCOMPANYING_GUESTS) {
+            throw new IllegalArgumentException("accompanying guests cannot be more than " + GuestListEntry.MAX_ACCOMPANYING_GUESTS);
+        }
+
         this.name = name.trim();
         this.table = table;
         this.accompanyingGuests = accompanyingGuests;
+        this.holdId = holdId;
     }
 
     // Method to check if a table was provided
@@ -41,6 +48,11 @@ public class AddGuestRequest {
         return table > 0;
     }
 
+    // Method to check if the guest is taking seats held for them
+    public boolean hasHold() {
+        return holdId != null;
+    }
+
     public int noOfGuests() {
         return accompanyingGuests + 1;
     }
@@ -0,0 +1,101 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.model.PartyTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the fewest adjacent tables that together have enough free seats for a party too large for any one table.
+ * <p>
+ * Tables are adjacent when their numbers follow on from each other, and a table with no free seats splits the tables
+ * either side of it, so that every table a party is split across has some of the party at it. A window is slid over
+ * the tables in number order keeping a running sum of its free seats: its end moves on a table at a time, and its
+ * start follows for as long as the window would still have enough seats without its first table. Each table enters
+ * and leaves the window once, so the search is linear in the number of tables. Of the windows with the fewest tables,
+ * the one with the fewest seats left over is taken, keeping larger runs of free seats for later parties, and then the
+ * lowest numbered.
+ */
+final class AdjacentTableSearch {
+
+    private AdjacentTableSearch() {
+    }
+
+    /**
+     * The seats the party takes at each of the fewest adjacent tables that can seat it, filling each table in turn,
+     * or an empty list if no run of adjacent tables has enough free seats.
+     */
+    static List<TableSeats> fewestTables(List<PartyTable> tablesInNumberOrder, int noOfSeats) {
+        int bestStart = -1;
+        int bestLength = Integer.MAX_VALUE;
+        long bestSpare = Long.MAX_VALUE;
+
+        int start = 0;
+        long freeSeats = 0;
+        for (int end = 0; end < tablesInNumberOrder.size(); end++) {
+            PartyTable table = tablesInNumberOrder.get(end);
+            int tableFreeSeats = table.getUnAllocatedSeats();
+            if (tableFreeSeats <= 0) {
+                start = end + 1;
+                freeSeats = 0;
+                continue;
+            }
+            if (end > start && tablesInNumberOrder.get(end - 1).getNumber() + 1 != table.getNumber()) {
+                start = end;
+                freeSeats = 0;
+            }
+
+            freeSeats += tableFreeSeats;
+            while (freeSeats - tablesInNumberOrder.get(start).getUnAllocatedSeats() >= noOfSeats) {
+                freeSeats -= tablesInNumberOrder.get(start).getUnAllocatedSeats();
+                start++;
+            }
+
+            if (freeSeats >= noOfSeats) {
+                int length = end - start + 1;
+                long spare = freeSeats - noOfSeats;
+                if (length < bestLength || (length == bestLength && spare < bestSpare)) {
+                    bestStart = start;
+                    bestLength = length;
+                    bestSpare = spare;
+                }
+            }
+        }
+
+        if (bestStart < 0) {
+            return List.of();
+        }
+
+        List<TableSeats> seats = new ArrayList<>(bestLength);
+        int remaining = noOfSeats;
+        for (int i = bestStart; remaining > 0; i++) {
+            PartyTable table = tablesInNumberOrder.get(i);
+            int taken = Math.min(table.getUnAllocatedSeats(), remaining);
+            seats.add(new TableSeats(table.getNumber(), taken));
+            remaining -= taken;
+        }
+        return seats;
+    }
+
+    /**
+     * The largest party that any one run of adjacent tables has enough free seats for, or zero if every table is full.
+     */
+    static int largestParty(List<PartyTable> tablesInNumberOrder) {
+        long largest = 0;
+        long freeSeats = 0;
+        PartyTable previous = null;
+        for (PartyTable table : tablesInNumberOrder) {
+            int tableFreeSeats = table.getUnAllocatedSeats();
+            if (tableFreeSeats <= 0) {
+                freeSeats = 0;
+            } else if (previous != null && previous.getNumber() + 1 == table.getNumber() && freeSeats > 0) {
+                freeSeats += tableFreeSeats;
+            } else {
+                freeSeats = tableFreeSeats;
+            }
+            largest = Math.max(largest, freeSeats);
+            previous = table;
+        }
+        return (int) Math.min(largest, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,39 @@
+package uk.co.imperatives.exercise.service;
+
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies changes to what the services keep in memory once the transaction making them has committed, or straight
+ * away when there is no transaction.
+ * <p>
+ * The in-memory read models are changed before the {@link DataVersions} are increased, so that a client can never
+ * be given a new version tag together with data from before the change.
+ */
+final class AfterCommit {
+    static final int READ_MODELS = Ordered.HIGHEST_PRECEDENCE;
+    static final int VERSIONS = Ordered.LOWEST_PRECEDENCE;
+
+    private AfterCommit() {
+    }
+
+    static void run(int order, Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return order;
+            }
+
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,398 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.exception.GuestHasLeftException;
+import uk.co.imperatives.exercise.exception.GuestNotFoundException;
+import uk.co.imperatives.exercise.exception.TableNotFoundException;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.model.PartyTableId;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records guests arriving and leaving, optionally writing the changes to the database behind the response rather
+ * than before it, so that the door is not held up waiting for a commit per guest.
+ * <p>
+ * With {@code party.write-behind.enabled=true}, an arrival or departure is checked against the guests held in the
+ * {@link GuestStore}, applied to the in-memory read models and acknowledged straight away, then appended to a bounded
+ * queue. A single writer thread takes the queued changes, waiting up to {@code party.write-behind.window} after the
+ * oldest for others to join it, and writes up to {@code party.write-behind.batch-size} of them in one transaction.
+ * When the queue is full, recording a change waits for room. Every other change to an event first waits for the
+ * changes queued for that event to be written, so it never reads the database behind what has been acknowledged,
+ * and the queue is written out before the application stops. Reads made straight from the database, such as the
+ * empty seats, can be up to the window behind.
+ * <p>
+ * An arrival bringing more accompanying guests than before needs the table's availability, which only the database
+ * holds, so it is recorded by the {@link GuestListService} as usual once the queued changes for the event have been
+ * written, as is any change to the seats of a party split across adjacent tables. If a group of changes cannot be
+ * written together each is written on its own, and the in-memory read models of the event of any that still fail are
+ * reloaded from the database.
+ * <p>
+ * With write-behind disabled, the default, arrivals and departures are recorded by the {@link GuestListService} in
+ * their own transactions.
+ */
+@Slf4j
+@Component
+public class ArrivalWriteBehind implements DisposableBean {
+    private final GuestListServiceInterface guestListService;
+    private final GuestListEntryRepository guestListEntryRepository;
+    private final PartyTableRepository partyTableRepository;
+    private final PartyEventExecutor partyEventExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersions dataVersions;
+    private final SeatingChart seatingChart;
+    private final GuestStore guestStore;
+    private final GuestAnalytics guestAnalytics;
+
+    private final boolean enabled;
+    private final Duration window;
+    private final int batchSize;
+    private final BlockingQueue<Change> queue;
+
+    // Changes are numbered in the order they are queued and written in that order, so a change has been written
+    // once the number of the last change written reaches its own
+    private final Lock appendLock = new ReentrantLock();
+    private final Map<String, Long> lastQueued = new ConcurrentHashMap<>();
+    private final Object progress = new Object();
+    private long lastNumber;
+    private volatile long lastWritten;
+    private volatile boolean writeRequested;
+    private volatile boolean stopped;
+    private final Thread writer;
+
+    public ArrivalWriteBehind(GuestListServiceInterface guestListService,
+                              GuestListEntryRepository guestListEntryRepository,
+                              PartyTableRepository partyTableRepository,
+                              PartyEventExecutor partyEventExecutor,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              DataVersions dataVersions,
+                              SeatingChart seatingChart,
+                              GuestStore guestStore,
+                              GuestAnalytics guestAnalytics,
+                              @Value("${party.write-behind.enabled:false}") boolean enabled,
+                              @Value("${party.write-behind.window:PT0.02S}") Duration window,
+                              @Value("${party.write-behind.batch-size:500}") int batchSize,
+                              @Value("${party.write-behind.capacity:10000}") int capacity) {
+        this.guestListService = guestListService;
+        this.guestListEntryRepository = guestListEntryRepository;
+        this.partyTableRepository = partyTableRepository;
+        this.partyEventExecutor = partyEventExecutor;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataVersions = dataVersions;
+        this.seatingChart = seatingChart;
+        this.guestStore = guestStore;
+        this.guestAnalytics = guestAnalytics;
+        this.enabled = enabled;
+        this.window = window;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        if (enabled) {
+            writer = new Thread(this::writeQueuedChanges, "party-write-behind");
+            writer.setDaemon(true);
+            writer.start();
+            partyEventExecutor.beforeEachChange(this::awaitWritten);
+        } else {
+            writer = null;
+        }
+    }
+
+    public GuestListEntry recordGuestArrival(String eventId, String guestName, int accompanyingGuests) {
+        if (!enabled) {
+            return partyEventExecutor.executeCheckIn(eventId,
+                    () -> guestListService.recordGuestArrival(eventId, guestName, accompanyingGuests));
+        }
+
+        return partyEventExecutor.executeCheckInWrittenBehind(eventId, () -> {
+            if (accompanyingGuests < 0) {
+                throw new IllegalArgumentException("Number of accompanying guests cannot be negative");
+            }
+            if (accompanyingGuests > GuestListEntry.MAX_ACCOMPANYING_GUESTS) {
+                throw new IllegalArgumentException("Number of accompanying guests cannot be more than " + GuestListEntry.MAX_ACCOMPANYING_GUESTS);
+            }
+
+            var guest = guestStore.guest(eventId, guestName)
+                    .orElseThrow(() -> new GuestNotFoundException("Guest with name " + guestName + " not found"));
+            if (guest.hasLeft()) {
+                throw new GuestHasLeftException("Cannot record the arrival of a guest that has left the party");
+            }
+            int previousPartySize = guest.noOfGuests();
+            boolean firstArrival = !guest.hasArrived();
+            guest.setAccompanyingGuests(accompanyingGuests);
+            if (firstArrival) {
+                guest.recordTimeArrived();
+            }
+
+            // Taking more seats needs the table's availability, which only the database holds, and the seats of a
+            // party split across tables are only held there too
+            if (guest.noOfGuests() > previousPartySize
+                    || (guest.seatedAcrossTables() && guest.noOfGuests() != previousPartySize)
+                    || !queue(new Change(eventId, guestName, accompanyingGuests, firstArrival ? guest.getTimeArrived() : null,
+                    null, guest.getTableNumber(), previousPartySize - guest.noOfGuests()))) {
+                awaitWritten(eventId);
+                return guestListService.recordGuestArrival(eventId, guestName, accompanyingGuests);
+            }
+
+            readModelsChanged(guest, previousPartySize);
+            if (firstArrival) {
+                guestAnalytics.guestArrived(eventId, guest.getTimeArrived(), guest.noOfGuests());
+            }
+            guestsChanged(eventId);
+            return guest;
+        });
+    }
+
+    public GuestListEntry recordGuestLeft(String eventId, String guestName) {
+        if (!enabled) {
+            return partyEventExecutor.executeCheckIn(eventId, () -> guestListService.recordGuestLeft(eventId, guestName));
+        }
+
+        return partyEventExecutor.executeCheckInWrittenBehind(eventId, () -> {
+            var guest = guestStore.guest(eventId, guestName)
+                    .orElseThrow(() -> new GuestNotFoundException("Guest with name " + guestName + " not found"));
+            if (!guest.hasArrived()) {
+                throw new IllegalStateException("Guest with name " + guestName + " has not arrived yet, cannot record as left.");
+            }
+            if (guest.hasLeft()) {
+                throw new IllegalStateException("Guest with name " + guestName + " has already been recorded as left.");
+            }
+
+            // The seats a party split across tables has at each of them are only held in the database
+            if (guest.seatedAcrossTables()) {
+                awaitWritten(eventId);
+                return guestListService.recordGuestLeft(eventId, guestName);
+            }
+
+            guest.recordTimeLeft();
+            if (!queue(new Change(eventId, guestName, guest.getAccompanyingGuests(), null, guest.getTimeLeft(),
+                    guest.getTableNumber(), guest.noOfGuests()))) {
+                awaitWritten(eventId);
+                return guestListService.recordGuestLeft(eventId, guestName);
+            }
+            readModelsChanged(guest, guest.noOfGuests());
+            guestAnalytics.guestLeft(eventId, guest.getTimeArrived(), guest.getTimeLeft());
+            guestsChanged(eventId);
+            return guest;
+        });
+    }
+
+    /**
+     * Waits until the changes queued for the event have been written to the database.
+     */
+    void awaitWritten(String eventId) {
+        Long last = lastQueued.get(eventId);
+        if (last == null || last <= lastWritten) {
+            return;
+        }
+
+        synchronized (progress) {
+            while (lastWritten < last) {
+                writeRequested = true;
+                progress.notifyAll();
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the changes to event " + eventId + " to be written", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+
+        appendLock.lock();
+        try {
+            stopped = true;
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (writer.isAlive()) {
+            log.warn("{} queued arrivals and departures were not written before shutdown", queue.size());
+        }
+    }
+
+    private void readModelsChanged(GuestListEntry guest, int previousPartySize) {
+        seatingChart.guestSaved(guest);
+        guestStore.guestSaved(guest);
+        guestAnalytics.partySizeChanged(guest.getEventId(), previousPartySize, guest.noOfGuests());
+    }
+
+    /**
+     * Increases the version of the event's guests once every read model has the change. There is no transaction to
+     * put the version after the read models, so it is only called once they have all been changed. The tables are read
+     * from the database, so their version is increased when the change is written.
+     */
+    private void guestsChanged(String eventId) {
+        dataVersions.guestsChanged(eventId);
+    }
+
+    /**
+     * Queues the change to be written, returning false if the application is stopping and it must be written now.
+     */
+    private boolean queue(Change change) {
+        appendLock.lock();
+        try {
+            if (stopped) {
+                return false;
+            }
+            Change numbered = change.numbered(lastNumber + 1);
+            queue.put(numbered);
+            lastNumber = numbered.number();
+            lastQueued.put(numbered.eventId(), numbered.number());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for room to queue a change to event " + change.eventId(), e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (queue.size() >= batchSize) {
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    private void writeQueuedChanges() {
+        List<Change> batch = new ArrayList<>(batchSize);
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                Change first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                awaitMoreChanges(first);
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                log.warn("Write-behind writer interrupted with {} changes queued", queue.size());
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure writing queued arrivals and departures", e);
+            }
+
+            if (!batch.isEmpty()) {
+                synchronized (progress) {
+                    lastWritten = batch.getLast().number();
+                    writeRequested = false;
+                    progress.notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits until the window for the first change has passed, enough changes have been queued to fill a batch, a
+     * change needs the queued changes to have been written, or the application is stopping.
+     */
+    private void awaitMoreChanges(Change first) throws InterruptedException {
+        long deadline = first.queuedAt() + window.toNanos();
+        synchronized (progress) {
+            long remaining;
+            while (!writeRequested && !stopped && queue.size() + 1 < batchSize
+                    && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(progress, remaining);
+            }
+        }
+    }
+
+    private void write(List<Change> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::apply));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Writing {} arrivals and departures together failed, writing them one at a time", batch.size(), e);
+        }
+
+        Set<String> failedEvents = new HashSet<>();
+        for (Change change : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(change));
+            } catch (RuntimeException e) {
+                log.error("Could not write the change to guest {} of event {}, reloading the event", change.guestName(), change.eventId(), e);
+                failedEvents.add(change.eventId());
+            }
+        }
+        for (String eventId : failedEvents) {
+            seatingChart.reload(eventId);
+            guestStore.reload(eventId);
+            guestAnalytics.reload(eventId);
+        }
+    }
+
+    private void apply(Change change) {
+        var guest = guestListEntryRepository.findByEventIdAndName(change.eventId(), change.guestName())
+                .orElseThrow(() -> new GuestNotFoundException("Guest with name " + change.guestName() + " not found"));
+        guest.setAccompanyingGuests(change.accompanyingGuests());
+        if (change.timeArrived() != null && !guest.hasArrived()) {
+            guest.recordTimeArrived(change.timeArrived());
+        }
+        if (change.timeLeft() != null) {
+            guest.recordTimeLeft(change.timeLeft());
+        }
+        guestListEntryRepository.save(guest);
+
+        if (change.seatsFreed() != 0) {
+            PartyTable table = partyTableRepository.findById(new PartyTableId(change.eventId(), change.tableNumber()))
+                    .orElseThrow(() -> new TableNotFoundException("Table with number " + change.tableNumber() + " not found"));
+            table.setNoOfSeatsAllocated(table.getNoOfSeatsAllocated() - change.seatsFreed());
+            partyTableRepository.save(table);
+            dataVersions.tablesChanged(change.eventId());
+            eventPublisher.publishEvent(new SeatsReleasedEvent(change.eventId(), change.tableNumber()));
+        }
+    }
+
+    /**
+     * An arrival or departure that has been acknowledged and is waiting to be written, with the seats it frees at the
+     * guest's table.
+     */
+    private record Change(long number, long queuedAt, String eventId, String guestName, int accompanyingGuests,
+                          LocalDateTime timeArrived, LocalDateTime timeLeft, int tableNumber, int seatsFreed) {
+        Change(String eventId, String guestName, int accompanyingGuests, LocalDateTime timeArrived,
+               LocalDateTime timeLeft, int tableNumber, int seatsFreed) {
+            this(0, System.nanoTime(), eventId, guestName, accompanyingGuests, timeArrived, timeLeft, tableNumber, seatsFreed);
+        }
+
+        Change numbered(long number) {
+            return new Change(number, queuedAt, eventId, guestName, accompanyingGuests, timeArrived, timeLeft,
+                    tableNumber, seatsFreed);
+        }
+    }
+}
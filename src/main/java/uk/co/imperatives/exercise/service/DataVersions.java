@@ -0,0 +1,72 @@
+package uk.co.imperatives.exercise.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version numbers for the tables and the guests of each party event, which the services increase whenever they change
+ * them. Clients can be told whether data has changed since they last read it from the versions alone, without
+ * reading the data.
+ * <p>
+ * Versions are increased once the change has been committed, and after the in-memory read models have been changed,
+ * so a version is never seen before the data it stands for. They are kept in memory, so the tags built from them
+ * include the time the application started, to stop tags given out before a restart from matching new data.
+ */
+@Component
+public class DataVersions {
+    // The versions of every event that has not been changed since the application started
+    private static final Versions UNCHANGED = new Versions();
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Map<String, Versions> versions = new ConcurrentHashMap<>();
+
+    public void tablesChanged(String eventId) {
+        AfterCommit.run(AfterCommit.VERSIONS, () -> versionsFor(eventId).tables.incrementAndGet());
+    }
+
+    public void guestsChanged(String eventId) {
+        AfterCommit.run(AfterCommit.VERSIONS, () -> versionsFor(eventId).guests.incrementAndGet());
+    }
+
+    /**
+     * A tag that changes whenever the tables of the event change.
+     */
+    public String tablesTag(String eventId) {
+        return epoch + "-t" + currentVersions(eventId).tables.get();
+    }
+
+    /**
+     * A tag that changes whenever the guests of the event change.
+     */
+    public String guestsTag(String eventId) {
+        return epoch + "-g" + currentVersions(eventId).guests.get();
+    }
+
+    /**
+     * A tag that changes whenever the tables or guests of the event change.
+     */
+    public String seatingTag(String eventId) {
+        Versions eventVersions = currentVersions(eventId);
+        return epoch + "-t" + eventVersions.tables.get() + "-g" + eventVersions.guests.get();
+    }
+
+    /**
+     * Versions are only kept for events that have been changed, so reading the tags of any number of other events
+     * keeps nothing.
+     */
+    private Versions currentVersions(String eventId) {
+        return versions.getOrDefault(eventId, UNCHANGED);
+    }
+
+    private Versions versionsFor(String eventId) {
+        return versions.computeIfAbsent(eventId, k -> new Versions());
+    }
+
+    private static final class Versions {
+        private final AtomicLong tables = new AtomicLong();
+        private final AtomicLong guests = new AtomicLong();
+    }
+}
@@ -0,0 +1,189 @@
+package uk.co.imperatives.exercise.service;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.dto.GuestAnalyticsDto;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Live analytics of each party event: how many guests arrived in each of the last minutes, how long guests stayed,
+ * and the sizes of the parties on the guest list.
+ * <p>
+ * Each event keeps a fixed amount of memory however many guests it has: a ring buffer of arrivals with a slot per
+ * minute, an HdrHistogram of the seconds from arrival to leaving, accurate to two significant figures, and a count per
+ * party size. Reading them costs the same for an event of ten guests as for one of a hundred thousand.
+ * <p>
+ * Like the {@link GuestStore}, the analytics of an event are worked out from its guests the first time they are asked
+ * for, and are then kept up to date by the services as their changes are committed, on the event's writer thread.
+ * Like the guests, they are not kept for an event with no guests and are forgotten once the event has been idle.
+ */
+@Component
+public class GuestAnalytics {
+    static final int MINUTES = 60;
+    static final int LARGEST_PARTY_SIZE = 10;
+    private static final long LONGEST_STAY_SECONDS = Duration.ofDays(2).toSeconds();
+
+    private final GuestStore guestStore;
+    private final PartyEventExecutor partyEventExecutor;
+    private final Clock clock;
+
+    private final Map<String, EventAnalytics> events = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GuestAnalytics(GuestStore guestStore, PartyEventExecutor partyEventExecutor) {
+        this(guestStore, partyEventExecutor, Clock.systemDefaultZone());
+    }
+
+    GuestAnalytics(GuestStore guestStore, PartyEventExecutor partyEventExecutor, Clock clock) {
+        this.guestStore = guestStore;
+        this.partyEventExecutor = partyEventExecutor;
+        this.clock = clock;
+        partyEventExecutor.whenEventIdle(this::reload);
+    }
+
+    public GuestAnalyticsDto analytics(String eventId) {
+        return analyticsOf(eventId).toDto(minute(LocalDateTime.now(clock)));
+    }
+
+    /**
+     * Forgets the analytics of the event so that they are worked out from its guests again.
+     */
+    public void reload(String eventId) {
+        events.remove(eventId);
+    }
+
+    /**
+     * Moves a guest's party from one size to another, where a size of zero is a party not on the guest list.
+     */
+    public void partySizeChanged(String eventId, int fromSize, int toSize) {
+        if (fromSize != toSize) {
+            afterCommit(eventId, analytics -> analytics.partySizeChanged(fromSize, toSize));
+        }
+    }
+
+    public void guestArrived(String eventId, LocalDateTime timeArrived, int noOfGuests) {
+        afterCommit(eventId, analytics -> analytics.arrived(minute(timeArrived), noOfGuests));
+    }
+
+    public void guestLeft(String eventId, LocalDateTime timeArrived, LocalDateTime timeLeft) {
+        afterCommit(eventId, analytics -> analytics.left(staySeconds(timeArrived, timeLeft)));
+    }
+
+    private void afterCommit(String eventId, Consumer<EventAnalytics> change) {
+        AfterCommit.run(AfterCommit.READ_MODELS, () -> {
+            EventAnalytics analytics = events.get(eventId);
+            if (analytics != null) {
+                change.accept(analytics);
+            }
+        });
+    }
+
+    private EventAnalytics analyticsOf(String eventId) {
+        EventAnalytics analytics = events.get(eventId);
+        if (analytics == null) {
+            if (!partyEventExecutor.hasWriter(eventId) && guestStore.allGuests(eventId).size() == 0) {
+                return new EventAnalytics();
+            }
+            analytics = partyEventExecutor.executeInternal(eventId, () -> events.computeIfAbsent(eventId, this::load));
+        }
+        return analytics;
+    }
+
+    private EventAnalytics load(String eventId) {
+        EventAnalytics analytics = new EventAnalytics();
+        GuestStore.Guests guests = guestStore.allGuests(eventId);
+        for (int row = 0; row < guests.size(); row++) {
+            int noOfGuests = guests.accompanyingGuests(row) + 1;
+            analytics.partySizeChanged(0, noOfGuests);
+
+            LocalDateTime timeArrived = guests.timeArrived(row);
+            if (timeArrived != null) {
+                analytics.arrived(minute(timeArrived), noOfGuests);
+                if (guests.timeLeft(row) != null) {
+                    analytics.left(staySeconds(timeArrived, guests.timeLeft(row)));
+                }
+            }
+        }
+        return analytics;
+    }
+
+    private static long minute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static long staySeconds(LocalDateTime timeArrived, LocalDateTime timeLeft) {
+        long seconds = Duration.between(timeArrived, timeLeft).toSeconds();
+        return Math.clamp(seconds, 0, LONGEST_STAY_SECONDS);
+    }
+
+    /**
+     * The analytics of one event, changed on its writer thread and read from any thread.
+     */
+    private static final class EventAnalytics {
+        private final long[] minutes = new long[MINUTES];
+        private final long[] arrivals = new long[MINUTES];
+        private final Histogram stays = new Histogram(LONGEST_STAY_SECONDS, 2);
+        private final long[] partySizes = new long[LARGEST_PARTY_SIZE];
+
+        synchronized void arrived(long minute, int noOfGuests) {
+            int slot = (int) Math.floorMod(minute, MINUTES);
+            if (minutes[slot] != minute) {
+                if (minutes[slot] > minute) {
+                    // The slot already holds a later minute, so this arrival is too old to be kept
+                    return;
+                }
+                minutes[slot] = minute;
+                arrivals[slot] = 0;
+            }
+            arrivals[slot] += noOfGuests;
+        }
+
+        synchronized void left(long staySeconds) {
+            stays.recordValue(staySeconds);
+        }
+
+        synchronized void partySizeChanged(int fromSize, int toSize) {
+            if (fromSize > 0) {
+                partySizes[Math.min(fromSize, LARGEST_PARTY_SIZE) - 1]--;
+            }
+            if (toSize > 0) {
+                partySizes[Math.min(toSize, LARGEST_PARTY_SIZE) - 1]++;
+            }
+        }
+
+        synchronized GuestAnalyticsDto toDto(long currentMinute) {
+            List<GuestAnalyticsDto.MinuteArrivals> arrivalsPerMinute = new ArrayList<>(MINUTES);
+            for (long minute = currentMinute - MINUTES + 1; minute <= currentMinute; minute++) {
+                int slot = (int) Math.floorMod(minute, MINUTES);
+                arrivalsPerMinute.add(new GuestAnalyticsDto.MinuteArrivals(
+                        LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC),
+                        minutes[slot] == minute ? arrivals[slot] : 0));
+            }
+
+            Map<String, Long> sizes = new LinkedHashMap<>();
+            for (int size = 1; size <= LARGEST_PARTY_SIZE; size++) {
+                sizes.put(size == LARGEST_PARTY_SIZE ? size + "+" : String.valueOf(size), partySizes[size - 1]);
+            }
+
+            boolean anyLeft = stays.getTotalCount() > 0;
+            return GuestAnalyticsDto.builder()
+                    .arrivalsPerMinute(arrivalsPerMinute)
+                    .partiesLeft(stays.getTotalCount())
+                    .medianStaySeconds(anyLeft ? stays.getValueAtPercentile(50) : null)
+                    .p95StaySeconds(anyLeft ? stays.getValueAtPercentile(95) : null)
+                    .partySizes(sizes)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package uk.co.imperatives.exercise.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+
+/**
+ * Flight Recorder event for a change to a guest, timed from when the change was asked for.
+ */
+@Name("party.GuestLifecycle")
+@Label("Guest Lifecycle")
+@Category("Party")
+@Description("A guest added, renamed, removed, arriving or leaving")
+@StackTrace(false)
+@Enabled(false)
+class GuestLifecycleEvent extends Event {
+
+    @Label("Event Id")
+    String eventId;
+
+    @Label("Guest Name")
+    String guestName;
+
+    @Label("Change")
+    String change;
+
+    @Label("Table Number")
+    int tableNumber;
+
+    @Label("Party Size")
+    @Description("The guest and their accompanying guests")
+    int partySize;
+
+    static GuestLifecycleEvent started() {
+        var event = new GuestLifecycleEvent();
+        event.begin();
+        return event;
+    }
+
+    void commit(String change, GuestListEntry guest) {
+        end();
+        if (shouldCommit()) {
+            this.eventId = guest.getEventId();
+            this.guestName = guest.getName();
+            this.change = change;
+            this.tableNumber = guest.getTableNumber();
+            this.partySize = guest.noOfGuests();
+            commit();
+        }
+    }
+}
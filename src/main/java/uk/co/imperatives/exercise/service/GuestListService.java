@@ -3,70 +3,112 @@ package uk.co.imperatives.exercise.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import uk.co.imperatives.exercise.dto.GuestAnalyticsDto;
 import uk.co.imperatives.exercise.dto.GuestsAtTable;
 import uk.co.imperatives.exercise.exception.*;
+import uk.co.imperatives.exercise.model.GroupSeat;
 import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GroupSeatRepository;
 import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
 import uk.co.imperatives.exercise.validation.NameValidator;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
 public class GuestListService implements GuestListServiceInterface {
     private final GuestListEntryRepository guestListEntryRepository;
     private final PartyTableServiceInterface tableService;
+    private final DataVersions dataVersions;
+    private final SeatingChart seatingChart;
+    private final GuestStore guestStore;
+    private final GuestAnalytics guestAnalytics;
+    private final GroupSeatRepository groupSeatRepository;
 
     @Override
     @Transactional
-    public GuestListEntry addGuest(AddGuestRequest request) {
+    public GuestListEntry addGuest(String eventId, AddGuestRequest request) {
+        var lifecycleEvent = GuestLifecycleEvent.started();
+
         // Check if the guest already exists
-        var existingGuestOptional = guestListEntryRepository.findById(request.getName());
+        var existingGuestOptional = guestListEntryRepository.findByEventIdAndName(eventId, request.getName());
 
         // Build the guest to add
         var guestToAddBuilder = GuestListEntry.builder()
+                .eventId(eventId)
                 .name(request.getName())
                 .accompanyingGuests(request.getAccompanyingGuests());
 
+        int previousPartySize = existingGuestOptional.map(GuestListEntry::noOfGuests).orElse(0);
+        List<TableSeats> seats;
+        List<GroupSeat> previousGroupSeats = List.of();
+
         // Handle existing guest case
         if (existingGuestOptional.isPresent()) {
             var existingGuest = existingGuestOptional.get();
+            guestToAddBuilder.id(existingGuest.getId());
 
             if (existingGuest.hasLeft()) {
                 throw new GuestHasLeftException("Cannot update the information of a guest that has left the party");
             }
 
-            // Temporarily remove existing guests from the table
-            tableService.decreaseOccupancy(existingGuest.getTableNumber(), existingGuest.noOfGuests());
+            // Temporarily remove existing guests from their tables
+            previousGroupSeats = releaseSeats(eventId, existingGuest);
 
-            // Get a suitable table with availability
-            var tableWithAvailability = getTableWithAvailability(request.getTable(), request.noOfGuests());
-            if (tableWithAvailability == 0) {
-                // No table with availability found, restore existing guests to table and throw exception
-                tableService.increaseOccupancy(existingGuest.getTableNumber(), existingGuest.noOfGuests());
-                throwNoAvailabilityException(request);
+            if (request.hasHold()) {
+                seats = List.of(new TableSeats(confirmHold(eventId, request), request.noOfGuests()));
+            } else {
+                // Get suitable tables with availability
+                seats = findSeats(eventId, request);
+                if (seats.isEmpty()) {
+                    // No tables with availability found, restore existing guests to their tables and throw exception
+                    restoreSeats(eventId, existingGuest, previousGroupSeats);
+                    throwNoAvailabilityException(request);
+                }
+                takeSeats(eventId, seats);
             }
-
-            tableService.increaseOccupancy(request.getTable(), request.noOfGuests());
-            guestToAddBuilder.tableNumber(tableWithAvailability);
+        } else if (request.hasHold()) {
+            // Handle new guest taking seats held for them
+            seats = List.of(new TableSeats(confirmHold(eventId, request), request.noOfGuests()));
         } else {
             // Handle new guest case
-            var tableWithAvailability = getTableWithAvailability(request.getTable(), request.noOfGuests());
-            if (tableWithAvailability == 0) {
+            seats = findSeats(eventId, request);
+            if (seats.isEmpty()) {
                 throwNoAvailabilityException(request);
             }
-            tableService.increaseOccupancy(tableWithAvailability, request.noOfGuests());
-            guestToAddBuilder.tableNumber(tableWithAvailability);
+            takeSeats(eventId, seats);
         }
 
-        return guestListEntryRepository.save(guestToAddBuilder.build());
+        guestToAddBuilder
+                .tableNumber(seats.getFirst().tableNumber())
+                .lastTableNumber(seats.size() > 1 ? seats.getLast().tableNumber() : null);
+
+        dataVersions.guestsChanged(eventId);
+        var savedGuest = guestListEntryRepository.save(guestToAddBuilder.build());
+        if (!previousGroupSeats.isEmpty()) {
+            groupSeatRepository.deleteAll(previousGroupSeats);
+        }
+        if (savedGuest.seatedAcrossTables()) {
+            groupSeatRepository.saveAll(seats.stream()
+                    .map(tableSeats -> GroupSeat.builder()
+                            .guestId(savedGuest.getId())
+                            .eventId(eventId)
+                            .tableNumber(tableSeats.tableNumber())
+                            .noOfSeats(tableSeats.noOfSeats())
+                            .build())
+                    .toList());
+        }
+        seatingChart.guestSaved(savedGuest);
+        guestStore.guestSaved(savedGuest);
+        guestAnalytics.partySizeChanged(eventId, previousPartySize, savedGuest.noOfGuests());
+        lifecycleEvent.commit(existingGuestOptional.isPresent() ? "Updated" : "Added", savedGuest);
+        return savedGuest;
     }
 
     @Override
     @Transactional
-    public GuestListEntry updateName(String oldName, String newName) {
+    public GuestListEntry updateName(String eventId, String oldName, String newName) {
+        var lifecycleEvent = GuestLifecycleEvent.started();
         if (newName == null || newName.isBlank()) {
             throw new NameValidationError("Name cannot be null or empty");
         }
@@ -76,50 +118,40 @@ public class GuestListService implements GuestListServiceInterface {
         }
 
         // Find the guest by the old name
-        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findById(oldName);
+        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findByEventIdAndName(eventId, oldName);
 
         if (existingGuestOpt.isEmpty()) {
             throw new GuestNotFoundException("Guest with name " + oldName + " not found");
         }
 
         // check if the newName is already being used by an existing guest
-        if (guestListEntryRepository.existsById(newName)) {
+        if (guestListEntryRepository.existsByEventIdAndName(eventId, newName)) {
             throw new GuestAlreadyExistsException("Guest with name " + newName + " already exists");
         }
 
-        // Retrieve the existing guest
+        // Rename the guest in place, keeping their other details
         GuestListEntry existingGuestListEntry = existingGuestOpt.get();
-
-        // Delete the guest with the old name
-        guestListEntryRepository.delete(existingGuestListEntry);
-
-        // Create a new guest with the new name but keep other details the same
-        GuestListEntry updatedGuestListEntry = GuestListEntry.builder()
-                .name(newName)
-                .tableNumber(existingGuestListEntry.getTableNumber())
-                .accompanyingGuests(existingGuestListEntry.getAccompanyingGuests())
-                .timeArrived(existingGuestListEntry.getTimeArrived())
-                .timeLeft(existingGuestListEntry.getTimeLeft())
-                .build();
-
-        // Save the new guest
-        guestListEntryRepository.save(updatedGuestListEntry);
-
-        // Return the newly created guest
-        return updatedGuestListEntry;
+        existingGuestListEntry.rename(newName);
+
+        dataVersions.guestsChanged(eventId);
+        var renamedGuest = guestListEntryRepository.save(existingGuestListEntry);
+        seatingChart.guestRemoved(eventId, oldName);
+        seatingChart.guestSaved(renamedGuest);
+        guestStore.guestRenamed(oldName, renamedGuest);
+        lifecycleEvent.commit("Renamed", renamedGuest);
+        return renamedGuest;
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<GuestListEntry> getAllGuests() {
-        return StreamSupport.stream(guestListEntryRepository.findAll().spliterator(), false)
-                .collect(Collectors.toList());
+    public GuestStore.Guests getAllGuests(String eventId) {
+        return guestStore.allGuests(eventId);
     }
 
     @Override
     @Transactional
-    public void delete(String guestName) {
-        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findById(guestName);
+    public void delete(String eventId, String guestName) {
+        var lifecycleEvent = GuestLifecycleEvent.started();
+        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findByEventIdAndName(eventId, guestName);
 
         // Check if the guest exists, if not throw GuestNotFoundException
         if (existingGuestOpt.isEmpty()) {
@@ -128,22 +160,37 @@ public class GuestListService implements GuestListServiceInterface {
 
         var existingGuestEntry = existingGuestOpt.get();
 
+        // A guest who has left has already given up their seats
         if (!existingGuestEntry.hasLeft()) {
-            tableService.decreaseOccupancy(existingGuestEntry.getTableNumber(), existingGuestEntry.noOfGuests());
+            var groupSeats = releaseSeats(eventId, existingGuestEntry);
+            if (!groupSeats.isEmpty()) {
+                groupSeatRepository.deleteAll(groupSeats);
+            }
         }
 
-        guestListEntryRepository.deleteById(guestName);
+        dataVersions.guestsChanged(eventId);
+        guestListEntryRepository.delete(existingGuestEntry);
+        seatingChart.guestRemoved(eventId, guestName);
+        guestStore.guestRemoved(eventId, guestName);
+        guestAnalytics.partySizeChanged(eventId, existingGuestEntry.noOfGuests(), 0);
+        lifecycleEvent.commit("Removed", existingGuestEntry);
     }
 
     @Override
     @Transactional
-    public GuestListEntry recordGuestArrival(String guestName, int accompanyingGuests) {
+    public GuestListEntry recordGuestArrival(String eventId, String guestName, int accompanyingGuests) {
+        var lifecycleEvent = GuestLifecycleEvent.started();
+
         // Check for negative accompanying guests
         if (accompanyingGuests < 0) {
             throw new IllegalArgumentException("Number of accompanying guests cannot be negative");
         }
 
-        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findById(guestName);
+        if (accompanyingGuests > GuestListEntry.MAX_ACCOMPANYING_GUESTS) {
+            throw new IllegalArgumentException("Number of accompanying guests cannot be more than " + GuestListEntry.MAX_ACCOMPANYING_GUESTS);
+        }
+
+        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findByEventIdAndName(eventId, guestName);
 
         // Check if the guest exists
         if (existingGuestOpt.isEmpty()) {
@@ -152,44 +199,65 @@ public class GuestListService implements GuestListServiceInterface {
 
         var existingGuestEntry = existingGuestOpt.get();
 
+        // A guest who has left no longer holds seats, so their party cannot be changed
+        if (existingGuestEntry.hasLeft()) {
+            throw new GuestHasLeftException("Cannot record the arrival of a guest that has left the party");
+        }
+
         // Note: No check for whether the guest has already arrived.
         // This allows the number of accompanying guests to be changed even if the guest has already arrived.
 
         // Handle accompanying guests and table occupancy changes
-        if (accompanyingGuests > existingGuestEntry.getAccompanyingGuests()) {
+        if (existingGuestEntry.seatedAcrossTables()) {
+            changeGroupSize(eventId, existingGuestEntry, accompanyingGuests + 1);
+        } else if (accompanyingGuests > existingGuestEntry.getAccompanyingGuests()) {
             int extraGuests = accompanyingGuests - existingGuestEntry.getAccompanyingGuests();
 
-            if (tableService.hasAvailability(existingGuestEntry.getTableNumber(), extraGuests)) {
-                tableService.increaseOccupancy(existingGuestEntry.getTableNumber(), extraGuests);
+            if (tableService.hasAvailability(eventId, existingGuestEntry.getTableNumber(), extraGuests)) {
+                tableService.increaseOccupancy(eventId, existingGuestEntry.getTableNumber(), extraGuests);
             } else {
                 throw new NoAvailabilityException("Table " + existingGuestEntry.getTableNumber() + " does not have the required availability");
             }
         } else if (accompanyingGuests < existingGuestEntry.getAccompanyingGuests()) {
             int decreaseInGuests = existingGuestEntry.getAccompanyingGuests() - accompanyingGuests;
-            tableService.decreaseOccupancy(existingGuestEntry.getTableNumber(), decreaseInGuests);
+            tableService.decreaseOccupancy(eventId, existingGuestEntry.getTableNumber(), decreaseInGuests);
         }
 
         // Update guest entry with accompanying guests and, if not already recorded, the arrival time
+        int previousPartySize = existingGuestEntry.noOfGuests();
+        boolean firstArrival = !existingGuestEntry.hasArrived();
         existingGuestEntry.setAccompanyingGuests(accompanyingGuests);
-        if (!existingGuestEntry.hasArrived()) {
+        if (firstArrival) {
             existingGuestEntry.recordTimeArrived();
         }
 
-        return guestListEntryRepository.save(existingGuestEntry);
+        dataVersions.guestsChanged(eventId);
+        var savedGuest = guestListEntryRepository.save(existingGuestEntry);
+        seatingChart.guestSaved(savedGuest);
+        guestStore.guestSaved(savedGuest);
+        guestAnalytics.partySizeChanged(eventId, previousPartySize, savedGuest.noOfGuests());
+        if (firstArrival) {
+            guestAnalytics.guestArrived(eventId, savedGuest.getTimeArrived(), savedGuest.noOfGuests());
+        }
+        lifecycleEvent.commit(firstArrival ? "Arrived" : "Updated", savedGuest);
+        return savedGuest;
+    }
+
+    @Override
+    public GuestStore.Guests getArrivedGuests(String eventId) {
+        return guestStore.arrivedGuests(eventId);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<GuestListEntry> getArrivedGuests() {
-        return StreamSupport.stream(guestListEntryRepository.findAll().spliterator(), false)
-                .filter(guestListEntry -> guestListEntry.getTimeArrived() != null)
-                .collect(Collectors.toList());
+    public long countPresentGuests(String eventId) {
+        return guestStore.presentGuests(eventId);
     }
 
     @Override
     @Transactional
-    public GuestListEntry recordGuestLeft(String guestName) {
-        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findById(guestName);
+    public GuestListEntry recordGuestLeft(String eventId, String guestName) {
+        var lifecycleEvent = GuestLifecycleEvent.started();
+        Optional<GuestListEntry> existingGuestOpt = guestListEntryRepository.findByEventIdAndName(eventId, guestName);
 
         // Check if the guest exists, if not throw GuestNotFoundException
         if (existingGuestOpt.isEmpty()) {
@@ -208,10 +276,24 @@ public class GuestListService implements GuestListServiceInterface {
             throw new IllegalStateException("Guest with name " + guestName + " has already been recorded as left.");
         }
 
-        // Update the occupancy and record the time left
-        tableService.increaseOccupancy(existingGuestEntry.getTableNumber(), existingGuestEntry.noOfGuests());
+        // Free up the guests' seats and record the time left
+        var groupSeats = releaseSeats(eventId, existingGuestEntry);
+        if (!groupSeats.isEmpty()) {
+            groupSeatRepository.deleteAll(groupSeats);
+        }
         existingGuestEntry.recordTimeLeft();
-        return guestListEntryRepository.save(existingGuestEntry);
+        dataVersions.guestsChanged(eventId);
+        var savedGuest = guestListEntryRepository.save(existingGuestEntry);
+        seatingChart.guestSaved(savedGuest);
+        guestStore.guestSaved(savedGuest);
+        guestAnalytics.guestLeft(eventId, savedGuest.getTimeArrived(), savedGuest.getTimeLeft());
+        lifecycleEvent.commit("Left", savedGuest);
+        return savedGuest;
+    }
+
+    @Override
+    public GuestAnalyticsDto getAnalytics(String eventId) {
+        return guestAnalytics.analytics(eventId);
     }
 
     // Helper methods
@@ -223,10 +305,106 @@ public class GuestListService implements GuestListServiceInterface {
         }
     }
 
-    private int getTableWithAvailability(int requestedTableNo, int noOfGuests) {
-        if (requestedTableNo != 0 && tableService.hasAvailability(requestedTableNo, noOfGuests)) {
-            return requestedTableNo;
+    private int confirmHold(String eventId, AddGuestRequest request) {
+        var hold = tableService.confirmHold(eventId, request.getHoldId(), request.noOfGuests());
+
+        if (request.hasTable() && request.getTable() != hold.tableNumber()) {
+            throw new IllegalArgumentException("Seat hold " + hold.id() + " is for table " + hold.tableNumber()
+                    + " not table " + request.getTable());
+        }
+        return hold.tableNumber();
+    }
+
+    /**
+     * The seats for the party, at the requested table if it has enough availability, or else wherever the table
+     * service finds for it. Empty if the party cannot be seated.
+     */
+    private List<TableSeats> findSeats(String eventId, AddGuestRequest request) {
+        if (request.hasTable() && tableService.hasAvailability(eventId, request.getTable(), request.noOfGuests())) {
+            return List.of(new TableSeats(request.getTable(), request.noOfGuests()));
+        }
+        return tableService.findSeats(eventId, request.noOfGuests());
+    }
+
+    private void takeSeats(String eventId, List<TableSeats> seats) {
+        seats.forEach(tableSeats -> tableService.increaseOccupancy(eventId, tableSeats.tableNumber(), tableSeats.noOfSeats()));
+    }
+
+    /**
+     * Gives up the seats of the guest's party, at each of its tables if it is split across tables, returning the
+     * seats it had at each of them. The group seats themselves are left for the caller to delete or restore.
+     */
+    private List<GroupSeat> releaseSeats(String eventId, GuestListEntry guest) {
+        if (!guest.seatedAcrossTables()) {
+            tableService.decreaseOccupancy(eventId, guest.getTableNumber(), guest.noOfGuests());
+            return List.of();
+        }
+        var groupSeats = groupSeatRepository.findAllByGuestIdOrderByTableNumber(guest.getId());
+        groupSeats.forEach(seat -> tableService.decreaseOccupancy(eventId, seat.getTableNumber(), seat.getNoOfSeats()));
+        return groupSeats;
+    }
+
+    private void restoreSeats(String eventId, GuestListEntry guest, List<GroupSeat> groupSeats) {
+        if (!guest.seatedAcrossTables()) {
+            tableService.increaseOccupancy(eventId, guest.getTableNumber(), guest.noOfGuests());
+        } else {
+            groupSeats.forEach(seat -> tableService.increaseOccupancy(eventId, seat.getTableNumber(), seat.getNoOfSeats()));
+        }
+    }
+
+    /**
+     * Changes the size of a party split across tables. Extra guests take free seats at the party's own tables, from
+     * the first, and seats no longer needed are given up from the last table back, so a party that has shrunk stops
+     * taking the tables at its end, and once it fits at its first table is seated there alone.
+     */
+    private void changeGroupSize(String eventId, GuestListEntry guest, int noOfGuests) {
+        int change = noOfGuests - guest.noOfGuests();
+        if (change == 0) {
+            return;
+        }
+
+        var groupSeats = groupSeatRepository.findAllByGuestIdOrderByTableNumber(guest.getId());
+        if (change > 0) {
+            Map<Integer, Integer> freeSeats = new HashMap<>();
+            tableService.getAllTables(eventId).stream()
+                    .filter(table -> table.number() >= guest.getTableNumber() && table.number() <= guest.getLastTableNumber())
+                    .forEach(table -> freeSeats.put(table.number(), Math.max(0, table.getUnAllocatedSeats())));
+            if (freeSeats.values().stream().mapToInt(Integer::intValue).sum() < change) {
+                throw new NoAvailabilityException("Tables " + guest.getTableNumber() + " to " + guest.getLastTableNumber()
+                        + " do not have the required availability");
+            }
+
+            int remaining = change;
+            for (GroupSeat seat : groupSeats) {
+                int taken = Math.min(freeSeats.getOrDefault(seat.getTableNumber(), 0), remaining);
+                if (taken > 0) {
+                    tableService.increaseOccupancy(eventId, seat.getTableNumber(), taken);
+                    seat.setNoOfSeats(seat.getNoOfSeats() + taken);
+                    remaining -= taken;
+                }
+            }
+            groupSeatRepository.saveAll(groupSeats);
+            return;
+        }
+
+        int remaining = -change;
+        for (GroupSeat seat : groupSeats.reversed()) {
+            int givenUp = Math.min(seat.getNoOfSeats(), remaining);
+            if (givenUp > 0) {
+                tableService.decreaseOccupancy(eventId, seat.getTableNumber(), givenUp);
+                seat.setNoOfSeats(seat.getNoOfSeats() - givenUp);
+                remaining -= givenUp;
+            }
+        }
+
+        var stillSeated = groupSeats.stream().filter(seat -> seat.getNoOfSeats() > 0).toList();
+        if (stillSeated.size() == 1) {
+            guest.setLastTableNumber(null);
+            groupSeatRepository.deleteAll(groupSeats);
+        } else {
+            guest.setLastTableNumber(stillSeated.getLast().getTableNumber());
+            groupSeatRepository.deleteAll(groupSeats.stream().filter(seat -> seat.getNoOfSeats() == 0).toList());
+            groupSeatRepository.saveAll(stillSeated);
         }
-        return tableService.getTableWithAvailableSeating(noOfGuests);
     }
 }
@@ -1,27 +1,32 @@
 package uk.co.imperatives.exercise.service;
 
+import uk.co.imperatives.exercise.dto.GuestAnalyticsDto;
 import uk.co.imperatives.exercise.dto.GuestsAtTable;
 import uk.co.imperatives.exercise.exception.GuestNotFoundException;
 import uk.co.imperatives.exercise.exception.NameValidationError;
 import uk.co.imperatives.exercise.exception.NoAvailabilityException;
 import uk.co.imperatives.exercise.model.GuestListEntry;
 
-import java.util.List;
-
 public interface GuestListServiceInterface {
 
-    GuestListEntry addGuest(AddGuestRequest request) throws NoAvailabilityException;
+    GuestListEntry addGuest(String eventId, AddGuestRequest request) throws NoAvailabilityException;
+
+    GuestListEntry updateName(String eventId, String oldName, String newName) throws NameValidationError, GuestNotFoundException;
+
+    GuestStore.Guests getAllGuests(String eventId);
 
-    GuestListEntry updateName(String oldName, String newName) throws NameValidationError, GuestNotFoundException;
+    void delete(String eventId, String guestName) throws GuestNotFoundException;
 
-    List<GuestListEntry> getAllGuests();
+    GuestListEntry recordGuestArrival(String eventId, String guestName, int accompanyingGuests) throws GuestNotFoundException, NoAvailabilityException;
 
-    void delete(String guestName) throws GuestNotFoundException;
+    GuestStore.Guests getArrivedGuests(String eventId);
 
-    GuestListEntry recordGuestArrival(String guestName, int accompanyingGuests) throws GuestNotFoundException, NoAvailabilityException;
+    // Guests who have arrived and not yet left, including their accompanying guests
+    long countPresentGuests(String eventId);
 
-    List<GuestListEntry> getArrivedGuests();
+    GuestListEntry recordGuestLeft(String eventId, String guestName) throws GuestNotFoundException;
 
-    GuestListEntry recordGuestLeft(String guestName) throws GuestNotFoundException;
+    // Arrivals per minute, time stayed and party sizes, at the same cost however many guests the event has
+    GuestAnalyticsDto getAnalytics(String eventId);
 
 }
@@ -0,0 +1,552 @@
+package uk.co.imperatives.exercise.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.dto.GuestListEntryDto;
+import uk.co.imperatives.exercise.dto.PartyTimeSerializer;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.GuestView;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The guest list of each party event, kept in memory as columns of primitives so that the guest lists of very large
+ * events can be read and counted without holding an object for every guest.
+ * <p>
+ * Each guest is a row across the columns: their table number in an {@code int[]}, with the last of their tables in
+ * another for a party split across adjacent tables, their accompanying guests in a {@code short[]}, and their arrival
+ * and leaving times as seconds in {@code long[]}s. Names are written one after another as UTF-8 into one byte array
+ * shared by the whole event, each row holding where its name starts, and are found again through an open addressing
+ * index of row numbers. A guest takes 36 bytes of columns, the length of
+ * their name and their share of the index and of the room left for growth, which {@code GuestStoreBenchmark}
+ * measures at around 65 bytes for 100,000 guests, against around 150 bytes for the same guests as
+ * {@link GuestListEntry} entities, before the copy of their state that JPA keeps for every entity it loads.
+ * <p>
+ * Like the {@link SeatingChart}, the guests of an event are read from the database the first time they are asked
+ * for, and are then kept up to date by the services as their changes are committed, on the event's writer thread.
+ * Nothing is kept for an event with no guests, and the guests of an event that has had no changes for a while are
+ * forgotten.
+ * Readers are given a copy of the columns, which needs no object per guest either and can be written out after the
+ * guests have changed again.
+ */
+@Component
+public class GuestStore {
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    private final GuestListEntryRepository guestListEntryRepository;
+    private final PartyEventExecutor partyEventExecutor;
+
+    private final Map<String, EventGuests> events = new ConcurrentHashMap<>();
+
+    public GuestStore(GuestListEntryRepository guestListEntryRepository, PartyEventExecutor partyEventExecutor) {
+        this.guestListEntryRepository = guestListEntryRepository;
+        this.partyEventExecutor = partyEventExecutor;
+        partyEventExecutor.whenEventIdle(this::reload);
+    }
+
+    public Guests allGuests(String eventId) {
+        return guestsOf(eventId).copy(false);
+    }
+
+    public Guests arrivedGuests(String eventId) {
+        return guestsOf(eventId).copy(true);
+    }
+
+    /**
+     * The guest with the name, if they are on the guest list, as an entry that is not attached to the database.
+     */
+    public Optional<GuestListEntry> guest(String eventId, String guestName) {
+        return guestsOf(eventId).get(eventId, guestName);
+    }
+
+    /**
+     * The number of guests, including accompanying guests, who have arrived and not left.
+     */
+    public long presentGuests(String eventId) {
+        return guestsOf(eventId).presentGuests();
+    }
+
+    /**
+     * Forgets the guests of the event so that they are read from the database again, for when they have been changed
+     * other than through the services.
+     */
+    public void reload(String eventId) {
+        events.remove(eventId);
+    }
+
+    /**
+     * Adds the guest, or updates them if a guest with their name is already on the list.
+     */
+    public void guestSaved(GuestListEntry guest) {
+        Row row = Row.of(guest);
+        afterCommit(guest.getEventId(), guests -> guests.put(row));
+    }
+
+    /**
+     * Renames the guest, keeping their place in the list.
+     */
+    public void guestRenamed(String oldName, GuestListEntry guest) {
+        Row row = Row.of(guest);
+        afterCommit(guest.getEventId(), guests -> {
+            guests.rename(oldName, row.name());
+            guests.put(row);
+        });
+    }
+
+    /**
+     * Removes the guest, whose place in the list is taken by the last guest.
+     */
+    public void guestRemoved(String eventId, String guestName) {
+        afterCommit(eventId, guests -> guests.remove(guestName));
+    }
+
+    private void afterCommit(String eventId, Consumer<EventGuests> change) {
+        AfterCommit.run(AfterCommit.READ_MODELS, () -> {
+            EventGuests guests = events.get(eventId);
+            if (guests != null) {
+                change.accept(guests);
+            }
+        });
+    }
+
+    private EventGuests guestsOf(String eventId) {
+        EventGuests guests = events.get(eventId);
+        if (guests == null) {
+            if (!partyEventExecutor.hasWriter(eventId) && !guestListEntryRepository.existsByEventId(eventId)) {
+                return new EventGuests();
+            }
+            guests = partyEventExecutor.executeInternal(eventId, () -> events.computeIfAbsent(eventId, this::load));
+        }
+        return guests;
+    }
+
+    private EventGuests load(String eventId) {
+        EventGuests guests = new EventGuests();
+        guestListEntryRepository.findGuestViewsByEventId(eventId).forEach(guest -> guests.put(Row.of(guest)));
+        return guests;
+    }
+
+    private static long seconds(LocalDateTime time) {
+        return time == null ? NOT_SET : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime time(long seconds) {
+        return seconds == NOT_SET ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private record Row(String name, int tableNumber, int lastTableNumber, short accompanyingGuests, long timeArrived,
+                       long timeLeft) {
+        static Row of(GuestListEntry guest) {
+            return of(guest.getName(), guest.getTableNumber(), guest.seatedAcrossTables() ? guest.getLastTableNumber() : 0,
+                    guest.getAccompanyingGuests(), guest.getTimeArrived(), guest.getTimeLeft());
+        }
+
+        static Row of(GuestView guest) {
+            return of(guest.name(), guest.tableNumber(), guest.seatedAcrossTables() ? guest.lastTableNumber() : 0,
+                    guest.accompanyingGuests(), guest.timeArrived(), guest.timeLeft());
+        }
+
+        private static Row of(String name, int tableNumber, int lastTableNumber, int accompanyingGuests,
+                              LocalDateTime timeArrived, LocalDateTime timeLeft) {
+            if (accompanyingGuests > GuestListEntry.MAX_ACCOMPANYING_GUESTS) {
+                throw new IllegalArgumentException("Accompanying guests cannot be more than " + GuestListEntry.MAX_ACCOMPANYING_GUESTS);
+            }
+            return new Row(name, tableNumber, lastTableNumber, (short) accompanyingGuests, seconds(timeArrived), seconds(timeLeft));
+        }
+    }
+
+    /**
+     * The guests of one event. Only the event's writer thread changes them, while holding the write lock.
+     */
+    private static final class EventGuests {
+        private static final int INITIAL_ROWS = 16;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int size;
+        private int[] nameStarts = new int[INITIAL_ROWS];
+        private short[] nameLengths = new short[INITIAL_ROWS];
+        private int[] nameHashes = new int[INITIAL_ROWS];
+        private int[] tableNumbers = new int[INITIAL_ROWS];
+        // 0 for a party at a single table
+        private int[] lastTableNumbers = new int[INITIAL_ROWS];
+        private short[] accompanyingGuests = new short[INITIAL_ROWS];
+        private long[] timesArrived = new long[INITIAL_ROWS];
+        private long[] timesLeft = new long[INITIAL_ROWS];
+
+        // Names are only ever appended, so copies given to readers can share the array; the names of removed and
+        // renamed guests are left behind until they are half of it, when the live names are copied to a new array
+        private byte[] names = new byte[INITIAL_ROWS * 16];
+        private int namesLength;
+        private int unusedNameBytes;
+
+        // Row number plus one for each name, at the slot its hash gives or the next free one after, 0 for no row
+        private int[] index = new int[INITIAL_ROWS * 2];
+
+        void put(Row row) {
+            lock.writeLock().lock();
+            try {
+                int at = find(row.name());
+                if (at < 0) {
+                    at = append(row.name());
+                }
+                tableNumbers[at] = row.tableNumber();
+                lastTableNumbers[at] = row.lastTableNumber();
+                accompanyingGuests[at] = row.accompanyingGuests();
+                timesArrived[at] = row.timeArrived();
+                timesLeft[at] = row.timeLeft();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void rename(String oldName, String newName) {
+            lock.writeLock().lock();
+            try {
+                int at = find(oldName);
+                if (at >= 0) {
+                    unusedNameBytes += nameLengths[at];
+                    removeFromIndex(at);
+                    writeName(at, newName);
+                    addToIndex(at);
+                    compactNamesIfMostlyUnused();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Removes the guest, moving the last guest into their row so that only that one row and its index slot
+         * change, however many guests there are.
+         */
+        void remove(String name) {
+            lock.writeLock().lock();
+            try {
+                int at = find(name);
+                if (at >= 0) {
+                    unusedNameBytes += nameLengths[at];
+                    removeFromIndex(at);
+                    int last = --size;
+                    if (at != last) {
+                        index[slotOf(last)] = at + 1;
+                        nameStarts[at] = nameStarts[last];
+                        nameLengths[at] = nameLengths[last];
+                        nameHashes[at] = nameHashes[last];
+                        tableNumbers[at] = tableNumbers[last];
+                        lastTableNumbers[at] = lastTableNumbers[last];
+                        accompanyingGuests[at] = accompanyingGuests[last];
+                        timesArrived[at] = timesArrived[last];
+                        timesLeft[at] = timesLeft[last];
+                    }
+                    compactNamesIfMostlyUnused();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Guests copy(boolean arrivedOnly) {
+            lock.readLock().lock();
+            try {
+                if (!arrivedOnly) {
+                    return new Guests(size, names, Arrays.copyOf(nameStarts, size), Arrays.copyOf(nameLengths, size),
+                            Arrays.copyOf(tableNumbers, size), Arrays.copyOf(lastTableNumbers, size),
+                            Arrays.copyOf(accompanyingGuests, size),
+                            Arrays.copyOf(timesArrived, size), Arrays.copyOf(timesLeft, size));
+                }
+
+                int arrived = 0;
+                for (int row = 0; row < size; row++) {
+                    if (timesArrived[row] != NOT_SET) {
+                        arrived++;
+                    }
+                }
+                var guests = new Guests(arrived, names, new int[arrived], new short[arrived], new int[arrived],
+                        new int[arrived], new short[arrived], new long[arrived], new long[arrived]);
+                for (int row = 0, to = 0; row < size; row++) {
+                    if (timesArrived[row] != NOT_SET) {
+                        guests.nameStarts[to] = nameStarts[row];
+                        guests.nameLengths[to] = nameLengths[row];
+                        guests.tableNumbers[to] = tableNumbers[row];
+                        guests.lastTableNumbers[to] = lastTableNumbers[row];
+                        guests.accompanyingGuests[to] = accompanyingGuests[row];
+                        guests.timesArrived[to] = timesArrived[row];
+                        guests.timesLeft[to] = timesLeft[row];
+                        to++;
+                    }
+                }
+                return guests;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Optional<GuestListEntry> get(String eventId, String name) {
+            lock.readLock().lock();
+            try {
+                int at = find(name);
+                if (at < 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(GuestListEntry.builder()
+                        .eventId(eventId)
+                        .name(name)
+                        .tableNumber(tableNumbers[at])
+                        .lastTableNumber(lastTableNumbers[at] != 0 ? lastTableNumbers[at] : null)
+                        .accompanyingGuests(accompanyingGuests[at])
+                        .timeArrived(time(timesArrived[at]))
+                        .timeLeft(time(timesLeft[at]))
+                        .build());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long presentGuests() {
+            lock.readLock().lock();
+            try {
+                long present = 0;
+                for (int row = 0; row < size; row++) {
+                    if (timesArrived[row] != NOT_SET && timesLeft[row] == NOT_SET) {
+                        present += accompanyingGuests[row] + 1;
+                    }
+                }
+                return present;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private int append(String name) {
+            if (size == tableNumbers.length) {
+                int rows = size * 2;
+                nameStarts = Arrays.copyOf(nameStarts, rows);
+                nameLengths = Arrays.copyOf(nameLengths, rows);
+                nameHashes = Arrays.copyOf(nameHashes, rows);
+                tableNumbers = Arrays.copyOf(tableNumbers, rows);
+                lastTableNumbers = Arrays.copyOf(lastTableNumbers, rows);
+                accompanyingGuests = Arrays.copyOf(accompanyingGuests, rows);
+                timesArrived = Arrays.copyOf(timesArrived, rows);
+                timesLeft = Arrays.copyOf(timesLeft, rows);
+            }
+            int row = size++;
+            writeName(row, name);
+            if (size * 2 > index.length) {
+                rebuildIndex(index.length * 2);
+            } else {
+                addToIndex(row);
+            }
+            return row;
+        }
+
+        private void writeName(int row, String name) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Guest name is too long");
+            }
+            if (namesLength + bytes.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + bytes.length));
+            }
+            System.arraycopy(bytes, 0, names, namesLength, bytes.length);
+            nameStarts[row] = namesLength;
+            nameLengths[row] = (short) bytes.length;
+            nameHashes[row] = name.hashCode();
+            namesLength += bytes.length;
+        }
+
+        private int find(String name) {
+            int hash = name.hashCode();
+            byte[] bytes = null;
+            int mask = index.length - 1;
+            for (int slot = spread(hash) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                int row = index[slot] - 1;
+                if (nameHashes[row] == hash) {
+                    if (bytes == null) {
+                        bytes = name.getBytes(StandardCharsets.UTF_8);
+                    }
+                    int start = nameStarts[row];
+                    if (Arrays.equals(names, start, start + nameLengths[row], bytes, 0, bytes.length)) {
+                        return row;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void addToIndex(int row) {
+            int mask = index.length - 1;
+            int slot = spread(nameHashes[row]) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = row + 1;
+        }
+
+        private int slotOf(int row) {
+            int mask = index.length - 1;
+            int slot = spread(nameHashes[row]) & mask;
+            while (index[slot] != row + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties the row's slot, then moves back into the gap each following slot up to the next empty one whose
+         * row would no longer be found past it, so that no search stops short of a row.
+         */
+        private void removeFromIndex(int row) {
+            int mask = index.length - 1;
+            int gap = slotOf(row);
+            index[gap] = 0;
+            for (int slot = (gap + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                int home = spread(nameHashes[index[slot] - 1]) & mask;
+                if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                    index[gap] = index[slot];
+                    index[slot] = 0;
+                    gap = slot;
+                }
+            }
+        }
+
+        private void rebuildIndex(int slots) {
+            index = new int[slots];
+            for (int row = 0; row < size; row++) {
+                addToIndex(row);
+            }
+        }
+
+        private void compactNamesIfMostlyUnused() {
+            if (unusedNameBytes * 2 <= namesLength) {
+                return;
+            }
+            byte[] compacted = new byte[Math.max(INITIAL_ROWS * 16, (namesLength - unusedNameBytes) * 2)];
+            int length = 0;
+            for (int row = 0; row < size; row++) {
+                System.arraycopy(names, nameStarts[row], compacted, length, nameLengths[row]);
+                nameStarts[row] = length;
+                length += nameLengths[row];
+            }
+            names = compacted;
+            namesLength = length;
+            unusedNameBytes = 0;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * A copy of guests from the store, written out as a JSON or CBOR array of guests just as a list of
+     * {@link GuestListEntryDto} would be, but straight from the columns.
+     */
+    @JsonSerialize(using = Guests.Writer.class)
+    public static final class Guests {
+        private final int size;
+        private final byte[] names;
+        private final int[] nameStarts;
+        private final short[] nameLengths;
+        private final int[] tableNumbers;
+        private final int[] lastTableNumbers;
+        private final short[] accompanyingGuests;
+        private final long[] timesArrived;
+        private final long[] timesLeft;
+
+        private Guests(int size, byte[] names, int[] nameStarts, short[] nameLengths, int[] tableNumbers,
+                       int[] lastTableNumbers, short[] accompanyingGuests, long[] timesArrived, long[] timesLeft) {
+            this.size = size;
+            this.names = names;
+            this.nameStarts = nameStarts;
+            this.nameLengths = nameLengths;
+            this.tableNumbers = tableNumbers;
+            this.lastTableNumbers = lastTableNumbers;
+            this.accompanyingGuests = accompanyingGuests;
+            this.timesArrived = timesArrived;
+            this.timesLeft = timesLeft;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String name(int row) {
+            return new String(names, nameStarts[row], nameLengths[row], StandardCharsets.UTF_8);
+        }
+
+        public int tableNumber(int row) {
+            return tableNumbers[row];
+        }
+
+        /**
+         * The last of the adjacent tables the guest's party is split across, or 0 if it is at a single table.
+         */
+        public int lastTableNumber(int row) {
+            return lastTableNumbers[row];
+        }
+
+        public int accompanyingGuests(int row) {
+            return accompanyingGuests[row];
+        }
+
+        public LocalDateTime timeArrived(int row) {
+            return time(timesArrived[row]);
+        }
+
+        public LocalDateTime timeLeft(int row) {
+            return time(timesLeft[row]);
+        }
+
+        public List<GuestListEntryDto> toDtos() {
+            List<GuestListEntryDto> dtos = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                dtos.add(new GuestListEntryDto(name(row), tableNumber(row), timeArrived(row), timeLeft(row),
+                        accompanyingGuests(row), lastTableNumber(row)));
+            }
+            return dtos;
+        }
+
+        public static final class Writer extends StdSerializer<Guests> {
+            public Writer() {
+                super(Guests.class);
+            }
+
+            @Override
+            public void serialize(Guests guests, JsonGenerator gen, SerializerProvider provider) throws IOException {
+                gen.writeStartArray(guests, guests.size);
+                for (int row = 0; row < guests.size; row++) {
+                    gen.writeStartObject();
+                    gen.writeStringField("name", guests.name(row));
+                    gen.writeNumberField("tableNumber", guests.tableNumbers[row]);
+                    gen.writeFieldName("timeArrived");
+                    PartyTimeSerializer.write(guests.timeArrived(row), gen);
+                    gen.writeFieldName("timeLeft");
+                    PartyTimeSerializer.write(guests.timeLeft(row), gen);
+                    gen.writeNumberField("accompanyingGuests", guests.accompanyingGuests[row]);
+                    if (guests.lastTableNumbers[row] != 0) {
+                        gen.writeNumberField("lastTableNumber", guests.lastTableNumbers[row]);
+                    }
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+        }
+    }
+}
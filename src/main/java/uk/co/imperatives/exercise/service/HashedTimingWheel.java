@@ -0,0 +1,94 @@
+package uk.co.imperatives.exercise.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A hashed timing wheel, which keeps items until a deadline without having to scan all of them to find those that
+ * are due.
+ * <p>
+ * Time is divided into ticks, and each item is put in the bucket for the tick its deadline falls in. The buckets
+ * form a ring, so an item due more than one turn of the wheel away also counts the turns it must wait. Advancing a
+ * tick only looks at the items in one bucket, and scheduling and cancelling are constant time.
+ */
+final class HashedTimingWheel<T> {
+    private final long tickNanos;
+    private final long startNanos;
+    private final List<Set<Timeout<T>>> buckets;
+
+    // The next tick to be processed
+    private long currentTick;
+
+    HashedTimingWheel(Duration tickDuration, int wheelSize, long startNanos) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("Wheel size must be positive");
+        }
+
+        this.tickNanos = tickDuration.toNanos();
+        this.startNanos = startNanos;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Adds an item which is returned by {@link #advance} at the first tick at or after its deadline.
+     */
+    synchronized Timeout<T> schedule(T item, long deadlineNanos) {
+        long deadlineTick = Math.max(Math.ceilDiv(deadlineNanos - startNanos, tickNanos), currentTick);
+        int bucket = (int) (deadlineTick % buckets.size());
+        var timeout = new Timeout<>(item, bucket, (deadlineTick - currentTick) / buckets.size());
+        buckets.get(bucket).add(timeout);
+        return timeout;
+    }
+
+    synchronized boolean cancel(Timeout<T> timeout) {
+        return buckets.get(timeout.bucket).remove(timeout);
+    }
+
+    /**
+     * Processes every tick up to the given time, removing and returning the items that are now due.
+     */
+    synchronized List<T> advance(long nowNanos) {
+        List<T> expired = new ArrayList<>();
+        long lastTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+
+        for (; currentTick <= lastTick; currentTick++) {
+            Iterator<Timeout<T>> timeouts = buckets.get((int) (currentTick % buckets.size())).iterator();
+            while (timeouts.hasNext()) {
+                var timeout = timeouts.next();
+                if (timeout.remainingRounds == 0) {
+                    timeouts.remove();
+                    expired.add(timeout.item);
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return buckets.stream().mapToInt(Set::size).sum();
+    }
+
+    static final class Timeout<T> {
+        private final T item;
+        private final int bucket;
+        private long remainingRounds;
+
+        private Timeout(T item, int bucket, long remainingRounds) {
+            this.item = item;
+            this.bucket = bucket;
+            this.remainingRounds = remainingRounds;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package uk.co.imperatives.exercise.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for seats at a table being allocated or freed.
+ */
+@Name("party.OccupancyChange")
+@Label("Occupancy Change")
+@Category("Party")
+@Description("Seats at a table allocated to or freed by guests")
+@StackTrace(false)
+@Enabled(false)
+class OccupancyChangeEvent extends Event {
+
+    @Label("Event Id")
+    String eventId;
+
+    @Label("Table Number")
+    int tableNumber;
+
+    @Label("Seats Changed")
+    @Description("Seats allocated, or freed when negative")
+    int seatsChanged;
+
+    @Label("Seats Allocated")
+    @Description("Seats allocated at the table after the change")
+    int seatsAllocated;
+
+    @Label("Seats")
+    int seats;
+}
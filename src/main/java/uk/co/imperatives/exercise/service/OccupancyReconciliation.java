@@ -0,0 +1,132 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.repository.OccupancyDiscrepancy;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts right the seats allocated at each table when they have drifted from the seats taken by the guests seated there.
+ * <p>
+ * Every {@code party.occupancy-reconciliation.interval} the tables of all events are compared with their guests in one
+ * aggregate query, which returns only the tables that differ. Each event's tables are then corrected on the event's
+ * writer thread, so no change to the event is part way through, in one batched update. Each update only applies if
+ * the table still has the allocation the query found, so a table changed in between is left for the next run rather
+ * than being set from out of date figures. Held seats are kept apart from allocated seats and are not changed.
+ */
+@Slf4j
+@Component
+public class OccupancyReconciliation implements DisposableBean {
+    private static final String CORRECT_ALLOCATION = "UPDATE party_table SET no_of_seats_allocated = ? "
+            + "WHERE event_id = ? AND number = ? AND no_of_seats_allocated = ?";
+
+    private final PartyTableRepository partyTableRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartyEventExecutor partyEventExecutor;
+    private final DataVersions dataVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService scheduler;
+
+    public OccupancyReconciliation(PartyTableRepository partyTableRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   PartyEventExecutor partyEventExecutor,
+                                   DataVersions dataVersions,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${party.occupancy-reconciliation.interval:PT5M}") Duration interval) {
+        this.partyTableRepository = partyTableRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partyEventExecutor = partyEventExecutor;
+        this.dataVersions = dataVersions;
+        this.eventPublisher = eventPublisher;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileOnSchedule, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Corrects the allocated seats of every table that has drifted, returning the discrepancies corrected.
+     */
+    public List<OccupancyDiscrepancy> reconcile() {
+        Map<String, List<OccupancyDiscrepancy>> discrepanciesByEvent = new LinkedHashMap<>();
+        for (OccupancyDiscrepancy discrepancy : partyTableRepository.findOccupancyDiscrepancies()) {
+            discrepanciesByEvent.computeIfAbsent(discrepancy.eventId(), eventId -> new ArrayList<>()).add(discrepancy);
+        }
+
+        List<OccupancyDiscrepancy> corrected = new ArrayList<>();
+        discrepanciesByEvent.forEach((eventId, discrepancies) ->
+                corrected.addAll(partyEventExecutor.executeInternal(eventId, () -> correct(eventId, discrepancies))));
+        return corrected;
+    }
+
+    private List<OccupancyDiscrepancy> correct(String eventId, List<OccupancyDiscrepancy> discrepancies) {
+        return transactionTemplate.execute(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(CORRECT_ALLOCATION, discrepancies, discrepancies.size(),
+                    (statement, discrepancy) -> {
+                        statement.setLong(1, discrepancy.seatsTaken());
+                        statement.setString(2, discrepancy.eventId());
+                        statement.setInt(3, discrepancy.tableNumber());
+                        statement.setInt(4, discrepancy.noOfSeatsAllocated());
+                    })[0];
+
+            List<OccupancyDiscrepancy> corrected = new ArrayList<>();
+            for (int i = 0; i < discrepancies.size(); i++) {
+                OccupancyDiscrepancy discrepancy = discrepancies.get(i);
+                // Drivers that cannot say how many rows a statement in a batch updated report only that it succeeded
+                if (updated[i] == 0) {
+                    log.info("Table {} of event {} changed while its occupancy was being reconciled, leaving it for the next run",
+                            discrepancy.tableNumber(), eventId);
+                    continue;
+                }
+                log.warn("Table {} of event {} had {} seats allocated but its guests take {}, corrected",
+                        discrepancy.tableNumber(), eventId, discrepancy.noOfSeatsAllocated(), discrepancy.seatsTaken());
+                corrected.add(discrepancy);
+                if (discrepancy.getDrift() > 0) {
+                    eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, discrepancy.tableNumber()));
+                }
+            }
+            if (!corrected.isEmpty()) {
+                dataVersions.tablesChanged(eventId);
+            }
+            return corrected;
+        });
+    }
+
+    private void reconcileOnSchedule() {
+        try {
+            List<OccupancyDiscrepancy> corrected = reconcile();
+            if (!corrected.isEmpty()) {
+                log.warn("Corrected the seats allocated at {} tables", corrected.size());
+            }
+        } catch (RuntimeException e) {
+            // Keep running, an exception would cancel the scheduled task
+            log.error("Failed to reconcile table occupancy", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
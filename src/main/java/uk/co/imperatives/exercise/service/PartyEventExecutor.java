@@ -0,0 +1,332 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.exception.EventBusyException;
+import uk.co.imperatives.exercise.validation.EventIdValidator;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the changes made to each party event on a single writer thread for that event.
+ * <p>
+ * All the seating state of an event is changed by one thread at a time, so the read-check-update sequences in the
+ * services (is there room at the table, then take the seats) cannot interleave and no locking is needed between
+ * them. Different events have different writer threads and so are updated in parallel. A writer thread is started
+ * when an event is first changed and stops again after it has been idle for a while.
+ * <p>
+ * Any client can name an event, so nothing is kept for an event for longer than it is being changed. Once an event has
+ * had no changes for {@code party.events.idle-event-timeout} its writer is removed and the listeners given to
+ * {@link #whenEventIdle(Consumer)} are told, so that the in-memory models can forget the event too.
+ * <p>
+ * Guests arriving and leaving, given with {@link #executeCheckIn(String, Supplier)}, are run ahead of every other change
+ * waiting for the writer, so a backlog of other changes does not hold up the door. The other changes made by clients
+ * are turned away with an {@link EventBusyException} while {@code party.events.max-waiting-changes} of them are already
+ * waiting for the event's writer, so that they cannot take every request thread while they wait.
+ * <p>
+ * Something can be set to be done on the writer thread before each change, which the {@link ArrivalWriteBehind} uses
+ * to have the changes it has queued for the event written to the database before any change that reads it.
+ */
+@Slf4j
+@Component
+public class PartyEventExecutor implements DisposableBean {
+    private static final ThreadLocal<String> currentEvent = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, EventWriter> writers = new ConcurrentHashMap<>();
+    private final List<TaskDecorator> taskDecorators;
+    private final Duration idleTimeout;
+    private final int maxWaitingChanges;
+    private final long idleEventTimeoutNanos;
+    private final List<Consumer<String>> idleEventListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService idleEventSweeper;
+    private volatile Consumer<String> beforeEachChange = eventId -> { };
+
+    public PartyEventExecutor(ObjectProvider<TaskDecorator> taskDecorators,
+                              @Value("${party.events.writer-idle-timeout:PT1M}") Duration idleTimeout,
+                              @Value("${party.events.idle-event-timeout:PT30M}") Duration idleEventTimeout,
+                              @Value("${party.events.max-waiting-changes:10}") int maxWaitingChanges) {
+        this.taskDecorators = taskDecorators.orderedStream().toList();
+        this.idleTimeout = idleTimeout;
+        this.maxWaitingChanges = maxWaitingChanges;
+        this.idleEventTimeoutNanos = idleEventTimeout.toNanos();
+
+        this.idleEventSweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "party-event-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        idleEventSweeper.scheduleWithFixedDelay(this::removeIdleEvents,
+                idleEventTimeout.toMillis(), idleEventTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the change on the event's writer thread and waits for its result. Exceptions thrown by the change are
+     * rethrown to the caller. A change made from the event's own writer thread is run straight away.
+     *
+     * @throws EventBusyException if too many other changes are already waiting for the event's writer
+     */
+    public <T> T execute(String eventId, Supplier<T> change) {
+        return execute(eventId, change, true, Kind.CHANGE);
+    }
+
+    public void execute(String eventId, Runnable change) {
+        execute(eventId, () -> {
+            change.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a guest arriving or leaving like {@link #execute(String, Supplier)}, but ahead of the other changes waiting
+     * for the event's writer, and never turned away.
+     */
+    public <T> T executeCheckIn(String eventId, Supplier<T> change) {
+        return execute(eventId, change, true, Kind.CHECK_IN);
+    }
+
+    /**
+     * Runs a guest arriving or leaving like {@link #executeCheckIn(String, Supplier)}, but without first doing what is
+     * set to be done before each change, for changes that are themselves written behind.
+     */
+    <T> T executeCheckInWrittenBehind(String eventId, Supplier<T> change) {
+        return execute(eventId, change, false, Kind.CHECK_IN);
+    }
+
+    /**
+     * Runs work of the application's own, such as loading an in-memory model, like {@link #execute(String, Supplier)}
+     * but never turned away.
+     */
+    <T> T executeInternal(String eventId, Supplier<T> work) {
+        return execute(eventId, work, true, Kind.INTERNAL);
+    }
+
+    /**
+     * Queues the change on the event's writer thread without waiting for it to run.
+     */
+    public void submit(String eventId, Runnable change) {
+        run(eventId, Kind.INTERNAL, decorate(() -> {
+            try {
+                beforeEachChange.accept(eventId);
+                change.run();
+            } catch (RuntimeException e) {
+                log.warn("Change to event {} failed", eventId, e);
+            }
+        }));
+    }
+
+    /**
+     * Sets what is done on an event's writer thread, given the event id, before each change that is not made from
+     * within another change.
+     */
+    void beforeEachChange(Consumer<String> beforeEachChange) {
+        this.beforeEachChange = beforeEachChange;
+    }
+
+    /**
+     * Tells the listener the id of each event whose writer is removed after it has had no changes for a while.
+     */
+    void whenEventIdle(Consumer<String> listener) {
+        idleEventListeners.add(listener);
+    }
+
+    /**
+     * Whether the event has been changed recently enough to still have a writer, in which case it is known to have
+     * data or to be about to have it.
+     */
+    boolean hasWriter(String eventId) {
+        return writers.containsKey(eventId);
+    }
+
+    /**
+     * Removes the writers of events that have had no changes for {@code party.events.idle-event-timeout}, along with
+     * what the listeners keep for them. A writer is only removed with no change queued or running, and takes no more
+     * changes once removed, so the next change starts a new writer without two ever running at once.
+     */
+    void removeIdleEvents() {
+        long now = System.nanoTime();
+        writers.forEach((eventId, writer) -> {
+            if (writer.removeIfIdle(now)) {
+                writers.remove(eventId, writer);
+                log.debug("Removed the writer of event {} after it was idle", eventId);
+                for (Consumer<String> listener : idleEventListeners) {
+                    try {
+                        listener.accept(eventId);
+                    } catch (RuntimeException e) {
+                        log.warn("Failed to forget idle event {}", eventId, e);
+                    }
+                }
+            }
+        });
+    }
+
+    private <T> T execute(String eventId, Supplier<T> change, boolean waitForPrevious, Kind kind) {
+        if (eventId.equals(currentEvent.get())) {
+            return change.get();
+        }
+
+        FutureTask<T> result = new FutureTask<>(() -> {
+            if (waitForPrevious) {
+                beforeEachChange.accept(eventId);
+            }
+            return change.get();
+        });
+        run(eventId, kind, decorate(result));
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a change to event " + eventId, e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        idleEventSweeper.shutdownNow();
+        writers.values().forEach(writer -> writer.executor.shutdown());
+        for (EventWriter writer : writers.values()) {
+            if (!writer.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Writer thread did not finish its queued changes before shutdown");
+            }
+        }
+    }
+
+    private void run(String eventId, Kind kind, Runnable task) {
+        if (!EventIdValidator.isValidEventId(eventId)) {
+            throw new IllegalArgumentException("Invalid party event id: " + eventId);
+        }
+        while (true) {
+            EventWriter writer = writers.computeIfAbsent(eventId, EventWriter::new);
+            if (writer.execute(kind, task)) {
+                return;
+            }
+            // Removed as idle since it was looked up
+            writers.remove(eventId, writer);
+        }
+    }
+
+    private Runnable decorate(Runnable task) {
+        Runnable decorated = task;
+        for (TaskDecorator taskDecorator : taskDecorators) {
+            decorated = taskDecorator.decorate(decorated);
+        }
+        return decorated;
+    }
+
+    private enum Kind {
+        // Guests arriving and leaving, run first
+        CHECK_IN,
+        // Changes made by clients, turned away while too many are waiting
+        CHANGE,
+        // Work of the application's own, never turned away
+        INTERNAL
+    }
+
+    /**
+     * The writer thread of an event, with a count of the changes queued or running on it so that it is only removed
+     * when it has none.
+     */
+    private final class EventWriter {
+        private final String eventId;
+        private final ThreadPoolExecutor executor;
+        private int pending;
+        private int waitingChanges;
+        private long queued;
+        private long lastChange = System.nanoTime();
+        private boolean removed;
+
+        private EventWriter(String eventId) {
+            this.eventId = eventId;
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(() -> {
+                    currentEvent.set(eventId);
+                    runnable.run();
+                }, "party-event-" + eventId);
+                thread.setDaemon(true);
+                return thread;
+            };
+            this.executor = new ThreadPoolExecutor(1, 1, idleTimeout.toMillis(), TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Queues the task, unless the writer has been removed.
+         */
+        private synchronized boolean execute(Kind kind, Runnable task) {
+            if (removed) {
+                return false;
+            }
+            if (kind == Kind.CHANGE) {
+                if (waitingChanges >= maxWaitingChanges) {
+                    throw new EventBusyException("Party event " + eventId + " is busy with other changes, please try again shortly");
+                }
+                waitingChanges++;
+            }
+            pending++;
+            lastChange = System.nanoTime();
+            executor.execute(new QueuedTask(kind == Kind.CHECK_IN, queued++, () -> {
+                started(kind);
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                }
+            }));
+            return true;
+        }
+
+        private synchronized void started(Kind kind) {
+            if (kind == Kind.CHANGE) {
+                waitingChanges--;
+            }
+        }
+
+        private synchronized void finished() {
+            pending--;
+            lastChange = System.nanoTime();
+        }
+
+        private synchronized boolean removeIfIdle(long now) {
+            if (pending > 0 || now - lastChange < idleEventTimeoutNanos) {
+                return false;
+            }
+            removed = true;
+            executor.shutdown();
+            return true;
+        }
+    }
+
+    /**
+     * A task waiting for a writer, which takes check-ins first and otherwise tasks in the order they were queued.
+     */
+    private record QueuedTask(boolean checkIn, long number, Runnable task) implements Runnable, Comparable<QueuedTask> {
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(QueuedTask other) {
+            if (checkIn != other.checkIn) {
+                return checkIn ? -1 : 1;
+            }
+            return Long.compare(number, other.number);
+        }
+    }
+}
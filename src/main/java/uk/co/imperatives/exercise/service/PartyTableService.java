@@ -2,21 +2,20 @@ package uk.co.imperatives.exercise.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import uk.co.imperatives.exercise.dto.GuestListEntryDto;
-import uk.co.imperatives.exercise.dto.GuestsAtTable;
+import uk.co.imperatives.exercise.exception.NoAvailabilityException;
+import uk.co.imperatives.exercise.exception.SeatHoldNotFoundException;
 import uk.co.imperatives.exercise.exception.TableAlreadyExistsException;
 import uk.co.imperatives.exercise.exception.TableInUseException;
 import uk.co.imperatives.exercise.exception.TableNotFoundException;
-import uk.co.imperatives.exercise.model.GuestListEntry;
 import uk.co.imperatives.exercise.model.PartyTable;
-import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.model.PartyTableId;
 import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.repository.PartyTableView;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Service
 @Slf4j
@@ -24,56 +23,73 @@ import java.util.stream.StreamSupport;
 public class PartyTableService implements PartyTableServiceInterface {
 
     private final PartyTableRepository partyTableRepository;
-    private final GuestListEntryRepository guestListEntryRepository;
+    private final SeatHoldRegistry seatHolds;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataVersions dataVersions;
+    private final SeatingChart seatingChart;
 
     @Override
     @Transactional
-    public PartyTable addTable(int noOfSeats) {
+    public PartyTable addTable(String eventId, int noOfSeats) {
         if (noOfSeats <= 0) throw new IllegalArgumentException("Number of seats should be a number bigger than zero");
 
         // find next free table number
         int tableNo = 1;
 
-        while (partyTableRepository.existsById(tableNo)) {
+        while (partyTableRepository.existsById(new PartyTableId(eventId, tableNo))) {
             tableNo++;
         }
 
-        return partyTableRepository.save(PartyTable.builder().number(tableNo).noOfSeats(noOfSeats).noOfSeatsAllocated(0).build());
+        dataVersions.tablesChanged(eventId);
+        var newTable = partyTableRepository.save(PartyTable.builder().eventId(eventId).number(tableNo).noOfSeats(noOfSeats).noOfSeatsAllocated(0).build());
+        seatingChart.tableAdded(eventId, tableNo);
+        eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, tableNo));
+        return newTable;
     }
 
     @Override
     @Transactional
-    public PartyTable addTable(int tableNumber, int noOfSeats) {
+    public PartyTable addTable(String eventId, int tableNumber, int noOfSeats) {
         if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
         if (noOfSeats <= 0) throw new IllegalArgumentException("Number of seats should be a number bigger than zero");
 
         // Check if a table with the same number already exists
-        if (partyTableRepository.existsById(tableNumber)) {
+        if (partyTableRepository.existsById(new PartyTableId(eventId, tableNumber))) {
             throw new TableAlreadyExistsException("Table with number " + tableNumber + " already exists.");
         }
 
         // Proceed to save the new table
         PartyTable newTable = PartyTable.builder()
+                .eventId(eventId)
                 .number(tableNumber)
                 .noOfSeats(noOfSeats)
                 .noOfSeatsAllocated(0)
                 .build();
 
-        return partyTableRepository.save(newTable);
+        dataVersions.tablesChanged(eventId);
+        var savedTable = partyTableRepository.save(newTable);
+        seatingChart.tableAdded(eventId, tableNumber);
+        eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, tableNumber));
+        return savedTable;
     }
 
+    /**
+     * Read from the primary rather than the read replica. The tables are tagged with the primary's versions, so tables
+     * read from a replica that is behind would be given the tag of newer data, and clients sending it back would be
+     * told nothing has changed until the tables change again.
+     */
     @Override
-    @Transactional(readOnly = true)
-    public List<PartyTable> getAllTables() {
-        return StreamSupport.stream(partyTableRepository.findAll().spliterator(), false).collect(Collectors.toList());
+    @Transactional
+    public List<PartyTableView> getAllTables(String eventId) {
+        return partyTableRepository.findTableViewsByEventId(eventId);
     }
 
     @Override
     @Transactional
-    public void removeTable(int tableNumber) {
+    public void removeTable(String eventId, int tableNumber) {
         if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
 
-        PartyTable table = partyTableRepository.findById(tableNumber)
+        PartyTable table = partyTableRepository.findById(new PartyTableId(eventId, tableNumber))
                 .orElseThrow(() -> new TableNotFoundException("Table with number " + tableNumber + " not found"));
 
         // Check if the table has allocated seats
@@ -81,120 +97,208 @@ public class PartyTableService implements PartyTableServiceInterface {
             throw new TableInUseException("Cannot delete table with allocated seats");
         }
 
+        if (table.getNoOfSeatsHeld() > 0) {
+            throw new TableInUseException("Cannot delete table with held seats");
+        }
+
         // Proceed with deletion if no allocated seats
-        partyTableRepository.deleteById(tableNumber);
+        dataVersions.tablesChanged(eventId);
+        partyTableRepository.deleteById(new PartyTableId(eventId, tableNumber));
+        seatingChart.tableRemoved(eventId, tableNumber);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getTableWithAvailableSeating(String eventId, int noOfSeats) {
+        var selectionEvent = new TableSelectionEvent();
+        selectionEvent.begin();
+
+        var tables = partyTableRepository.findAllByEventId(eventId);
+        int chosenTable = tables.stream()
+                .filter(table -> table.getUnAllocatedSeats() >= noOfSeats)
+                .findAny()
+                .map(PartyTable::getNumber)
+                .orElse(0);
+
+        selectionEvent.end();
+        if (selectionEvent.shouldCommit()) {
+            // Counted only when recording, as the search itself stops at the first table found
+            selectionEvent.eventId = eventId;
+            selectionEvent.seatsWanted = noOfSeats;
+            selectionEvent.tables = tables.size();
+            selectionEvent.candidates = (int) tables.stream().filter(table -> table.getUnAllocatedSeats() >= noOfSeats).count();
+            selectionEvent.chosenTable = chosenTable;
+            selectionEvent.commit();
+        }
+        return chosenTable;
+    }
+
+    /**
+     * The seats to take at each of the fewest adjacent tables that together can seat the party, or an empty list if
+     * there are none, for a party too large for any one table.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TableSeats> getAdjacentTablesWithAvailableSeating(String eventId, int noOfSeats) {
+        var tables = new ArrayList<>(partyTableRepository.findAllByEventId(eventId));
+        tables.sort(Comparator.comparingInt(PartyTable::getNumber));
+        return AdjacentTableSearch.fewestTables(tables, noOfSeats);
     }
 
+    /**
+     * The seats for a party at any one table with enough availability, or else split across the fewest adjacent
+     * tables that can seat it. Empty if the party cannot be seated.
+     */
     @Override
     @Transactional(readOnly = true)
-    public int getTableWithAvailableSeating(int noOfSeats) {
-        var tableOptional =
-                StreamSupport.stream(partyTableRepository.findAll().spliterator(), false)
-                        .filter(table -> table.getUnAllocatedSeats() >= noOfSeats)
-                        .findAny();
+    public List<TableSeats> findSeats(String eventId, int noOfSeats) {
+        int tableWithAvailability = getTableWithAvailableSeating(eventId, noOfSeats);
+        if (tableWithAvailability != 0) {
+            return List.of(new TableSeats(tableWithAvailability, noOfSeats));
+        }
+        return getAdjacentTablesWithAvailableSeating(eventId, noOfSeats);
+    }
 
-        return tableOptional.map(PartyTable::getNumber).orElse(0);
+    /**
+     * The largest party that {@link #findSeats} could seat, at one table or across adjacent tables.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public int getLargestPartyWithAvailableSeating(String eventId) {
+        var tables = new ArrayList<>(partyTableRepository.findAllByEventId(eventId));
+        tables.sort(Comparator.comparingInt(PartyTable::getNumber));
+        return AdjacentTableSearch.largestParty(tables);
     }
 
     @Override
     @Transactional
-    public void decreaseOccupancy(int tableNumber, int noOfSeats) {
+    public void decreaseOccupancy(String eventId, int tableNumber, int noOfSeats) {
         if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
 
-        PartyTable table = partyTableRepository.findById(tableNumber)
+        PartyTable table = partyTableRepository.findById(new PartyTableId(eventId, tableNumber))
                 .orElseThrow(() -> new TableNotFoundException("Table with number " + tableNumber + " not found"));
 
         table.setNoOfSeatsAllocated(table.getNoOfSeatsAllocated() - noOfSeats);
         partyTableRepository.save(table);
+        dataVersions.tablesChanged(eventId);
+        eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, tableNumber));
+        recordOccupancyChange(table, -noOfSeats);
 
     }
 
     @Override
     @Transactional
-    public void increaseOccupancy(int tableNumber, int noOfSeats) {
+    public void increaseOccupancy(String eventId, int tableNumber, int noOfSeats) {
         if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
 
-        PartyTable table = partyTableRepository.findById(tableNumber)
+        PartyTable table = partyTableRepository.findById(new PartyTableId(eventId, tableNumber))
                 .orElseThrow(() -> new TableNotFoundException("Table with number " + tableNumber + " not found"));
 
         table.setNoOfSeatsAllocated(table.getNoOfSeatsAllocated() + noOfSeats);
         partyTableRepository.save(table);
+        dataVersions.tablesChanged(eventId);
+        recordOccupancyChange(table, noOfSeats);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public boolean hasAvailability(int tableNumber, int noOfSeats) {
+    public boolean hasAvailability(String eventId, int tableNumber, int noOfSeats) {
         if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
 
-        PartyTable table = partyTableRepository.findById(tableNumber)
+        PartyTable table = partyTableRepository.findById(new PartyTableId(eventId, tableNumber))
                 .orElseThrow(() -> new TableNotFoundException("Table with number " + tableNumber + " not found"));
 
         return table.getUnAllocatedSeats() >= noOfSeats;
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public int getTotalEmptySeats() {
-        var tableList =
-                StreamSupport.stream(partyTableRepository.findAll().spliterator(), false)
-                        .toList();
+    @Transactional
+    public SeatHold holdSeats(String eventId, int tableNumber, int noOfSeats) {
+        if (tableNumber < 0) throw new IllegalArgumentException("Table number cannot be negative");
+        if (noOfSeats <= 0) throw new IllegalArgumentException("Number of seats should be a number bigger than zero");
+
+        // Hold seats at any table with enough availability if no table was given
+        int tableToHold = tableNumber != 0 ? tableNumber : getTableWithAvailableSeating(eventId, noOfSeats);
+        if (tableToHold == 0) {
+            throw new NoAvailabilityException("No table was found with the required availability");
+        }
+
+        PartyTable table = partyTableRepository.findById(new PartyTableId(eventId, tableToHold))
+                .orElseThrow(() -> new TableNotFoundException("Table with number " + tableToHold + " not found"));
+
+        if (table.getUnAllocatedSeats() < noOfSeats) {
+            throw new NoAvailabilityException("Table " + tableToHold + " does not have the required availability");
+        }
 
-        log.debug("{}", tableList);
+        table.setNoOfSeatsHeld(table.getNoOfSeatsHeld() + noOfSeats);
+        partyTableRepository.save(table);
+        dataVersions.tablesChanged(eventId);
 
-        return StreamSupport.stream(partyTableRepository.findAll().spliterator(), false)
-                .mapToInt(PartyTable::getUnAllocatedSeats)
-                .sum();
+        return seatHolds.add(eventId, tableToHold, noOfSeats);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<GuestsAtTable> getGuestsAtAllTables() {
-        Map<Integer, Collection<GuestListEntryDto>> tableGuestsMap = new HashMap<>();
-
-        guestListEntryRepository.findAll()
-                .forEach(guestListEntry -> {
-                    if (!guestListEntry.hasLeft()) {
-                        var guestsAtTable = tableGuestsMap.computeIfAbsent(guestListEntry.getTableNumber(), k -> new ArrayList<>());
-                        guestsAtTable.add(GuestListEntryDto.toDto(guestListEntry));
-                    }
-                });
+    @Transactional
+    public SeatHold confirmHold(String eventId, String holdId, int noOfSeats) {
+        if (noOfSeats <= 0) throw new IllegalArgumentException("Number of seats should be a number bigger than zero");
 
-        // Add blank entries for empty tables
-        StreamSupport.stream(partyTableRepository.findAll().spliterator(), false)
-                .filter(partyTable -> partyTable.getNoOfSeatsAllocated() == 0)
-                .forEach(partyTable -> {
-                    if (!tableGuestsMap.containsKey(partyTable.getNumber())) {
-                        tableGuestsMap.put(partyTable.getNumber(), Collections.emptyList());
-                    }
-                });
+        SeatHold hold = seatHolds.find(eventId, holdId)
+                .orElseThrow(() -> new SeatHoldNotFoundException("Seat hold " + holdId + " not found, it may have expired"));
+
+        if (noOfSeats > hold.noOfSeats()) {
+            throw new NoAvailabilityException("Seat hold " + holdId + " is only for " + hold.noOfSeats() + " seats");
+        }
+
+        PartyTable table = partyTableRepository.findById(new PartyTableId(eventId, hold.tableNumber()))
+                .orElseThrow(() -> new TableNotFoundException("Table with number " + hold.tableNumber() + " not found"));
+
+        // Allocate the seats that are needed, any others held are given back
+        table.setNoOfSeatsHeld(Math.max(0, table.getNoOfSeatsHeld() - hold.noOfSeats()));
+        table.setNoOfSeatsAllocated(table.getNoOfSeatsAllocated() + noOfSeats);
+        partyTableRepository.save(table);
+        dataVersions.tablesChanged(eventId);
+
+        if (noOfSeats < hold.noOfSeats()) {
+            eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, hold.tableNumber()));
+        }
 
-        return tableGuestsMap
-                .entrySet()
-                .stream()
-                .map(entry -> GuestsAtTable.builder().tableNumber(entry.getKey()).guests(entry.getValue()).build())
-                .collect(Collectors.toList());
+        seatHolds.remove(hold);
+        return hold;
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public GuestsAtTable getGuestsAtTable(int tableNumber) {
-        if (!tableExists(tableNumber)) {
-            throw new TableNotFoundException("Table with number " + tableNumber + " not found");
-        }
+    @Transactional
+    public void releaseHold(String eventId, String holdId) {
+        SeatHold hold = seatHolds.find(eventId, holdId)
+                .orElseThrow(() -> new SeatHoldNotFoundException("Seat hold " + holdId + " not found, it may have expired"));
+
+        partyTableRepository.findById(new PartyTableId(eventId, hold.tableNumber()))
+                .ifPresent(table -> {
+                    table.setNoOfSeatsHeld(Math.max(0, table.getNoOfSeatsHeld() - hold.noOfSeats()));
+                    partyTableRepository.save(table);
+                    dataVersions.tablesChanged(eventId);
+                    eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, hold.tableNumber()));
+                });
 
-        List<GuestListEntryDto> guests =
-                StreamSupport.stream(guestListEntryRepository.findAll().spliterator(), false)
-                        .filter(guestListEntry -> guestListEntry.getTableNumber() == tableNumber)
-                        .filter(guestListEntry -> !guestListEntry.hasLeft())
-                        .map(GuestListEntryDto::toDto)
-                        .toList();
+        seatHolds.remove(hold);
+    }
 
-        return GuestsAtTable.builder().tableNumber(tableNumber).guests(guests).build();
+    @Override
+    @Transactional(readOnly = true)
+    public int getTotalEmptySeats(String eventId) {
+        return (int) partyTableRepository.countUnAllocatedSeats(eventId);
     }
 
-    private boolean tableExists(int tableNumber) {
-        if (tableNumber <= 0) throw new IllegalArgumentException("Table number should be a number bigger than zero");
-        return partyTableRepository.existsById(tableNumber);
+    private static void recordOccupancyChange(PartyTable table, int seatsChanged) {
+        var occupancyEvent = new OccupancyChangeEvent();
+        if (occupancyEvent.shouldCommit()) {
+            occupancyEvent.eventId = table.getEventId();
+            occupancyEvent.tableNumber = table.getNumber();
+            occupancyEvent.seatsChanged = seatsChanged;
+            occupancyEvent.seatsAllocated = table.getNoOfSeatsAllocated();
+            occupancyEvent.seats = table.getNoOfSeats();
+            occupancyEvent.commit();
+        }
     }
 
 }
@@ -1,32 +1,40 @@
 package uk.co.imperatives.exercise.service;
 
-import uk.co.imperatives.exercise.dto.GuestsAtTable;
 import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.repository.PartyTableView;
 
 import java.util.List;
 
 public interface PartyTableServiceInterface {
-    PartyTable addTable(int noOfSeats);
+    PartyTable addTable(String eventId, int noOfSeats);
 
-    PartyTable addTable(int tableNumber, int noOfSeats);
+    PartyTable addTable(String eventId, int tableNumber, int noOfSeats);
 
-    List<PartyTable> getAllTables();
+    List<PartyTableView> getAllTables(String eventId);
 
-    void removeTable(int tableNumber);
+    void removeTable(String eventId, int tableNumber);
 
-    int getTableWithAvailableSeating(int noOfSeats);
+    int getTableWithAvailableSeating(String eventId, int noOfSeats);
 
-    void decreaseOccupancy(int table, int noOfSeats);
+    List<TableSeats> getAdjacentTablesWithAvailableSeating(String eventId, int noOfSeats);
 
-    void increaseOccupancy(int table, int noOfSeats);
+    List<TableSeats> findSeats(String eventId, int noOfSeats);
 
-    boolean hasAvailability(int table, int noOfSeats);
+    int getLargestPartyWithAvailableSeating(String eventId);
 
-    int getTotalEmptySeats();
+    void decreaseOccupancy(String eventId, int table, int noOfSeats);
 
-    List<GuestsAtTable> getGuestsAtAllTables();
+    void increaseOccupancy(String eventId, int table, int noOfSeats);
 
-    GuestsAtTable getGuestsAtTable(int tableNumber);
+    boolean hasAvailability(String eventId, int table, int noOfSeats);
+
+    SeatHold holdSeats(String eventId, int tableNumber, int noOfSeats);
+
+    SeatHold confirmHold(String eventId, String holdId, int noOfSeats);
+
+    void releaseHold(String eventId, String holdId);
+
+    int getTotalEmptySeats(String eventId);
 
 }
 
@@ -0,0 +1,10 @@
+package uk.co.imperatives.exercise.service;
+
+import java.time.Instant;
+
+/**
+ * Seats held at a table for a guest who has not been added to the guest list yet. The seats are released again
+ * if the hold is not confirmed before it expires.
+ */
+public record SeatHold(String id, String eventId, int tableNumber, int noOfSeats, Instant expiresAt) {
+}
@@ -0,0 +1,4 @@
+package uk.co.imperatives.exercise.service;
+
+public record SeatHoldExpiredEvent(SeatHold hold) {
+}
@@ -0,0 +1,43 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+
+/**
+ * Gives back the seats of holds that were not confirmed in time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatHoldExpiry {
+    private final SeatHoldRegistry seatHolds;
+    private final PartyTableServiceInterface partyTableService;
+    private final PartyTableRepository partyTableRepository;
+    private final PartyEventExecutor partyEventExecutor;
+
+    @EventListener
+    public void onSeatHoldExpired(SeatHoldExpiredEvent event) {
+        var hold = event.hold();
+        partyEventExecutor.submit(hold.eventId(), () -> {
+            // The guest may have confirmed the hold while this was waiting for the writer thread
+            if (seatHolds.find(hold.eventId(), hold.id()).isPresent()) {
+                partyTableService.releaseHold(hold.eventId(), hold.id());
+            }
+        });
+    }
+
+    /**
+     * Holds are only kept in memory, so seats still held when the application last stopped are released on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void releaseSeatsHeldBeforeStartup() {
+        int tables = partyTableRepository.releaseAllHeldSeats();
+        if (tables > 0) {
+            log.info("Released seats held at {} tables before startup", tables);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the outstanding seat holds and publishes a {@link SeatHoldExpiredEvent} for each one that reaches the end
+ * of its time to live without being confirmed or released.
+ * <p>
+ * Expiry is driven by a {@link HashedTimingWheel}, so each tick only looks at the holds due in that tick however
+ * many holds are outstanding. The seats themselves are counted against the table by {@link PartyTableService}.
+ */
+@Slf4j
+@Component
+public class SeatHoldRegistry implements DisposableBean {
+    private static final int MAX_WHEEL_SIZE = 1 << 16;
+
+    private final Map<String, HeldSeats> holds = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration timeToLive;
+    private final HashedTimingWheel<SeatHold> expiryWheel;
+    private final ScheduledExecutorService ticker;
+
+    public SeatHoldRegistry(ApplicationEventPublisher eventPublisher,
+                            @Value("${party.seat-holds.ttl:PT5M}") Duration timeToLive,
+                            @Value("${party.seat-holds.tick:PT1S}") Duration tick) {
+        this.eventPublisher = eventPublisher;
+        this.timeToLive = timeToLive;
+
+        // Enough buckets for a hold to expire within one turn of the wheel
+        int wheelSize = (int) Math.min(timeToLive.toNanos() / tick.toNanos() + 1, MAX_WHEEL_SIZE);
+        this.expiryWheel = new HashedTimingWheel<>(tick, wheelSize, System.nanoTime());
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::expireHolds, tick.toNanos(), tick.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    SeatHold add(String eventId, int tableNumber, int noOfSeats) {
+        var hold = new SeatHold(UUID.randomUUID().toString(), eventId, tableNumber, noOfSeats, Instant.now().plus(timeToLive));
+        var timeout = expiryWheel.schedule(hold, System.nanoTime() + timeToLive.toNanos());
+        holds.put(hold.id(), new HeldSeats(hold, timeout));
+        return hold;
+    }
+
+    public Optional<SeatHold> find(String eventId, String holdId) {
+        return Optional.ofNullable(holds.get(holdId))
+                .map(HeldSeats::hold)
+                .filter(hold -> hold.eventId().equals(eventId));
+    }
+
+    void remove(SeatHold hold) {
+        var heldSeats = holds.remove(hold.id());
+        if (heldSeats != null) {
+            expiryWheel.cancel(heldSeats.timeout());
+        }
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    @Override
+    public void destroy() {
+        ticker.shutdownNow();
+    }
+
+    private void expireHolds() {
+        try {
+            for (SeatHold hold : expiryWheel.advance(System.nanoTime())) {
+                eventPublisher.publishEvent(new SeatHoldExpiredEvent(hold));
+            }
+        } catch (RuntimeException e) {
+            // Keep ticking, an exception would cancel the scheduled task
+            log.error("Failed to expire seat holds", e);
+        }
+    }
+
+    private record HeldSeats(SeatHold hold, HashedTimingWheel.Timeout<SeatHold> timeout) {
+    }
+}
@@ -0,0 +1,276 @@
+package uk.co.imperatives.exercise.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.dto.GuestListEntryDto;
+import uk.co.imperatives.exercise.dto.GuestsAtTable;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.GuestView;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The guests seated at each table of each party event, kept in memory so the seating chart can be read without
+ * going to the database.
+ * <p>
+ * The chart of an event is read from the database the first time it is asked for, and is then kept up to date by
+ * the services as they change tables and guests. Each change is applied once it has been committed, by building a
+ * new {@link Snapshot} that shares everything but the changed table with the last one and swapping it in. Readers
+ * only ever see a whole snapshot. The JSON for each table is written once when the table changes, and the JSON for
+ * the whole chart once per snapshot, so reading the chart as JSON usually allocates nothing.
+ * <p>
+ * Like the other changes to an event, the chart is loaded and changed on the event's writer thread, so a change
+ * cannot be lost to a chart being loaded at the same time. The chart of an event with no tables is not kept, and
+ * the chart of an event that has had no changes for a while is forgotten, so asking for the charts of events that do
+ * not exist keeps nothing in memory.
+ */
+@Component
+public class SeatingChart {
+    private final PartyTableRepository partyTableRepository;
+    private final GuestListEntryRepository guestListEntryRepository;
+    private final PartyEventExecutor partyEventExecutor;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, EventChart> charts = new ConcurrentHashMap<>();
+
+    public SeatingChart(PartyTableRepository partyTableRepository, GuestListEntryRepository guestListEntryRepository,
+                        PartyEventExecutor partyEventExecutor, ObjectMapper objectMapper) {
+        this.partyTableRepository = partyTableRepository;
+        this.guestListEntryRepository = guestListEntryRepository;
+        this.partyEventExecutor = partyEventExecutor;
+        this.objectMapper = objectMapper;
+        partyEventExecutor.whenEventIdle(this::reload);
+    }
+
+    /**
+     * The current seating chart of the event.
+     */
+    public Snapshot snapshot(String eventId) {
+        EventChart chart = charts.get(eventId);
+        if (chart == null) {
+            if (!partyEventExecutor.hasWriter(eventId) && !partyTableRepository.existsByEventId(eventId)) {
+                return Snapshot.EMPTY;
+            }
+            chart = partyEventExecutor.executeInternal(eventId, () -> charts.computeIfAbsent(eventId, this::load));
+        }
+        return chart.snapshot;
+    }
+
+    /**
+     * Forgets the chart of the event so that it is read from the database again, for when its tables or guests have
+     * been changed other than through the services.
+     */
+    public void reload(String eventId) {
+        charts.remove(eventId);
+    }
+
+    public void tableAdded(String eventId, int tableNumber) {
+        afterCommit(eventId, chart -> chart.update(tableNumber, guests -> guests));
+    }
+
+    public void tableRemoved(String eventId, int tableNumber) {
+        afterCommit(eventId, chart -> chart.update(tableNumber, guests -> null));
+    }
+
+    /**
+     * Seats the guest at their table, or at each of their tables if their party is split across tables, moving them
+     * from any tables they were at before, or takes them off the chart if they have left.
+     */
+    public void guestSaved(GuestListEntry guest) {
+        GuestListEntryDto guestDto = GuestListEntryDto.toDto(guest);
+        afterCommit(guest.getEventId(), chart -> {
+            guestRemoved(chart, guest.getName());
+            if (!guest.hasLeft()) {
+                var tables = new GuestTables(guest.getTableNumber(), guest.getLastTableNumber());
+                chart.guestTables.put(guest.getName(), tables);
+                for (int tableNumber = tables.first(); tableNumber <= tables.last(); tableNumber++) {
+                    chart.update(tableNumber, guests -> {
+                        List<GuestListEntryDto> seated = new ArrayList<>(guests);
+                        seated.add(guestDto);
+                        return seated;
+                    });
+                }
+            }
+        });
+    }
+
+    public void guestRemoved(String eventId, String guestName) {
+        afterCommit(eventId, chart -> guestRemoved(chart, guestName));
+    }
+
+    private static void guestRemoved(EventChart chart, String guestName) {
+        GuestTables tables = chart.guestTables.remove(guestName);
+        if (tables != null) {
+            for (int tableNumber = tables.first(); tableNumber <= tables.last(); tableNumber++) {
+                chart.update(tableNumber, guests -> guests.stream().filter(guest -> !guest.getName().equals(guestName)).toList());
+            }
+        }
+    }
+
+    /**
+     * Changes are applied to the chart once committed, and only to charts that have been loaded, as a chart loaded
+     * later reads them from the database.
+     */
+    private void afterCommit(String eventId, Consumer<EventChart> change) {
+        AfterCommit.run(AfterCommit.READ_MODELS, () -> {
+            EventChart chart = charts.get(eventId);
+            if (chart != null) {
+                change.accept(chart);
+            }
+        });
+    }
+
+    private EventChart load(String eventId) {
+        Map<Integer, List<GuestListEntryDto>> guestsByTable = new TreeMap<>();
+        partyTableRepository.findTableViewsByEventId(eventId)
+                .forEach(table -> guestsByTable.put(table.number(), new ArrayList<>()));
+
+        EventChart chart = new EventChart();
+        for (GuestView guest : guestListEntryRepository.findGuestViewsByEventId(eventId)) {
+            if (guest.hasLeft()) {
+                continue;
+            }
+            GuestListEntryDto guestDto = GuestListEntryDto.toDto(guest);
+            for (int tableNumber = guest.tableNumber(); tableNumber <= guest.lastTableNumber(); tableNumber++) {
+                List<GuestListEntryDto> guests = guestsByTable.get(tableNumber);
+                if (guests != null) {
+                    guests.add(guestDto);
+                }
+            }
+            chart.guestTables.put(guest.name(), new GuestTables(guest.tableNumber(), guest.lastTableNumber()));
+        }
+
+        chart.snapshot = new Snapshot(guestsByTable.entrySet().stream()
+                .map(entry -> tableView(entry.getKey(), entry.getValue()))
+                .toArray(TableView[]::new));
+        return chart;
+    }
+
+    private TableView tableView(int tableNumber, List<GuestListEntryDto> guests) {
+        List<GuestListEntryDto> seated = List.copyOf(guests);
+        GuestsAtTable guestsAtTable = GuestsAtTable.builder().tableNumber(tableNumber).guests(seated).build();
+        try {
+            return new TableView(guestsAtTable, seated, objectMapper.writeValueAsBytes(guestsAtTable));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write table " + tableNumber + " of the seating chart", e);
+        }
+    }
+
+    private final class EventChart {
+        private final Map<String, GuestTables> guestTables = new ConcurrentHashMap<>();
+        private volatile Snapshot snapshot;
+
+        /**
+         * Replaces the guests at the table with the result of the change, adding the table if it is new and removing
+         * it if the change returns null.
+         */
+        private synchronized void update(int tableNumber, UnaryOperator<List<GuestListEntryDto>> change) {
+            TableView[] tables = snapshot.tables;
+            int index = snapshot.indexOf(tableNumber);
+            List<GuestListEntryDto> guests = index >= 0 ? tables[index].guests() : List.of();
+            List<GuestListEntryDto> changedGuests = change.apply(guests);
+
+            TableView[] changedTables;
+            if (changedGuests == null) {
+                if (index < 0) {
+                    return;
+                }
+                changedTables = new TableView[tables.length - 1];
+                System.arraycopy(tables, 0, changedTables, 0, index);
+                System.arraycopy(tables, index + 1, changedTables, index, tables.length - index - 1);
+            } else if (index >= 0) {
+                changedTables = tables.clone();
+                changedTables[index] = tableView(tableNumber, changedGuests);
+            } else {
+                int insertAt = -index - 1;
+                changedTables = new TableView[tables.length + 1];
+                System.arraycopy(tables, 0, changedTables, 0, insertAt);
+                changedTables[insertAt] = tableView(tableNumber, changedGuests);
+                System.arraycopy(tables, insertAt, changedTables, insertAt + 1, tables.length - insertAt);
+            }
+            snapshot = new Snapshot(changedTables);
+        }
+    }
+
+    /**
+     * The first and last of the adjacent tables a guest is seated at, the same table unless their party is split.
+     */
+    private record GuestTables(int first, int last) {
+    }
+
+    private record TableView(GuestsAtTable guestsAtTable, List<GuestListEntryDto> guests, byte[] json) {
+    }
+
+    /**
+     * The seating chart of an event at one point in time, ordered by table number. Snapshots never change.
+     */
+    public static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new TableView[0]);
+
+        private final TableView[] tables;
+        private volatile byte[] json;
+
+        private Snapshot(TableView[] tables) {
+            this.tables = tables;
+        }
+
+        public List<GuestsAtTable> guestsAtTables() {
+            return Arrays.stream(tables).map(TableView::guestsAtTable).toList();
+        }
+
+        public Optional<GuestsAtTable> guestsAtTable(int tableNumber) {
+            int index = indexOf(tableNumber);
+            return index >= 0 ? Optional.of(tables[index].guestsAtTable()) : Optional.empty();
+        }
+
+        /**
+         * The whole chart as a JSON array, written from the JSON of each table the first time it is asked for.
+         */
+        public byte[] json() {
+            byte[] chartJson = json;
+            if (chartJson == null) {
+                var out = new ByteArrayOutputStream(Arrays.stream(tables).mapToInt(table -> table.json().length + 1).sum() + 2);
+                out.write('[');
+                for (int i = 0; i < tables.length; i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    out.writeBytes(tables[i].json());
+                }
+                out.write(']');
+                chartJson = out.toByteArray();
+                json = chartJson;
+            }
+            return chartJson;
+        }
+
+        public Optional<byte[]> json(int tableNumber) {
+            int index = indexOf(tableNumber);
+            return index >= 0 ? Optional.of(tables[index].json()) : Optional.empty();
+        }
+
+        private int indexOf(int tableNumber) {
+            int low = 0;
+            int high = tables.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleNumber = tables[middle].guestsAtTable().getTableNumber();
+                if (middleNumber < tableNumber) {
+                    low = middle + 1;
+                } else if (middleNumber > tableNumber) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
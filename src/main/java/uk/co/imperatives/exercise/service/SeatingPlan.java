@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.service;
+
+import java.util.List;
+
+/**
+ * The guests to move to meet the groups asked for, and how many of the groups would still not be met.
+ */
+public record SeatingPlan(List<Move> moves, int unmetTogether, int unmetApart, long changesTried) {
+
+    /**
+     * A guest's party of {@code noOfGuests} moving from one table to another.
+     */
+    public record Move(String guestName, int fromTable, int toTable, int noOfGuests) {
+    }
+}
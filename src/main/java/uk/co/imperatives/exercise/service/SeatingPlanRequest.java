@@ -0,0 +1,54 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.List;
+
+@ToString
+@Getter
+public class SeatingPlanRequest {
+    private final List<List<String>> together;  // groups of guests to seat at the same table
+    private final List<List<String>> apart;  // groups of guests to seat at different tables
+    private final Duration timeLimit;  // null by default, meaning the longest allowed
+
+    @Builder
+    public SeatingPlanRequest(List<List<String>> together, List<List<String>> apart, Duration timeLimit) {
+        this.together = validGroups(together);
+        this.apart = validGroups(apart);
+
+        if (this.together.isEmpty() && this.apart.isEmpty()) {
+            throw new IllegalArgumentException("At least one group of guests to seat together or apart is needed");
+        }
+
+        if (timeLimit != null && (timeLimit.isNegative() || timeLimit.isZero())) {
+            throw new IllegalArgumentException("time limit must be greater than zero");
+        }
+
+        this.timeLimit = timeLimit;
+    }
+
+    public boolean hasTimeLimit() {
+        return timeLimit != null;
+    }
+
+    private static List<List<String>> validGroups(List<List<String>> groups) {
+        if (groups == null) {
+            return List.of();
+        }
+        for (List<String> group : groups) {
+            if (group == null || group.size() < 2) {
+                throw new IllegalArgumentException("Each group must have at least two guests");
+            }
+            if (group.stream().anyMatch(name -> name == null || name.isBlank())) {
+                throw new IllegalArgumentException("Guest names in a group cannot be null or empty");
+            }
+            if (group.stream().map(String::trim).distinct().count() < group.size()) {
+                throw new IllegalArgumentException("A guest cannot be in the same group twice");
+            }
+        }
+        return groups.stream().map(group -> group.stream().map(String::trim).toList()).toList();
+    }
+}
@@ -0,0 +1,246 @@
+package uk.co.imperatives.exercise.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.co.imperatives.exercise.exception.GuestNotFoundException;
+import uk.co.imperatives.exercise.exception.SeatingPlanBusyException;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.repository.PartyTableView;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Works out which guests to move so that groups of guests sit together or apart, and moves them.
+ * <p>
+ * A plan is worked out by the {@link SeatingSolver} from the guests in the {@link GuestStore} and the tables in the
+ * database, off the event's writer thread, so that other changes to the event carry on while it is searching. Each
+ * table can take the guests being planned in its seats that are neither held nor taken by a party split across
+ * tables, who stay where they are, as do guests who have arrived. The plan is then applied in one transaction on the
+ * writer thread, after checking that none of the guests it moves and none of their tables have changed in the
+ * meantime.
+ * <p>
+ * Only one plan is worked out at a time, so that each of its searches has a solver thread to itself from the moment
+ * its time limit starts. A plan asked for while another is being worked out is turned away rather than queued behind
+ * it, where its time would run out before its searches had started.
+ */
+@Slf4j
+@Service
+public class SeatingPlanService implements SeatingPlanServiceInterface {
+    private final PartyTableRepository partyTableRepository;
+    private final GuestListEntryRepository guestListEntryRepository;
+    private final GuestStore guestStore;
+    private final DataVersions dataVersions;
+    private final SeatingChart seatingChart;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration maxTimeLimit;
+    private final int threads;
+    private final ExecutorService solvers;
+    private final Semaphore planning = new Semaphore(1);
+
+    public SeatingPlanService(PartyTableRepository partyTableRepository,
+                              GuestListEntryRepository guestListEntryRepository,
+                              GuestStore guestStore,
+                              DataVersions dataVersions,
+                              SeatingChart seatingChart,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${party.seating-plan.time-limit:PT2S}") Duration maxTimeLimit,
+                              @Value("${party.seating-plan.threads:0}") int threads) {
+        this.partyTableRepository = partyTableRepository;
+        this.guestListEntryRepository = guestListEntryRepository;
+        this.guestStore = guestStore;
+        this.dataVersions = dataVersions;
+        this.seatingChart = seatingChart;
+        this.eventPublisher = eventPublisher;
+        this.maxTimeLimit = maxTimeLimit;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger solverNumber = new AtomicInteger();
+        this.solvers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "seating-plan-" + solverNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public SeatingPlan plan(String eventId, SeatingPlanRequest request) {
+        if (!planning.tryAcquire()) {
+            throw new SeatingPlanBusyException("Another seating plan is being worked out, please try again shortly");
+        }
+        try {
+            return planAlone(eventId, request);
+        } finally {
+            planning.release();
+        }
+    }
+
+    private SeatingPlan planAlone(String eventId, SeatingPlanRequest request) {
+        List<PartyTableView> tables = partyTableRepository.findTableViewsByEventId(eventId);
+        Map<Integer, Integer> tableIndexes = new HashMap<>();
+        for (int i = 0; i < tables.size(); i++) {
+            tableIndexes.put(tables.get(i).number(), i);
+        }
+
+        // The guests still seated at a single table are planned, everyone else keeps the seats they have
+        GuestStore.Guests guests = guestStore.allGuests(eventId);
+        List<Integer> plannedRows = new ArrayList<>();
+        Map<String, Integer> guestIndexes = new HashMap<>();
+        Set<String> splitAcrossTables = new HashSet<>();
+        for (int row = 0; row < guests.size(); row++) {
+            if (guests.timeLeft(row) != null || !tableIndexes.containsKey(guests.tableNumber(row))) {
+                continue;
+            }
+            if (guests.lastTableNumber(row) != 0) {
+                splitAcrossTables.add(guests.name(row));
+            } else {
+                guestIndexes.put(guests.name(row), plannedRows.size());
+                plannedRows.add(row);
+            }
+        }
+
+        String[] names = new String[plannedRows.size()];
+        int[] startTables = new int[plannedRows.size()];
+        int[] partySizes = new int[plannedRows.size()];
+        boolean[] fixed = new boolean[plannedRows.size()];
+        int[] plannedSeats = new int[tables.size()];
+        for (int guest = 0; guest < plannedRows.size(); guest++) {
+            int row = plannedRows.get(guest);
+            names[guest] = guests.name(row);
+            startTables[guest] = tableIndexes.get(guests.tableNumber(row));
+            partySizes[guest] = guests.accompanyingGuests(row) + 1;
+            fixed[guest] = guests.timeArrived(row) != null;
+            plannedSeats[startTables[guest]] += partySizes[guest];
+        }
+        int[] capacities = new int[tables.size()];
+        for (int i = 0; i < tables.size(); i++) {
+            PartyTableView table = tables.get(i);
+            int otherSeats = table.noOfSeatsAllocated() - plannedSeats[i];
+            capacities[i] = table.noOfSeats() - table.noOfSeatsHeld() - otherSeats;
+        }
+
+        var problem = new SeatingSolver.Problem(capacities, partySizes, startTables, fixed,
+                groupIndexes(request.getTogether(), guestIndexes, splitAcrossTables),
+                groupIndexes(request.getApart(), guestIndexes, splitAcrossTables));
+        Duration timeLimit = request.hasTimeLimit() && request.getTimeLimit().compareTo(maxTimeLimit) < 0
+                ? request.getTimeLimit() : maxTimeLimit;
+        var solution = SeatingSolver.solve(problem, timeLimit, threads, solvers, ThreadLocalRandom.current().nextLong());
+
+        List<SeatingPlan.Move> moves = new ArrayList<>();
+        for (int guest = 0; guest < names.length; guest++) {
+            if (solution.tables()[guest] != startTables[guest]) {
+                moves.add(new SeatingPlan.Move(names[guest], tables.get(startTables[guest]).number(),
+                        tables.get(solution.tables()[guest]).number(), partySizes[guest]));
+            }
+        }
+        log.info("Seating plan for event {} moves {} of {} guests, leaving {} together and {} apart groups unmet after {} changes tried",
+                eventId, moves.size(), names.length, solution.unmetTogether(), solution.unmetApart(), solution.changesTried());
+        return new SeatingPlan(moves, solution.unmetTogether(), solution.unmetApart(), solution.changesTried());
+    }
+
+    @Override
+    @Transactional
+    public SeatingPlan apply(String eventId, SeatingPlan plan) {
+        if (plan.moves().isEmpty()) {
+            return plan;
+        }
+
+        // Only the guests moved and the tables they move between are read, however large the event
+        Set<String> names = new HashSet<>();
+        Set<Integer> tableNumbers = new HashSet<>();
+        for (SeatingPlan.Move move : plan.moves()) {
+            names.add(move.guestName());
+            tableNumbers.add(move.fromTable());
+            tableNumbers.add(move.toTable());
+        }
+        Map<String, GuestListEntry> guests = new HashMap<>();
+        guestListEntryRepository.findAllByEventIdAndNameIn(eventId, names).forEach(guest -> guests.put(guest.getName(), guest));
+        Map<Integer, PartyTable> tables = new HashMap<>();
+        partyTableRepository.findAllByEventIdAndNumberIn(eventId, tableNumbers).forEach(table -> tables.put(table.getNumber(), table));
+
+        List<GuestListEntry> movedGuests = new ArrayList<>();
+        Map<Integer, Integer> seatChanges = new TreeMap<>();
+        for (SeatingPlan.Move move : plan.moves()) {
+            GuestListEntry guest = guests.get(move.guestName());
+            if (guest == null || guest.hasArrived() || guest.hasLeft() || guest.seatedAcrossTables()
+                    || guest.getTableNumber() != move.fromTable() || guest.noOfGuests() != move.noOfGuests()) {
+                throw seatingChanged();
+            }
+            guest.moveToTable(move.toTable());
+            movedGuests.add(guest);
+            seatChanges.merge(move.fromTable(), -move.noOfGuests(), Integer::sum);
+            seatChanges.merge(move.toTable(), move.noOfGuests(), Integer::sum);
+        }
+
+        List<PartyTable> changedTables = new ArrayList<>();
+        seatChanges.forEach((tableNumber, change) -> {
+            PartyTable table = tables.get(tableNumber);
+            if (table == null) {
+                throw seatingChanged();
+            }
+            if (change == 0) {
+                return;
+            }
+            table.setNoOfSeatsAllocated(table.getNoOfSeatsAllocated() + change);
+            if (change > 0 && table.getUnAllocatedSeats() < 0) {
+                throw seatingChanged();
+            }
+            changedTables.add(table);
+        });
+
+        dataVersions.tablesChanged(eventId);
+        dataVersions.guestsChanged(eventId);
+        partyTableRepository.saveAll(changedTables);
+        guestListEntryRepository.saveAll(movedGuests);
+        for (GuestListEntry guest : movedGuests) {
+            seatingChart.guestSaved(guest);
+            guestStore.guestSaved(guest);
+        }
+        seatChanges.forEach((tableNumber, change) -> {
+            if (change < 0) {
+                eventPublisher.publishEvent(new SeatsReleasedEvent(eventId, tableNumber));
+            }
+        });
+        return plan;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        solvers.shutdownNow();
+    }
+
+    private static int[][] groupIndexes(List<List<String>> groups, Map<String, Integer> guestIndexes,
+                                        Set<String> splitAcrossTables) {
+        return groups.stream()
+                .map(group -> group.stream()
+                        .mapToInt(name -> {
+                            Integer index = guestIndexes.get(name);
+                            if (index != null) {
+                                return index;
+                            }
+                            if (splitAcrossTables.contains(name)) {
+                                throw new IllegalArgumentException("Guest with name " + name
+                                        + " is seated across tables so cannot be moved by a seating plan");
+                            }
+                            throw new GuestNotFoundException("Guest with name " + name + " not found");
+                        })
+                        .toArray())
+                .toArray(int[][]::new);
+    }
+
+    private static IllegalStateException seatingChanged() {
+        return new IllegalStateException("The seating changed while the plan was being worked out, please try again");
+    }
+}
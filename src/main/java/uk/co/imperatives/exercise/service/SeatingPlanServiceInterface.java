@@ -0,0 +1,11 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.exception.GuestNotFoundException;
+import uk.co.imperatives.exercise.exception.SeatingPlanBusyException;
+
+public interface SeatingPlanServiceInterface {
+
+    SeatingPlan plan(String eventId, SeatingPlanRequest request) throws GuestNotFoundException, SeatingPlanBusyException;
+
+    SeatingPlan apply(String eventId, SeatingPlan plan);
+}
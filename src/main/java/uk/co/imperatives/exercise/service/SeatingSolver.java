@@ -0,0 +1,365 @@
+package uk.co.imperatives.exercise.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Searches for a seating of the guests that keeps the groups that should sit together at one table and the groups
+ * that should be kept apart at different tables, moving as few guests as it can, by simulated annealing.
+ * <p>
+ * Each worker starts from the current seating and repeatedly tries moving a guest to another table, or swapping them
+ * with a guest there when the table is full, never letting a table take more than its seats. A change that makes the
+ * seating no worse is always kept, and one that makes it worse is kept with a chance that falls as the temperature is
+ * lowered over the time allowed, so early on the search can climb out of a poor arrangement and by the end it only
+ * improves. A broken group counts for more than moving every guest, so meeting the groups always comes first. Only
+ * the groups of the guests moved are looked at to cost a change, so a change costs the same however many guests
+ * there are. Workers run in parallel from different random seeds, and the best seating any of them found is used.
+ * <p>
+ * Guests who have arrived are seated and stay where they are, but are still counted in the groups they are in.
+ */
+final class SeatingSolver {
+    // Checking the clock every few thousand changes rather than every change
+    private static final int CHANGES_BETWEEN_CLOCK_CHECKS = 1024;
+    // Once every group is met, the search stops after this many changes without finding a better seating
+    private static final int CHANGES_WITHOUT_IMPROVEMENT = 200_000;
+    private static final double FINAL_TEMPERATURE = 0.1;
+
+    private SeatingSolver() {
+    }
+
+    /**
+     * The guests and tables to seat, by index. A guest's party takes {@code partySizes[guest]} seats, they are now at
+     * table {@code startTables[guest]}, and each table can take {@code capacities[table]} seats of these guests.
+     * {@code together} and {@code apart} are the groups, each an array of guest indexes.
+     */
+    record Problem(int[] capacities, int[] partySizes, int[] startTables, boolean[] fixed, int[][] together,
+                   int[][] apart) {
+    }
+
+    /**
+     * The best seating found, with the table of each guest, how many groups it does not meet, how many guests it
+     * moves and how many changes were tried in all.
+     */
+    record Solution(int[] tables, int unmetTogether, int unmetApart, int guestsMoved, long changesTried) {
+    }
+
+    static Solution solve(Problem problem, Duration timeLimit, int workers, ExecutorService executor, long seed) {
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+        List<Callable<Worker>> searches = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            long workerSeed = seed + worker;
+            searches.add(() -> {
+                var search = new Worker(problem, new SplittableRandom(workerSeed));
+                search.run(deadline);
+                return search;
+            });
+        }
+
+        Worker best = null;
+        long changesTried = 0;
+        try {
+            for (Future<Worker> result : executor.invokeAll(searches)) {
+                Worker search = result.get();
+                changesTried += search.changesTried;
+                if (best == null || search.bestCost < best.bestCost) {
+                    best = search;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted working out the seating plan", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not work out the seating plan", e.getCause());
+        }
+
+        int[] tables = best.bestTables;
+        int guestsMoved = 0;
+        for (int guest = 0; guest < tables.length; guest++) {
+            if (tables[guest] != problem.startTables()[guest]) {
+                guestsMoved++;
+            }
+        }
+        return new Solution(tables, unmet(problem.together(), tables, true), unmet(problem.apart(), tables, false),
+                guestsMoved, changesTried);
+    }
+
+    private static int unmet(int[][] groups, int[] tables, boolean together) {
+        int unmet = 0;
+        for (int[] group : groups) {
+            if (groupCost(group, tables, together, new int[group.length]) > 0) {
+                unmet++;
+            }
+        }
+        return unmet;
+    }
+
+    /**
+     * For a group that should sit together, the members not at the table most of them are at; for a group that
+     * should be kept apart, the members sharing a table with another member.
+     */
+    private static int groupCost(int[] group, int[] tables, boolean together, int[] scratch) {
+        for (int i = 0; i < group.length; i++) {
+            scratch[i] = tables[group[i]];
+        }
+        Arrays.sort(scratch, 0, group.length);
+        int largestRun = 0;
+        int distinct = 0;
+        for (int i = 0, run = 0; i < group.length; i++) {
+            if (i == 0 || scratch[i] != scratch[i - 1]) {
+                distinct++;
+                run = 0;
+            }
+            largestRun = Math.max(largestRun, ++run);
+        }
+        return together ? group.length - largestRun : group.length - distinct;
+    }
+
+    /**
+     * One annealing search. Not thread safe, each is only used by the thread running it.
+     */
+    private static final class Worker {
+        private final Problem problem;
+        private final SplittableRandom random;
+        private final int[][] groups;
+        private final boolean[] togetherGroup;
+        private final int[][] groupsOfGuest;
+        private final int[][] partnersOfGuest;
+        private final int[] movable;
+        private final int[] grouped;
+        // Breaking a group costs more than moving every guest
+        private final long groupWeight;
+
+        private final int[] tables;
+        private final int[] loads;
+        private final int[][] guestsAt;
+        private final int[] guestCounts;
+        private final int[] positions;
+        private final int[] groupCosts;
+        private final int[] scratch;
+        // The groups of the guests being moved, each listed once using a stamp per change, and their costs after it
+        private final int[] touched;
+        private final int[] touchedStamps;
+        private final int[] pendingCosts;
+        private int touchStamp;
+        private long cost;
+
+        private final int[] bestTables;
+        private long bestCost;
+        private long changesTried;
+
+        Worker(Problem problem, SplittableRandom random) {
+            this.problem = problem;
+            this.random = random;
+            int guests = problem.partySizes().length;
+            int tableCount = problem.capacities().length;
+
+            groups = new int[problem.together().length + problem.apart().length][];
+            togetherGroup = new boolean[groups.length];
+            for (int i = 0; i < problem.together().length; i++) {
+                groups[i] = problem.together()[i];
+                togetherGroup[i] = true;
+            }
+            System.arraycopy(problem.apart(), 0, groups, problem.together().length, problem.apart().length);
+
+            int[] groupCountOfGuest = new int[guests];
+            int largestGroup = 0;
+            for (int[] group : groups) {
+                largestGroup = Math.max(largestGroup, group.length);
+                for (int guest : group) {
+                    groupCountOfGuest[guest]++;
+                }
+            }
+            groupsOfGuest = new int[guests][];
+            partnersOfGuest = new int[guests][];
+            for (int guest = 0; guest < guests; guest++) {
+                groupsOfGuest[guest] = new int[groupCountOfGuest[guest]];
+                groupCountOfGuest[guest] = 0;
+            }
+            for (int g = 0; g < groups.length; g++) {
+                for (int guest : groups[g]) {
+                    groupsOfGuest[guest][groupCountOfGuest[guest]++] = g;
+                }
+            }
+            for (int guest = 0; guest < guests; guest++) {
+                int self = guest;
+                partnersOfGuest[guest] = Arrays.stream(groupsOfGuest[guest])
+                        .filter(g -> togetherGroup[g])
+                        .flatMap(g -> Arrays.stream(groups[g]))
+                        .filter(partner -> partner != self)
+                        .toArray();
+            }
+            movable = IntStream.range(0, guests).filter(guest -> !problem.fixed()[guest]).toArray();
+            grouped = Arrays.stream(movable).filter(guest -> groupsOfGuest[guest].length > 0).toArray();
+            groupWeight = guests + 1L;
+
+            tables = problem.startTables().clone();
+            loads = new int[tableCount];
+            guestCounts = new int[tableCount];
+            for (int guest = 0; guest < guests; guest++) {
+                loads[tables[guest]] += problem.partySizes()[guest];
+                guestCounts[tables[guest]]++;
+            }
+            guestsAt = new int[tableCount][];
+            for (int table = 0; table < tableCount; table++) {
+                guestsAt[table] = new int[Math.max(4, guestCounts[table])];
+                guestCounts[table] = 0;
+            }
+            positions = new int[guests];
+            for (int guest = 0; guest < guests; guest++) {
+                addAt(tables[guest], guest);
+            }
+
+            scratch = new int[largestGroup];
+            touched = new int[groups.length];
+            touchedStamps = new int[groups.length];
+            pendingCosts = new int[groups.length];
+            groupCosts = new int[groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                groupCosts[g] = groupCost(groups[g], tables, togetherGroup[g], scratch);
+                cost += groupWeight * groupCosts[g];
+            }
+            bestTables = tables.clone();
+            bestCost = cost;
+        }
+
+        void run(long deadline) {
+            if (movable.length == 0 || problem.capacities().length < 2) {
+                return;
+            }
+            long start = System.nanoTime();
+            double startTemperature = groupWeight;
+            double temperature = startTemperature;
+            long lastImprovement = 0;
+
+            for (long change = 1; ; change++) {
+                if (change % CHANGES_BETWEEN_CLOCK_CHECKS == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    if (bestCost < groupWeight && change - lastImprovement > CHANGES_WITHOUT_IMPROVEMENT) {
+                        break;
+                    }
+                    double elapsed = (double) (now - start) / Math.max(1, deadline - start);
+                    temperature = startTemperature * Math.pow(FINAL_TEMPERATURE / startTemperature, elapsed);
+                }
+                changesTried++;
+                tryChange(temperature);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    System.arraycopy(tables, 0, bestTables, 0, tables.length);
+                    lastImprovement = change;
+                }
+            }
+        }
+
+        private void tryChange(double temperature) {
+            // Half the changes move a guest who is in a group, and most of those move them to another member's table
+            int guest = grouped.length > 0 && random.nextBoolean()
+                    ? grouped[random.nextInt(grouped.length)]
+                    : movable[random.nextInt(movable.length)];
+            int from = tables[guest];
+            int[] partners = partnersOfGuest[guest];
+            int to = partners.length > 0 && random.nextInt(4) != 0
+                    ? tables[partners[random.nextInt(partners.length)]]
+                    : random.nextInt(loads.length);
+            if (to == from) {
+                return;
+            }
+
+            int[] sizes = problem.partySizes();
+            int[] capacities = problem.capacities();
+            int other = -1;
+            if (loads[to] + sizes[guest] > capacities[to]) {
+                // The table is full, so swap with one of its guests if both parties then fit
+                if (guestCounts[to] == 0) {
+                    return;
+                }
+                other = guestsAt[to][random.nextInt(guestCounts[to])];
+                if (problem.fixed()[other]
+                        || loads[to] - sizes[other] + sizes[guest] > capacities[to]
+                        || loads[from] - sizes[guest] + sizes[other] > capacities[from]) {
+                    return;
+                }
+            }
+
+            long delta = movedDelta(guest, from, to) + (other >= 0 ? movedDelta(other, to, from) : 0);
+            int touchedCount = touchGroups(guest, 0);
+            if (other >= 0) {
+                touchedCount = touchGroups(other, touchedCount);
+            }
+
+            tables[guest] = to;
+            if (other >= 0) {
+                tables[other] = from;
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                int g = touched[i];
+                int groupCost = groupCost(groups[g], tables, togetherGroup[g], scratch);
+                delta += groupWeight * (groupCost - groupCosts[g]);
+                pendingCosts[i] = groupCost;
+            }
+
+            if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                for (int i = 0; i < touchedCount; i++) {
+                    groupCosts[touched[i]] = pendingCosts[i];
+                }
+                cost += delta;
+                moveAt(guest, from, to);
+                if (other >= 0) {
+                    moveAt(other, to, from);
+                }
+            } else {
+                tables[guest] = from;
+                if (other >= 0) {
+                    tables[other] = to;
+                }
+            }
+        }
+
+        private long movedDelta(int guest, int from, int to) {
+            int start = problem.startTables()[guest];
+            return (to != start ? 1 : 0) - (from != start ? 1 : 0);
+        }
+
+        private int touchGroups(int guest, int touchedCount) {
+            if (touchedCount == 0) {
+                touchStamp++;
+            }
+            for (int g : groupsOfGuest[guest]) {
+                if (touchedStamps[g] != touchStamp) {
+                    touchedStamps[g] = touchStamp;
+                    touched[touchedCount++] = g;
+                }
+            }
+            return touchedCount;
+        }
+
+        private void moveAt(int guest, int from, int to) {
+            int[] sizes = problem.partySizes();
+            loads[from] -= sizes[guest];
+            loads[to] += sizes[guest];
+            int position = positions[guest];
+            int last = guestsAt[from][--guestCounts[from]];
+            guestsAt[from][position] = last;
+            positions[last] = position;
+            addAt(to, guest);
+        }
+
+        private void addAt(int table, int guest) {
+            if (guestCounts[table] == guestsAt[table].length) {
+                guestsAt[table] = Arrays.copyOf(guestsAt[table], guestsAt[table].length * 2);
+            }
+            positions[guest] = guestCounts[table];
+            guestsAt[table][guestCounts[table]++] = guest;
+        }
+    }
+}
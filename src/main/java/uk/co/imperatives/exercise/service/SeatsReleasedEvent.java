@@ -0,0 +1,8 @@
+package uk.co.imperatives.exercise.service;
+
+/**
+ * Published when seats at a table become free, because guests were removed, a hold was released or the table was
+ * added.
+ */
+public record SeatsReleasedEvent(String eventId, int tableNumber) {
+}
@@ -0,0 +1,7 @@
+package uk.co.imperatives.exercise.service;
+
+/**
+ * A number of seats at one table, as found for a guest's party.
+ */
+public record TableSeats(int tableNumber, int noOfSeats) {
+}
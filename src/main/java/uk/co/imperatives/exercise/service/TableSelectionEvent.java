@@ -0,0 +1,40 @@
+package uk.co.imperatives.exercise.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a search for a table with enough empty seats. Like the other party events it is off
+ * unless turned on, as by the {@code jfr/party.jfc} settings.
+ */
+@Name("party.TableSelection")
+@Label("Table Selection")
+@Category("Party")
+@Description("Search for a table with enough empty seats for a party")
+@StackTrace(false)
+@Enabled(false)
+class TableSelectionEvent extends Event {
+
+    @Label("Event Id")
+    String eventId;
+
+    @Label("Seats Wanted")
+    int seatsWanted;
+
+    @Label("Tables")
+    @Description("Tables looked at")
+    int tables;
+
+    @Label("Candidates")
+    @Description("Tables with enough empty seats")
+    int candidates;
+
+    @Label("Chosen Table")
+    @Description("Number of the table chosen, or 0 when none had enough empty seats")
+    int chosenTable;
+}
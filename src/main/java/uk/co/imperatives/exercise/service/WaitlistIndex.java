@@ -0,0 +1,69 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The guests waiting for seats at one event, grouped by party size with each group in the order the guests joined.
+ * <p>
+ * Finding the guest to seat only looks at the first guest of each party size that fits, so the cost depends on the
+ * number of different party sizes rather than the number of guests waiting. Not thread safe, an event's waitlist is
+ * only used from its writer thread.
+ */
+final class WaitlistIndex {
+    private final NavigableMap<Integer, Deque<WaitlistEntry>> bySize = new TreeMap<>();
+    private int size;
+
+    void add(WaitlistEntry entry) {
+        bySize.computeIfAbsent(entry.noOfGuests(), k -> new ArrayDeque<>()).addLast(entry);
+        size++;
+    }
+
+    boolean remove(WaitlistEntry entry) {
+        Deque<WaitlistEntry> entries = bySize.get(entry.noOfGuests());
+        if (entries == null || !entries.remove(entry)) {
+            return false;
+        }
+        if (entries.isEmpty()) {
+            bySize.remove(entry.noOfGuests());
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes and returns the guest who has waited longest out of those whose party fits in the given number of
+     * seats, or null if none fit.
+     */
+    WaitlistEntry pollFirstFitting(int noOfSeats) {
+        Deque<WaitlistEntry> first = null;
+        for (Deque<WaitlistEntry> entries : bySize.headMap(noOfSeats, true).values()) {
+            if (first == null || entries.peekFirst().getId() < first.peekFirst().getId()) {
+                first = entries;
+            }
+        }
+
+        if (first == null) {
+            return null;
+        }
+
+        WaitlistEntry entry = first.pollFirst();
+        if (first.isEmpty()) {
+            bySize.remove(entry.noOfGuests());
+        }
+        size--;
+        return entry;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+}
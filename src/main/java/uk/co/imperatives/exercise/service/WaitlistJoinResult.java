@@ -0,0 +1,22 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+
+/**
+ * The outcome of joining the waitlist, either the guest was seated straight away or they are now waiting.
+ */
+public record WaitlistJoinResult(GuestListEntry seatedGuest, WaitlistEntry waitlistEntry) {
+
+    public static WaitlistJoinResult seated(GuestListEntry guest) {
+        return new WaitlistJoinResult(guest, null);
+    }
+
+    public static WaitlistJoinResult waiting(WaitlistEntry entry) {
+        return new WaitlistJoinResult(null, entry);
+    }
+
+    public boolean isSeated() {
+        return seatedGuest != null;
+    }
+}
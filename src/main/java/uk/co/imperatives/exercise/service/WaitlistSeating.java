@@ -0,0 +1,22 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Offers freed seats to the waitlist once the change that freed them has been committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class WaitlistSeating {
+    private final WaitlistServiceInterface waitlistService;
+    private final PartyEventExecutor partyEventExecutor;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsReleased(SeatsReleasedEvent event) {
+        // Queued behind the change that freed the seats, rather than run as part of it
+        partyEventExecutor.submit(event.eventId(),
+                () -> waitlistService.seatWaitingGuests(event.eventId(), event.tableNumber()));
+    }
+}
@@ -0,0 +1,173 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.co.imperatives.exercise.exception.GuestAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.GuestNotFoundException;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.PartyTableId;
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.repository.WaitlistEntryRepository;
+import uk.co.imperatives.exercise.repository.WaitlistEntryView;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps guests who could not be seated on a waitlist, and seats them as soon as a table, or a run of adjacent tables,
+ * has room.
+ * <p>
+ * The waitlist is stored in the database and also held in memory as a {@link WaitlistIndex} for each event, so that
+ * working out who to seat when seats are freed needs no queries. Changes must be made on the event's writer thread.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitlistService implements WaitlistServiceInterface, SmartInitializingSingleton {
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final GuestListEntryRepository guestListEntryRepository;
+    private final PartyTableRepository partyTableRepository;
+    private final GuestListServiceInterface guestListService;
+    private final PartyTableServiceInterface tableService;
+
+    private final Map<String, WaitlistIndex> waitlists = new ConcurrentHashMap<>();
+    // Events whose in-memory waitlist may no longer match the database, after a rolled back change
+    private final Set<String> staleWaitlists = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        waitlistEntryRepository.findAll().forEach(entry ->
+                waitlists.computeIfAbsent(entry.getEventId(), k -> new WaitlistIndex()).add(entry));
+    }
+
+    @Override
+    @Transactional
+    public WaitlistJoinResult join(String eventId, AddGuestRequest request) {
+        if (guestListEntryRepository.existsByEventIdAndName(eventId, request.getName())) {
+            throw new GuestAlreadyExistsException("Guest with name " + request.getName() + " already exists");
+        }
+
+        if (waitlistEntryRepository.existsByEventIdAndName(eventId, request.getName())) {
+            throw new GuestAlreadyExistsException("Guest with name " + request.getName() + " is already on the waitlist");
+        }
+
+        // Seat the guest straight away if there is room, at one table or across adjacent tables
+        if (!tableService.findSeats(eventId, request.noOfGuests()).isEmpty()) {
+            return WaitlistJoinResult.seated(guestListService.addGuest(eventId, request));
+        }
+
+        WaitlistEntry entry = waitlistEntryRepository.save(WaitlistEntry.builder()
+                .eventId(eventId)
+                .name(request.getName())
+                .accompanyingGuests(request.getAccompanyingGuests())
+                .timeJoined(LocalDateTime.now())
+                .build());
+
+        markStaleOnRollback(eventId);
+        waitlistFor(eventId).add(entry);
+        return WaitlistJoinResult.waiting(entry);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<WaitlistEntryView> getWaitlist(String eventId) {
+        return waitlistEntryRepository.findViewsByEventIdOrderById(eventId);
+    }
+
+    @Override
+    @Transactional
+    public void leave(String eventId, String guestName) {
+        WaitlistEntry entry = waitlistEntryRepository.findByEventIdAndName(eventId, guestName)
+                .orElseThrow(() -> new GuestNotFoundException("Guest with name " + guestName + " is not on the waitlist"));
+
+        waitlistEntryRepository.delete(entry);
+
+        markStaleOnRollback(eventId);
+        waitlistFor(eventId).remove(entry);
+    }
+
+    @Override
+    @Transactional
+    public List<GuestListEntry> seatWaitingGuests(String eventId, int tableNumber) {
+        WaitlistIndex waitlist = waitlistFor(eventId);
+        if (waitlist.isEmpty()) {
+            return List.of();
+        }
+
+        var table = partyTableRepository.findById(new PartyTableId(eventId, tableNumber));
+        if (table.isEmpty()) {
+            return List.of();
+        }
+
+        markStaleOnRollback(eventId);
+
+        // First the guests who fit at the table whose seats were freed, which needs no more queries
+        List<GuestListEntry> seatedGuests = new ArrayList<>();
+        WaitlistEntry entry;
+        while ((entry = waitlist.pollFirstFitting(table.get().getUnAllocatedSeats())) != null) {
+            seat(eventId, entry, tableNumber).ifPresent(seatedGuests::add);
+        }
+
+        // Then those whose party the freed seats let be split across adjacent tables, seated as the guest list would
+        while (!waitlist.isEmpty()
+                && (entry = waitlist.pollFirstFitting(tableService.getLargestPartyWithAvailableSeating(eventId))) != null) {
+            seat(eventId, entry, 0).ifPresent(seatedGuests::add);
+        }
+
+        if (!seatedGuests.isEmpty()) {
+            log.info("Seated {} guests from the waitlist after seats were freed at table {} of event {}",
+                    seatedGuests.size(), tableNumber, eventId);
+        }
+        return seatedGuests;
+    }
+
+    /**
+     * Takes the guest off the waitlist and adds them to the guest list, at the given table or, if zero, wherever the
+     * guest list seats them. Empty if the guest was added to the guest list directly while waiting.
+     */
+    private Optional<GuestListEntry> seat(String eventId, WaitlistEntry entry, int tableNumber) {
+        waitlistEntryRepository.delete(entry);
+
+        if (guestListEntryRepository.existsByEventIdAndName(eventId, entry.getName())) {
+            return Optional.empty();
+        }
+
+        return Optional.of(guestListService.addGuest(eventId, AddGuestRequest.builder()
+                .name(entry.getName())
+                .table(tableNumber)
+                .accompanyingGuests(entry.getAccompanyingGuests())
+                .build()));
+    }
+
+    private WaitlistIndex waitlistFor(String eventId) {
+        if (staleWaitlists.remove(eventId)) {
+            WaitlistIndex reloaded = new WaitlistIndex();
+            waitlistEntryRepository.findAllByEventIdOrderById(eventId).forEach(reloaded::add);
+            waitlists.put(eventId, reloaded);
+        }
+        return waitlists.computeIfAbsent(eventId, k -> new WaitlistIndex());
+    }
+
+    private void markStaleOnRollback(String eventId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    staleWaitlists.add(eventId);
+                }
+            }
+        });
+    }
+}
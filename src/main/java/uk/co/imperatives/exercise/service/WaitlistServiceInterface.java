@@ -0,0 +1,20 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.exception.GuestAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.GuestNotFoundException;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+import uk.co.imperatives.exercise.repository.WaitlistEntryView;
+
+import java.util.List;
+
+public interface WaitlistServiceInterface {
+
+    WaitlistJoinResult join(String eventId, AddGuestRequest request) throws GuestAlreadyExistsException;
+
+    List<WaitlistEntryView> getWaitlist(String eventId);
+
+    void leave(String eventId, String guestName) throws GuestNotFoundException;
+
+    List<GuestListEntry> seatWaitingGuests(String eventId, int tableNumber);
+}
@@ -0,0 +1,18 @@
+package uk.co.imperatives.exercise.validation;
+
+import uk.co.imperatives.exercise.model.PartyEvent;
+
+import java.util.regex.Pattern;
+
+public class EventIdValidator {
+
+    // Event ids name threads and end up in URLs and logs, so keep them to a safe set of characters
+    private static final Pattern EVENT_ID_PATTERN = Pattern.compile("^[A-Za-z0-9_-]+$");
+
+    public static boolean isValidEventId(String eventId) {
+        return eventId != null
+                && !eventId.isEmpty()
+                && eventId.length() <= PartyEvent.MAX_ID_LENGTH
+                && EVENT_ID_PATTERN.matcher(eventId).matches();
+    }
+}
@@ -0,0 +1,125 @@
+package uk.co.imperatives.exercise.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * How many requests of a kind may be handled at once, adjusted from how long the requests it watches take.
+ * <p>
+ * Each watched {@link Latency} keeps two moving averages: a recent one, over about the last
+ * {@value #RECENT_SAMPLES} requests, and a long-term one, over about the last {@value #LONG_TERM_SAMPLES}, which
+ * stands for how long the requests take when the server is not overloaded. While every recent average is within
+ * {@code tolerance} times its long-term average the limit grows, by about its square root each time it is used to
+ * half or more. Once a recent average is slower the limit shrinks in proportion, down to half at a time, so it settles
+ * where the watched requests take about as long as usual. Latencies not recorded for a second are left out, so that
+ * requests that have stopped coming do not hold the limit down.
+ */
+final class AdaptiveConcurrencyLimit {
+    static final int RECENT_SAMPLES = 10;
+    static final int LONG_TERM_SAMPLES = 500;
+    private static final double SMOOTHING = 0.2;
+    private static final long STALE_AFTER = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final LongSupplier nanoClock;
+    private final List<Latency> latencies = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private double estimatedLimit;
+    private volatile int limit;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, LongSupplier nanoClock) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Starts watching how long another kind of request takes.
+     */
+    synchronized Latency watch() {
+        var latency = new Latency();
+        latencies.add(latency);
+        return latency;
+    }
+
+    /**
+     * Takes a place within the limit, or returns false when the limit has been reached.
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    synchronized void record(Latency latency, long nanos) {
+        long now = nanoClock.getAsLong();
+        latency.add(nanos, now);
+
+        double gradient = 1.0;
+        for (Latency watched : latencies) {
+            if (watched.recent > 0 && now - watched.lastRecorded <= STALE_AFTER) {
+                gradient = Math.min(gradient, tolerance * watched.longTerm / watched.recent);
+            }
+        }
+        gradient = Math.max(0.5, gradient);
+
+        // Do not grow a limit that is not being used
+        if (gradient == 1.0 && inFlight.get() < estimatedLimit / 2) {
+            return;
+        }
+        double newLimit = gradient == 1.0 ? estimatedLimit + Math.sqrt(estimatedLimit) : estimatedLimit * gradient;
+        estimatedLimit = Math.clamp(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING, minLimit, maxLimit);
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Moving averages of how long one kind of request takes.
+     */
+    static final class Latency {
+        private double recent;
+        private double longTerm;
+        private long samples;
+        private long lastRecorded;
+
+        private void add(long nanos, long now) {
+            if (samples++ == 0) {
+                recent = nanos;
+                longTerm = nanos;
+            } else {
+                recent += (nanos - recent) / Math.min(samples, RECENT_SAMPLES);
+                longTerm += (nanos - longTerm) / Math.min(samples, LONG_TERM_SAMPLES);
+            }
+            lastRecorded = now;
+        }
+    }
+}
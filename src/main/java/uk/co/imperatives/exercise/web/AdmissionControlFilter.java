@@ -0,0 +1,143 @@
+package uk.co.imperatives.exercise.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps check-in fast when the server is overloaded, by turning reporting requests away.
+ * <p>
+ * Guests arriving and leaving are always let in, as are other changes. Reporting requests, the reads made by lobby
+ * screens and dashboards, share the same threads and connections, so only as many of them are handled at once as an
+ * {@link AdaptiveConcurrencyLimit} allows. The limit shrinks while check-ins, or the reporting requests themselves,
+ * take longer than usual and grows back once they do not. A reporting request over the limit is answered at once with
+ * 503 Service Unavailable and a {@code Retry-After} header, rather than waiting for a thread.
+ * <p>
+ * The filter is registered whether or not it is enabled, and {@code party.admission.enabled} is checked when the
+ * application starts, because an ahead-of-time processed build fixes which beans there are when it is built.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final List<String> API_PATHS = List.of("/guest_list", "/party_tables", "/waitlist");
+    private static final Pattern LEAVE = Pattern.compile("/guest_list/[^/]+/leave");
+
+    enum EndpointClass {
+        CHECK_IN, CHANGE, REPORTING
+    }
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimit reportingLimit;
+    private final AdaptiveConcurrencyLimit.Latency checkInLatency;
+    private final AdaptiveConcurrencyLimit.Latency reportingLatency;
+    private final LongSupplier nanoClock;
+    private final String retryAfterSeconds;
+    private final Counter shed;
+
+    @Autowired
+    public AdmissionControlFilter(MeterRegistry meterRegistry,
+                                  @Value("${party.admission.enabled:true}") boolean enabled,
+                                  @Value("${party.admission.initial-limit:10}") int initialLimit,
+                                  @Value("${party.admission.min-limit:1}") int minLimit,
+                                  @Value("${party.admission.max-limit:200}") int maxLimit,
+                                  @Value("${party.admission.tolerance:1.5}") double tolerance,
+                                  @Value("${party.admission.retry-after:PT1S}") Duration retryAfter) {
+        this(enabled, new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, System::nanoTime),
+                System::nanoTime, retryAfter, meterRegistry);
+    }
+
+    AdmissionControlFilter(boolean enabled, AdaptiveConcurrencyLimit reportingLimit, LongSupplier nanoClock,
+                           Duration retryAfter, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.reportingLimit = reportingLimit;
+        this.checkInLatency = reportingLimit.watch();
+        this.reportingLatency = reportingLimit.watch();
+        this.nanoClock = nanoClock;
+        // Retry-After is given in whole seconds
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.plusMillis(999).toSeconds()));
+
+        Gauge.builder("party.admission.limit", reportingLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Reporting requests that may be handled at once")
+                .register(meterRegistry);
+        Gauge.builder("party.admission.in_flight", reportingLimit, AdaptiveConcurrencyLimit::inFlight)
+                .description("Reporting requests being handled")
+                .register(meterRegistry);
+        shed = Counter.builder("party.admission.shed")
+                .description("Reporting requests turned away with 503 because the limit was reached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = path(request);
+        return API_PATHS.stream().noneMatch(apiPath -> path.equals(apiPath) || path.startsWith(apiPath + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        if (endpointClass == EndpointClass.REPORTING && !reportingLimit.tryAcquire()) {
+            shed.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("The party is busy checking guests in, please try again shortly");
+            return;
+        }
+
+        long start = nanoClock.getAsLong();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long latency = nanoClock.getAsLong() - start;
+            switch (endpointClass) {
+                case CHECK_IN -> reportingLimit.record(checkInLatency, latency);
+                case REPORTING -> {
+                    reportingLimit.release();
+                    reportingLimit.record(reportingLatency, latency);
+                }
+                case CHANGE -> {
+                }
+            }
+        }
+    }
+
+    static EndpointClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = path(request);
+        if ((method.equals("PUT") && path.equals("/guest_list/arrive"))
+                || (method.equals("PATCH") && LEAVE.matcher(path).matches())) {
+            return EndpointClass.CHECK_IN;
+        }
+        return method.equals("GET") || method.equals("HEAD") ? EndpointClass.REPORTING : EndpointClass.CHANGE;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,238 @@
+package uk.co.imperatives.exercise.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import uk.co.imperatives.exercise.controller.PartyEventHeader;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.web.IdempotencyStore.IdempotentRequest;
+import uk.co.imperatives.exercise.web.IdempotencyStore.StoredResponse;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes changes sent with an {@code Idempotency-Key} header safe to retry.
+ * <p>
+ * The first request with a key is handled as normal and its response is stored. Later requests with the same key
+ * get the stored response back without being handled again, and requests arriving while the first is still being
+ * handled wait for its response. Reusing a key for a different request is rejected. Server errors are not stored,
+ * so a request that failed that way can be retried with the same key.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final Set<String> CHANGE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${party.idempotency.in-flight-timeout:PT30S}")
+    private Duration inFlightTimeout = Duration.ofSeconds(30);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !CHANGE_METHODS.contains(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), IDEMPOTENCY_KEY + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // Keys are only unique within an event
+        String eventId = request.getHeader(PartyEventHeader.NAME);
+        String key = (eventId == null ? PartyEvent.DEFAULT_ID : eventId) + " " + idempotencyKey;
+
+        var cachedRequest = new CachedBodyRequest(request);
+        var idempotentRequest = new IdempotentRequest(fingerprint(cachedRequest));
+
+        while (true) {
+            IdempotentRequest earlierRequest = idempotencyStore.putIfAbsent(key, idempotentRequest);
+            if (earlierRequest == null) {
+                handleFirstRequest(key, idempotentRequest, cachedRequest, response, filterChain);
+                return;
+            }
+
+            if (!earlierRequest.fingerprint.equals(idempotentRequest.fingerprint)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, IDEMPOTENCY_KEY + " has already been used for a different request");
+                return;
+            }
+
+            StoredResponse storedResponse = awaitResponse(earlierRequest);
+            if (storedResponse != null) {
+                writeStoredResponse(response, storedResponse);
+                return;
+            }
+            if (!earlierRequest.response.isDone()) {
+                writeError(response, HttpStatus.CONFLICT, "A request with this " + IDEMPOTENCY_KEY + " is still in progress");
+                return;
+            }
+            // The earlier request failed and was forgotten, so try to handle this one instead
+        }
+    }
+
+    private void handleFirstRequest(String key, IdempotentRequest idempotentRequest, HttpServletRequest request,
+                                    HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+        } catch (ServletException | IOException | RuntimeException e) {
+            forget(key, idempotentRequest, e);
+            throw e;
+        }
+
+        if (HttpStatus.valueOf(responseWrapper.getStatus()).is5xxServerError()) {
+            forget(key, idempotentRequest, new IllegalStateException("Request failed with status " + responseWrapper.getStatus()));
+        } else {
+            idempotentRequest.response.complete(new StoredResponse(
+                    responseWrapper.getStatus(),
+                    responseWrapper.getContentType(),
+                    responseWrapper.getHeader(HttpHeaders.LOCATION),
+                    responseWrapper.getContentAsByteArray()));
+        }
+        responseWrapper.copyBodyToResponse();
+    }
+
+    private void forget(String key, IdempotentRequest idempotentRequest, Exception failure) {
+        idempotencyStore.remove(key, idempotentRequest);
+        idempotentRequest.response.completeExceptionally(failure);
+    }
+
+    private StoredResponse awaitResponse(IdempotentRequest earlierRequest) throws ServletException {
+        try {
+            return earlierRequest.response.get(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted waiting for an earlier request with the same " + IDEMPOTENCY_KEY, e);
+        }
+    }
+
+    private static void writeStoredResponse(HttpServletResponse response, StoredResponse storedResponse) throws IOException {
+        response.setStatus(storedResponse.status());
+        if (storedResponse.contentType() != null) {
+            response.setContentType(storedResponse.contentType());
+        }
+        if (storedResponse.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, storedResponse.location());
+        }
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+        response.setContentLength(storedResponse.body().length);
+        response.getOutputStream().write(storedResponse.body());
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+
+    private static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            if (request.getQueryString() != null) {
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the body up front so it can be fingerprinted and still be read by the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = StreamUtils.copyToByteArray(request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The body is already in memory, so the listener is told straight away that it can be read, and
+                 * then that it has all been read.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding() == null ? StandardCharsets.UTF_8.name() : getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+    }
+}
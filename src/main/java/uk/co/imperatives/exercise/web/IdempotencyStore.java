@@ -0,0 +1,95 @@
+package uk.co.imperatives.exercise.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the requests made with each idempotency key, for a limited time and up to a limited number of keys.
+ * <p>
+ * Keys are kept in the order they were first used. As they all live for the same time, the expired keys are always
+ * the oldest, and are dropped from the front whenever a key is added. When the store is full the oldest key is
+ * dropped even if it has not expired yet.
+ */
+@Component
+public class IdempotencyStore {
+    private final Map<String, IdempotentRequest> requests = new LinkedHashMap<>();
+    private final long timeToLiveNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public IdempotencyStore(@Value("${party.idempotency.ttl:PT1H}") Duration timeToLive,
+                            @Value("${party.idempotency.max-entries:10000}") int maxEntries) {
+        this(timeToLive, maxEntries, System::nanoTime);
+    }
+
+    IdempotencyStore(Duration timeToLive, int maxEntries, LongSupplier nanoClock) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records a new request with the key, unless the key has already been used, in which case the earlier request
+     * is returned and nothing is recorded.
+     */
+    synchronized IdempotentRequest putIfAbsent(String key, IdempotentRequest request) {
+        long now = nanoClock.getAsLong();
+        removeExpired(now);
+
+        IdempotentRequest existing = requests.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (requests.size() >= maxEntries) {
+            Iterator<IdempotentRequest> oldest = requests.values().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+
+        request.expiresAtNanos = now + timeToLiveNanos;
+        requests.put(key, request);
+        return null;
+    }
+
+    synchronized void remove(String key, IdempotentRequest request) {
+        requests.remove(key, request);
+    }
+
+    synchronized int size() {
+        return requests.size();
+    }
+
+    private void removeExpired(long now) {
+        Iterator<IdempotentRequest> oldest = requests.values().iterator();
+        while (oldest.hasNext() && oldest.next().expiresAtNanos - now <= 0) {
+            oldest.remove();
+        }
+    }
+
+    /**
+     * A request made with an idempotency key. The response is completed once the first request to use the key has
+     * finished, so that duplicates arriving in the meantime can wait for it.
+     */
+    static final class IdempotentRequest {
+        final String fingerprint;
+        final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+        private long expiresAtNanos;
+
+        IdempotentRequest(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    record StoredResponse(int status, String contentType, String location, byte[] body) {
+    }
+}
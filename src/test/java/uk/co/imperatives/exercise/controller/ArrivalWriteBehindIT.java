@@ -0,0 +1,141 @@
+package uk.co.imperatives.exercise.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.co.imperatives.exercise.dto.AddGuestRequestDto;
+import uk.co.imperatives.exercise.dto.GuestArrivalDto;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.service.AddGuestRequest;
+import uk.co.imperatives.exercise.service.ArrivalWriteBehind;
+import uk.co.imperatives.exercise.service.GuestAnalytics;
+import uk.co.imperatives.exercise.service.GuestListServiceInterface;
+import uk.co.imperatives.exercise.service.GuestStore;
+import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+import uk.co.imperatives.exercise.service.SeatingChart;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A long window, so that changes stay queued until something waits for them to be written
+@SpringBootTest(properties = {SqlStatementCounter.PROPERTY, "party.write-behind.enabled=true", "party.write-behind.window=PT10S"})
+@AutoConfigureMockMvc
+public class ArrivalWriteBehindIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GuestListServiceInterface guestListService;
+
+    @Autowired
+    private PartyTableServiceInterface partyTableService;
+
+    @Autowired
+    private ArrivalWriteBehind arrivalWriteBehind;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SeatingChart seatingChart;
+
+    @Autowired
+    private GuestStore guestStore;
+
+    @Autowired
+    private GuestAnalytics guestAnalytics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.execute("DELETE FROM party_table");
+        jdbcTemplate.execute("DELETE FROM guest_list_entry");
+        seatingChart.reload(PartyEvent.DEFAULT_ID);
+        guestStore.reload(PartyEvent.DEFAULT_ID);
+        guestAnalytics.reload(PartyEvent.DEFAULT_ID);
+
+        partyTableService.addTable(PartyEvent.DEFAULT_ID, 1, 10);
+        guestListService.addGuest(PartyEvent.DEFAULT_ID, AddGuestRequest.builder().name("Betty Boop").table(1).accompanyingGuests(1).build());
+        guestListService.addGuest(PartyEvent.DEFAULT_ID, AddGuestRequest.builder().name("Mickey Mouse").table(1).accompanyingGuests(2).build());
+        guestStore.allGuests(PartyEvent.DEFAULT_ID);
+
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    public void arrivalsAndDeparturesShouldBeAcknowledgedBeforeBeingWritten() throws Exception {
+        arrive("Betty Boop", 1);
+        arrive("Mickey Mouse", 0);
+        mockMvc.perform(patch("/guest_list/Betty Boop/leave"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timeLeft").isNotEmpty());
+        SqlStatementCounter.assertWithinBudget("PUT /guest_list/arrive and PATCH /guest_list/{guestName}/leave", SqlBudget.none());
+
+        // The guest list already shows the changes, while the database does not have them yet
+        mockMvc.perform(get("/guest_list/arrived"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Betty Boop", "Mickey Mouse")));
+        mockMvc.perform(get("/guest_list/present"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guests_present").value(1));
+        assertEquals(0, arrivedInDatabase());
+
+        // Adding a guest reads the tables, so first waits for the queued changes to be written
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddGuestRequestDto("Donald Duck", 1, 0, null))))
+                .andExpect(status().isCreated());
+        assertEquals(2, arrivedInDatabase());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM guest_list_entry WHERE time_left IS NOT NULL", Integer.class));
+        // Betty's party of 2 has left and Mickey arrived with 2 fewer guests, leaving Mickey and Donald
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT no_of_seats_allocated FROM party_table WHERE number = 1", Integer.class));
+    }
+
+    @Test
+    public void arrivalWithMoreGuestsShouldBeCheckedAgainstTheDatabase() throws Exception {
+        mockMvc.perform(put("/guest_list/arrive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new GuestArrivalDto("Betty Boop", 20))))
+                .andExpect(status().isConflict());
+
+        arrive("Betty Boop", 3);
+        assertEquals(1, arrivedInDatabase());
+    }
+
+    @Test
+    @DirtiesContext
+    public void queuedChangesShouldBeWrittenWhenStopping() throws Exception {
+        arrive("Betty Boop", 1);
+        assertEquals(0, arrivedInDatabase());
+
+        arrivalWriteBehind.destroy();
+        assertEquals(1, arrivedInDatabase());
+    }
+
+    private void arrive(String name, int accompanyingGuests) throws Exception {
+        mockMvc.perform(put("/guest_list/arrive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new GuestArrivalDto(name, accompanyingGuests))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timeArrived").isNotEmpty());
+    }
+
+    private int arrivedInDatabase() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM guest_list_entry WHERE time_arrived IS NOT NULL", Integer.class);
+    }
+}
@@ -1,6 +1,8 @@
 package uk.co.imperatives.exercise.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,19 +12,45 @@ import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import uk.co.imperatives.exercise.dto.AddGuestRequestDto;
+import uk.co.imperatives.exercise.dto.GuestAnalyticsDto;
 import uk.co.imperatives.exercise.dto.GuestArrivalDto;
+import uk.co.imperatives.exercise.metrics.RequestCostFilter;
+import uk.co.imperatives.exercise.model.PartyEvent;
 import uk.co.imperatives.exercise.service.AddGuestRequest;
+import uk.co.imperatives.exercise.service.GuestAnalytics;
 import uk.co.imperatives.exercise.service.GuestListServiceInterface;
 import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+import uk.co.imperatives.exercise.service.GuestStore;
+import uk.co.imperatives.exercise.service.SeatingChart;
+import uk.co.imperatives.exercise.web.IdempotencyFilter;
 
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = SqlStatementCounter.PROPERTY)
 @AutoConfigureMockMvc
 public class GuestListControllerIT {
 
+    // The most SQL statements each endpoint may make, so that changes making more database calls fail the build
+    private static final SqlBudget ADD_GUEST = SqlBudget.none().selects(3).inserts(1).updates(1);
+    private static final SqlBudget UPDATE_GUEST_NAME = SqlBudget.none().selects(2).updates(1);
+    private static final SqlBudget ALL_GUESTS = SqlBudget.none().selects(1);
+    private static final SqlBudget DELETE_GUEST = SqlBudget.none().selects(2).updates(1).deletes(1);
+    private static final SqlBudget GUEST_ARRIVAL = SqlBudget.none().selects(2).updates(2);
+    private static final SqlBudget GUEST_LEAVING = SqlBudget.none().selects(2).updates(2);
+    private static final SqlBudget ARRIVED_GUESTS = SqlBudget.none().selects(1);
+    private static final SqlBudget EMPTY_SEATS = SqlBudget.none().selects(2);
+    private static final SqlBudget GUESTS_AT_ALL_TABLES = SqlBudget.none().selects(2);
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -35,6 +63,15 @@ public class GuestListControllerIT {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SeatingChart seatingChart;
+
+    @Autowired
+    private GuestStore guestStore;
+
+    @Autowired
+    private GuestAnalytics guestAnalytics;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -45,6 +82,10 @@ public class GuestListControllerIT {
         // Clear the tables before each test
         jdbcTemplate.execute("DELETE FROM party_table");
         jdbcTemplate.execute("DELETE FROM guest_list_entry");
+        jdbcTemplate.execute("DELETE FROM group_seat");
+        seatingChart.reload(PartyEvent.DEFAULT_ID);
+        guestStore.reload(PartyEvent.DEFAULT_ID);
+        guestAnalytics.reload(PartyEvent.DEFAULT_ID);
 
         // Set up test guest request DTO
         addGuestRequestDto = AddGuestRequestDto.builder()
@@ -54,13 +95,15 @@ public class GuestListControllerIT {
                 .build();
 
         // Prepare database by adding tables and initial guests
-        partyTableService.addTable(1, 10);  // Add a table with 10 seats
-        partyTableService.addTable(2, 8);   // Add a table with 8 seats
-        guestListService.addGuest(AddGuestRequest.builder()
+        partyTableService.addTable(PartyEvent.DEFAULT_ID, 1, 10);  // Add a table with 10 seats
+        partyTableService.addTable(PartyEvent.DEFAULT_ID, 2, 8);   // Add a table with 8 seats
+        guestListService.addGuest(PartyEvent.DEFAULT_ID, AddGuestRequest.builder()
                 .name("Betty Boop")
                 .table(1)
                 .accompanyingGuests(1)
                 .build());  // Add initial guest
+
+        SqlStatementCounter.reset();
     }
 
     @Test
@@ -73,11 +116,82 @@ public class GuestListControllerIT {
                 .andExpect(jsonPath("$.name").value("Mickey Mouse"))
                 .andExpect(jsonPath("$.tableNumber").value(1))
                 .andExpect(jsonPath("$.accompanyingGuests").value(2));
+        SqlStatementCounter.assertWithinBudget("POST /guest_list", ADD_GUEST);
 
         // Perform GET request to check available seats at the tables
         mockMvc.perform(get("/party_tables/seats_empty"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.seats_empty").value(13));
+        SqlStatementCounter.assertWithinBudget("GET /party_tables/seats_empty", EMPTY_SEATS);
+    }
+
+    @Test
+    public void addGuestRetriedWithSameIdempotencyKeyShouldReplayResponse() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+        String content = objectMapper.writeValueAsString(addGuestRequestDto);
+
+        mockMvc.perform(post("/guest_list")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(content))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        SqlStatementCounter.reset();
+
+        // The retry gets the first response rather than a GuestAlreadyExistsException, without using the database
+        mockMvc.perform(post("/guest_list")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(content))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.IDEMPOTENT_REPLAYED, "true"))
+                .andExpect(jsonPath("$.name").value("Mickey Mouse"))
+                .andExpect(jsonPath("$.accompanyingGuests").value(2));
+        SqlStatementCounter.assertWithinBudget("POST /guest_list (replayed)", SqlBudget.none());
+
+        // Reusing the key for a different guest is rejected
+        addGuestRequestDto.setName("Donald Duck");
+        mockMvc.perform(post("/guest_list")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void addGuestWithSeatHoldShouldTakeHeldSeats() throws Exception {
+        String holdJson = mockMvc.perform(post("/party_tables/holds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\": 2, \"noOfSeats\": 3}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String holdId = objectMapper.readTree(holdJson).get("holdId").asText();
+
+        // Held seats are no longer empty
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty").value(13));
+        SqlStatementCounter.reset();
+
+        addGuestRequestDto.setTable(0);
+        addGuestRequestDto.setHoldId(holdId);
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tableNumber").value(2));
+        SqlStatementCounter.assertWithinBudget("POST /guest_list", ADD_GUEST);
+
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty").value(13));
+
+        // The hold has been used up
+        addGuestRequestDto.setName("Minnie Mouse");
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -88,6 +202,7 @@ public class GuestListControllerIT {
                 .andExpect(jsonPath("$[0].name").value("Betty Boop"))
                 .andExpect(jsonPath("$[0].tableNumber").value(1))
                 .andExpect(jsonPath("$[0].accompanyingGuests").value(1));
+        SqlStatementCounter.assertWithinBudget("GET /guest_list", ALL_GUESTS);
     }
 
     @Test
@@ -95,11 +210,13 @@ public class GuestListControllerIT {
         // Perform the DELETE request to remove a guest
         mockMvc.perform(delete("/guest_list/Betty Boop"))
                 .andExpect(status().isNoContent());
+        SqlStatementCounter.assertWithinBudget("DELETE /guest_list/Betty Boop", DELETE_GUEST);
 
         // Perform GET request to check available seats at the tables
         mockMvc.perform(get("/party_tables/seats_empty"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.seats_empty").value(18));
+        SqlStatementCounter.assertWithinBudget("GET /party_tables/seats_empty", EMPTY_SEATS);
     }
 
     @Test
@@ -112,6 +229,7 @@ public class GuestListControllerIT {
                 .andExpect(jsonPath("$.name").value("Mickey Mouse"))
                 .andExpect(jsonPath("$.tableNumber").value(1))
                 .andExpect(jsonPath("$.accompanyingGuests").value(2));
+        SqlStatementCounter.assertWithinBudget("POST /guest_list", ADD_GUEST);
 
         // arrival with more guests
         addGuestRequestDto.setAccompanyingGuests(3);
@@ -125,11 +243,13 @@ public class GuestListControllerIT {
                 .andExpect(jsonPath("$.tableNumber").value(1))
                 .andExpect(jsonPath("$.accompanyingGuests").value(3))
                 .andExpect(jsonPath("$.timeArrived").isNotEmpty());
+        SqlStatementCounter.assertWithinBudget("PUT /guest_list/arrive", GUEST_ARRIVAL);
 
         // Perform GET request to check available seats at the tables
         mockMvc.perform(get("/party_tables/seats_empty"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.seats_empty").value(12));
+        SqlStatementCounter.assertWithinBudget("GET /party_tables/seats_empty", EMPTY_SEATS);
     }
 
     @Test
@@ -147,6 +267,7 @@ public class GuestListControllerIT {
                         .param("newName", "Daffy Duck"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Daffy Duck"));
+        SqlStatementCounter.assertWithinBudget("PUT /guest_list/Betty Boop/name", UPDATE_GUEST_NAME);
     }
 
     @Test
@@ -157,6 +278,7 @@ public class GuestListControllerIT {
                         .content(objectMapper.writeValueAsString(addGuestRequestDto)))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.name").value("Mickey Mouse"));
+        SqlStatementCounter.assertWithinBudget("POST /guest_list", ADD_GUEST);
 
         // Then perform PUT request to record guest arrival
         GuestArrivalDto guestArrivalDto = new GuestArrivalDto();
@@ -169,12 +291,14 @@ public class GuestListControllerIT {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Mickey Mouse"))
                 .andExpect(jsonPath("$.timeArrived").isNotEmpty());
+        SqlStatementCounter.assertWithinBudget("PUT /guest_list/arrive", GUEST_ARRIVAL);
 
         // Now perform the PATCH request to record guest leaving
         mockMvc.perform(patch("/guest_list/Mickey Mouse/leave"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Mickey Mouse"))
                 .andExpect(jsonPath("$.timeLeft").isNotEmpty());
+        SqlStatementCounter.assertWithinBudget("PATCH /guest_list/Mickey Mouse/leave", GUEST_LEAVING);
     }
 
     @Test
@@ -191,9 +315,87 @@ public class GuestListControllerIT {
                 // Check the second table's number and that it has no guests
                 .andExpect(jsonPath("$[1].tableNumber").value(2))
                 .andExpect(jsonPath("$[1].guests").isEmpty());
+        SqlStatementCounter.assertWithinBudget("GET /party_tables/guests_at_table", GUESTS_AT_ALL_TABLES);
+    }
+
+    @Test
+    public void guestsAtTablesShouldFollowChangesWithoutReadingDatabase() throws Exception {
+        mockMvc.perform(get("/party_tables/guests_at_table"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/guest_list/Betty Boop/name").param("newName", "Olive Oyl"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/guest_list/arrive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new GuestArrivalDto("Olive Oyl", 1))))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/guest_list/Olive Oyl/leave"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/party_tables")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\": 3, \"noOfSeats\": 6}"))
+                .andExpect(status().isCreated());
+        SqlStatementCounter.reset();
+
+        // The seating chart has been kept up to date with each change, so is read without any SQL
+        mockMvc.perform(get("/party_tables/guests_at_table"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].tableNumber", contains(1, 2, 3)))
+                .andExpect(jsonPath("$[0].guests[*].name", contains("Mickey Mouse")))
+                .andExpect(jsonPath("$[2].guests").isEmpty());
+        mockMvc.perform(get("/party_tables/guests_at_table/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guests[0].name").value("Mickey Mouse"));
+        SqlStatementCounter.assertWithinBudget("GET /party_tables/guests_at_table", SqlBudget.none());
     }
 
 
+    @Test
+    public void partyTooLargeForAnyTableShouldBeSeatedAcrossAdjacentTables() throws Exception {
+        // 14 guests, with 8 seats free at table 1 and 8 at table 2
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(AddGuestRequestDto.builder()
+                                .name("Snow White").accompanyingGuests(13).build())))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tableNumber").value(1))
+                .andExpect(jsonPath("$.lastTableNumber").value(2));
+        assertEquals(List.of(8, 6), jdbcTemplate.queryForList(
+                "SELECT no_of_seats FROM group_seat ORDER BY table_number", Integer.class));
+
+        mockMvc.perform(get("/party_tables/guests_at_table"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].guests[*].name", contains("Betty Boop", "Snow White")))
+                .andExpect(jsonPath("$[1].guests[*].name", contains("Snow White")))
+                .andExpect(jsonPath("$[0].guests[0].lastTableNumber").doesNotExist());
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(jsonPath("$.seats_empty").value(2));
+
+        // Only 10 of the group come, so they give up 4 of their seats at table 2
+        mockMvc.perform(put("/guest_list/arrive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new GuestArrivalDto("Snow White", 9))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastTableNumber").value(2));
+        assertEquals(List.of(8, 2), jdbcTemplate.queryForList(
+                "SELECT no_of_seats FROM group_seat ORDER BY table_number", Integer.class));
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(jsonPath("$.seats_empty").value(6));
+
+        // The whole group leaves together, freeing their seats at both tables
+        mockMvc.perform(patch("/guest_list/Snow White/leave"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(jsonPath("$.seats_empty").value(16));
+        mockMvc.perform(get("/party_tables/guests_at_table/2"))
+                .andExpect(jsonPath("$.guests").isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM group_seat", Integer.class));
+    }
+
     @Test
     public void getArrivedGuestsShouldReturnOk() throws Exception {
         // First perform POST request to add guest to the guest list and mark arrival
@@ -201,16 +403,118 @@ public class GuestListControllerIT {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addGuestRequestDto)))
                 .andExpect(status().isCreated());
+        SqlStatementCounter.assertWithinBudget("POST /guest_list", ADD_GUEST);
 
         mockMvc.perform(put("/guest_list/arrive")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addGuestRequestDto)))
                 .andExpect(status().isOk());
+        SqlStatementCounter.assertWithinBudget("PUT /guest_list/arrive", GUEST_ARRIVAL);
 
         // Perform the GET request to retrieve only arrived guests
         mockMvc.perform(get("/guest_list/arrived"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].name").value("Mickey Mouse"))
                 .andExpect(jsonPath("$[0].timeArrived").isNotEmpty());
+        SqlStatementCounter.assertWithinBudget("GET /guest_list/arrived", ARRIVED_GUESTS);
+    }
+
+    @Test
+    public void guestListShouldFollowChangesWithoutReadingDatabase() throws Exception {
+        mockMvc.perform(get("/guest_list"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/guest_list/Betty Boop/name").param("newName", "Olive Oyl"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/guest_list/arrive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new GuestArrivalDto("Olive Oyl", 1))))
+                .andExpect(status().isOk());
+        SqlStatementCounter.reset();
+
+        // The guest list has been kept up to date with each change, so is read and counted without any SQL
+        mockMvc.perform(get("/guest_list"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Olive Oyl", "Mickey Mouse")))
+                .andExpect(jsonPath("$[1].timeArrived").value(""));
+        mockMvc.perform(get("/guest_list/arrived"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Olive Oyl")))
+                .andExpect(jsonPath("$[0].timeArrived").isNotEmpty());
+        mockMvc.perform(get("/guest_list/present"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guests_present").value(2));
+        SqlStatementCounter.assertWithinBudget("GET /guest_list", SqlBudget.none());
+    }
+
+    @Test
+    public void analyticsShouldFollowArrivalsAndLeavingWithoutReadingDatabase() throws Exception {
+        mockMvc.perform(get("/guest_list/analytics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.partiesLeft").value(0))
+                .andExpect(jsonPath("$.partySizes.2").value(1));
+
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/guest_list/arrive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new GuestArrivalDto("Mickey Mouse", 3))))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/guest_list/Mickey Mouse/leave"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.reset();
+
+        String response = mockMvc.perform(get("/guest_list/analytics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.arrivalsPerMinute.length()").value(60))
+                .andExpect(jsonPath("$.partiesLeft").value(1))
+                .andExpect(jsonPath("$.medianStaySeconds").value(0))
+                .andExpect(jsonPath("$.partySizes.2").value(1))
+                .andExpect(jsonPath("$.partySizes.3").value(0))
+                .andExpect(jsonPath("$.partySizes.4").value(1))
+                .andReturn().getResponse().getContentAsString();
+        SqlStatementCounter.assertWithinBudget("GET /guest_list/analytics", SqlBudget.none());
+
+        var analytics = objectMapper.readValue(response, GuestAnalyticsDto.class);
+        assertEquals(4, analytics.getArrivalsPerMinute().stream().mapToLong(GuestAnalyticsDto.MinuteArrivals::getGuests).sum());
+    }
+
+    @Test
+    public void requestCostShouldBeSentBackWhenAskedFor() throws Exception {
+        String cost = mockMvc.perform(post("/guest_list")
+                        .header(RequestCostFilter.REQUEST_COST, "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addGuestRequestDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(RequestCostFilter.REQUEST_COST);
+
+        int statements = 0;
+        for (SqlStatementCounter.Type type : SqlStatementCounter.Type.values()) {
+            statements += SqlStatementCounter.count(type);
+        }
+        assertTrue(cost != null && cost.matches("statements=" + statements + "; rows=\\d+; entities=[1-9]\\d*; db=[0-9.]+ms"),
+                "X-Request-Cost: " + cost);
+    }
+
+    @Test
+    public void getAllGuestsShouldBeAvailableAsCbor() throws Exception {
+        guestListService.recordGuestArrival(PartyEvent.DEFAULT_ID, "Betty Boop", 1);
+
+        byte[] cbor = mockMvc.perform(get("/guest_list").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Times are sent as numbers in CBOR, and unset times as null rather than ""
+        JsonNode guest = new CBORMapper().readTree(cbor).get(0);
+        assertEquals("Betty Boop", guest.get("name").asText());
+        assertTrue(guest.get("timeArrived").isIntegralNumber());
+        assertTrue(guest.get("timeLeft").isNull());
     }
 }
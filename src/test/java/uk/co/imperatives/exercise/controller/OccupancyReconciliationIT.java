@@ -0,0 +1,145 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.co.imperatives.exercise.ExerciseApplication;
+import uk.co.imperatives.exercise.repository.OccupancyDiscrepancy;
+import uk.co.imperatives.exercise.service.OccupancyReconciliation;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = ExerciseApplication.class, properties = SqlStatementCounter.PROPERTY)
+@AutoConfigureMockMvc
+public class OccupancyReconciliationIT {
+
+    // One query to find the drifted tables of every event and one batch to correct them
+    private static final SqlBudget RECONCILE = SqlBudget.none().selects(1).updates(1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OccupancyReconciliation occupancyReconciliation;
+
+    // Each test has its own event, so the tables of other tests are not reconciled by it
+    private String eventId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        eventId = "occupancy-" + UUID.randomUUID();
+        // Put right anything left drifted by other tests, so only this test's tables are found
+        occupancyReconciliation.reconcile();
+
+        addTable(1, 10);
+        addTable(2, 10);
+        addTable(3, 10);
+        addGuest("Mickey Mouse", 1, 3);
+        addGuest("Donald Duck", 2, 1);
+        // Too large for any one table, so split across tables 1 and 2, which it fills
+        addGuest("Goofy", 0, 13);
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    public void reconcileShouldCorrectDriftedTablesAndReportThem() throws Exception {
+        setSeatsAllocated(1, 7);
+        setSeatsAllocated(3, 1);
+
+        SqlStatementCounter.reset();
+        List<OccupancyDiscrepancy> corrected = occupancyReconciliation.reconcile();
+        SqlStatementCounter.assertWithinBudget("Occupancy reconciliation", RECONCILE);
+
+        assertEquals(List.of(new OccupancyDiscrepancy(eventId, 1, 7, 10), new OccupancyDiscrepancy(eventId, 3, 1, 0)),
+                corrected);
+        assertEquals(10, seatsAllocated(1));
+        assertEquals(10, seatsAllocated(2));
+        assertEquals(0, seatsAllocated(3));
+
+        mockMvc.perform(get("/party_tables/seats_empty").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty").value(10));
+        assertTrue(occupancyReconciliation.reconcile().isEmpty());
+    }
+
+    @Test
+    public void reconcileShouldNotCountGuestsWhoHaveLeft() throws Exception {
+        mockMvc.perform(put("/guest_list/arrive")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Mickey Mouse\",\"accompanyingGuests\":3}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/guest_list/{guestName}/leave", "Mickey Mouse").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk());
+
+        assertTrue(occupancyReconciliation.reconcile().isEmpty());
+        // Only Goofy's group seats are left at the table
+        assertEquals(6, seatsAllocated(1));
+    }
+
+    @Test
+    public void reconcileShouldSeatWaitingGuestsInTheSeatsItFrees() throws Exception {
+        // Table 3 looks full as well, so the guest joining the waitlist cannot be seated
+        setSeatsAllocated(3, 10);
+        mockMvc.perform(post("/waitlist")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Minnie Mouse\",\"accompanyingGuests\":4}"))
+                .andExpect(status().isAccepted());
+
+        assertEquals(List.of(new OccupancyDiscrepancy(eventId, 3, 10, 0)), occupancyReconciliation.reconcile());
+
+        awaitSeatsAllocated(3, 5);
+        mockMvc.perform(get("/waitlist").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    private void addTable(int number, int noOfSeats) throws Exception {
+        mockMvc.perform(post("/party_tables")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\":" + number + ",\"noOfSeats\":" + noOfSeats + "}"))
+                .andExpect(status().isCreated());
+    }
+
+    private void addGuest(String name, int table, int accompanyingGuests) throws Exception {
+        mockMvc.perform(post("/guest_list")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"table\":" + table + ",\"accompanyingGuests\":" + accompanyingGuests + "}"))
+                .andExpect(status().isCreated());
+    }
+
+    private void setSeatsAllocated(int table, int noOfSeatsAllocated) {
+        jdbcTemplate.update("UPDATE party_table SET no_of_seats_allocated = ? WHERE event_id = ? AND number = ?",
+                noOfSeatsAllocated, eventId, table);
+    }
+
+    private int seatsAllocated(int table) {
+        return jdbcTemplate.queryForObject("SELECT no_of_seats_allocated FROM party_table WHERE event_id = ? AND number = ?",
+                Integer.class, eventId, table);
+    }
+
+    private void awaitSeatsAllocated(int table, int noOfSeatsAllocated) throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && seatsAllocated(table) != noOfSeatsAllocated; attempt++) {
+            Thread.sleep(100);
+        }
+        assertEquals(noOfSeatsAllocated, seatsAllocated(table));
+    }
+}
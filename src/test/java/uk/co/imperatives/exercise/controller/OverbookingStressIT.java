@@ -0,0 +1,163 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Fires thousands of guest changes at a few small tables from many threads at once, then checks that no table was
+ * overbooked and that each table's allocated seats are exactly those of the guests still seated at it.
+ * <p>
+ * Most changes are expected to be turned away, as the tables are full or the guest is not in the right state, but
+ * none may fail with a server error. The operations per second achieved are printed for each round, so that a change
+ * to locking or concurrency can be shown to be both safe and faster. The size of a round can be changed with
+ * {@code -Dstress.operations} and {@code -Dstress.threads}.
+ */
+// Every change waits its turn rather than being turned away, so that all of them reach the seating
+@SpringBootTest(properties = "party.events.max-waiting-changes=1000")
+@AutoConfigureMockMvc
+public class OverbookingStressIT {
+    private static final int ROUNDS = 3;
+    private static final int OPERATIONS = Integer.getInteger("stress.operations", 4000);
+    private static final int THREADS = Integer.getInteger("stress.threads", 32);
+    private static final int TABLES = 3;
+    private static final int SEATS_PER_TABLE = 10;
+    private static final int GUESTS = 40;
+
+    private enum Operation {ADD, ARRIVE, LEAVE, DELETE}
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void tablesShouldNeverBeOverbookedUnderConcurrentChanges() throws Exception {
+        for (int round = 1; round <= ROUNDS; round++) {
+            String eventId = "overbooking-stress-" + round;
+            for (int table = 1; table <= TABLES; table++) {
+                perform(eventId, post("/party_tables")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\":" + table + ",\"noOfSeats\":" + SEATS_PER_TABLE + "}"));
+            }
+
+            Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+            long start = System.nanoTime();
+            runConcurrently(eventId, outcomes);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Overbooking stress round %d: %d operations on %d threads in %.2f s, %.0f ops/s, outcomes %s%n",
+                    round, OPERATIONS, THREADS, seconds, OPERATIONS / seconds, new TreeMap<>(outcomes));
+            assertFalse(outcomes.keySet().stream().anyMatch(outcome -> outcome.endsWith(" 500")),
+                    "Server errors: " + outcomes);
+            assertSeatingIsConsistent(eventId);
+        }
+    }
+
+    private void runConcurrently(String eventId, Map<String, LongAdder> outcomes) throws Exception {
+        List<Future<?>> workers = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int worker = 0; worker < THREADS; worker++) {
+                int operations = OPERATIONS / THREADS + (worker < OPERATIONS % THREADS ? 1 : 0);
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < operations; i++) {
+                        Operation operation = Operation.values()[ThreadLocalRandom.current().nextInt(Operation.values().length)];
+                        int status = perform(eventId, request(operation));
+                        outcomes.computeIfAbsent(operation + " " + status, key -> new LongAdder()).increment();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static MockHttpServletRequestBuilder request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String name = guestName(random.nextInt(GUESTS));
+        return switch (operation) {
+            // Half the guests ask for a table, so requested tables fill up and others have to be found
+            case ADD -> post("/guest_list")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\":\"" + name + "\",\"table\":" + (random.nextBoolean() ? random.nextInt(1, TABLES + 1) : 0)
+                            + ",\"accompanyingGuests\":" + random.nextInt(4) + "}");
+            case ARRIVE -> put("/guest_list/arrive")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\":\"" + name + "\",\"accompanyingGuests\":" + random.nextInt(5) + "}");
+            case LEAVE -> patch("/guest_list/{guestName}/leave", name);
+            case DELETE -> delete("/guest_list/{guestName}", name);
+        };
+    }
+
+    private void assertSeatingIsConsistent(String eventId) throws Exception {
+        List<Map<String, Object>> tables = jdbcTemplate.queryForList(
+                "SELECT number, no_of_seats, no_of_seats_allocated FROM party_table WHERE event_id = ? ORDER BY number", eventId);
+        int emptySeats = 0;
+        for (Map<String, Object> table : tables) {
+            int number = ((Number) table.get("number")).intValue();
+            int seats = ((Number) table.get("no_of_seats")).intValue();
+            int allocated = ((Number) table.get("no_of_seats_allocated")).intValue();
+            // Parties split across adjacent tables have their seats at each table in group_seat
+            int seatedGuests = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(1 + accompanying_guests), 0) FROM guest_list_entry "
+                            + "WHERE event_id = ? AND table_number = ? AND time_left IS NULL AND last_table_number IS NULL",
+                    Integer.class, eventId, number)
+                    + jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(s.no_of_seats), 0) FROM group_seat s JOIN guest_list_entry g ON g.id = s.guest_id "
+                            + "WHERE s.event_id = ? AND s.table_number = ? AND g.time_left IS NULL", Integer.class, eventId, number);
+
+            assertTrue(allocated <= seats, "Table " + number + " has " + allocated + " of " + seats + " seats allocated");
+            assertEquals(seatedGuests, allocated, "Seats allocated at table " + number + " do not match its guests");
+            emptySeats += seats - allocated;
+        }
+
+        // The in-memory seating chart has followed every change
+        String seatsEmpty = mockMvc.perform(get("/party_tables/seats_empty").header(PartyEventHeader.NAME, eventId))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(seatsEmpty.contains(":" + emptySeats + "}"), "Expected " + emptySeats + " empty seats, got " + seatsEmpty);
+    }
+
+    private int perform(String eventId, MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.header(PartyEventHeader.NAME, eventId)).andReturn().getResponse().getStatus();
+    }
+
+    /**
+     * Guest names may only contain letters, so the guest's number is written using the letters a to z.
+     */
+    private static String guestName(int guest) {
+        return "Guest " + (char) ('a' + guest / 26) + (char) ('a' + guest % 26);
+    }
+}
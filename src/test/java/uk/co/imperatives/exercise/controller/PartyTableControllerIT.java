@@ -6,25 +6,40 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import uk.co.imperatives.exercise.ExerciseApplication;
 import uk.co.imperatives.exercise.dto.AddTableRequest;
+import uk.co.imperatives.exercise.dto.HoldSeatsRequest;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.service.SeatingChart;
 
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(classes = ExerciseApplication.class)
+@SpringBootTest(classes = ExerciseApplication.class, properties = SqlStatementCounter.PROPERTY)
 @AutoConfigureMockMvc
 class PartyTableControllerIT {
     private static final String URL = "/party_tables";
 
+    // The most SQL statements each endpoint may make, so that changes making more database calls fail the build
+    private static final SqlBudget ADD_TABLE = SqlBudget.none().selects(2).inserts(1);
+    private static final SqlBudget ALL_TABLES = SqlBudget.none().selects(1);
+    private static final SqlBudget REMOVE_TABLE = SqlBudget.none().selects(1).deletes(1);
+    private static final SqlBudget HOLD_SEATS = SqlBudget.none().selects(1).updates(1);
+    private static final SqlBudget RELEASE_HOLD = SqlBudget.none().selects(1).updates(1);
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SeatingChart seatingChart;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -38,9 +53,12 @@ class PartyTableControllerIT {
     void setUp()  {
         // Clear the table before each test
         jdbcTemplate.execute("DELETE FROM party_table");
+        seatingChart.reload(PartyEvent.DEFAULT_ID);
         addTableRequest = new AddTableRequest();
         addTableRequest.setTableNumber(1);
         addTableRequest.setNoOfSeats(10);
+
+        SqlStatementCounter.reset();
     }
 
     @Test
@@ -52,6 +70,7 @@ class PartyTableControllerIT {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.number", is(1)))
                 .andExpect(jsonPath("$.noOfSeats", is(10)));
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", ADD_TABLE);
     }
 
     @Test
@@ -65,6 +84,7 @@ class PartyTableControllerIT {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addTableRequest)))
                 .andExpect(status().isCreated());
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", ADD_TABLE);
 
         addTableRequest = new AddTableRequest();
         addTableRequest.setTableNumber(3);
@@ -74,6 +94,7 @@ class PartyTableControllerIT {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addTableRequest)))
                 .andExpect(status().isCreated());
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", ADD_TABLE);
 
         addTableRequest = new AddTableRequest();
         addTableRequest.setTableNumber(4);
@@ -83,6 +104,7 @@ class PartyTableControllerIT {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addTableRequest)))
                 .andExpect(status().isCreated());
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", ADD_TABLE);
 
         // now add a table but don't provide number, system should do that  (should assign 2)
         addTableRequest = new AddTableRequest();
@@ -95,6 +117,7 @@ class PartyTableControllerIT {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.number", is(2)))
                 .andExpect(jsonPath("$.noOfSeats", is(10)));
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", addTableWithoutNumber(2));
 
         // now add another table and don't provide the number, system should do that  (should assign 5)
         addTableRequest = new AddTableRequest();
@@ -107,6 +130,7 @@ class PartyTableControllerIT {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.number", is(5)))
                 .andExpect(jsonPath("$.noOfSeats", is(8)));
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", addTableWithoutNumber(5));
     }
 
     @Test
@@ -116,10 +140,36 @@ class PartyTableControllerIT {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addTableRequest)))
                 .andExpect(status().isCreated());
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", ADD_TABLE);
 
         mockMvc.perform(get(URL))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(greaterThan(0))));
+        SqlStatementCounter.assertWithinBudget("GET /party_tables", ALL_TABLES);
+    }
+
+    @Test
+    void testUnchangedTablesAreNotSentAgain() throws Exception {
+        String etag = mockMvc.perform(get(URL))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        SqlStatementCounter.reset();
+
+        // Polling with the ETag does not read the tables again
+        mockMvc.perform(get(URL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        SqlStatementCounter.assertWithinBudget("GET /party_tables (not modified)", SqlBudget.none());
+
+        mockMvc.perform(post(URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addTableRequest)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(URL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$", hasSize(1)));
     }
 
     @Test
@@ -129,9 +179,104 @@ class PartyTableControllerIT {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(addTableRequest)))
                 .andExpect(status().isCreated());
+        SqlStatementCounter.assertWithinBudget("POST /party_tables", ADD_TABLE);
 
         // Now remove the table
         mockMvc.perform(delete(URL + "/1"))
                 .andExpect(status().isNoContent());
+        SqlStatementCounter.assertWithinBudget("DELETE /party_tables/1", REMOVE_TABLE);
+    }
+
+    @Test
+    void testHoldAndReleaseSeats() throws Exception {
+        mockMvc.perform(post(URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addTableRequest)))
+                .andExpect(status().isCreated());
+        SqlStatementCounter.reset();
+
+        String holdJson = mockMvc.perform(post(URL + "/holds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new HoldSeatsRequest(1, 4))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tableNumber", is(1)))
+                .andExpect(jsonPath("$.noOfSeats", is(4)))
+                .andExpect(jsonPath("$.expiresAt", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        SqlStatementCounter.assertWithinBudget("POST /party_tables/holds", HOLD_SEATS);
+        String holdId = objectMapper.readTree(holdJson).get("holdId").asText();
+
+        mockMvc.perform(get(URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].noOfSeatsHeld", is(4)))
+                .andExpect(jsonPath("$[0].unAllocatedSeats", is(6)));
+
+        // Only 6 seats are left to hold
+        mockMvc.perform(post(URL + "/holds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new HoldSeatsRequest(1, 7))))
+                .andExpect(status().isConflict());
+
+        // A table with held seats cannot be removed
+        mockMvc.perform(delete(URL + "/1"))
+                .andExpect(status().isConflict());
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(delete(URL + "/holds/" + holdId))
+                .andExpect(status().isNoContent());
+        SqlStatementCounter.assertWithinBudget("DELETE /party_tables/holds/{holdId}", RELEASE_HOLD);
+
+        mockMvc.perform(get(URL + "/seats_empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty", is(10)));
+
+        mockMvc.perform(delete(URL + "/holds/" + holdId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testTablesAreKeptSeparateForEachEvent() throws Exception {
+        mockMvc.perform(post(URL)
+                        .header(PartyEventHeader.NAME, "summer-party")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addTableRequest)))
+                .andExpect(status().isCreated());
+
+        // The same table number can be used by another event
+        mockMvc.perform(post(URL)
+                        .header(PartyEventHeader.NAME, "winter-party")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addTableRequest)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(URL).header(PartyEventHeader.NAME, "summer-party"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        // Requests without an event are for the default event, which has no tables
+        mockMvc.perform(get(URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(delete(URL + "/1").header(PartyEventHeader.NAME, "summer-party"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(URL).header(PartyEventHeader.NAME, "winter-party"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void testInvalidEventIsRejected() throws Exception {
+        mockMvc.perform(post(URL)
+                        .header(PartyEventHeader.NAME, "summer party!")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(addTableRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Without a table number each number is checked in turn until a free one is found
+    private static SqlBudget addTableWithoutNumber(int assignedNumber) {
+        return ADD_TABLE.selects(assignedNumber + 1);
     }
 }
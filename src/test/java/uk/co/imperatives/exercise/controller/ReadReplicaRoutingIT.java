@@ -0,0 +1,171 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.co.imperatives.exercise.datasource.ReplicaLagMonitor;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.service.GuestStore;
+import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+import uk.co.imperatives.exercise.service.SeatingChart;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uses a second in-memory H2 database as a stand-in for the read replica. Nothing copies the primary to it, so each
+ * test gives it its own tables and writes its heartbeat, so that reads can be told apart by where they were made.
+ */
+@SpringBootTest(properties = {
+        "party.read-replica.url=" + ReadReplicaRoutingIT.REPLICA_URL,
+        "party.read-replica.username=sa",
+        "party.read-replica.password=password",
+        "party.read-replica.max-lag=PT5S",
+        // Checked by the tests rather than on a schedule
+        "party.read-replica.check-interval=PT1H"})
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingIT {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PartyTableServiceInterface partyTableService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private SeatingChart seatingChart;
+
+    @Autowired
+    private GuestStore guestStore;
+
+    private JdbcTemplate replicaJdbc;
+
+    @BeforeEach
+    public void setup() {
+        jdbcTemplate.execute("DELETE FROM party_table");
+        jdbcTemplate.execute("DELETE FROM guest_list_entry");
+        seatingChart.reload(PartyEvent.DEFAULT_ID);
+        guestStore.reload(PartyEvent.DEFAULT_ID);
+        partyTableService.addTable(PartyEvent.DEFAULT_ID, 1, 10);
+
+        // The replica has the primary's tables but, as if it were behind, a different table in them
+        // The same in-memory database as the replica pool, reached without it
+        replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "password"));
+        replicaJdbc.execute("DROP ALL OBJECTS");
+        List<String> schema = jdbcTemplate.queryForList("SCRIPT NODATA", String.class);
+        schema.stream()
+                .filter(statement -> statement.startsWith("CREATE") && !statement.startsWith("CREATE USER"))
+                .forEach(replicaJdbc::execute);
+        replicaJdbc.update("INSERT INTO party_table (event_id, number, no_of_seats, no_of_seats_allocated, no_of_seats_held, version) "
+                + "VALUES (?, 7, 4, 0, 0, 0)", PartyEvent.DEFAULT_ID);
+    }
+
+    @Test
+    public void readOnlyRequestsShouldReadFromReplicaWhileItIsUpToDate() throws Exception {
+        replicaHeartbeat(System.currentTimeMillis());
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isUsingReplica());
+
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty").value(4));
+
+        // Writes, and the reads they make, still go to the primary
+        mockMvc.perform(post("/party_tables")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\":2,\"noOfSeats\":6}"))
+                .andExpect(status().isCreated());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM party_table", Integer.class));
+        assertEquals(1, replicaJdbc.queryForObject("SELECT COUNT(*) FROM party_table", Integer.class));
+    }
+
+    @Test
+    public void readOnlyRequestsShouldReadFromPrimaryWhileReplicaIsBehind() throws Exception {
+        replicaHeartbeat(System.currentTimeMillis() - 60_000);
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isUsingReplica());
+
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty").value(10));
+    }
+
+    @Test
+    public void readOnlyRequestsShouldReadFromPrimaryWhenReplicaCannotBeRead() throws Exception {
+        replicaHeartbeat(System.currentTimeMillis());
+        replicaLagMonitor.check();
+        replicaJdbc.execute("DROP TABLE replication_heartbeat");
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isUsingReplica());
+
+        mockMvc.perform(get("/party_tables/seats_empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seats_empty").value(10));
+    }
+
+    @Test
+    public void taggedTablesShouldBeReadFromPrimaryWhileReplicaIsInUse() throws Exception {
+        replicaHeartbeat(System.currentTimeMillis());
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isUsingReplica());
+
+        String tag = mockMvc.perform(get("/party_tables"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].number", contains(1)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The replica has not caught up with the new table
+        mockMvc.perform(post("/party_tables")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\":2,\"noOfSeats\":6}"))
+                .andExpect(status().isCreated());
+
+        String changedTag = mockMvc.perform(get("/party_tables").header(HttpHeaders.IF_NONE_MATCH, tag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].number", containsInAnyOrder(1, 2)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(tag, changedTag);
+
+        mockMvc.perform(get("/party_tables").header(HttpHeaders.IF_NONE_MATCH, changedTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void seatingChartShouldBeLoadedFromPrimary() throws Exception {
+        replicaHeartbeat(System.currentTimeMillis());
+        replicaLagMonitor.check();
+
+        mockMvc.perform(get("/party_tables/guests_at_table"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].tableNumber", contains(1)));
+    }
+
+    private void replicaHeartbeat(long beatMillis) {
+        replicaJdbc.update("DELETE FROM replication_heartbeat");
+        replicaJdbc.update("INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, ?)", beatMillis);
+    }
+}
@@ -0,0 +1,192 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import uk.co.imperatives.exercise.ExerciseApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = ExerciseApplication.class, properties = {SqlStatementCounter.PROPERTY,
+        "party.seating-plan.time-limit=PT1S", "party.seating-plan.threads=2"})
+@AutoConfigureMockMvc
+public class SeatingPlanControllerIT {
+
+    // Reading the tables and guests to plan and apply, then updating the two guests, who swap tables so neither
+    // table's allocated seats change
+    private static final SqlBudget REARRANGE_SEATING = SqlBudget.none().selects(4).updates(2);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Each test has its own event, so its guests and tables are not changed by other tests
+    private String eventId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        eventId = "seating-plan-" + UUID.randomUUID();
+        addTable(1, 4);
+        addTable(2, 4);
+
+        // Each couple is split between the tables, and the two ducks are at the same table
+        addGuest("Mickey Mouse", 1, 0);
+        addGuest("Donald Duck", 1, 0);
+        addGuest("Minnie Mouse", 2, 0);
+        addGuest("Daisy Duck", 2, 0);
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    public void rearrangeSeatingShouldSeatGroupsTogetherAndApart() throws Exception {
+        rearrange("{\"together\":[[\"Mickey Mouse\",\"Minnie Mouse\"],[\"Donald Duck\",\"Daisy Duck\"]],"
+                + "\"apart\":[[\"Mickey Mouse\",\"Donald Duck\"]]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.moves", hasSize(2)))
+                .andExpect(jsonPath("$.unmetTogether").value(0))
+                .andExpect(jsonPath("$.unmetApart").value(0));
+        SqlStatementCounter.assertWithinBudget("POST /seating_plan", REARRANGE_SEATING);
+
+        int mickeysTable = tableOf("Mickey Mouse");
+        int donaldsTable = 3 - mickeysTable;
+        assertEquals(mickeysTable, tableOf("Minnie Mouse"));
+        assertEquals(donaldsTable, tableOf("Donald Duck"));
+        assertEquals(donaldsTable, tableOf("Daisy Duck"));
+
+        mockMvc.perform(get("/party_tables/guests_at_table/{tableNumber}", mickeysTable).header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guests[*].name", containsInAnyOrder("Mickey Mouse", "Minnie Mouse")));
+        assertEquals(2, seatsAllocated(1));
+        assertEquals(2, seatsAllocated(2));
+    }
+
+    @Test
+    public void rearrangeSeatingShouldNotOverbookTables() throws Exception {
+        addGuest("Goofy", 2, 1);
+
+        // The six seats of the group cannot all be at a table of four, however the guests are moved
+        rearrange("{\"together\":[[\"Mickey Mouse\",\"Donald Duck\",\"Minnie Mouse\",\"Daisy Duck\",\"Goofy\"]]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.unmetTogether").value(1));
+
+        assertTrue(seatsAllocated(1) <= 4, "Table 1 is overbooked");
+        assertTrue(seatsAllocated(2) <= 4, "Table 2 is overbooked");
+        assertEquals(6, seatsAllocated(1) + seatsAllocated(2));
+    }
+
+    @Test
+    public void rearrangeSeatingShouldNotMoveGuestsWhoHaveArrived() throws Exception {
+        mockMvc.perform(put("/guest_list/arrive")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Mickey Mouse\",\"accompanyingGuests\":0}"))
+                .andExpect(status().isOk());
+
+        rearrange("{\"together\":[[\"Mickey Mouse\",\"Minnie Mouse\"]]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.moves[0].name").value("Minnie Mouse"))
+                .andExpect(jsonPath("$.moves[0].toTable").value(1));
+
+        assertEquals(1, tableOf("Mickey Mouse"));
+        assertEquals(1, tableOf("Minnie Mouse"));
+    }
+
+    @Test
+    public void rearrangeSeatingShouldTurnAwayPlansWhileAnotherIsBeingWorkedOut() throws Exception {
+        addGuest("Goofy", 2, 1);
+
+        // A group that cannot be met keeps the search going for its whole time limit
+        String unmetGroup = "{\"together\":[[\"Mickey Mouse\",\"Donald Duck\",\"Minnie Mouse\",\"Daisy Duck\",\"Goofy\"]]}";
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return rearrange(unmetGroup).andReturn().getResponse();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Mickey Mouse and Donald Duck already sit together, so this plan moves nobody and cannot change the first.
+        // Whichever of the two plans starts second, while the other is being worked out, is turned away
+        String metGroup = "{\"together\":[[\"Mickey Mouse\",\"Donald Duck\"]]}";
+        List<MockHttpServletResponse> turnedAway = new ArrayList<>();
+        while (turnedAway.isEmpty() && !first.isDone()) {
+            var response = rearrange(metGroup).andReturn().getResponse();
+            if (response.getStatus() == 503) {
+                turnedAway.add(response);
+            }
+        }
+        if (first.get().getStatus() != 200) {
+            turnedAway.add(first.get());
+        }
+
+        assertEquals(1, turnedAway.size(), "Exactly one of the two plans should have been turned away");
+        assertEquals(503, turnedAway.get(0).getStatus());
+        assertEquals("1", turnedAway.get(0).getHeader("Retry-After"));
+        rearrange(metGroup).andExpect(status().isOk());
+    }
+
+    @Test
+    public void rearrangeSeatingShouldReturnNotFoundForUnknownGuest() throws Exception {
+        rearrange("{\"together\":[[\"Mickey Mouse\",\"Pluto\"]]}")
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void rearrangeSeatingShouldRejectGroupsOfOneGuest() throws Exception {
+        rearrange("{\"together\":[[\"Mickey Mouse\"]]}")
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions rearrange(String content) throws Exception {
+        return mockMvc.perform(post("/seating_plan")
+                .header(PartyEventHeader.NAME, eventId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content));
+    }
+
+    private void addTable(int number, int noOfSeats) throws Exception {
+        mockMvc.perform(post("/party_tables")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tableNumber\":" + number + ",\"noOfSeats\":" + noOfSeats + "}"))
+                .andExpect(status().isCreated());
+    }
+
+    private void addGuest(String name, int table, int accompanyingGuests) throws Exception {
+        mockMvc.perform(post("/guest_list")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"table\":" + table + ",\"accompanyingGuests\":" + accompanyingGuests + "}"))
+                .andExpect(status().isCreated());
+    }
+
+    private int tableOf(String name) {
+        return jdbcTemplate.queryForObject("SELECT table_number FROM guest_list_entry WHERE event_id = ? AND name = ?",
+                Integer.class, eventId, name);
+    }
+
+    private int seatsAllocated(int table) {
+        return jdbcTemplate.queryForObject("SELECT no_of_seats_allocated FROM party_table WHERE event_id = ? AND number = ?",
+                Integer.class, eventId, table);
+    }
+}
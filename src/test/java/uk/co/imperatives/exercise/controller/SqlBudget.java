@@ -0,0 +1,37 @@
+package uk.co.imperatives.exercise.controller;
+
+/**
+ * The most SQL statements of each type a controller call is allowed to make.
+ */
+public record SqlBudget(int selects, int inserts, int updates, int deletes) {
+
+    public static SqlBudget none() {
+        return new SqlBudget(0, 0, 0, 0);
+    }
+
+    public SqlBudget selects(int selects) {
+        return new SqlBudget(selects, inserts, updates, deletes);
+    }
+
+    public SqlBudget inserts(int inserts) {
+        return new SqlBudget(selects, inserts, updates, deletes);
+    }
+
+    public SqlBudget updates(int updates) {
+        return new SqlBudget(selects, inserts, updates, deletes);
+    }
+
+    public SqlBudget deletes(int deletes) {
+        return new SqlBudget(selects, inserts, updates, deletes);
+    }
+
+    int allowed(SqlStatementCounter.Type type) {
+        return switch (type) {
+            case SELECT -> selects;
+            case INSERT -> inserts;
+            case UPDATE -> updates;
+            case DELETE -> deletes;
+            case OTHER -> 0;
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Counts the SQL statements Hibernate sends to the database, by type, so that tests can check the
+ * statements made by a controller call stay within a budget.
+ * <p>
+ * Hibernate creates the inspector itself, from the
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector} property, so the counts are
+ * static.  They are shared by all threads, which means statements run on another thread on behalf of a
+ * call are included.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=uk.co.imperatives.exercise.controller.SqlStatementCounter";
+
+    public enum Type {SELECT, INSERT, UPDATE, DELETE, OTHER}
+
+    private static final Map<Type, AtomicInteger> counts = new EnumMap<>(Type.class);
+
+    static {
+        for (Type type : Type.values()) {
+            counts.put(type, new AtomicInteger());
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        counts.get(typeOf(sql)).incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        counts.values().forEach(count -> count.set(0));
+    }
+
+    public static int count(Type type) {
+        return counts.get(type).get();
+    }
+
+    /**
+     * Fails if more statements of any type were made since the last {@link #reset()} than the budget allows,
+     * then resets the counts ready for the next call.
+     */
+    public static void assertWithinBudget(String call, SqlBudget budget) {
+        StringBuilder exceeded = new StringBuilder();
+        for (Type type : Type.values()) {
+            if (count(type) > budget.allowed(type)) {
+                exceeded.append(String.format(" %s %d > %d", type, count(type), budget.allowed(type)));
+            }
+        }
+        String counted = counts.toString();
+        reset();
+
+        if (!exceeded.isEmpty()) {
+            fail(call + " exceeded its SQL statement budget:" + exceeded + ", statements made " + counted);
+        }
+    }
+
+    private static Type typeOf(String sql) {
+        String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (statement.startsWith("select") || statement.startsWith("with")) {
+            return Type.SELECT;
+        } else if (statement.startsWith("insert")) {
+            return Type.INSERT;
+        } else if (statement.startsWith("update")) {
+            return Type.UPDATE;
+        } else if (statement.startsWith("delete")) {
+            return Type.DELETE;
+        }
+        return Type.OTHER;
+    }
+}
@@ -0,0 +1,166 @@
+package uk.co.imperatives.exercise.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import uk.co.imperatives.exercise.dto.JoinWaitlistRequestDto;
+import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class WaitlistControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PartyTableServiceInterface partyTableService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Each test has its own event, so guests left waiting by one test are not seated by another
+    private String eventId;
+
+    @BeforeEach
+    public void setup() {
+        eventId = "waitlist-" + UUID.randomUUID();
+        partyTableService.addTable(eventId, 1, 4);
+    }
+
+    @Test
+    public void joinWaitlistShouldSeatGuestWhenThereIsRoom() throws Exception {
+        joinWaitlist("Mickey Mouse", 3)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tableNumber").value(1));
+
+        mockMvc.perform(get("/waitlist").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    public void waitingGuestsShouldBeSeatedWhenSeatsAreFreed() throws Exception {
+        joinWaitlist("Mickey Mouse", 3).andExpect(status().isCreated());
+        joinWaitlist("Donald Duck", 4).andExpect(status().isAccepted());
+        joinWaitlist("Minnie Mouse", 1).andExpect(status().isAccepted());
+        joinWaitlist("Goofy", 0).andExpect(status().isAccepted());
+
+        mockMvc.perform(get("/waitlist").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Donald Duck"))
+                .andExpect(jsonPath("$[1].name").value("Minnie Mouse"))
+                .andExpect(jsonPath("$[2].name").value("Goofy"));
+
+        mockMvc.perform(delete("/guest_list/Mickey Mouse").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNoContent());
+
+        // Donald Duck's party of five does not fit at the table, the two parties behind them do
+        awaitWaitlistSize(1);
+        mockMvc.perform(get("/guest_list").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", containsInAnyOrder("Minnie Mouse", "Goofy")));
+
+        // A new table with room for Donald Duck's party
+        mockMvc.perform(post("/party_tables")
+                        .header(PartyEventHeader.NAME, eventId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"noOfSeats\": 6}"))
+                .andExpect(status().isCreated());
+
+        awaitWaitlistSize(0);
+        mockMvc.perform(get("/party_tables/guests_at_table/2").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guests[0].name").value("Donald Duck"));
+    }
+
+    @Test
+    public void partyLargerThanAnyTableShouldBeSeatedAcrossAdjacentTables() throws Exception {
+        partyTableService.addTable(eventId, 2, 4);
+
+        // A party of six is split across the two tables of four straight away
+        joinWaitlist("Snow White", 5)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tableNumber").value(1))
+                .andExpect(jsonPath("$.lastTableNumber").value(2));
+        mockMvc.perform(delete("/guest_list/Snow White").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNoContent());
+
+        // Once both tables are full it waits, until freeing seats at either table leaves enough across the two
+        joinWaitlist("Mickey Mouse", 3).andExpect(status().isCreated());
+        joinWaitlist("Minnie Mouse", 3).andExpect(status().isCreated());
+        joinWaitlist("Donald Duck", 5).andExpect(status().isAccepted());
+
+        mockMvc.perform(delete("/guest_list/Mickey Mouse").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/guest_list/Minnie Mouse").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNoContent());
+
+        awaitWaitlistSize(0);
+        mockMvc.perform(get("/guest_list").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'Donald Duck')].tableNumber").value(1))
+                .andExpect(jsonPath("$[?(@.name == 'Donald Duck')].lastTableNumber").value(2));
+    }
+
+    @Test
+    public void joinWaitlistShouldRejectGuestAlreadyWaiting() throws Exception {
+        joinWaitlist("Mickey Mouse", 3).andExpect(status().isCreated());
+        joinWaitlist("Mickey Mouse", 0).andExpect(status().isConflict());
+
+        joinWaitlist("Donald Duck", 1).andExpect(status().isAccepted());
+        joinWaitlist("Donald Duck", 1).andExpect(status().isConflict());
+    }
+
+    @Test
+    public void leaveWaitlistShouldRemoveGuest() throws Exception {
+        joinWaitlist("Mickey Mouse", 3).andExpect(status().isCreated());
+        joinWaitlist("Donald Duck", 1).andExpect(status().isAccepted());
+
+        mockMvc.perform(delete("/waitlist/Donald Duck").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/waitlist/Donald Duck").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/guest_list/Mickey Mouse").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/guest_list").header(PartyEventHeader.NAME, eventId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    private ResultActions joinWaitlist(String name, int accompanyingGuests) throws Exception {
+        return mockMvc.perform(post("/waitlist")
+                .header(PartyEventHeader.NAME, eventId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new JoinWaitlistRequestDto(name, accompanyingGuests))));
+    }
+
+    // Waiting guests are seated on the event's writer thread after the request that freed the seats has finished
+    private void awaitWaitlistSize(int size) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            String waitlist = mockMvc.perform(get("/waitlist").header(PartyEventHeader.NAME, eventId))
+                    .andReturn().getResponse().getContentAsString();
+            if (objectMapper.readTree(waitlist).size() == size || System.currentTimeMillis() > deadline) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        mockMvc.perform(get("/waitlist").header(PartyEventHeader.NAME, eventId))
+                .andExpect(jsonPath("$.length()").value(size));
+    }
+}
@@ -0,0 +1,63 @@
+package uk.co.imperatives.exercise.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.repository.GroupSeatRepository;
+import uk.co.imperatives.exercise.repository.WaitlistEntryRepository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RepositoryMetricsAspectTests {
+
+    @Mock
+    private GroupSeatRepository groupSeatRepository;
+
+    @Mock
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this); // Initialize the mocks
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RepositoryCallCounter.clear();
+    }
+
+    @Test
+    void shouldCountCallsToEveryRepository() {
+        AtomicInteger requestCalls = RepositoryCallCounter.start();
+
+        proxied(groupSeatRepository).findAllByGuestIdOrderByTableNumber(1L);
+        proxied(waitlistEntryRepository).existsByEventIdAndName(PartyEvent.DEFAULT_ID, "Mickey Mouse");
+        proxied(waitlistEntryRepository).existsByEventIdAndName(PartyEvent.DEFAULT_ID, "Donald Duck");
+
+        assertEquals(3, requestCalls.get());
+        assertEquals(1, meterRegistry.get(RepositoryMetricsAspect.REPOSITORY_CALLS)
+                .tag("repository", "GroupSeatRepository")
+                .tag("method", "findAllByGuestIdOrderByTableNumber")
+                .counter().count());
+        assertEquals(2, meterRegistry.get(RepositoryMetricsAspect.REPOSITORY_CALLS)
+                .tag("repository", "WaitlistEntryRepository")
+                .tag("method", "existsByEventIdAndName")
+                .counter().count());
+    }
+
+    private <T> T proxied(T repository) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(repository);
+        proxyFactory.addAspect(new RepositoryMetricsAspect(meterRegistry));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,99 @@
+package uk.co.imperatives.exercise.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import uk.co.imperatives.exercise.model.PartyEvent;
+import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.model.PartyTableId;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.service.DataVersions;
+import uk.co.imperatives.exercise.service.PartyTableService;
+import uk.co.imperatives.exercise.service.PartyTableServiceInterface;
+import uk.co.imperatives.exercise.service.SeatHoldRegistry;
+import uk.co.imperatives.exercise.service.SeatingChart;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class ServiceMetricsAspectTests {
+
+    @Mock
+    private PartyTableRepository partyTableRepository;
+
+    @Mock
+    private SeatHoldRegistry seatHolds;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DataVersions dataVersions;
+
+    @Mock
+    private SeatingChart seatingChart;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PartyTableServiceInterface partyTableService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this); // Initialize the mocks
+        meterRegistry = new SimpleMeterRegistry();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new PartyTableService(partyTableRepository, seatHolds, eventPublisher, dataVersions, seatingChart));
+        proxyFactory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        partyTableService = proxyFactory.getProxy();
+    }
+
+    @Test
+    void shouldTimeSuccessfulServiceCalls() {
+        when(partyTableRepository.findAllByEventId(PartyEvent.DEFAULT_ID)).thenReturn(List.of(PartyTable.builder().number(1).noOfSeats(4).build()));
+
+        partyTableService.getTotalEmptySeats(PartyEvent.DEFAULT_ID);
+        partyTableService.getTotalEmptySeats(PartyEvent.DEFAULT_ID);
+
+        var timer = meterRegistry.get(ServiceMetricsAspect.SERVICE_CALLS)
+                .tag("service", "PartyTableService")
+                .tag("method", "getTotalEmptySeats")
+                .tag("outcome", "success")
+                .timer();
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void shouldCountExceptionsByType() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> partyTableService.addTable(PartyEvent.DEFAULT_ID, 0));
+
+        var counter = meterRegistry.get(ServiceMetricsAspect.SERVICE_EXCEPTIONS)
+                .tag("method", "addTable")
+                .tag("exception", "IllegalArgumentException")
+                .counter();
+        assertEquals(1, counter.count());
+    }
+
+    @Test
+    void shouldCountOptimisticLockingFailuresAsLockConflicts() {
+        when(partyTableRepository.findById(new PartyTableId(PartyEvent.DEFAULT_ID, 1))).thenReturn(java.util.Optional.of(PartyTable.builder().number(1).noOfSeats(4).build()));
+        when(partyTableRepository.save(any(PartyTable.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(PartyTable.class, 1));
+
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () -> partyTableService.increaseOccupancy(PartyEvent.DEFAULT_ID, 1, 2));
+
+        var counter = meterRegistry.get(ServiceMetricsAspect.SERVICE_EXCEPTIONS)
+                .tag("method", "increaseOccupancy")
+                .tag("exception", ServiceMetricsAspect.LOCK_CONFLICT)
+                .counter();
+        assertEquals(1, counter.count());
+    }
+}
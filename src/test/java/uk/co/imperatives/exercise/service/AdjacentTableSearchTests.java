@@ -0,0 +1,75 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.model.PartyTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdjacentTableSearchTests {
+
+    @Test
+    void shouldSplitPartyAcrossFewestAdjacentTables() {
+        // 4 free, then 10, 10 and 6 free at tables 2 to 4
+        var tables = List.of(table(1, 4), table(2, 10), table(3, 10), table(4, 6));
+
+        assertEquals(List.of(new TableSeats(2, 10), new TableSeats(3, 7)), AdjacentTableSearch.fewestTables(tables, 17));
+        assertEquals(List.of(new TableSeats(1, 4), new TableSeats(2, 10), new TableSeats(3, 10), new TableSeats(4, 6)),
+                AdjacentTableSearch.fewestTables(tables, 30));
+        assertEquals(List.of(), AdjacentTableSearch.fewestTables(tables, 31));
+    }
+
+    @Test
+    void shouldPreferTablesLeavingFewestSeatsSpare() {
+        // Tables 1 and 2 would leave 6 seats spare, tables 3 and 4 leave none
+        var tables = List.of(table(1, 10), table(2, 10), table(3, 8), table(4, 6));
+
+        assertEquals(List.of(new TableSeats(3, 8), new TableSeats(4, 6)), AdjacentTableSearch.fewestTables(tables, 14));
+    }
+
+    @Test
+    void shouldNotSplitPartyAcrossGapsOrFullTables() {
+        // Table 3 is full and there is no table 6, so no two adjacent tables have 14 free seats
+        var tables = List.of(table(1, 5), table(2, 8), table(3, 0), table(4, 8), table(5, 5), table(7, 10));
+
+        assertEquals(List.of(), AdjacentTableSearch.fewestTables(tables, 14));
+        // Tables 1 and 2 and tables 4 and 5 both fit 13 exactly, so the lower numbered are taken
+        assertEquals(List.of(new TableSeats(1, 5), new TableSeats(2, 8)), AdjacentTableSearch.fewestTables(tables, 13));
+    }
+
+    @Test
+    void shouldTakeHeldSeatsAsUnavailable() {
+        var held = PartyTable.builder().eventId("summer-party").number(2).noOfSeats(10).noOfSeatsAllocated(2).noOfSeatsHeld(4).build();
+        var tables = List.of(table(1, 10), held);
+
+        assertEquals(List.of(new TableSeats(1, 10), new TableSeats(2, 4)), AdjacentTableSearch.fewestTables(tables, 14));
+        assertEquals(List.of(), AdjacentTableSearch.fewestTables(tables, 15));
+    }
+
+    @Test
+    void shouldFindTablesAtTheEndOfAVenueOfThousandsOfTables() {
+        List<PartyTable> tables = new ArrayList<>();
+        for (int number = 1; number <= 5000; number++) {
+            tables.add(table(number, number <= 4990 ? 3 : 10));
+        }
+
+        assertEquals(List.of(new TableSeats(4991, 10), new TableSeats(4992, 10), new TableSeats(4993, 5)),
+                AdjacentTableSearch.fewestTables(tables, 25));
+    }
+
+    @Test
+    void shouldFindLargestPartyAnyRunOfAdjacentTablesCanSeat() {
+        // Table 3 is full and there is no table 6, so the runs have 13, 13 and 10 free seats
+        var tables = List.of(table(1, 5), table(2, 8), table(3, 0), table(4, 8), table(5, 5), table(7, 10));
+
+        assertEquals(13, AdjacentTableSearch.largestParty(tables));
+        assertEquals(0, AdjacentTableSearch.largestParty(List.of(table(1, 0), table(2, 0))));
+        assertEquals(0, AdjacentTableSearch.largestParty(List.of()));
+    }
+
+    private static PartyTable table(int number, int freeSeats) {
+        return PartyTable.builder().eventId("summer-party").number(number).noOfSeats(10).noOfSeatsAllocated(10 - freeSeats).build();
+    }
+}
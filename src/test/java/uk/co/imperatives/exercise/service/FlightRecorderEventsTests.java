@@ -0,0 +1,120 @@
+package uk.co.imperatives.exercise.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.model.PartyTableId;
+import uk.co.imperatives.exercise.repository.PartyTableRepository;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+public class FlightRecorderEventsTests {
+    private static final String EVENT_ID = "summer-party";
+
+    @Mock
+    private PartyTableRepository partyTableRepository;
+
+    @Mock
+    private SeatHoldRegistry seatHolds;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DataVersions dataVersions;
+
+    @Mock
+    private SeatingChart seatingChart;
+
+    @InjectMocks
+    private PartyTableService partyTableService;
+
+    @TempDir
+    private Path recordingDirectory;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void partySettingsShouldRecordTableSelectionAndOccupancyChanges() throws Exception {
+        var fullTable = PartyTable.builder().eventId(EVENT_ID).number(1).noOfSeats(4).noOfSeatsAllocated(4).build();
+        var emptyTable = PartyTable.builder().eventId(EVENT_ID).number(2).noOfSeats(6).noOfSeatsAllocated(0).build();
+        when(partyTableRepository.findAllByEventId(EVENT_ID)).thenReturn(List.of(fullTable, emptyTable));
+        when(partyTableRepository.findById(new PartyTableId(EVENT_ID, 2))).thenReturn(Optional.of(emptyTable));
+
+        List<RecordedEvent> events = record(() -> {
+            int table = partyTableService.getTableWithAvailableSeating(EVENT_ID, 3);
+            partyTableService.increaseOccupancy(EVENT_ID, table, 3);
+        });
+
+        assertEquals(2, events.size());
+        RecordedEvent selection = events.get(0);
+        assertEquals("party.TableSelection", selection.getEventType().getName());
+        assertEquals(3, selection.getInt("seatsWanted"));
+        assertEquals(2, selection.getInt("tables"));
+        assertEquals(1, selection.getInt("candidates"));
+        assertEquals(2, selection.getInt("chosenTable"));
+
+        RecordedEvent occupancy = events.get(1);
+        assertEquals("party.OccupancyChange", occupancy.getEventType().getName());
+        assertEquals(2, occupancy.getInt("tableNumber"));
+        assertEquals(3, occupancy.getInt("seatsChanged"));
+        assertEquals(3, occupancy.getInt("seatsAllocated"));
+    }
+
+    @Test
+    void partyEventsShouldBeOffWithoutThePartySettings() throws Exception {
+        when(partyTableRepository.findAllByEventId(EVENT_ID)).thenReturn(List.of());
+
+        try (var recording = new Recording(Configuration.getConfiguration("default"))) {
+            recording.start();
+            partyTableService.getTableWithAvailableSeating(EVENT_ID, 3);
+            recording.stop();
+            Path file = recordingDirectory.resolve("default.jfr");
+            recording.dump(file);
+
+            assertEquals(0, RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("party."))
+                    .count());
+        }
+    }
+
+    private List<RecordedEvent> record(Runnable work) throws Exception {
+        Configuration partySettings;
+        try (Reader reader = new InputStreamReader(
+                Objects.requireNonNull(getClass().getResourceAsStream("/jfr/party.jfc")), StandardCharsets.UTF_8)) {
+            partySettings = Configuration.create(reader);
+        }
+
+        try (var recording = new Recording(partySettings)) {
+            recording.start();
+            work.run();
+            recording.stop();
+            Path file = recordingDirectory.resolve("party.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("party."))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.co.imperatives.exercise.dto.GuestAnalyticsDto;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.GuestView;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class GuestAnalyticsTests {
+    private static final String EVENT_ID = "summer-party";
+    private static final LocalDateTime EIGHT_PM = LocalDateTime.of(2024, 6, 21, 20, 0, 0);
+    private static final LocalDateTime NINE_PM = EIGHT_PM.plusHours(1);
+
+    @Mock
+    private GuestListEntryRepository guestListEntryRepository;
+
+    @Mock
+    private PartyEventExecutor partyEventExecutor;
+
+    private GuestAnalytics guestAnalytics;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(partyEventExecutor.executeInternal(eq(EVENT_ID), any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+        when(partyEventExecutor.hasWriter(EVENT_ID)).thenReturn(true);
+        guestAnalytics = new GuestAnalytics(new GuestStore(guestListEntryRepository, partyEventExecutor),
+                partyEventExecutor, Clock.fixed(NINE_PM.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldWorkOutAnalyticsFromGuestsAndFollowChanges() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(views(
+                guest("Arrived", 1, EIGHT_PM.plusMinutes(30), null),
+                guest("Left", 3, EIGHT_PM.plusMinutes(5), EIGHT_PM.plusMinutes(55)),
+                guest("Not Arrived", 0, null, null)));
+
+        var analytics = guestAnalytics.analytics(EVENT_ID);
+        assertEquals(GuestAnalytics.MINUTES, analytics.getArrivalsPerMinute().size());
+        assertEquals(EIGHT_PM.plusMinutes(1), analytics.getArrivalsPerMinute().getFirst().getMinute());
+        assertEquals(NINE_PM, analytics.getArrivalsPerMinute().getLast().getMinute());
+        assertEquals(2, arrivalsAt(analytics, EIGHT_PM.plusMinutes(30)));
+        assertEquals(4, arrivalsAt(analytics, EIGHT_PM.plusMinutes(5)));
+        assertEquals(1, analytics.getPartiesLeft());
+        assertEquals(3000, analytics.getMedianStaySeconds(), 30);
+        assertEquals(1, analytics.getPartySizes().get("1"));
+        assertEquals(1, analytics.getPartySizes().get("2"));
+        assertEquals(1, analytics.getPartySizes().get("4"));
+
+        guestAnalytics.partySizeChanged(EVENT_ID, 1, 12);
+        guestAnalytics.guestArrived(EVENT_ID, NINE_PM, 12);
+        guestAnalytics.guestLeft(EVENT_ID, EIGHT_PM.plusMinutes(30), EIGHT_PM.plusMinutes(40));
+
+        analytics = guestAnalytics.analytics(EVENT_ID);
+        assertEquals(12, arrivalsAt(analytics, NINE_PM));
+        assertEquals(2, analytics.getPartiesLeft());
+        assertEquals(600, analytics.getMedianStaySeconds(), 6);
+        assertEquals(0, analytics.getPartySizes().get("1"));
+        assertEquals(1, analytics.getPartySizes().get("10+"));
+    }
+
+    @Test
+    void shouldKeepOnlyTheLastHourOfArrivals() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(List.of());
+
+        assertNull(guestAnalytics.analytics(EVENT_ID).getMedianStaySeconds());
+
+        // Arrivals an hour apart share a slot of the ring buffer, and only the later is kept
+        guestAnalytics.guestArrived(EVENT_ID, EIGHT_PM.plusMinutes(30), 1);
+        guestAnalytics.guestArrived(EVENT_ID, EIGHT_PM.plusMinutes(30).minusHours(1), 5);
+        guestAnalytics.guestArrived(EVENT_ID, EIGHT_PM.minusMinutes(30), 3);
+
+        var analytics = guestAnalytics.analytics(EVENT_ID);
+        assertEquals(1, arrivalsAt(analytics, EIGHT_PM.plusMinutes(30)));
+        assertEquals(1, analytics.getArrivalsPerMinute().stream().mapToLong(GuestAnalyticsDto.MinuteArrivals::getGuests).sum());
+    }
+
+    @Test
+    void shouldGiveMedianAndP95StayOfManyGuests() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(List.of());
+        guestAnalytics.analytics(EVENT_ID);
+
+        for (int minutes = 1; minutes <= 1000; minutes++) {
+            guestAnalytics.guestLeft(EVENT_ID, EIGHT_PM, EIGHT_PM.plusMinutes(minutes));
+        }
+
+        var analytics = guestAnalytics.analytics(EVENT_ID);
+        assertEquals(1000, analytics.getPartiesLeft());
+        assertEquals(500 * 60, analytics.getMedianStaySeconds(), 500 * 60 / 100.0);
+        assertEquals(950 * 60, analytics.getP95StaySeconds(), 950 * 60 / 100.0);
+    }
+
+    private static long arrivalsAt(GuestAnalyticsDto analytics, LocalDateTime minute) {
+        return analytics.getArrivalsPerMinute().stream()
+                .filter(arrivals -> arrivals.getMinute().equals(minute))
+                .findFirst()
+                .orElseThrow()
+                .getGuests();
+    }
+
+    // The guests as the repository reads them to load the store
+    private static List<GuestView> views(GuestListEntry... guests) {
+        return Arrays.stream(guests).map(GuestView::of).toList();
+    }
+
+    private static GuestListEntry guest(String name, int accompanyingGuests, LocalDateTime timeArrived, LocalDateTime timeLeft) {
+        return GuestListEntry.builder()
+                .eventId(EVENT_ID)
+                .name(name)
+                .tableNumber(1)
+                .accompanyingGuests(accompanyingGuests)
+                .timeArrived(timeArrived)
+                .timeLeft(timeLeft)
+                .build();
+    }
+}
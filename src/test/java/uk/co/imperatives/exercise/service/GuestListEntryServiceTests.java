@@ -8,8 +8,10 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import uk.co.imperatives.exercise.exception.NoAvailabilityException;
 import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GroupSeatRepository;
 import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -17,6 +19,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.*;
 
 public class GuestListEntryServiceTests {
+    private static final String EVENT_ID = "summer-party";
+
 
     @Mock
     private GuestListEntryRepository guestListEntryRepository;
@@ -24,6 +28,21 @@ public class GuestListEntryServiceTests {
     @Mock
     private PartyTableServiceInterface tableService;
 
+    @Mock
+    private DataVersions dataVersions;
+
+    @Mock
+    private SeatingChart seatingChart;
+
+    @Mock
+    private GuestStore guestStore;
+
+    @Mock
+    private GuestAnalytics guestAnalytics;
+
+    @Mock
+    private GroupSeatRepository groupSeatRepository;
+
     @InjectMocks
     private GuestListService guestListService;
 
@@ -35,14 +54,14 @@ public class GuestListEntryServiceTests {
     @Test
     void shouldAddGuestToGuestList() {
         // table 1 has availability for 3
-        when(tableService.hasAvailability(1, 3)).thenReturn(true);
+        when(tableService.hasAvailability(EVENT_ID, 1, 3)).thenReturn(true);
         GuestListEntry guestListEntry = GuestListEntry.builder().name("John").tableNumber(1).accompanyingGuests(2).build();
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("John").table(1).accompanyingGuests(2).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         // Validate the result
         assertNotNull(result);
@@ -54,16 +73,16 @@ public class GuestListEntryServiceTests {
     @Test
     void shouldUpdateExistingGuestOnGuestList() {
         // table 2 has availability for 4
-        when(tableService.hasAvailability(2, 4)).thenReturn(true);
+        when(tableService.hasAvailability(EVENT_ID, 2, 4)).thenReturn(true);
         GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("John").tableNumber(1).accompanyingGuests(2).build();
         GuestListEntry guestListEntry = GuestListEntry.builder().name("John").tableNumber(2).accompanyingGuests(3).build();
-        when(guestListEntryRepository.findById("John")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "John")).thenReturn(Optional.of(existingGuestListEntry));
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("John").table(2).accompanyingGuests(3).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         // Validate the result
         assertNotNull(result);
@@ -75,14 +94,14 @@ public class GuestListEntryServiceTests {
     @Test
     void shouldAddGuestToGuestListAndAssignAvailableTable() {
         // table 2 has availability for 6
-        when(tableService.getTableWithAvailableSeating(anyInt())).thenReturn(2);
+        when(tableService.findSeats(EVENT_ID, 6)).thenReturn(List.of(new TableSeats(2, 6)));
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Elton John").tableNumber(2).accompanyingGuests(5).build();
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("Elton John").accompanyingGuests(5).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         // Validate the result
         assertNotNull(result);
@@ -94,16 +113,16 @@ public class GuestListEntryServiceTests {
     @Test
     void shouldUpdateExistingGuestOnGuestListAndAssignAvailableTable() {
         // table 3 has availability for 6
-        when(tableService.getTableWithAvailableSeating(6)).thenReturn(3);
+        when(tableService.findSeats(EVENT_ID, 6)).thenReturn(List.of(new TableSeats(3, 6)));
         GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("Elton John").tableNumber(2).accompanyingGuests(3).build();
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Elton John").tableNumber(3).accompanyingGuests(5).build();
-        when(guestListEntryRepository.findById("Elton John")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Elton John")).thenReturn(Optional.of(existingGuestListEntry));
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("Elton John").accompanyingGuests(5).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         assertNotNull(result);
         assertEquals("Elton John", result.getName());
@@ -115,10 +134,10 @@ public class GuestListEntryServiceTests {
     void shouldUpdateExistingGuestsName() {
         GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("Cris Whitley").tableNumber(10).accompanyingGuests(5).build();
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Chris Whiteley").tableNumber(10).accompanyingGuests(5).build();
-        when(guestListEntryRepository.findById("Cris Whitley")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Cris Whitley")).thenReturn(Optional.of(existingGuestListEntry));
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
-        GuestListEntry result = guestListService.updateName("Cris Whitley", "Chris Whiteley");
+        GuestListEntry result = guestListService.updateName(EVENT_ID, "Cris Whitley", "Chris Whiteley");
 
         assertNotNull(result);
         assertEquals("Chris Whiteley", result.getName());
@@ -128,12 +147,12 @@ public class GuestListEntryServiceTests {
 
     @Test
     void shouldNotifyWhenSpecifiedTableDoesNotHaveTheAvailability() {
-        when(tableService.hasAvailability(2, 4)).thenReturn(false);
+        when(tableService.hasAvailability(EVENT_ID, 2, 4)).thenReturn(false);
 
         NoAvailabilityException thrown = Assertions.assertThrows(NoAvailabilityException.class, () -> {
             // Build request and call service
             AddGuestRequest request = AddGuestRequest.builder().name("John").table(2).accompanyingGuests(3).build();
-            guestListService.addGuest(request);
+            guestListService.addGuest(EVENT_ID, request);
         });
 
         Assertions.assertEquals("Table 2 does not have the required availability", thrown.getMessage());
@@ -141,12 +160,12 @@ public class GuestListEntryServiceTests {
 
     @Test
     void shouldNotifyWhenNoTableHasTheAvailability() {
-        when(tableService.getTableWithAvailableSeating(6)).thenReturn(0);
+        when(tableService.findSeats(EVENT_ID, 6)).thenReturn(List.of());
 
         NoAvailabilityException thrown = Assertions.assertThrows(NoAvailabilityException.class, () -> {
             // Build request and call service
             AddGuestRequest request = AddGuestRequest.builder().name("Chris").accompanyingGuests(5).build();
-            guestListService.addGuest(request);
+            guestListService.addGuest(EVENT_ID, request);
         });
 
         Assertions.assertEquals("No table was found with the required availability", thrown.getMessage());
@@ -3,13 +3,19 @@ package uk.co.imperatives.exercise.service;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import uk.co.imperatives.exercise.exception.GuestHasLeftException;
 import uk.co.imperatives.exercise.exception.NoAvailabilityException;
+import uk.co.imperatives.exercise.model.GroupSeat;
 import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GroupSeatRepository;
 import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -17,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.*;
 
 public class GuestListServiceTests {
+    private static final String EVENT_ID = "summer-party";
+
 
     @Mock
     private GuestListEntryRepository guestListEntryRepository;
@@ -24,6 +32,21 @@ public class GuestListServiceTests {
     @Mock
     private PartyTableServiceInterface tableService;
 
+    @Mock
+    private DataVersions dataVersions;
+
+    @Mock
+    private SeatingChart seatingChart;
+
+    @Mock
+    private GuestStore guestStore;
+
+    @Mock
+    private GuestAnalytics guestAnalytics;
+
+    @Mock
+    private GroupSeatRepository groupSeatRepository;
+
     @InjectMocks
     private GuestListService guestListService;
 
@@ -35,14 +58,14 @@ public class GuestListServiceTests {
     @Test
     void shouldAddGuestToGuestList() {
         // table 1 has availability for 3
-        when(tableService.hasAvailability(1, 3)).thenReturn(true);
+        when(tableService.hasAvailability(EVENT_ID, 1, 3)).thenReturn(true);
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Mickey Mouse").tableNumber(1).accompanyingGuests(2).build();
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("Mickey Mouse").table(1).accompanyingGuests(2).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         // Validate the result
         assertNotNull(result);
@@ -54,16 +77,16 @@ public class GuestListServiceTests {
     @Test
     void shouldUpdateExistingGuestOnGuestList() {
         // table 2 has availability for 4
-        when(tableService.hasAvailability(2, 4)).thenReturn(true);
+        when(tableService.hasAvailability(EVENT_ID, 2, 4)).thenReturn(true);
         GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("Donald Duck").tableNumber(1).accompanyingGuests(2).build();
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Donald Duck").tableNumber(2).accompanyingGuests(3).build();
-        when(guestListEntryRepository.findById("Donald Duck")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Donald Duck")).thenReturn(Optional.of(existingGuestListEntry));
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("Donald Duck").table(2).accompanyingGuests(3).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         // Validate the result
         assertNotNull(result);
@@ -75,14 +98,14 @@ public class GuestListServiceTests {
     @Test
     void shouldAddGuestToGuestListAndAssignAvailableTable() {
         // table 2 has availability for 6
-        when(tableService.getTableWithAvailableSeating(anyInt())).thenReturn(2);
+        when(tableService.findSeats(EVENT_ID, 6)).thenReturn(List.of(new TableSeats(2, 6)));
         GuestListEntry guestListEntry = GuestListEntry.builder().name("SpongeBob SquarePants").tableNumber(2).accompanyingGuests(5).build();
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("SpongeBob SquarePants").accompanyingGuests(5).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         // Validate the result
         assertNotNull(result);
@@ -94,16 +117,16 @@ public class GuestListServiceTests {
     @Test
     void shouldUpdateExistingGuestOnGuestListAndAssignAvailableTable() {
         // table 3 has availability for 6
-        when(tableService.getTableWithAvailableSeating(6)).thenReturn(3);
+        when(tableService.findSeats(EVENT_ID, 6)).thenReturn(List.of(new TableSeats(3, 6)));
         GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("Patrick Star").tableNumber(2).accompanyingGuests(3).build();
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Patrick Star").tableNumber(3).accompanyingGuests(5).build();
-        when(guestListEntryRepository.findById("Patrick Star")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Patrick Star")).thenReturn(Optional.of(existingGuestListEntry));
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
         // Build request and call service
         AddGuestRequest request = AddGuestRequest.builder().name("Patrick Star").accompanyingGuests(5).build();
 
-        GuestListEntry result = guestListService.addGuest(request);
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
 
         assertNotNull(result);
         assertEquals("Patrick Star", result.getName());
@@ -111,29 +134,121 @@ public class GuestListServiceTests {
         assertEquals(5, result.getAccompanyingGuests());
     }
 
+    @Test
+    void shouldTakeSeatsAtTheTableFoundWhenRequestedTableIsFull() {
+        // table 2 was asked for but is full, table 3 has availability for 4
+        when(tableService.hasAvailability(EVENT_ID, 2, 4)).thenReturn(false);
+        when(tableService.findSeats(EVENT_ID, 4)).thenReturn(List.of(new TableSeats(3, 4)));
+        GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("Donald Duck").tableNumber(1).accompanyingGuests(2).build();
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Donald Duck")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.save(any(GuestListEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AddGuestRequest request = AddGuestRequest.builder().name("Donald Duck").table(2).accompanyingGuests(3).build();
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
+
+        assertEquals(3, result.getTableNumber());
+        verify(tableService).decreaseOccupancy(EVENT_ID, 1, 3);
+        verify(tableService).increaseOccupancy(EVENT_ID, 3, 4);
+        verify(tableService, never()).increaseOccupancy(eq(EVENT_ID), eq(2), anyInt());
+    }
+
+    @Test
+    void shouldNotRecordArrivalOfGuestWhoHasLeft() {
+        GuestListEntry leftGuest = GuestListEntry.builder().name("Goofy").tableNumber(1).accompanyingGuests(1).build();
+        leftGuest.recordTimeArrived();
+        leftGuest.recordTimeLeft();
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Goofy")).thenReturn(Optional.of(leftGuest));
+
+        Assertions.assertThrows(GuestHasLeftException.class, () -> guestListService.recordGuestArrival(EVENT_ID, "Goofy", 3));
+
+        verifyNoInteractions(tableService);
+        verify(guestListEntryRepository, never()).save(any(GuestListEntry.class));
+    }
+
+    @Test
+    void shouldSplitPartyTooLargeForAnyTableAcrossAdjacentTables() {
+        when(tableService.findSeats(EVENT_ID, 14))
+                .thenReturn(List.of(new TableSeats(4, 10), new TableSeats(5, 4)));
+        when(guestListEntryRepository.save(any(GuestListEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AddGuestRequest request = AddGuestRequest.builder().name("Snow White").accompanyingGuests(13).build();
+        GuestListEntry result = guestListService.addGuest(EVENT_ID, request);
+
+        assertEquals(4, result.getTableNumber());
+        assertEquals(5, result.getLastTableNumber());
+        verify(tableService).increaseOccupancy(EVENT_ID, 4, 10);
+        verify(tableService).increaseOccupancy(EVENT_ID, 5, 4);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<GroupSeat>> savedSeats = ArgumentCaptor.forClass(List.class);
+        verify(groupSeatRepository).saveAll(savedSeats.capture());
+        assertEquals(List.of(new TableSeats(4, 10), new TableSeats(5, 4)), savedSeats.getValue().stream()
+                .map(seat -> new TableSeats(seat.getTableNumber(), seat.getNoOfSeats()))
+                .toList());
+    }
+
+    @Test
+    void shouldFreeSeatsAtEveryTableWhenGroupLeaves() {
+        GuestListEntry group = GuestListEntry.builder().id(7L).name("Snow White").tableNumber(4).lastTableNumber(5).accompanyingGuests(13).build();
+        group.recordTimeArrived();
+        var groupSeats = List.of(groupSeat(4, 10), groupSeat(5, 4));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Snow White")).thenReturn(Optional.of(group));
+        when(groupSeatRepository.findAllByGuestIdOrderByTableNumber(7L)).thenReturn(groupSeats);
+        when(guestListEntryRepository.save(any(GuestListEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        guestListService.recordGuestLeft(EVENT_ID, "Snow White");
+
+        verify(tableService).decreaseOccupancy(EVENT_ID, 4, 10);
+        verify(tableService).decreaseOccupancy(EVENT_ID, 5, 4);
+        verify(groupSeatRepository).deleteAll(groupSeats);
+    }
+
+    @Test
+    void shouldGiveUpLastTablesWhenSmallerGroupArrives() {
+        GuestListEntry group = GuestListEntry.builder().id(7L).name("Snow White").tableNumber(4).lastTableNumber(6).accompanyingGuests(21).build();
+        var groupSeats = new ArrayList<>(List.of(groupSeat(4, 10), groupSeat(5, 10), groupSeat(6, 2)));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Snow White")).thenReturn(Optional.of(group));
+        when(groupSeatRepository.findAllByGuestIdOrderByTableNumber(7L)).thenReturn(groupSeats);
+        when(guestListEntryRepository.save(any(GuestListEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Only 15 of the 22 come, so table 6 is no longer needed and table 5 keeps 5 of its seats
+        GuestListEntry result = guestListService.recordGuestArrival(EVENT_ID, "Snow White", 14);
+
+        assertEquals(5, result.getLastTableNumber());
+        verify(tableService).decreaseOccupancy(EVENT_ID, 6, 2);
+        verify(tableService).decreaseOccupancy(EVENT_ID, 5, 5);
+        verify(tableService, never()).decreaseOccupancy(eq(EVENT_ID), eq(4), anyInt());
+        verify(groupSeatRepository).deleteAll(List.of(groupSeats.get(2)));
+        assertEquals(5, groupSeats.get(1).getNoOfSeats());
+    }
+
     @Test
     void shouldUpdateExistingGuestsName() {
         GuestListEntry existingGuestListEntry = GuestListEntry.builder().name("Tom Cat").tableNumber(10).accompanyingGuests(5).build();
         GuestListEntry guestListEntry = GuestListEntry.builder().name("Tommy Cat").tableNumber(10).accompanyingGuests(5).build();
-        when(guestListEntryRepository.findById("Tom Cat")).thenReturn(Optional.of(existingGuestListEntry));
+        when(guestListEntryRepository.findByEventIdAndName(EVENT_ID, "Tom Cat")).thenReturn(Optional.of(existingGuestListEntry));
         when(guestListEntryRepository.save(any(GuestListEntry.class))).thenReturn(guestListEntry);
 
-        GuestListEntry result = guestListService.updateName("Tom Cat", "Tommy Cat");
+        GuestListEntry result = guestListService.updateName(EVENT_ID, "Tom Cat", "Tommy Cat");
 
         assertNotNull(result);
         assertEquals("Tommy Cat", result.getName());
         assertEquals(10, result.getTableNumber());
         assertEquals(5, result.getAccompanyingGuests());
+
+        // Renamed in place rather than deleted and added again
+        assertEquals("Tommy Cat", existingGuestListEntry.getName());
+        verify(guestListEntryRepository).save(existingGuestListEntry);
+        verify(guestListEntryRepository, never()).delete(any(GuestListEntry.class));
     }
 
     @Test
     void shouldNotifyWhenSpecifiedTableDoesNotHaveTheAvailability() {
-        when(tableService.hasAvailability(2, 4)).thenReturn(false);
+        when(tableService.hasAvailability(EVENT_ID, 2, 4)).thenReturn(false);
 
         NoAvailabilityException thrown = Assertions.assertThrows(NoAvailabilityException.class, () -> {
             // Build request and call service
             AddGuestRequest request = AddGuestRequest.builder().name("Bugs Bunny").table(2).accompanyingGuests(3).build();
-            guestListService.addGuest(request);
+            guestListService.addGuest(EVENT_ID, request);
         });
 
         Assertions.assertEquals("Table 2 does not have the required availability", thrown.getMessage());
@@ -141,14 +256,18 @@ public class GuestListServiceTests {
 
     @Test
     void shouldNotifyWhenNoTableHasTheAvailability() {
-        when(tableService.getTableWithAvailableSeating(6)).thenReturn(0);
+        when(tableService.findSeats(EVENT_ID, 6)).thenReturn(List.of());
 
         NoAvailabilityException thrown = Assertions.assertThrows(NoAvailabilityException.class, () -> {
             // Build request and call service
             AddGuestRequest request = AddGuestRequest.builder().name("Sylvester the Cat").accompanyingGuests(5).build();
-            guestListService.addGuest(request);
+            guestListService.addGuest(EVENT_ID, request);
         });
 
         Assertions.assertEquals("No table was found with the required availability", thrown.getMessage());
     }
+
+    private static GroupSeat groupSeat(int tableNumber, int noOfSeats) {
+        return GroupSeat.builder().id((long) tableNumber).guestId(7L).eventId(EVENT_ID).tableNumber(tableNumber).noOfSeats(noOfSeats).build();
+    }
 }
@@ -0,0 +1,214 @@
+package uk.co.imperatives.exercise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import uk.co.imperatives.exercise.model.GuestListEntry;
+import uk.co.imperatives.exercise.repository.GuestListEntryRepository;
+import uk.co.imperatives.exercise.repository.GuestView;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GuestStoreTests {
+    private static final String EVENT_ID = "summer-party";
+    private static final LocalDateTime EIGHT_PM = LocalDateTime.of(2024, 6, 21, 20, 0, 0);
+
+    @Mock
+    private GuestListEntryRepository guestListEntryRepository;
+
+    @Mock
+    private PartyEventExecutor partyEventExecutor;
+
+    private GuestStore guestStore;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(partyEventExecutor.executeInternal(eq(EVENT_ID), any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+        when(partyEventExecutor.hasWriter(EVENT_ID)).thenReturn(true);
+        guestStore = new GuestStore(guestListEntryRepository, partyEventExecutor);
+    }
+
+    @Test
+    void shouldLoadGuestsFromDatabaseAndFollowChanges() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(views(
+                guest("Betty Boop", 1, 1, EIGHT_PM, null),
+                guest("Donald Duck", 2, 0, null, null)));
+        assertEquals(2, guestStore.allGuests(EVENT_ID).size());
+
+        guestStore.guestSaved(guest("Mickey Mouse", 2, 2, null, null));
+        guestStore.guestRenamed("Betty Boop", guest("Olive Oyl", 1, 1, EIGHT_PM, null));
+        guestStore.guestSaved(guest("Donald Duck", 2, 3, EIGHT_PM, null));
+
+        // Renamed and updated guests keep their place in the list
+        var guests = guestStore.allGuests(EVENT_ID);
+        assertEquals(List.of("Olive Oyl", "Donald Duck", "Mickey Mouse"), names(guests));
+        assertEquals(3, guests.accompanyingGuests(1));
+        assertEquals(EIGHT_PM, guests.timeArrived(1));
+        assertNull(guests.timeLeft(1));
+
+        guestStore.guestRemoved(EVENT_ID, "Donald Duck");
+        assertEquals(List.of("Olive Oyl", "Mickey Mouse"), names(guestStore.allGuests(EVENT_ID)));
+        assertEquals(List.of("Olive Oyl"), names(guestStore.arrivedGuests(EVENT_ID)));
+    }
+
+    @Test
+    void shouldCountGuestsWhoHaveArrivedAndNotLeft() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(views(
+                guest("Arrived", 1, 2, EIGHT_PM, null),
+                guest("Left", 1, 4, EIGHT_PM, EIGHT_PM.plusHours(1)),
+                guest("Not Arrived", 2, 1, null, null)));
+
+        assertEquals(3, guestStore.presentGuests(EVENT_ID));
+    }
+
+    @Test
+    void shouldFindGuestsAfterManyChanges() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(List.of());
+        guestStore.allGuests(EVENT_ID);
+
+        // Enough guests to grow the columns and index, and enough removals and renames to compact the names
+        for (int i = 0; i < 1000; i++) {
+            guestStore.guestSaved(guest("Guest " + i, i % 10 + 1, 0, null, null));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            guestStore.guestRemoved(EVENT_ID, "Guest " + i);
+        }
+        for (int i = 1; i < 1000; i += 4) {
+            guestStore.guestRenamed("Guest " + i, guest("Renamé " + i, i % 10 + 1, 0, null, null));
+        }
+        guestStore.guestSaved(guest("Guest 3", 7, 1, EIGHT_PM, null));
+
+        // Removed guests' places are taken by the last guests, so the guests are checked by name rather than place
+        Set<String> expected = new HashSet<>();
+        for (int i = 1; i < 1000; i += 2) {
+            expected.add((i % 4 == 1 ? "Renamé " : "Guest ") + i);
+        }
+        assertEquals(expected, new HashSet<>(names(guestStore.allGuests(EVENT_ID))));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.contains("Guest " + i), guestStore.guest(EVENT_ID, "Guest " + i).isPresent(), "Guest " + i);
+        }
+        assertEquals(7, guestStore.guest(EVENT_ID, "Guest 3").orElseThrow().getTableNumber());
+        assertEquals(List.of("Guest 3"), names(guestStore.arrivedGuests(EVENT_ID)));
+    }
+
+    @Test
+    void shouldFindGuestsAfterRandomRemovalsAndRenames() {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(List.of());
+        guestStore.allGuests(EVENT_ID);
+
+        // Checked against a map after every change, so a row or index slot left wrong by a removal shows at once
+        Map<String, Integer> tables = new HashMap<>();
+        Random random = new Random(42);
+        for (int change = 0; change < 5000; change++) {
+            String name = "Guest " + random.nextInt(300);
+            int choice = random.nextInt(3);
+            if (choice == 0 || !tables.containsKey(name)) {
+                int table = random.nextInt(20) + 1;
+                guestStore.guestSaved(guest(name, table, 0, null, null));
+                tables.put(name, table);
+            } else if (choice == 1) {
+                guestStore.guestRemoved(EVENT_ID, name);
+                tables.remove(name);
+            } else {
+                String newName = "Guest " + (300 + change);
+                guestStore.guestRenamed(name, guest(newName, tables.get(name), 0, null, null));
+                tables.put(newName, tables.remove(name));
+            }
+
+            var guests = guestStore.allGuests(EVENT_ID);
+            assertEquals(tables.size(), guests.size());
+            assertEquals(tables.containsKey(name), guestStore.guest(EVENT_ID, name).isPresent(), name);
+        }
+
+        Map<String, Integer> stored = new HashMap<>();
+        var guests = guestStore.allGuests(EVENT_ID);
+        for (int row = 0; row < guests.size(); row++) {
+            stored.put(guests.name(row), guests.tableNumber(row));
+        }
+        assertEquals(tables, stored);
+        tables.forEach((name, table) -> assertEquals(table, guestStore.guest(EVENT_ID, name).orElseThrow().getTableNumber()));
+    }
+
+    @Test
+    void shouldBeWrittenAsTheGuestListDtosWouldBe() throws Exception {
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(views(
+                guest("Betty \"Boop\"", 1, 1, EIGHT_PM, EIGHT_PM.plusHours(2)),
+                guest("Donald Duck", 2, 0, null, null)));
+        var guests = guestStore.allGuests(EVENT_ID);
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        assertEquals(objectMapper.writeValueAsString(guests.toDtos()), objectMapper.writeValueAsString(guests));
+    }
+
+    @Test
+    void shouldKeepNothingForAnEventWithoutGuests() {
+        assertEquals(0, guestStore.allGuests("no-such-party").size());
+        assertEquals(0, guestStore.presentGuests("no-such-party"));
+
+        verify(partyEventExecutor, never()).execute(eq("no-such-party"), any(Supplier.class));
+        verify(guestListEntryRepository, never()).findGuestViewsByEventId("no-such-party");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldForgetGuestsOfAnIdleEvent() {
+        ArgumentCaptor<Consumer<String>> whenIdle = ArgumentCaptor.forClass(Consumer.class);
+        verify(partyEventExecutor).whenEventIdle(whenIdle.capture());
+        when(guestListEntryRepository.findGuestViewsByEventId(EVENT_ID)).thenReturn(views(guest("Betty Boop", 1, 1, null, null)));
+        guestStore.allGuests(EVENT_ID);
+
+        whenIdle.getValue().accept(EVENT_ID);
+        assertEquals(List.of("Betty Boop"), names(guestStore.allGuests(EVENT_ID)));
+        verify(guestListEntryRepository, times(2)).findGuestViewsByEventId(EVENT_ID);
+    }
+
+    private static List<String> names(GuestStore.Guests guests) {
+        List<String> names = new ArrayList<>();
+        for (int row = 0; row < guests.size(); row++) {
+            names.add(guests.name(row));
+        }
+        return names;
+    }
+
+    // The guests as the repository reads them to load the store
+    private static List<GuestView> views(GuestListEntry... guests) {
+        return Arrays.stream(guests).map(GuestView::of).toList();
+    }
+
+    private static GuestListEntry guest(String name, int tableNumber, int accompanyingGuests,
+                                        LocalDateTime timeArrived, LocalDateTime timeLeft) {
+        return GuestListEntry.builder()
+                .eventId(EVENT_ID)
+                .name(name)
+                .tableNumber(tableNumber)
+                .accompanyingGuests(accompanyingGuests)
+                .timeArrived(timeArrived)
+                .timeLeft(timeLeft)
+                .build();
+    }
+}
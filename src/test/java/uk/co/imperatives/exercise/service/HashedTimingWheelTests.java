@@ -0,0 +1,56 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashedTimingWheelTests {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final HashedTimingWheel<String> wheel = new HashedTimingWheel<>(Duration.ofSeconds(1), 8, 0);
+
+    @Test
+    void shouldReturnItemsOnlyOnceTheirDeadlineHasPassed() {
+        wheel.schedule("first", 2 * SECOND);
+        wheel.schedule("second", 5 * SECOND);
+
+        assertTrue(wheel.advance(SECOND).isEmpty());
+        assertEquals(List.of("first"), wheel.advance(2 * SECOND));
+        assertTrue(wheel.advance(4 * SECOND).isEmpty());
+        assertEquals(List.of("second"), wheel.advance(5 * SECOND));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldWaitForFurtherTurnsOfTheWheel() {
+        // The wheel only has 8 buckets, so these are both in the bucket for tick 3
+        wheel.schedule("this turn", 3 * SECOND);
+        wheel.schedule("two turns later", 19 * SECOND);
+
+        assertEquals(List.of("this turn"), wheel.advance(3 * SECOND));
+        assertTrue(wheel.advance(11 * SECOND).isEmpty());
+        assertTrue(wheel.advance(18 * SECOND).isEmpty());
+        assertEquals(List.of("two turns later"), wheel.advance(19 * SECOND));
+    }
+
+    @Test
+    void shouldNotReturnCancelledItems() {
+        var timeout = wheel.schedule("cancelled", 2 * SECOND);
+        wheel.schedule("kept", 2 * SECOND);
+
+        assertTrue(wheel.cancel(timeout));
+        assertEquals(List.of("kept"), wheel.advance(3 * SECOND));
+    }
+
+    @Test
+    void shouldReturnItemsScheduledInThePastOnTheNextAdvance() {
+        wheel.advance(5 * SECOND);
+        wheel.schedule("late", SECOND);
+
+        assertEquals(List.of("late"), wheel.advance(6 * SECOND));
+    }
+}
@@ -0,0 +1,231 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.TaskDecorator;
+import uk.co.imperatives.exercise.exception.EventBusyException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartyEventExecutorTests {
+    private PartyEventExecutor partyEventExecutor = executor(Duration.ofHours(1), 50);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        partyEventExecutor.destroy();
+    }
+
+    @Test
+    void shouldRunTheChangesToAnEventOneAtATimeInTheOrderTheyWereMade() throws Exception {
+        int callers = 8;
+        int changesEach = 1000;
+        List<int[]> changes = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<?>> submitted = new ArrayList<>();
+            for (int caller = 0; caller < callers; caller++) {
+                int callerNumber = caller;
+                submitted.add(executor.submit(() -> {
+                    for (int change = 0; change < changesEach; change++) {
+                        int[] made = {callerNumber, change};
+                        partyEventExecutor.submit("summer-party", () -> {
+                            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            // Not thread safe, so lost or reordered changes show if two ever run at once
+                            changes.add(made);
+                            running.decrementAndGet();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : submitted) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // Runs after every change queued before it
+        int made = partyEventExecutor.execute("summer-party", changes::size);
+
+        assertEquals(callers * changesEach, made);
+        assertEquals(1, mostRunning.get());
+        int[] lastChange = new int[callers];
+        Arrays.fill(lastChange, -1);
+        for (int[] change : changes) {
+            assertEquals(lastChange[change[0]] + 1, change[1], "Changes of caller " + change[0] + " out of order");
+            lastChange[change[0]] = change[1];
+        }
+    }
+
+    @Test
+    void shouldRunAChangeMadeFromTheEventsOwnWriterStraightAway() {
+        String writerThread = partyEventExecutor.execute("summer-party", () -> Thread.currentThread().getName());
+
+        // Waiting for the writer from the writer itself would never finish
+        String nestedThread = partyEventExecutor.execute("summer-party",
+                () -> partyEventExecutor.execute("summer-party", () -> Thread.currentThread().getName()));
+        String otherEventThread = partyEventExecutor.execute("summer-party",
+                () -> partyEventExecutor.execute("winter-party", () -> Thread.currentThread().getName()));
+
+        assertEquals("party-event-summer-party", writerThread);
+        assertEquals(writerThread, nestedThread);
+        assertEquals("party-event-winter-party", otherEventThread);
+    }
+
+    @Test
+    void shouldRunDifferentEventsInParallel() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        partyEventExecutor.submit("summer-party", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertEquals("changed", partyEventExecutor.execute("winter-party", () -> "changed"));
+        release.countDown();
+    }
+
+    @Test
+    void shouldRethrowTheExceptionOfAChange() {
+        var thrown = assertThrows(IllegalStateException.class,
+                () -> partyEventExecutor.execute("summer-party", () -> {
+                    throw new IllegalStateException("Table is full");
+                }));
+
+        assertEquals("Table is full", thrown.getMessage());
+        // The writer carries on with the next change
+        assertEquals(1, partyEventExecutor.execute("summer-party", () -> 1));
+    }
+
+    @Test
+    void shouldRejectInvalidEventIds() {
+        assertThrows(IllegalArgumentException.class, () -> partyEventExecutor.execute("summer party!", () -> 1));
+        assertFalse(partyEventExecutor.hasWriter("summer party!"));
+    }
+
+    @Test
+    void shouldRemoveWritersOfIdleEventsAndTellListeners() throws Exception {
+        partyEventExecutor.destroy();
+        partyEventExecutor = executor(Duration.ofMillis(20), 50);
+        Set<String> idleEvents = ConcurrentHashMap.newKeySet();
+        partyEventExecutor.whenEventIdle(idleEvents::add);
+
+        // Not removed while a change is running, however long it takes
+        CountDownLatch release = new CountDownLatch(1);
+        partyEventExecutor.submit("summer-party", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(200);
+        assertTrue(partyEventExecutor.hasWriter("summer-party"));
+        assertTrue(idleEvents.isEmpty());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (partyEventExecutor.hasWriter("summer-party") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(partyEventExecutor.hasWriter("summer-party"));
+        assertEquals(Set.of("summer-party"), idleEvents);
+
+        // The next change starts a new writer
+        assertEquals("changed", partyEventExecutor.execute("summer-party", () -> "changed"));
+    }
+
+    @Test
+    void shouldRunCheckInsAheadOfOtherWaitingChanges() throws Exception {
+        List<String> changes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = blockWriter("summer-party");
+        for (int i = 0; i < 3; i++) {
+            int change = i;
+            partyEventExecutor.submit("summer-party", () -> changes.add("change " + change));
+        }
+        Thread checkIn = waitingFor(() -> partyEventExecutor.executeCheckIn("summer-party", () -> changes.add("check-in")));
+
+        release.countDown();
+        checkIn.join();
+        partyEventExecutor.execute("summer-party", () -> changes.add("last change"));
+
+        assertEquals(List.of("check-in", "change 0", "change 1", "change 2", "last change"), changes);
+    }
+
+    @Test
+    void shouldTurnAwayChangesWhileTooManyAreWaitingButNotCheckIns() throws Exception {
+        partyEventExecutor.destroy();
+        partyEventExecutor = executor(Duration.ofHours(1), 2);
+        AtomicInteger made = new AtomicInteger();
+        CountDownLatch release = blockWriter("summer-party");
+        List<Thread> waiting = List.of(
+                waitingFor(() -> partyEventExecutor.execute("summer-party", made::incrementAndGet)),
+                waitingFor(() -> partyEventExecutor.execute("summer-party", made::incrementAndGet)));
+
+        assertThrows(EventBusyException.class, () -> partyEventExecutor.execute("summer-party", made::incrementAndGet));
+        // Other events, check-ins and the application's own work are not turned away
+        assertEquals(1, partyEventExecutor.execute("winter-party", () -> 1));
+        Thread checkIn = waitingFor(() -> partyEventExecutor.executeCheckIn("summer-party", made::incrementAndGet));
+        Thread internal = waitingFor(() -> partyEventExecutor.executeInternal("summer-party", made::incrementAndGet));
+
+        release.countDown();
+        for (Thread thread : List.of(waiting.get(0), waiting.get(1), checkIn, internal)) {
+            thread.join();
+        }
+        assertEquals(4, made.get());
+        assertEquals(5, partyEventExecutor.execute("summer-party", made::incrementAndGet));
+    }
+
+    /**
+     * Keeps the event's writer busy until the latch returned is counted down.
+     */
+    private CountDownLatch blockWriter(String eventId) throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        partyEventExecutor.submit(eventId, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.await();
+        return release;
+    }
+
+    /**
+     * Makes the change on a thread of its own, returning once the thread is waiting for the writer to run it.
+     */
+    private static Thread waitingFor(Runnable change) throws InterruptedException {
+        Thread thread = Thread.ofPlatform().start(change);
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    private static PartyEventExecutor executor(Duration idleEventTimeout, int maxWaitingChanges) {
+        return new PartyEventExecutor(new StaticListableBeanFactory().getBeanProvider(TaskDecorator.class),
+                Duration.ofMinutes(1), idleEventTimeout, maxWaitingChanges);
+    }
+}
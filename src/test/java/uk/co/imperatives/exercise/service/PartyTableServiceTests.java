@@ -6,22 +6,45 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import uk.co.imperatives.exercise.exception.NoAvailabilityException;
+import uk.co.imperatives.exercise.exception.SeatHoldNotFoundException;
 import uk.co.imperatives.exercise.exception.TableAlreadyExistsException;
 import uk.co.imperatives.exercise.model.PartyTable;
+import uk.co.imperatives.exercise.model.PartyTableId;
 import uk.co.imperatives.exercise.repository.PartyTableRepository;
+import uk.co.imperatives.exercise.repository.PartyTableView;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PartyTableServiceTests {
+    private static final String EVENT_ID = "summer-party";
+
     @Mock
     private PartyTableRepository partyTableRepository;
 
+    @Mock
+    private SeatHoldRegistry seatHolds;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DataVersions dataVersions;
+
+    @Mock
+    private SeatingChart seatingChart;
+
     @InjectMocks
     private PartyTableService partyTableService;
 
@@ -34,8 +57,8 @@ public class PartyTableServiceTests {
     void shouldAddTableAndAssignTableNumber() {
         PartyTable returnedTable = PartyTable.builder().number(2).noOfSeats(6).noOfSeatsAllocated(0).build();
 
-        when(partyTableRepository.existsById(1)).thenReturn(true);
-        when(partyTableRepository.existsById(2)).thenReturn(false);
+        when(partyTableRepository.existsById(new PartyTableId(EVENT_ID, 1))).thenReturn(true);
+        when(partyTableRepository.existsById(new PartyTableId(EVENT_ID, 2))).thenReturn(false);
 
         when(partyTableRepository.save(argThat(table ->
                 table.getNumber().equals(returnedTable.getNumber()) &&
@@ -46,7 +69,7 @@ public class PartyTableServiceTests {
 
         // Call the service to add the table
         var noOfSeats = 6;
-        PartyTable result = partyTableService.addTable(noOfSeats);
+        PartyTable result = partyTableService.addTable(EVENT_ID, noOfSeats);
 
         // Validate the result
         assertNotNull(result);
@@ -62,7 +85,7 @@ public class PartyTableServiceTests {
         PartyTable tableToAdd = PartyTable.builder().number(10).noOfSeats(4).noOfSeatsAllocated(0).build();
         PartyTable returnedTable = PartyTable.builder().number(10).noOfSeats(4).noOfSeatsAllocated(0).version(0L).build();
 
-        when(partyTableRepository.existsById(10)).thenReturn(false);
+        when(partyTableRepository.existsById(new PartyTableId(EVENT_ID, 10))).thenReturn(false);
         when(partyTableRepository.save(argThat(table ->
                 table.getNumber().equals(tableToAdd.getNumber()) &&
                         table.getNoOfSeats() == tableToAdd.getNoOfSeats() &&
@@ -72,7 +95,7 @@ public class PartyTableServiceTests {
 
         var tableNumber = 10;
         var noOfSeats = 4;
-        PartyTable result = partyTableService.addTable(tableNumber, noOfSeats);
+        PartyTable result = partyTableService.addTable(EVENT_ID, tableNumber, noOfSeats);
 
         // Validate the result
         assertNotNull(result);
@@ -84,12 +107,12 @@ public class PartyTableServiceTests {
 
     @Test
     void shouldNotifyOnAddTableWhenSpecifiedTableAlreadyExists() {
-        when(partyTableRepository.existsById(10)).thenReturn(true);
+        when(partyTableRepository.existsById(new PartyTableId(EVENT_ID, 10))).thenReturn(true);
 
         TableAlreadyExistsException thrown = Assertions.assertThrows(TableAlreadyExistsException.class, () -> {
             var tableNumber = 10;
             var noOfSeats = 4;
-            partyTableService.addTable(tableNumber, noOfSeats);
+            partyTableService.addTable(EVENT_ID, tableNumber, noOfSeats);
         });
 
         Assertions.assertEquals("Table with number 10 already exists.", thrown.getMessage());
@@ -101,7 +124,7 @@ public class PartyTableServiceTests {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             var tableNumber = 0;
             var noOfSeats = 8;
-            partyTableService.addTable(tableNumber, noOfSeats);
+            partyTableService.addTable(EVENT_ID, tableNumber, noOfSeats);
         });
 
         Assertions.assertEquals("Table number should be a number bigger than zero", thrown.getMessage());
@@ -113,7 +136,7 @@ public class PartyTableServiceTests {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             var tableNumber = -1;
             var noOfSeats = 8;
-            partyTableService.addTable(tableNumber, noOfSeats);
+            partyTableService.addTable(EVENT_ID, tableNumber, noOfSeats);
         });
 
         Assertions.assertEquals("Table number should be a number bigger than zero", thrown.getMessage());
@@ -124,7 +147,7 @@ public class PartyTableServiceTests {
 
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             var noOfSeats = -1;
-            partyTableService.addTable(noOfSeats);
+            partyTableService.addTable(EVENT_ID, noOfSeats);
         });
 
         Assertions.assertEquals("Number of seats should be a number bigger than zero", thrown.getMessage());
@@ -135,7 +158,7 @@ public class PartyTableServiceTests {
 
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             var noOfSeats = 0;
-            partyTableService.addTable(noOfSeats);
+            partyTableService.addTable(EVENT_ID, noOfSeats);
         });
 
         Assertions.assertEquals("Number of seats should be a number bigger than zero", thrown.getMessage());
@@ -147,7 +170,7 @@ public class PartyTableServiceTests {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             var tableNumber = 1;
             var noOfSeats = 0;
-            partyTableService.addTable(tableNumber, noOfSeats);
+            partyTableService.addTable(EVENT_ID, tableNumber, noOfSeats);
         });
 
         Assertions.assertEquals("Number of seats should be a number bigger than zero", thrown.getMessage());
@@ -159,7 +182,7 @@ public class PartyTableServiceTests {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             var tableNumber = 1;
             var noOfSeats = -1;
-            partyTableService.addTable(tableNumber, noOfSeats);
+            partyTableService.addTable(EVENT_ID, tableNumber, noOfSeats);
         });
 
         Assertions.assertEquals("Number of seats should be a number bigger than zero", thrown.getMessage());
@@ -168,30 +191,92 @@ public class PartyTableServiceTests {
     @Test
     void shouldReturnAllTables() {
         // Arrange: Set up tables in the repository
-        List<PartyTable> tablesInRepo = new ArrayList<>();
-        tablesInRepo.add(PartyTable.builder().number(1).noOfSeats(4).noOfSeatsAllocated(0).version(1L).build());
-        tablesInRepo.add(PartyTable.builder().number(2).noOfSeats(6).noOfSeatsAllocated(0).version(1L).build());
-        tablesInRepo.add(PartyTable.builder().number(3).noOfSeats(2).noOfSeatsAllocated(2).version(2L).build());
+        List<PartyTableView> tablesInRepo = new ArrayList<>();
+        tablesInRepo.add(new PartyTableView(1, 4, 0, 0));
+        tablesInRepo.add(new PartyTableView(2, 6, 0, 2));
+        tablesInRepo.add(new PartyTableView(3, 2, 2, 0));
 
-        // Mock the repository response
-        when(partyTableRepository.findAll()).thenReturn(tablesInRepo);
+        // Mock the repository response, read as views rather than entities
+        when(partyTableRepository.findTableViewsByEventId(EVENT_ID)).thenReturn(tablesInRepo);
 
         // Act: Call the service to get all tables
-        List<PartyTable> result = partyTableService.getAllTables();
+        List<PartyTableView> result = partyTableService.getAllTables(EVENT_ID);
 
         // Assert: Validate the result list
         assertNotNull(result);
-        assertEquals(tablesInRepo.size(), result.size(), "The number of tables should match");
-
-        // Compare the content of each table
-        for (int i = 0; i < tablesInRepo.size(); i++) {
-            PartyTable expectedTable = tablesInRepo.get(i);
-            PartyTable actualTable = result.get(i);
-
-            assertEquals(expectedTable.getNumber(), actualTable.getNumber(), "Table number should match");
-            assertEquals(expectedTable.getNoOfSeats(), actualTable.getNoOfSeats(), "Number of seats should match");
-            assertEquals(expectedTable.getNoOfSeatsAllocated(), actualTable.getNoOfSeatsAllocated(), "Seats allocated should match");
-            assertEquals(expectedTable.getVersion(), actualTable.getVersion(), "Version should match");
-        }
+        assertEquals(tablesInRepo, result, "The tables should match");
+        verify(partyTableRepository, never()).findAllByEventId(EVENT_ID);
+    }
+
+    @Test
+    void shouldTotalEmptySeatsWithOneQuery() {
+        when(partyTableRepository.countUnAllocatedSeats(EVENT_ID)).thenReturn(7L);
+
+        assertEquals(7, partyTableService.getTotalEmptySeats(EVENT_ID));
+        verify(partyTableRepository, never()).findAllByEventId(EVENT_ID);
+    }
+
+    @Test
+    void shouldHoldSeatsAtTable() {
+        PartyTable table = PartyTable.builder().eventId(EVENT_ID).number(1).noOfSeats(6).noOfSeatsAllocated(2).build();
+        SeatHold hold = new SeatHold("hold-1", EVENT_ID, 1, 3, Instant.now());
+
+        when(partyTableRepository.findById(new PartyTableId(EVENT_ID, 1))).thenReturn(Optional.of(table));
+        when(seatHolds.add(EVENT_ID, 1, 3)).thenReturn(hold);
+
+        SeatHold result = partyTableService.holdSeats(EVENT_ID, 1, 3);
+
+        assertEquals(hold, result);
+        assertEquals(3, table.getNoOfSeatsHeld());
+        assertEquals(1, table.getUnAllocatedSeats(), "Held seats should not be available to other guests");
+        verify(partyTableRepository).save(table);
+    }
+
+    @Test
+    void shouldErrorOnHoldWhenTableDoesNotHaveAvailability() {
+        PartyTable table = PartyTable.builder().eventId(EVENT_ID).number(1).noOfSeats(6).noOfSeatsAllocated(2).noOfSeatsHeld(2).build();
+
+        when(partyTableRepository.findById(new PartyTableId(EVENT_ID, 1))).thenReturn(Optional.of(table));
+
+        Assertions.assertThrows(NoAvailabilityException.class, () -> partyTableService.holdSeats(EVENT_ID, 1, 3));
+    }
+
+    @Test
+    void shouldAllocateHeldSeatsWhenHoldConfirmed() {
+        PartyTable table = PartyTable.builder().eventId(EVENT_ID).number(1).noOfSeats(6).noOfSeatsAllocated(2).noOfSeatsHeld(3).build();
+        SeatHold hold = new SeatHold("hold-1", EVENT_ID, 1, 3, Instant.now());
+
+        when(seatHolds.find(EVENT_ID, "hold-1")).thenReturn(Optional.of(hold));
+        when(partyTableRepository.findById(new PartyTableId(EVENT_ID, 1))).thenReturn(Optional.of(table));
+
+        // Only two of the three held seats are needed, the other is given back
+        partyTableService.confirmHold(EVENT_ID, "hold-1", 2);
+
+        assertEquals(0, table.getNoOfSeatsHeld());
+        assertEquals(4, table.getNoOfSeatsAllocated());
+        verify(seatHolds).remove(hold);
+    }
+
+    @Test
+    void shouldErrorOnConfirmWhenHoldHasExpired() {
+        when(seatHolds.find(EVENT_ID, "hold-1")).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(SeatHoldNotFoundException.class, () -> partyTableService.confirmHold(EVENT_ID, "hold-1", 2));
+    }
+
+    @Test
+    void shouldReturnHeldSeatsWhenHoldReleased() {
+        PartyTable table = PartyTable.builder().eventId(EVENT_ID).number(1).noOfSeats(6).noOfSeatsAllocated(2).noOfSeatsHeld(3).build();
+        SeatHold hold = new SeatHold("hold-1", EVENT_ID, 1, 3, Instant.now());
+
+        when(seatHolds.find(EVENT_ID, "hold-1")).thenReturn(Optional.of(hold));
+        when(partyTableRepository.findById(new PartyTableId(EVENT_ID, 1))).thenReturn(Optional.of(table));
+
+        partyTableService.releaseHold(EVENT_ID, "hold-1");
+
+        assertEquals(0, table.getNoOfSeatsHeld());
+        assertEquals(4, table.getUnAllocatedSeats());
+        verify(seatHolds).remove(hold);
+        verify(eventPublisher).publishEvent(new SeatsReleasedEvent(EVENT_ID, 1));
     }
 }
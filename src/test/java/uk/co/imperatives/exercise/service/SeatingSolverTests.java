@@ -0,0 +1,128 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatingSolverTests {
+    private static final Duration TIME_LIMIT = Duration.ofMillis(500);
+    private static final int WORKERS = 2;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(WORKERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldSeatTogetherGroupAtOneTableMovingFewestGuests() {
+        // Guests 0 and 1 at table 0, guest 2 at table 1, and 0 and 2 should sit together
+        var problem = new SeatingSolver.Problem(new int[]{4, 4}, new int[]{1, 1, 1}, new int[]{0, 0, 1},
+                new boolean[3], new int[][]{{0, 2}}, new int[0][]);
+
+        var solution = SeatingSolver.solve(problem, TIME_LIMIT, WORKERS, executor, 1);
+
+        assertEquals(0, solution.unmetTogether());
+        assertEquals(solution.tables()[0], solution.tables()[2]);
+        assertEquals(1, solution.guestsMoved());
+    }
+
+    @Test
+    void shouldSeatApartGroupAtDifferentTables() {
+        var problem = new SeatingSolver.Problem(new int[]{4, 4, 4}, new int[]{2, 2, 2}, new int[]{0, 0, 1},
+                new boolean[3], new int[0][], new int[][]{{0, 1, 2}});
+
+        var solution = SeatingSolver.solve(problem, TIME_LIMIT, WORKERS, executor, 2);
+
+        assertEquals(0, solution.unmetApart());
+        assertNotEquals(solution.tables()[0], solution.tables()[1]);
+        assertNotEquals(solution.tables()[1], solution.tables()[2]);
+        assertNotEquals(solution.tables()[0], solution.tables()[2]);
+    }
+
+    @Test
+    void shouldSwapGuestsWhenTablesAreFull() {
+        // Both tables are full, so the couples can only be seated together by swapping guests 1 and 2
+        var problem = new SeatingSolver.Problem(new int[]{2, 2}, new int[]{1, 1, 1, 1}, new int[]{0, 0, 1, 1},
+                new boolean[4], new int[][]{{0, 2}, {1, 3}}, new int[0][]);
+
+        var solution = SeatingSolver.solve(problem, TIME_LIMIT, WORKERS, executor, 3);
+
+        assertEquals(0, solution.unmetTogether());
+        assertLoadsWithinCapacities(problem, solution);
+    }
+
+    @Test
+    void shouldNeverOverbookTablesForGroupsTooLargeForThem() {
+        var problem = new SeatingSolver.Problem(new int[]{4, 4}, new int[]{2, 2, 2}, new int[]{0, 0, 1},
+                new boolean[3], new int[][]{{0, 1, 2}}, new int[0][]);
+
+        var solution = SeatingSolver.solve(problem, TIME_LIMIT, WORKERS, executor, 4);
+
+        assertEquals(1, solution.unmetTogether());
+        assertLoadsWithinCapacities(problem, solution);
+    }
+
+    @Test
+    void shouldNotMoveFixedGuests() {
+        var problem = new SeatingSolver.Problem(new int[]{4, 4}, new int[]{1, 1}, new int[]{0, 1},
+                new boolean[]{true, false}, new int[][]{{0, 1}}, new int[0][]);
+
+        var solution = SeatingSolver.solve(problem, TIME_LIMIT, WORKERS, executor, 5);
+
+        assertArrayEquals(new int[]{0, 0}, solution.tables());
+    }
+
+    @Test
+    void shouldStopAtTheTimeLimitForLargeEvents() {
+        // 2,000 guests at 200 tables of 10, with together groups that cannot all be met keeping the search going
+        int tables = 200;
+        int guests = 2000;
+        int[] capacities = new int[tables];
+        Arrays.fill(capacities, 10);
+        int[] sizes = new int[guests];
+        int[] startTables = new int[guests];
+        for (int guest = 0; guest < guests; guest++) {
+            sizes[guest] = 1;
+            startTables[guest] = guest % tables;
+        }
+        int[][] together = new int[200][];
+        for (int group = 0; group < together.length; group++) {
+            together[group] = new int[]{group, (group + 7) % guests, (group * 13) % guests, guests - 1 - group};
+        }
+        var problem = new SeatingSolver.Problem(capacities, sizes, startTables, new boolean[guests], together,
+                new int[][]{{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10}});
+
+        long start = System.nanoTime();
+        var solution = SeatingSolver.solve(problem, TIME_LIMIT, WORKERS, executor, 6);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < TIME_LIMIT.toMillis() + 250, "Took " + elapsedMillis + " ms");
+        assertTrue(solution.changesTried() > 0);
+        assertLoadsWithinCapacities(problem, solution);
+    }
+
+    private static void assertLoadsWithinCapacities(SeatingSolver.Problem problem, SeatingSolver.Solution solution) {
+        int[] loads = new int[problem.capacities().length];
+        for (int guest = 0; guest < solution.tables().length; guest++) {
+            loads[solution.tables()[guest]] += problem.partySizes()[guest];
+        }
+        for (int table = 0; table < loads.length; table++) {
+            assertTrue(loads[table] <= problem.capacities()[table],
+                    "Table " + table + " has " + loads[table] + " of " + problem.capacities()[table] + " seats");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.model.WaitlistEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaitlistIndexTests {
+
+    private final WaitlistIndex waitlist = new WaitlistIndex();
+
+    @Test
+    void shouldSeatLongestWaitingGuestWhosePartyFits() {
+        waitlist.add(entry(1, "Big Party", 5));
+        waitlist.add(entry(2, "Couple", 1));
+        waitlist.add(entry(3, "Solo", 0));
+        waitlist.add(entry(4, "Another Couple", 1));
+
+        // Big Party joined first but does not fit in three seats
+        assertEquals("Couple", waitlist.pollFirstFitting(3).getName());
+        assertEquals("Solo", waitlist.pollFirstFitting(3).getName());
+        assertEquals("Another Couple", waitlist.pollFirstFitting(3).getName());
+        assertNull(waitlist.pollFirstFitting(3));
+
+        assertEquals("Big Party", waitlist.pollFirstFitting(6).getName());
+        assertTrue(waitlist.isEmpty());
+    }
+
+    @Test
+    void shouldNotSeatGuestsWhoHaveLeftTheWaitlist() {
+        WaitlistEntry leaving = entry(1, "Leaving", 0);
+        waitlist.add(leaving);
+        waitlist.add(entry(2, "Staying", 0));
+
+        assertTrue(waitlist.remove(leaving));
+        assertFalse(waitlist.remove(leaving));
+        assertEquals(1, waitlist.size());
+        assertEquals("Staying", waitlist.pollFirstFitting(1).getName());
+    }
+
+    private static WaitlistEntry entry(long id, String name, int accompanyingGuests) {
+        return WaitlistEntry.builder().id(id).eventId("summer-party").name(name).accompanyingGuests(accompanyingGuests).build();
+    }
+}
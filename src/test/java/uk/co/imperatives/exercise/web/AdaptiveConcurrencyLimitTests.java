@@ -0,0 +1,76 @@
+package uk.co.imperatives.exercise.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveConcurrencyLimitTests {
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong();
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, 1.5, now::get);
+    private final AdaptiveConcurrencyLimit.Latency checkIn = limit.watch();
+    private final AdaptiveConcurrencyLimit.Latency reporting = limit.watch();
+
+    @Test
+    void shouldTurnAwayRequestsOverTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void shouldShrinkWhileCheckInsAreSlowAndGrowBackAfterwards() {
+        fillLimit();
+        record(checkIn, 200, MILLISECOND);
+        int usualLimit = limit.limit();
+        assertTrue(usualLimit >= 10, "limit " + usualLimit);
+
+        record(checkIn, 30, 10 * MILLISECOND);
+        assertEquals(2, limit.limit());
+
+        record(checkIn, 200, MILLISECOND);
+        assertTrue(limit.limit() >= 10, "limit " + limit.limit());
+    }
+
+    @Test
+    void shouldNotGrowWhileLimitIsLittleUsed() {
+        record(reporting, 200, MILLISECOND);
+
+        assertEquals(10, limit.limit());
+    }
+
+    @Test
+    void shouldIgnoreLatenciesNoLongerRecorded() {
+        fillLimit();
+        record(checkIn, 200, MILLISECOND);
+        record(checkIn, 30, 10 * MILLISECOND);
+        assertEquals(2, limit.limit());
+
+        // Check-ins stop while they are slow, and reporting requests are as fast as usual
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        record(reporting, 50, MILLISECOND);
+        assertTrue(limit.limit() > 2, "limit " + limit.limit());
+    }
+
+    private void fillLimit() {
+        while (limit.tryAcquire()) {
+        }
+    }
+
+    private void record(AdaptiveConcurrencyLimit.Latency latency, int requests, long nanos) {
+        for (int i = 0; i < requests; i++) {
+            now.addAndGet(MILLISECOND);
+            limit.record(latency, nanos);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package uk.co.imperatives.exercise.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControlFilterTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 10, 1.5, now::get);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(true, limit, now::get, Duration.ofMillis(1500), meterRegistry);
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @Test
+    void shouldClassifyCheckInsChangesAndReports() {
+        assertEquals(AdmissionControlFilter.EndpointClass.CHECK_IN, AdmissionControlFilter.classify(request("PUT", "/guest_list/arrive")));
+        assertEquals(AdmissionControlFilter.EndpointClass.CHECK_IN, AdmissionControlFilter.classify(request("PATCH", "/guest_list/Betty%20Boop/leave")));
+        assertEquals(AdmissionControlFilter.EndpointClass.CHANGE, AdmissionControlFilter.classify(request("POST", "/guest_list")));
+        assertEquals(AdmissionControlFilter.EndpointClass.REPORTING, AdmissionControlFilter.classify(request("GET", "/party_tables/guests_at_table")));
+    }
+
+    @Test
+    void shouldShedReportingOverTheLimitButAlwaysAdmitCheckIns() throws Exception {
+        // A report in progress takes the only place, while a check-in and another report arrive
+        FilterChain chain = (request, response) -> {
+            handled.incrementAndGet();
+            if (handled.get() == 1) {
+                assertEquals(200, perform(request("PUT", "/guest_list/arrive")).getStatus());
+                MockHttpServletResponse shedResponse = perform(request("GET", "/party_tables/seats_empty"));
+                assertEquals(503, shedResponse.getStatus());
+                assertEquals("2", shedResponse.getHeader("Retry-After"));
+            }
+        };
+        filter.doFilter(request("GET", "/party_tables/guests_at_table"), new MockHttpServletResponse(), chain);
+
+        assertEquals(2, handled.get());
+        assertEquals(1.0, meterRegistry.get("party.admission.shed").counter().count());
+        assertEquals(200, perform(request("GET", "/party_tables/seats_empty")).getStatus());
+    }
+
+    @Test
+    void shouldNotLimitOtherPaths() throws Exception {
+        assertTrue(filter.shouldNotFilter(request("GET", "/actuator/prometheus")));
+        assertTrue(filter.shouldNotFilter(request("GET", "/guest_listing")));
+    }
+
+    @Test
+    void shouldAdmitEverythingWhenDisabled() throws Exception {
+        var disabled = new AdmissionControlFilter(false, limit, now::get, Duration.ofMillis(1500), meterRegistry);
+        // The only place is taken, so an enabled filter would turn the report away
+        assertTrue(limit.tryAcquire());
+
+        var response = new MockHttpServletResponse();
+        disabled.doFilter(request("GET", "/party_tables/seats_empty"), response, (req, res) -> handled.incrementAndGet());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1, handled.get());
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) {
+        var response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, (req, res) -> handled.incrementAndGet());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        var request = new MockHttpServletRequest(method, path);
+        request.setRequestURI(path);
+        return request;
+    }
+}
@@ -0,0 +1,156 @@
+package uk.co.imperatives.exercise.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdempotencyFilterTests {
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+
+    private final AtomicLong now = new AtomicLong();
+    private final IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 2, now::get);
+    private final IdempotencyFilter filter = new IdempotencyFilter(store);
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @Test
+    void shouldHandleConcurrentDuplicatesOnce() throws Exception {
+        var firstStarted = new CountDownLatch(1);
+        var finishFirst = new CountDownLatch(1);
+        FilterChain slowChain = (request, response) -> {
+            handled.incrementAndGet();
+            firstStarted.countDown();
+            try {
+                finishFirst.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            created(response);
+        };
+
+        var first = CompletableFuture.supplyAsync(() -> perform("key", "Mickey Mouse", slowChain));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        var duplicate = CompletableFuture.supplyAsync(() -> perform("key", "Mickey Mouse", slowChain));
+        finishFirst.countDown();
+
+        assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(201, replayed.getStatus());
+        assertEquals("true", replayed.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals("{\"name\":\"Mickey Mouse\"}", replayed.getContentAsString());
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    void shouldRejectKeyReusedForDifferentRequest() {
+        perform("key", "Mickey Mouse", this::created);
+
+        assertEquals(422, perform("key", "Donald Duck", this::created).getStatus());
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    void shouldNotStoreServerErrors() {
+        FilterChain failingChain = (request, response) -> {
+            handled.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        };
+
+        assertEquals(503, perform("key", "Mickey Mouse", failingChain).getStatus());
+        assertEquals(201, perform("key", "Mickey Mouse", this::created).getStatus());
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void shouldForgetKeysOnceExpiredOrFull() {
+        perform("first", "Mickey Mouse", this::created);
+        now.set(5 * MINUTE);
+        perform("second", "Mickey Mouse", this::created);
+        perform("third", "Mickey Mouse", this::created);
+        assertEquals(2, store.size());
+
+        // The oldest key was dropped to make room
+        assertNull(perform("first", "Mickey Mouse", this::created).getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+
+        now.set(20 * MINUTE);
+        assertNull(perform("second", "Mickey Mouse", this::created).getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void shouldLetTheBodyBeReadAsynchronously() {
+        var body = new ByteArrayOutputStream();
+        var allRead = new AtomicInteger();
+        FilterChain asyncChain = (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[8];
+                    int read;
+                    while (input.isReady() && (read = input.read(buffer)) != -1) {
+                        body.write(buffer, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+            created(request, response);
+        };
+
+        assertEquals(201, perform("key", "Mickey Mouse", asyncChain).getStatus());
+        assertEquals("{\"name\":\"Mickey Mouse\"}", body.toString(StandardCharsets.UTF_8));
+        assertEquals(1, allRead.get());
+    }
+
+    private void created(ServletRequest request, ServletResponse response) throws IOException {
+        handled.incrementAndGet();
+        created(response);
+    }
+
+    private static void created(ServletResponse response) throws IOException {
+        ((HttpServletResponse) response).setStatus(201);
+        response.setContentType("application/json");
+        response.getOutputStream().write("{\"name\":\"Mickey Mouse\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse perform(String idempotencyKey, String guestName, FilterChain chain) {
+        var request = new MockHttpServletRequest("POST", "/guest_list");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey);
+        request.setContent(("{\"name\":\"" + guestName + "\"}").getBytes(StandardCharsets.UTF_8));
+        var response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}